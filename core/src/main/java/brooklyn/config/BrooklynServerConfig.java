@@ -66,6 +66,14 @@ public class BrooklynServerConfig {
         "Optional location spec string for an object store (e.g. jclouds:swift:URL) where persisted state should be kept; "
         + "if blank or not supplied, the file system is used"); 
 
+    public static final ConfigKey<Boolean> PERSISTENCE_SEGMENT_LOG = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.persistence.segmentLog", 
+        "Whether file-system persistence should keep state in an append-only segment log, rather than one file per item; "
+        + "if enabled for an existing persistence directory of files, they are migrated into the log on startup "
+        + "(and moved to a backup directory beside it), but there is no migration back; "
+        + "only supported for a single management node, i.e. with high availability disabled", 
+        false);
+
     public static final ConfigKey<String> PERSISTENCE_BACKUPS_DIR = newStringConfigKey(
         "brooklyn.persistence.backups.dir", 
         "Directory or container name for writing backups of persisted state; "
@@ -29,6 +29,8 @@ import java.util.Set;
 import brooklyn.enricher.basic.AbstractEnricher;
 import brooklyn.enricher.basic.Aggregator;
 import brooklyn.enricher.basic.Combiner;
+import brooklyn.enricher.basic.IncrementalReducer;
+import brooklyn.enricher.basic.IncrementalReducers;
 import brooklyn.enricher.basic.Propagator;
 import brooklyn.enricher.basic.Transformer;
 import brooklyn.enricher.basic.UpdatingMap;
@@ -43,12 +45,14 @@ import brooklyn.util.collections.MutableMap;
 import brooklyn.util.collections.MutableSet;
 import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.text.Strings;
+import brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -73,6 +77,7 @@ public class Enrichers {
     public abstract static class AbstractEnricherBuilder<B extends AbstractEnricherBuilder<B>> extends Builder<B> {
         final Class<? extends Enricher> enricherType;
         Boolean suppressDuplicates;
+        Double suppressDuplicatesDeadband;
         String uniqueTag;
         Set<Object> tags = MutableSet.of();
         
@@ -92,6 +97,12 @@ public class Enrichers {
             this.suppressDuplicates = suppressDuplicates;
             return self();
         }
+        /** suppresses duplicates, also treating numeric values within the given deadband of the current value as duplicates */
+        public B suppressDuplicatesWithinDeadband(Number deadband) {
+            this.suppressDuplicates = true;
+            this.suppressDuplicatesDeadband = deadband.doubleValue();
+            return self();
+        }
 
         protected abstract String getDefaultUniqueTag();
         
@@ -107,6 +118,8 @@ public class Enrichers {
             if (!tags.isEmpty()) spec.tags(tags);
             if (suppressDuplicates!=null)
                 spec.configure(AbstractEnricher.SUPPRESS_DUPLICATES, suppressDuplicates);
+            if (suppressDuplicatesDeadband!=null)
+                spec.configure(AbstractEnricher.SUPPRESS_DUPLICATES_DEADBAND, suppressDuplicatesDeadband);
             
             return spec;
         }
@@ -182,6 +195,13 @@ public class Enrichers {
         protected Predicate<Object> valueFilter;
         protected Object defaultValueForUnreportedSensors;
         protected Object valueToReportIfNoSensors;
+        protected Supplier<? extends IncrementalReducer<?,?>> reducing;
+        protected IncrementalReduction incrementalReduction;
+        protected Double percentile;
+        protected Duration minPublishPeriod;
+        
+        /** built-in reductions, resolved to an {@link IncrementalReducer} factory at build time (once the other fields are known) */
+        protected enum IncrementalReduction { SUM, AVERAGE, COUNT, MIN, MAX, PERCENTILE }
         
         public AbstractAggregatorBuilder(AttributeSensor<S> aggregating) {
             super(Aggregator.class);
@@ -210,6 +230,19 @@ public class Enrichers {
         }
         public B computing(Function<? super Collection<S>, ? extends T> val) {
             this.computing = checkNotNull(val);
+            this.reducing = null;
+            this.incrementalReduction = null;
+            return self();
+        }
+        /**
+         * Uses the given {@link IncrementalReducer} factory, updating the aggregate as each value changes,
+         * instead of re-computing over all values.
+         * @see IncrementalReducers
+         */
+        public B reducing(Supplier<? extends IncrementalReducer<? super S, ? extends T>> val) {
+            this.reducing = checkNotNull(val);
+            this.incrementalReduction = null;
+            this.computing = null;
             return self();
         }
         @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -220,6 +253,7 @@ public class Enrichers {
                     return sum((Collection)input, (Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken) publishing.getTypeToken());
                 }};
             this.computing((Function)function);
+            this.incrementalReduction = IncrementalReduction.SUM;
             return self();
         }
         @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -230,6 +264,30 @@ public class Enrichers {
                     return average((Collection)input, (Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, (TypeToken) publishing.getTypeToken());
                 }};
             this.computing((Function)function);
+            this.incrementalReduction = IncrementalReduction.AVERAGE;
+            return self();
+        }
+        /** counts the reported values, including nulls iff {@link #defaultValueForUnreportedSensors(Object)} is set */
+        public B computingCount() {
+            return setIncrementalReduction(IncrementalReduction.COUNT);
+        }
+        /** the smallest reported value (values must be {@link Comparable}) */
+        public B computingMin() {
+            return setIncrementalReduction(IncrementalReduction.MIN);
+        }
+        /** the largest reported value (values must be {@link Comparable}) */
+        public B computingMax() {
+            return setIncrementalReduction(IncrementalReduction.MAX);
+        }
+        /** an approximation (to within 1%) of the given percentile (0 to 100) of the reported numeric values */
+        public B computingPercentile(double val) {
+            this.percentile = val;
+            return setIncrementalReduction(IncrementalReduction.PERCENTILE);
+        }
+        private B setIncrementalReduction(IncrementalReduction val) {
+            this.computing = null;
+            this.reducing = null;
+            this.incrementalReduction = val;
             return self();
         }
         public B defaultValueForUnreportedSensors(S val) {
@@ -248,11 +306,38 @@ public class Enrichers {
             this.excludingBlank = true;
             return self();
         }
+        /** publishes at most once per the given period, coalescing changes within it */
+        public B minPublishPeriod(Duration val) {
+            this.minPublishPeriod = val;
+            return self();
+        }
         @Override
         protected String getDefaultUniqueTag() {
             if (publishing==null) return null;
             return "aggregator:"+publishing.getName();
         }
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        protected Supplier<? extends IncrementalReducer<?,?>> getReducer() {
+            if (reducing != null || incrementalReduction == null) return reducing;
+            Class<? extends Number> numberType = (publishing != null && Number.class.isAssignableFrom(publishing.getType())) 
+                    ? (Class<? extends Number>) publishing.getType() : null;
+            switch (incrementalReduction) {
+            case SUM: 
+                return IncrementalReducers.sum((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, numberType);
+            case AVERAGE: 
+                return IncrementalReducers.mean((Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, numberType);
+            case COUNT: 
+                return IncrementalReducers.count(defaultValueForUnreportedSensors != null);
+            case MIN: 
+                return IncrementalReducers.min((Comparable)valueToReportIfNoSensors);
+            case MAX: 
+                return IncrementalReducers.max((Comparable)valueToReportIfNoSensors);
+            case PERCENTILE: 
+                return IncrementalReducers.percentile(percentile, (Number)defaultValueForUnreportedSensors, (Number)valueToReportIfNoSensors, numberType);
+            default:
+                throw new IllegalStateException("Unexpected reduction "+incrementalReduction);
+            }
+        }
         public EnricherSpec<?> build() {
             Predicate<Object> valueFilter;
             if (Boolean.TRUE.equals(excludingBlank)) {
@@ -273,6 +358,8 @@ public class Enrichers {
                             .putIfNotNull(Aggregator.FROM_CHILDREN, fromChildren)
                             .putIfNotNull(Aggregator.FROM_MEMBERS, fromMembers)
                             .putIfNotNull(Aggregator.TRANSFORMATION, computing)
+                            .putIfNotNull(Aggregator.REDUCER, getReducer())
+                            .putIfNotNull(Aggregator.MIN_PUBLISH_PERIOD, minPublishPeriod)
                             .putIfNotNull(Aggregator.FROM_HARDCODED_PRODUCERS, fromHardcodedProducers)
                             .putIfNotNull(Aggregator.ENTITY_FILTER, entityFilter)
                             .putIfNotNull(Aggregator.VALUE_FILTER, valueFilter)
@@ -288,6 +375,9 @@ public class Enrichers {
                     .add("publishing", publishing)
                     .add("fromEntity", fromEntity)
                     .add("computing", computing)
+                    .add("reducing", reducing)
+                    .add("incrementalReduction", incrementalReduction)
+                    .add("minPublishPeriod", minPublishPeriod)
                     .add("fromMembers", fromMembers)
                     .add("fromChildren", fromChildren)
                     .add("excludingBlank", excludingBlank)
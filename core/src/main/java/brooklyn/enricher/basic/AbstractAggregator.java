@@ -21,6 +21,7 @@ package brooklyn.enricher.basic;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,13 +31,18 @@ import brooklyn.entity.Entity;
 import brooklyn.entity.Group;
 import brooklyn.entity.basic.AbstractEntity;
 import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.basic.EntityLocal;
 import brooklyn.entity.trait.Changeable;
 import brooklyn.event.Sensor;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
+import brooklyn.util.collections.MutableMap;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.guava.Maybe;
+import brooklyn.util.task.BasicTask;
+import brooklyn.util.task.ScheduledTask;
+import brooklyn.util.time.Duration;
 
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
@@ -66,6 +72,10 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
 
     public static final ConfigKey<Predicate<?>> VALUE_FILTER = ConfigKeys.newConfigKey(new TypeToken<Predicate<?>>() {}, "enricher.aggregating.valueFilter");
 
+    public static final ConfigKey<Duration> MIN_PUBLISH_PERIOD = ConfigKeys.newConfigKey(Duration.class, "enricher.aggregating.minPublishPeriod", 
+            "Minimum time between publishing the aggregate; changes within that period are coalesced into a single publish "
+            + "at the end of it (default is to publish on every change)");
+
     protected Entity producer;
     protected Sensor<U> targetSensor;
     protected T defaultMemberValue;
@@ -74,6 +84,10 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
     protected Boolean fromChildren;
     protected Predicate<? super Entity> entityFilter;
     protected Predicate<? super T> valueFilter;
+    protected Duration minPublishPeriod;
+    
+    private final AtomicBoolean publishQueued = new AtomicBoolean(false);
+    private volatile long lastPublishTime = 0;
     
     public AbstractAggregator() {}
 
@@ -118,6 +132,7 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
         this.fromChildren = Maybe.fromNullable(getConfig(FROM_CHILDREN)).or(fromChildren);
         this.entityFilter = (Predicate<? super Entity>) (getConfig(ENTITY_FILTER) == null ? Predicates.alwaysTrue() : getConfig(ENTITY_FILTER));
         this.valueFilter = (Predicate<? super T>) (getConfig(VALUE_FILTER) == null ? Predicates.alwaysTrue() : getConfig(VALUE_FILTER));
+        this.minPublishPeriod = getConfig(MIN_PUBLISH_PERIOD);
         
         setEntityLoadingTargetConfig();
     }
@@ -200,8 +215,53 @@ public abstract class AbstractAggregator<T,U> extends AbstractEnricher implement
 
     /**
      * Called whenever the values for the set of producers changes (e.g. on an event, or on a member added/removed).
+     * If {@link #MIN_PUBLISH_PERIOD} is set and we published recently, schedules a publish for the end of that period
+     * (if one is not already scheduled) rather than publishing immediately.
      */
     protected void onUpdated() {
+        if (minPublishPeriod == null || minPublishPeriod.toMilliseconds() <= 0) {
+            publishNow();
+            return;
+        }
+        if (!publishQueued.compareAndSet(false, true)) {
+            // a publish is already pending, and will compute using the latest values
+            return;
+        }
+        long delay = lastPublishTime + minPublishPeriod.toMilliseconds() - System.currentTimeMillis();
+        if (delay <= 0 || entity == null) {
+            publishQueued.set(false);
+            lastPublishTime = System.currentTimeMillis();
+            publishNow();
+        } else {
+            publishAfterDelay(delay);
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void publishAfterDelay(long delay) {
+        if (LOG.isTraceEnabled()) LOG.trace("{} scheduling publish in {}ms", this, delay);
+        Runnable job = new Runnable() {
+            @Override public void run() {
+                // clear the flag before computing, so that changes made while we compute cause another publish
+                publishQueued.set(false);
+                lastPublishTime = System.currentTimeMillis();
+                if (!isRunning()) return;
+                try {
+                    publishNow();
+                } catch (Exception e) {
+                    if (isRunning()) {
+                        LOG.error("Error in enricher "+this+": "+e, e);
+                    } else {
+                        if (LOG.isDebugEnabled()) LOG.debug("Error in enricher "+this+" (but no longer running): "+e, e);
+                    }
+                }
+            }
+        };
+        ScheduledTask task = new ScheduledTask(MutableMap.of("delay", Duration.millis(delay)), new BasicTask(job));
+        ((EntityInternal)entity).getExecutionContext().submit(task);
+    }
+
+    protected void publishNow() {
         try {
             emit(targetSensor, compute());
         } catch (Throwable t) {
@@ -21,6 +21,7 @@ package brooklyn.enricher.basic;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import brooklyn.config.ConfigKey;
 import brooklyn.entity.basic.ConfigKeys;
@@ -31,13 +32,13 @@ import brooklyn.entity.rebind.BasicEnricherRebindSupport;
 import brooklyn.entity.rebind.RebindSupport;
 import brooklyn.event.AttributeSensor;
 import brooklyn.event.Sensor;
+import brooklyn.event.basic.AttributeMap;
 import brooklyn.mementos.EnricherMemento;
 import brooklyn.policy.Enricher;
 import brooklyn.policy.EnricherType;
 import brooklyn.policy.basic.AbstractEntityAdjunct;
 import brooklyn.util.flags.TypeCoercions;
 
-import com.google.common.base.Objects;
 import com.google.common.collect.Maps;
 
 /**
@@ -48,8 +49,14 @@ public abstract class AbstractEnricher extends AbstractEntityAdjunct implements
     public static final ConfigKey<Boolean> SUPPRESS_DUPLICATES = ConfigKeys.newBooleanConfigKey("enricher.suppressDuplicates",
         "Whether duplicate values published by this enricher should be suppressed");
 
+    public static final ConfigKey<Double> SUPPRESS_DUPLICATES_DEADBAND = ConfigKeys.newDoubleConfigKey("enricher.suppressDuplicates.deadband",
+        "When suppressing duplicates, numeric values which differ from the current value by no more than this amount " +
+        "are also treated as duplicates (ignored if enricher.suppressDuplicates is not true)");
+
     private final EnricherDynamicType enricherType;
     protected Boolean suppressDuplicates;
+    protected Double suppressDuplicatesDeadband;
+    private final AtomicLong numSuppressedDuplicates = new AtomicLong();
 
     public AbstractEnricher() {
         this(Maps.newLinkedHashMap());
@@ -81,6 +88,14 @@ public abstract class AbstractEnricher extends AbstractEntityAdjunct implements
         Boolean suppressDuplicates = getConfig(SUPPRESS_DUPLICATES);
         if (suppressDuplicates!=null) 
             this.suppressDuplicates = suppressDuplicates;
+        Double deadband = getConfig(SUPPRESS_DUPLICATES_DEADBAND);
+        if (deadband!=null)
+            this.suppressDuplicatesDeadband = deadband;
+    }
+    
+    /** number of values which were not published because they were duplicates of the current value; see {@link #SUPPRESS_DUPLICATES} */
+    public long getNumSuppressedDuplicates() {
+        return numSuppressedDuplicates.get();
     }
     
     @Override
@@ -103,8 +118,10 @@ public abstract class AbstractEnricher extends AbstractEntityAdjunct implements
         if (sensor instanceof AttributeSensor) {
             if (Boolean.TRUE.equals(suppressDuplicates)) {
                 T oldValue = entity.getAttribute((AttributeSensor<T>)sensor);
-                if (Objects.equal(oldValue, newVal))
+                if (AttributeMap.isUnchanged(oldValue, newVal, suppressDuplicatesDeadband)) {
+                    numSuppressedDuplicates.incrementAndGet();
                     return;
+                }
             }
             entity.setAttribute((AttributeSensor<T>)sensor, newVal);
         } else { 
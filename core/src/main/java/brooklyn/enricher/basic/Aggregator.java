@@ -39,9 +39,10 @@ import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
 import brooklyn.util.collections.MutableList;
 import brooklyn.util.collections.MutableMap;
-import brooklyn.util.exceptions.Exceptions;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Iterables;
 import com.google.common.reflect.TypeToken;
 
@@ -55,8 +56,19 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     public static final ConfigKey<Sensor<?>> SOURCE_SENSOR = ConfigKeys.newConfigKey(new TypeToken<Sensor<?>>() {}, "enricher.sourceSensor");
     public static final ConfigKey<Function<? super Collection<?>, ?>> TRANSFORMATION = ConfigKeys.newConfigKey(new TypeToken<Function<? super Collection<?>, ?>>() {}, "enricher.transformation");
 
+    /**
+     * Factory for an {@link IncrementalReducer}, used in preference to {@link #TRANSFORMATION} if supplied, 
+     * so that each event updates the aggregate in constant (or log) time rather than re-computing over all values.
+     * @see IncrementalReducers
+     */
+    @Beta
+    public static final ConfigKey<Supplier<? extends IncrementalReducer<?,?>>> REDUCER = ConfigKeys.newConfigKey(new TypeToken<Supplier<? extends IncrementalReducer<?,?>>>() {}, 
+            "enricher.aggregating.reducer");
+
     protected Sensor<T> sourceSensor;
     protected Function<? super Collection<T>, ? extends U> transformation;
+    /** guarded by values */
+    protected IncrementalReducer<? super T, ? extends U> reducer;
     
     /**
      * Users of values should either on it synchronize when iterating over its entries or use
@@ -71,7 +83,13 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     protected void setEntityLoadingConfig() {
         super.setEntityLoadingConfig();
         this.sourceSensor = (Sensor<T>) getRequiredConfig(SOURCE_SENSOR);
-        this.transformation = (Function<? super Collection<T>, ? extends U>) getRequiredConfig(TRANSFORMATION);
+        Supplier<? extends IncrementalReducer<?,?>> reducerFactory = getConfig(REDUCER);
+        if (reducerFactory != null) {
+            this.reducer = (IncrementalReducer<? super T, ? extends U>) reducerFactory.get();
+            this.transformation = (Function<? super Collection<T>, ? extends U>) getConfig(TRANSFORMATION);
+        } else {
+            this.transformation = (Function<? super Collection<T>, ? extends U>) getRequiredConfig(TRANSFORMATION);
+        }
     }
         
     @Override
@@ -112,7 +130,11 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
                 } else {
                     initialVal = null;
                 }
-                values.put(producer, initialVal != null ? initialVal : defaultMemberValue);
+                T val = initialVal != null ? initialVal : defaultMemberValue;
+                boolean hadNull = values.containsKey(producer);
+                values.put(producer, val);
+                if (hadNull) removeFromReducer(null);
+                addToReducer(val);
                 //we might skip in onEvent in the short window while !values.containsKey(producer)
                 //but that's okay because the put which would have been done there is done here now
             } else {
@@ -125,7 +147,11 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
     
     @Override
     protected void onProducerRemoved(Entity producer) {
-        values.remove(producer);
+        synchronized (values) {
+            if (values.containsKey(producer)) {
+                removeFromReducer(values.remove(producer));
+            }
+        }
         onUpdated();
     }
 
@@ -134,7 +160,9 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         Entity e = event.getSource();
         synchronized (values) {
             if (values.containsKey(e)) {
-                values.put(e, event.getValue());
+                T old = values.put(e, event.getValue());
+                removeFromReducer(old);
+                addToReducer(event.getValue());
             } else {
                 if (LOG.isDebugEnabled()) LOG.debug("{} received event for unknown producer ({}); presumably that producer has recently been removed", this, e);
             }
@@ -142,18 +170,20 @@ public class Aggregator<T,U> extends AbstractAggregator<T,U> implements SensorEv
         onUpdated();
     }
 
-    protected void onUpdated() {
-        try {
-            emit(targetSensor, compute());
-        } catch (Throwable t) {
-            LOG.warn("Error calculating and setting aggregate for enricher "+this, t);
-            throw Exceptions.propagate(t);
-        }
+    /** caller must hold the lock on values */
+    private void addToReducer(T val) {
+        if (reducer != null && valueFilter.apply(val)) reducer.add(val);
     }
-    
+
+    /** caller must hold the lock on values */
+    private void removeFromReducer(T val) {
+        if (reducer != null && valueFilter.apply(val)) reducer.remove(val);
+    }
+
     @Override
     protected Object compute() {
         synchronized (values) {
+            if (reducer != null) return reducer.get();
             // TODO Could avoid copying when filter not needed
             List<T> vs = MutableList.copyOf(Iterables.filter(values.values(), valueFilter));
             return transformation.apply(vs);
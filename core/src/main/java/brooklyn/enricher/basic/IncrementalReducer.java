@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.enricher.basic;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Maintains an aggregate over a changing collection of values, updated one value at a time,
+ * so that an {@link Aggregator} does not need to re-apply a function to every member's value
+ * each time a single member reports.
+ * <p>
+ * Implementations need not be thread-safe; callers are expected to synchronize.
+ * Values passed to {@link #remove(Object)} will always previously have been passed to {@link #add(Object)}.
+ * 
+ * @see IncrementalReducers
+ */
+@Beta
+public interface IncrementalReducer<T,U> {
+
+    void add(T value);
+
+    void remove(T value);
+
+    /** the aggregate of all values currently added (and not removed) */
+    U get();
+}
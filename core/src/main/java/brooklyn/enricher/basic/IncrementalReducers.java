@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.enricher.basic;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+
+import brooklyn.util.flags.TypeCoercions;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.TreeMultiset;
+
+/**
+ * Factories for common {@link IncrementalReducer}s, for use with {@link Aggregator#REDUCER}
+ * (or more typically via {@code Enrichers.builder().aggregating(...).computingSum()} etc).
+ * <p>
+ * Each factory is a {@link Supplier} so that every enricher instance (including on rebind) 
+ * gets its own reducer state, with the supplier itself being the only thing held in config.
+ * <p>
+ * Numeric reducers follow the conventions of {@code Enrichers.sum/average}: a null value
+ * is ignored unless a {@code valueIfNull} is supplied, in which case that is used instead; 
+ * if there are no values then {@code valueIfNone} is returned; results are cast to the requested
+ * primitive number type.
+ */
+@Beta
+public class IncrementalReducers {
+
+    private IncrementalReducers() {}
+
+    public static Supplier<IncrementalReducer<Number,Number>> sum(Number valueIfNull, Number valueIfNone, Class<? extends Number> type) {
+        return new SumFactory(valueIfNull, valueIfNone, type);
+    }
+
+    public static Supplier<IncrementalReducer<Number,Number>> mean(Number valueIfNull, Number valueIfNone, Class<? extends Number> type) {
+        return new MeanFactory(valueIfNull, valueIfNone, type);
+    }
+
+    /** counts the values; nulls are counted only if {@code includeNulls} */
+    public static Supplier<IncrementalReducer<Object,Integer>> count(boolean includeNulls) {
+        return new CountFactory(includeNulls);
+    }
+
+    /** smallest (by natural ordering) non-null value, or {@code valueIfNone} */
+    public static <T extends Comparable<? super T>> Supplier<IncrementalReducer<T,T>> min(T valueIfNone) {
+        return new OrderStatisticFactory<T>(false, valueIfNone);
+    }
+
+    /** largest (by natural ordering) non-null value, or {@code valueIfNone} */
+    public static <T extends Comparable<? super T>> Supplier<IncrementalReducer<T,T>> max(T valueIfNone) {
+        return new OrderStatisticFactory<T>(true, valueIfNone);
+    }
+
+    /**
+     * Approximate percentile of the values, using a log-bucketed histogram with 1% relative accuracy.
+     * @see #percentile(double, double, Number, Number, Class)
+     */
+    public static Supplier<IncrementalReducer<Number,Number>> percentile(double percentile, Number valueIfNull, Number valueIfNone, Class<? extends Number> type) {
+        return percentile(percentile, 0.01, valueIfNull, valueIfNone, type);
+    }
+
+    /**
+     * Approximate percentile of the values (0 to 100), using a histogram whose buckets grow geometrically 
+     * so that the value reported is within {@code relativeAccuracy} of a value at that rank.
+     * Unlike most sketches, this supports removal, and the number of buckets is logarithmic 
+     * in the range of values rather than proportional to the number of values.
+     */
+    public static Supplier<IncrementalReducer<Number,Number>> percentile(double percentile, double relativeAccuracy, Number valueIfNull, Number valueIfNone, Class<? extends Number> type) {
+        return new PercentileFactory(percentile, relativeAccuracy, valueIfNull, valueIfNone, type);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Number cast(Number n, Class<? extends Number> type) {
+        return (type == null) ? n : TypeCoercions.castPrimitive(n, (Class<Number>)type);
+    }
+
+    private static boolean isIntegral(Number n) {
+        return (n instanceof Integer) || (n instanceof Long) || (n instanceof Short) || (n instanceof Byte);
+    }
+
+    private abstract static class NumericFactory implements Supplier<IncrementalReducer<Number,Number>>, Serializable {
+        private static final long serialVersionUID = -2475930366387532040L;
+        
+        protected final Number valueIfNull;
+        protected final Number valueIfNone;
+        protected final Class<? extends Number> type;
+
+        NumericFactory(Number valueIfNull, Number valueIfNone, Class<? extends Number> type) {
+            this.valueIfNull = valueIfNull;
+            this.valueIfNone = valueIfNone;
+            this.type = type;
+        }
+        
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).omitNullValues()
+                    .add("valueIfNull", valueIfNull).add("valueIfNone", valueIfNone).add("type", type)
+                    .toString();
+        }
+    }
+
+    /** keeps an exact running sum and count, with integral values summed separately so that removal never drifts */
+    private static class Summing implements IncrementalReducer<Number,Number> {
+        protected final NumericFactory config;
+        protected long integralSum;
+        protected double fractionalSum;
+        protected int count;
+        
+        Summing(NumericFactory config) {
+            this.config = config;
+        }
+        @Override public void add(Number value) {
+            apply(value, 1);
+        }
+        @Override public void remove(Number value) {
+            apply(value, -1);
+        }
+        private void apply(Number value, int sign) {
+            if (value == null) value = config.valueIfNull;
+            if (value == null) return;
+            if (isIntegral(value)) {
+                integralSum += sign * value.longValue();
+            } else {
+                fractionalSum += sign * value.doubleValue();
+            }
+            count += sign;
+            if (count == 0) {
+                // reset, to discard any accumulated floating point error
+                integralSum = 0;
+                fractionalSum = 0;
+            }
+        }
+        protected double total() {
+            return integralSum + fractionalSum;
+        }
+        @Override public Number get() {
+            if (count == 0) return cast(config.valueIfNone, config.type);
+            return cast(total(), config.type);
+        }
+    }
+
+    private static class SumFactory extends NumericFactory {
+        private static final long serialVersionUID = 4409470627433307357L;
+        SumFactory(Number valueIfNull, Number valueIfNone, Class<? extends Number> type) {
+            super(valueIfNull, valueIfNone, type);
+        }
+        @Override public IncrementalReducer<Number, Number> get() {
+            return new Summing(this);
+        }
+    }
+
+    private static class MeanFactory extends NumericFactory {
+        private static final long serialVersionUID = -5190377880829227893L;
+        MeanFactory(Number valueIfNull, Number valueIfNone, Class<? extends Number> type) {
+            super(valueIfNull, valueIfNone, type);
+        }
+        @Override public IncrementalReducer<Number, Number> get() {
+            return new Summing(this) {
+                @Override public Number get() {
+                    if (count == 0) return cast((config.valueIfNone == null) ? null : config.valueIfNone.doubleValue(), config.type);
+                    return cast(total() / count, config.type);
+                }
+            };
+        }
+    }
+
+    private static class CountFactory implements Supplier<IncrementalReducer<Object,Integer>>, Serializable {
+        private static final long serialVersionUID = 7367281326548227064L;
+        
+        private final boolean includeNulls;
+        
+        CountFactory(boolean includeNulls) {
+            this.includeNulls = includeNulls;
+        }
+        @Override public IncrementalReducer<Object, Integer> get() {
+            return new IncrementalReducer<Object, Integer>() {
+                int count;
+                @Override public void add(Object value) {
+                    if (value != null || includeNulls) count++;
+                }
+                @Override public void remove(Object value) {
+                    if (value != null || includeNulls) count--;
+                }
+                @Override public Integer get() {
+                    return count;
+                }
+            };
+        }
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("includeNulls", includeNulls).toString();
+        }
+    }
+
+    private static class OrderStatisticFactory<T extends Comparable<? super T>> implements Supplier<IncrementalReducer<T,T>>, Serializable {
+        private static final long serialVersionUID = -4183207622093290006L;
+        
+        private final boolean max;
+        private final T valueIfNone;
+        
+        OrderStatisticFactory(boolean max, T valueIfNone) {
+            this.max = max;
+            this.valueIfNone = valueIfNone;
+        }
+        @Override public IncrementalReducer<T, T> get() {
+            return new IncrementalReducer<T, T>() {
+                final TreeMultiset<T> vals = TreeMultiset.create(Ordering.<T>natural());
+                @Override public void add(T value) {
+                    if (value != null) vals.add(value);
+                }
+                @Override public void remove(T value) {
+                    if (value != null) vals.remove(value);
+                }
+                @Override public T get() {
+                    if (vals.isEmpty()) return valueIfNone;
+                    return max ? vals.lastEntry().getElement() : vals.firstEntry().getElement();
+                }
+            };
+        }
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).omitNullValues()
+                    .add("statistic", max ? "max" : "min").add("valueIfNone", valueIfNone)
+                    .toString();
+        }
+    }
+
+    private static class PercentileFactory extends NumericFactory {
+        private static final long serialVersionUID = 8297445839626958154L;
+        
+        private final double percentile;
+        private final double relativeAccuracy;
+        
+        PercentileFactory(double percentile, double relativeAccuracy, Number valueIfNull, Number valueIfNone, Class<? extends Number> type) {
+            super(valueIfNull, valueIfNone, type);
+            checkArgument(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100 (was %s)", percentile);
+            checkArgument(relativeAccuracy > 0 && relativeAccuracy < 1, "relativeAccuracy must be between 0 and 1, exclusive (was %s)", relativeAccuracy);
+            this.percentile = percentile;
+            this.relativeAccuracy = relativeAccuracy;
+        }
+        @Override public IncrementalReducer<Number, Number> get() {
+            return new PercentileSketch(this);
+        }
+    }
+
+    /**
+     * Buckets of the form (gamma^(i-1), gamma^i], for positive and negative values separately;
+     * reporting the bucket midpoint 2*gamma^i/(gamma+1) is then within the relative accuracy of any value in it.
+     */
+    private static class PercentileSketch implements IncrementalReducer<Number,Number> {
+        private final PercentileFactory config;
+        private final double gamma;
+        private final double logGamma;
+        private final TreeMap<Integer,Long> positive = new TreeMap<Integer,Long>();
+        private final TreeMap<Integer,Long> negative = new TreeMap<Integer,Long>();
+        private long zeros;
+        private long count;
+        
+        PercentileSketch(PercentileFactory config) {
+            this.config = config;
+            this.gamma = (1 + config.relativeAccuracy) / (1 - config.relativeAccuracy);
+            this.logGamma = Math.log(gamma);
+        }
+        @Override public void add(Number value) {
+            apply(value, 1);
+        }
+        @Override public void remove(Number value) {
+            apply(value, -1);
+        }
+        private void apply(Number value, int delta) {
+            if (value == null) value = config.valueIfNull;
+            if (value == null) return;
+            double v = value.doubleValue();
+            if (Double.isNaN(v)) return;
+            count += delta;
+            if (v == 0) {
+                zeros += delta;
+            } else {
+                TreeMap<Integer,Long> buckets = (v > 0) ? positive : negative;
+                int index = (int) Math.ceil(Math.log(Math.abs(v)) / logGamma);
+                Long old = buckets.get(index);
+                long updated = (old == null ? 0 : old) + delta;
+                if (updated <= 0) {
+                    buckets.remove(index);
+                } else {
+                    buckets.put(index, updated);
+                }
+            }
+        }
+        private double valueOf(int index) {
+            return 2 * Math.pow(gamma, index) / (gamma + 1);
+        }
+        @Override public Number get() {
+            if (count <= 0) return cast(config.valueIfNone, config.type);
+            long rank = (long) Math.floor(config.percentile / 100 * (count - 1));
+            long seen = 0;
+            for (Map.Entry<Integer,Long> entry : negative.descendingMap().entrySet()) {
+                seen += entry.getValue();
+                if (seen > rank) return cast(-valueOf(entry.getKey()), config.type);
+            }
+            seen += zeros;
+            if (seen > rank) return cast(0d, config.type);
+            for (Map.Entry<Integer,Long> entry : positive.entrySet()) {
+                seen += entry.getValue();
+                if (seen > rank) return cast(valueOf(entry.getKey()), config.type);
+            }
+            // unreachable unless counts are inconsistent; report the largest value
+            return positive.isEmpty() ? cast(0d, config.type) : cast(valueOf(positive.lastKey()), config.type);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.slf4j.Logger;
@@ -226,6 +227,14 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
     // TODO Assigning temp value because not everything uses EntitySpec; see setManagementContext()
     private AttributeMap attributesInternal = new AttributeMap(this, Maps.<Collection<String>, Object>newLinkedHashMap());
 
+    /**
+     * The highest {@link #getModificationVersion()} handed out by any entity, below which no entity's next version may fall.
+     * Only advanced on reads, so modifications (which just read it) do not contend with each other across entities.
+     */
+    private static final AtomicLong MODIFICATION_VERSION_FLOOR = new AtomicLong();
+
+    private final AtomicLong modificationVersion = new AtomicLong();
+
     /**
      * For temporary data, e.g. timestamps etc for calculating real attribute values, such as when
      * calculating averages over time etc.
@@ -507,6 +516,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
     public void setDisplayName(String newDisplayName) {
         displayName.set(newDisplayName);
         displayNameAutoGenerated = false;
+        noteModified();
         getManagementSupport().getEntityChangeListener().onChanged();
     }
     
@@ -601,6 +611,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
             if (Entities.isAncestor(this, child)) throw new IllegalStateException("loop detected trying to add child "+child+" to "+this+"; it is already an ancestor");
             child.setParent(getProxyIfAvailable());
             changed = children.add(child);
+            if (changed) noteModified();
             
             getManagementSupport().getEntityChangeListener().onChildrenChanged();
         }
@@ -641,6 +652,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
             child.clearParent();
             
             if (changed) {
+                noteModified();
                 getManagementSupport().getEntityChangeListener().onChildrenChanged();
             }
         }
@@ -895,6 +907,40 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
         return result;
     }
 
+    @Override
+    public long getModificationVersion() {
+        long result = modificationVersion.get();
+        // any later modification, of any entity, must then get a later version than this
+        while (true) {
+            long floor = MODIFICATION_VERSION_FLOOR.get();
+            if (floor >= result || MODIFICATION_VERSION_FLOOR.compareAndSet(floor, result)) return result;
+        }
+    }
+
+    @Override
+    public long getAttributeModificationVersion(AttributeSensor<?> attribute) {
+        return attributesInternal.getModificationVersion(attribute);
+    }
+
+    @Override
+    public Set<String> getAttributeNamesModifiedSince(long version) {
+        return attributesInternal.getNamesModifiedSince(version);
+    }
+
+    /**
+     * Records that this entity has changed, returning the new {@link #getModificationVersion()}.
+     * Called automatically when attributes, config, children or the display name change.
+     */
+    @Beta
+    public long noteModified() {
+        long floor = MODIFICATION_VERSION_FLOOR.get();
+        while (true) {
+            long current = modificationVersion.get();
+            long version = Math.max(current, floor) + 1;
+            if (modificationVersion.compareAndSet(current, version)) return version;
+        }
+    }
+
     @Override
     public void removeAttribute(AttributeSensor<?> attribute) {
         if (LOG.isTraceEnabled())
@@ -902,6 +948,8 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
         
         attributesInternal.remove(attribute);
         entityType.removeSensor(attribute);
+        
+        getManagementSupport().getEntityChangeListener().onAttributeChanged(attribute);
     }
 
     /** sets the value of the given attribute sensor from the config key value herein
@@ -959,6 +1007,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
                     new Object[] { this, key, val });
         }
         T result = (T) configsInternal.setConfig(key, val);
+        noteModified();
         
         getManagementSupport().getEntityChangeListener().onConfigChanged(key);
         return result;
@@ -994,7 +1043,9 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
     }
 
     public <T> T setConfigEvenIfOwned(ConfigKey<T> key, T val) {
-        return (T) configsInternal.setConfig(key, val);
+        T result = (T) configsInternal.setConfig(key, val);
+        noteModified();
+        return result;
     }
 
     public <T> T setConfigEvenIfOwned(HasConfigKey<T> key, T val) {
@@ -1016,6 +1067,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
         } else {
             configsInternal.clearInheritedConfig();
         }
+        noteModified();
 
         refreshInheritedConfigOfChildren();
     }
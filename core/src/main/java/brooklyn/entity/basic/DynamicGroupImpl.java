@@ -22,6 +22,7 @@ import groovy.lang.Closure;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,8 @@ import brooklyn.entity.Entity;
 import brooklyn.event.Sensor;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
+import brooklyn.management.ManagementContext;
+import brooklyn.management.internal.AbstractManagementContext;
 import brooklyn.management.internal.CollectionChangeListener;
 import brooklyn.management.internal.ManagementContextInternal;
 import brooklyn.util.GroovyJavaMethods;
@@ -49,6 +52,9 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     protected final Object memberChangeMutex = new Object();
 
     private volatile MyEntitySetChangeListener setChangeListener = null;
+    
+    /** routes entity set changes to {@link #setChangeListener}, if the management context provides one */
+    private volatile DynamicGroupMembershipIndex membershipIndex = null;
 
     public DynamicGroupImpl() { }
 
@@ -67,6 +73,9 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     public void setEntityFilter(Predicate<? super Entity> filter) {
         // TODO Sould this be "evenIfOwned"?
         setConfigEvenIfOwned(ENTITY_FILTER, filter);
+        DynamicGroupMembershipIndex index = membershipIndex;
+        MyEntitySetChangeListener listener = setChangeListener;
+        if (index != null && listener != null) index.register(this, listener);
         rescanEntities();
     }
 
@@ -93,7 +102,9 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
     @Override
     public void stop() {
         setAttribute(RUNNING, false);
-        if (setChangeListener != null) {
+        if (membershipIndex != null) {
+            membershipIndex.unregister(this);
+        } else if (setChangeListener != null) {
             ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
         }
     }
@@ -118,6 +129,17 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
         return entityFilter().apply(e);
     }
 
+    /**
+     * Whether membership is decided by the {@link #entityFilter() filter} alone, so that this group need not be told 
+     * of added entities which its filter cannot match (see {@link DynamicGroupMembershipIndex}).
+     * <p>
+     * True for this class; subclasses are told of all added entities unless they override this to return true, 
+     * which they must not do if they override {@link #acceptsEntity(Entity)} or {@link #onEntityAdded(Entity)}.
+     */
+    protected boolean isMembershipByFilterOnly() {
+        return getClass() == DynamicGroupImpl.class;
+    }
+
     protected void onEntityAdded(Entity item) {
         synchronized (memberChangeMutex) {
             if (acceptsEntity(item)) {
@@ -157,12 +179,18 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
 
     @Override
     public void onManagementBecomingMaster() {
-        if (setChangeListener != null) {
+        if (setChangeListener != null || membershipIndex != null) {
             log.warn("{} becoming master twice", this);
             return;
         }
+        ManagementContext mgmt = getManagementContext();
         setChangeListener = new MyEntitySetChangeListener();
-        ((ManagementContextInternal) getManagementContext()).addEntitySetListener(setChangeListener);
+        if (mgmt instanceof AbstractManagementContext) {
+            membershipIndex = ((AbstractManagementContext)mgmt).getDynamicGroupMembershipIndex();
+            membershipIndex.register(this, setChangeListener);
+        } else {
+            ((ManagementContextInternal) mgmt).addEntitySetListener(setChangeListener);
+        }
         try {
             rescanEntities();
         } catch (Exception e) {
@@ -174,43 +202,59 @@ public class DynamicGroupImpl extends AbstractGroupImpl implements DynamicGroup
 
     @Override
     public void onManagementNoLongerMaster() {
-        if (setChangeListener == null) {
+        if (setChangeListener == null && membershipIndex == null) {
             log.warn("{} no longer master twice", this);
             return;
         }
-        ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
+        if (membershipIndex != null) {
+            membershipIndex.unregister(this);
+            membershipIndex = null;
+        } else {
+            ((ManagementContextInternal) getManagementContext()).removeEntitySetListener(setChangeListener);
+        }
         setChangeListener = null;
     }
 
+    /**
+     * Re-tests the candidate entities against the filter, adding and removing members as required.
+     * The filter is evaluated without holding {@link #memberChangeMutex}; only the resulting changes
+     * are applied under it (re-checking any removal, in case of a concurrent add).
+     */
     @Override
     public void rescanEntities() {
+        if (!isRunning() || !getManagementSupport().isDeployed()) {
+            if (log.isDebugEnabled()) log.debug("{} not scanning for children: stopped", this);
+            return;
+        }
+        if (getConfig(ENTITY_FILTER) == null) {
+            log.debug("{} not (yet) scanning for children: no filter defined", this, this);
+            return;
+        }
+        if (getApplication() == null) {
+            BrooklynLogging.log(log, BrooklynLogging.levelDependingIfReadOnly(this, LoggingLevel.WARN, LoggingLevel.TRACE, LoggingLevel.TRACE),
+                "{} not (yet) scanning for children: no application defined", this);
+            return;
+        }
+        Predicate<? super Entity> filter = entityFilter();
+        Iterable<Entity> candidates = DynamicGroupMembershipIndex.getCandidateEntities(filter, (ManagementContextInternal) getManagementContext());
+        Set<Entity> matched = Sets.newLinkedHashSet(Iterables.filter(candidates, filter));
+        
         synchronized (memberChangeMutex) {
-            if (!isRunning() || !getManagementSupport().isDeployed()) {
-                if (log.isDebugEnabled()) log.debug("{} not scanning for children: stopped", this);
-                return;
-            }
-            if (getConfig(ENTITY_FILTER) == null) {
-                log.debug("{} not (yet) scanning for children: no filter defined", this, this);
-                return;
-            }
-            if (getApplication() == null) {
-                BrooklynLogging.log(log, BrooklynLogging.levelDependingIfReadOnly(this, LoggingLevel.WARN, LoggingLevel.TRACE, LoggingLevel.TRACE),
-                    "{} not (yet) scanning for children: no application defined", this);
-                return;
-            }
             boolean changed = false;
             Collection<Entity> currentMembers = getMembers();
-            Collection<Entity> toRemove = Sets.newLinkedHashSet(currentMembers);
-
-            for (Entity it : Iterables.filter(getManagementContext().getEntityManager().getEntities(), entityFilter())) {
-                toRemove.remove(it);
-                if (!currentMembers.contains(it)) {
+            for (Entity it : matched) {
+                if (!currentMembers.contains(it) && Entities.isManaged(it)) {
                     if (log.isDebugEnabled()) log.debug("{} rescan detected new item {}", this, it);
                     addMember(it);
                     changed = true;
                 }
             }
-            for (Entity it : toRemove) {
+            for (Entity it : currentMembers) {
+                if (matched.contains(it)) continue;
+                if (Entities.isManaged(it) && acceptsEntity(it)) {
+                    // added (or changed) since we evaluated the filter
+                    continue;
+                }
                 if (log.isDebugEnabled()) log.debug("{} rescan detected vanished item {}", this, it);
                 removeMember(it);
                 changed = true;
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.basic;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.ConfigKey;
+import brooklyn.entity.Entity;
+import brooklyn.management.internal.AsyncCollectionChangeAdapter;
+import brooklyn.management.internal.CollectionChangeListener;
+import brooklyn.management.internal.ManagementContextInternal;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Predicate;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+
+/**
+ * Routes entity add/remove notifications to only those {@link DynamicGroupImpl}s which might be interested,
+ * rather than every dynamic group registering its own listener and testing every entity.
+ * <p>
+ * Groups whose filter is one of the recognised {@link EntityPredicates} 
+ * ({@link EntityPredicates#applicationIdEqualTo(String) applicationIdEqualTo}, 
+ * {@link EntityPredicates#isChildOf(Entity) isChildOf},
+ * {@link EntityPredicates#isInstanceOf(Class) isInstanceOf}, 
+ * {@link EntityPredicates#configEqualTo(ConfigKey, Object) configEqualTo} and
+ * {@link EntityPredicates#hasTag(Object) hasTag})
+ * are indexed on that value, if the group {@link DynamicGroupImpl#isMembershipByFilterOnly() opts in};
+ * an added entity is offered only to groups whose index value it matches (and to all groups which are not indexed). 
+ * The group still applies its filter, so the index need only ever produce a superset of the interested groups.
+ * <p>
+ * Removed entities are offered to all registered groups, as handling that needs no filter evaluation
+ * (and subclasses may track removals of entities they have not added as members).
+ * <p>
+ * The index only chooses which groups to notify: a single listener on the entity set does the routing, 
+ * and hands each notification to the group's own listener, which runs on a single-threaded queue per group 
+ * (as it did when each group registered that listener itself), so a slow group does not hold up the others.
+ * <p>
+ * One instance is shared per management context; see {@link brooklyn.management.internal.AbstractManagementContext}.
+ */
+@Beta
+public class DynamicGroupMembershipIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DynamicGroupMembershipIndex.class);
+
+    private final ManagementContextInternal managementContext;
+    
+    /** the index key and delivery for each registered group; guarded by this */
+    private final Map<DynamicGroupImpl, Registration> registered = Maps.newLinkedHashMap();
+    
+    /** the groups currently being routed to; lags {@link #registered} until queued registrations are applied; guarded by this */
+    private final Map<DynamicGroupImpl, Registration> routed = Maps.newLinkedHashMap();
+    
+    /** immutable view of the groups, rebuilt on (rare) registration changes so that routing needs no lock */
+    private volatile Routes routes = new Routes(Collections.<DynamicGroupImpl, Registration>emptyMap());
+    
+    private final CollectionChangeListener<Entity> listener = new CollectionChangeListener<Entity>() {
+        @Override public void onItemAdded(Entity item) { onEntityAdded(item); }
+        @Override public void onItemRemoved(Entity item) { onEntityRemoved(item); }
+    };
+    private boolean listening = false;
+    
+    public DynamicGroupMembershipIndex(ManagementContextInternal managementContext) {
+        this.managementContext = checkNotNull(managementContext, "managementContext");
+    }
+
+    /** 
+     * Starts routing to the given group, or re-indexes it (e.g. if its filter has changed).
+     * Notifications for the group are passed to the given listener, in order, asynchronously 
+     * (as per {@link AsyncCollectionChangeAdapter}, i.e. on a single-threaded queue for that listener).
+     * <p>
+     * As with a listener per group, the group is told only of entities added or removed from now on
+     * (it should rescan to find existing entities). To achieve that, the change is applied in sequence
+     * with the (asynchronous) routing, so may not yet be visible when this method returns.
+     */
+    public void register(final DynamicGroupImpl group, CollectionChangeListener<Entity> groupListener) {
+        synchronized (this) {
+            CollectionChangeListener<Entity> delivery = new AsyncCollectionChangeAdapter<Entity>(managementContext.getExecutionManager(), groupListener);
+            registered.put(group, new Registration(IndexKey.of(group), delivery));
+            if (!listening) {
+                applyRegistration(group);
+                managementContext.addEntitySetListener(listener);
+                listening = true;
+                return;
+            }
+        }
+        managementContext.getExecutionManager().submit(MutableMap.of("tag", listener), new Runnable() {
+            @Override public void run() {
+                applyRegistration(group);
+            }});
+    }
+
+    private synchronized void applyRegistration(DynamicGroupImpl group) {
+        Registration registration = registered.get(group);
+        if (registration == null) return; // unregistered in the meantime
+        routed.put(group, registration);
+        routes = new Routes(routed);
+    }
+
+    public synchronized void unregister(DynamicGroupImpl group) {
+        registered.remove(group);
+        if (routed.remove(group) != null) {
+            routes = new Routes(routed);
+        }
+    }
+
+    /** the groups currently being notified (see {@link #register(DynamicGroupImpl, CollectionChangeListener)} for why this may lag registration) */
+    public Set<DynamicGroupImpl> getRegisteredGroups() {
+        return routes.all;
+    }
+
+    /** the groups which may be interested in the given entity being added */
+    public Set<DynamicGroupImpl> getCandidateGroups(Entity entity) {
+        return routes.candidates(entity);
+    }
+
+    protected void onEntityAdded(Entity item) {
+        Routes current = routes;
+        Set<DynamicGroupImpl> groups;
+        try {
+            groups = current.candidates(item);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Error finding dynamic groups interested in "+item+"; notifying all groups", e);
+            groups = current.all;
+        }
+        for (DynamicGroupImpl group : groups) {
+            current.delivery.get(group).onItemAdded(item);
+        }
+    }
+
+    protected void onEntityRemoved(Entity item) {
+        Routes current = routes;
+        for (DynamicGroupImpl group : current.all) {
+            current.delivery.get(group).onItemRemoved(item);
+        }
+    }
+
+    /**
+     * Returns the entities which could match the given filter, which for some indexable filters
+     * (currently by parent) is much smaller than all entities.
+     */
+    public static Iterable<Entity> getCandidateEntities(Predicate<? super Entity> filter, ManagementContextInternal mgmt) {
+        if (filter instanceof EntityPredicates.IsChildOf) {
+            Entity parent = ((EntityPredicates.IsChildOf)filter).parent;
+            if (parent == null) return Collections.emptySet();
+            return Iterables.filter(parent.getChildren(), EntityPredicates.isManaged());
+        }
+        return mgmt.getEntityManager().getEntities();
+    }
+
+    private enum Kind { APPLICATION, PARENT, TYPE, CONFIG, TAG, NONE }
+    
+    private static class Registration {
+        final IndexKey key;
+        /** passes notifications to the group's listener on its own queue */
+        final CollectionChangeListener<Entity> delivery;
+        
+        Registration(IndexKey key, CollectionChangeListener<Entity> delivery) {
+            this.key = key;
+            this.delivery = delivery;
+        }
+    }
+    
+    private static class IndexKey {
+        private static final IndexKey NONE = new IndexKey(Kind.NONE, null, null);
+        
+        final Kind kind;
+        final ConfigKey<?> configKey;
+        final Object value;
+        
+        IndexKey(Kind kind, ConfigKey<?> configKey, Object value) {
+            this.kind = kind;
+            this.configKey = configKey;
+            this.value = value;
+        }
+        
+        static IndexKey of(DynamicGroupImpl group) {
+            if (!group.isMembershipByFilterOnly()) {
+                // the filter may not be the whole story, so we cannot safely index on it
+                return NONE;
+            }
+            Predicate<? super Entity> filter = group.entityFilter();
+            if (filter instanceof EntityPredicates.ApplicationIdEqualTo) {
+                return new IndexKey(Kind.APPLICATION, null, ((EntityPredicates.ApplicationIdEqualTo)filter).val);
+            } else if (filter instanceof EntityPredicates.IsChildOf) {
+                Entity parent = ((EntityPredicates.IsChildOf)filter).parent;
+                return new IndexKey(Kind.PARENT, null, parent == null ? null : parent.getId());
+            } else if (filter instanceof EntityPredicates.IsInstanceOf) {
+                return new IndexKey(Kind.TYPE, null, ((EntityPredicates.IsInstanceOf)filter).type);
+            } else if (filter instanceof EntityPredicates.ConfigKeyEqualTo) {
+                EntityPredicates.ConfigKeyEqualTo<?> p = (EntityPredicates.ConfigKeyEqualTo<?>)filter;
+                return new IndexKey(Kind.CONFIG, p.configKey, p.val);
+            } else if (filter instanceof EntityPredicates.HasTag) {
+                return new IndexKey(Kind.TAG, null, ((EntityPredicates.HasTag)filter).tag);
+            }
+            return NONE;
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).omitNullValues().add("kind", kind).add("configKey", configKey).add("value", value).toString();
+        }
+    }
+
+    private static class Routes {
+        final Set<DynamicGroupImpl> all;
+        final Map<DynamicGroupImpl, CollectionChangeListener<Entity>> delivery;
+        final Set<DynamicGroupImpl> unindexed;
+        final SetMultimap<Object, DynamicGroupImpl> byApplicationId = HashMultimap.create();
+        final SetMultimap<Object, DynamicGroupImpl> byParentId = HashMultimap.create();
+        final SetMultimap<Class<?>, DynamicGroupImpl> byType = HashMultimap.create();
+        final Map<ConfigKey<?>, SetMultimap<Object, DynamicGroupImpl>> byConfig = new IdentityHashMap<ConfigKey<?>, SetMultimap<Object, DynamicGroupImpl>>();
+        final SetMultimap<Object, DynamicGroupImpl> byTag = HashMultimap.create();
+
+        Routes(Map<DynamicGroupImpl, Registration> groups) {
+            all = ImmutableSet.copyOf(groups.keySet());
+            ImmutableMap.Builder<DynamicGroupImpl, CollectionChangeListener<Entity>> deliveryBuilder = ImmutableMap.builder();
+            Set<DynamicGroupImpl> unindexedBuilder = Sets.newLinkedHashSet();
+            for (Map.Entry<DynamicGroupImpl, Registration> entry : ImmutableMap.copyOf(groups).entrySet()) {
+                DynamicGroupImpl group = entry.getKey();
+                IndexKey key = entry.getValue().key;
+                deliveryBuilder.put(group, entry.getValue().delivery);
+                switch (key.kind) {
+                case APPLICATION: byApplicationId.put(key.value, group); break;
+                case PARENT: byParentId.put(key.value, group); break;
+                case TYPE: byType.put((Class<?>)key.value, group); break;
+                case TAG: byTag.put(key.value, group); break;
+                case CONFIG:
+                    SetMultimap<Object, DynamicGroupImpl> byValue = byConfig.get(key.configKey);
+                    if (byValue == null) {
+                        byValue = HashMultimap.create();
+                        byConfig.put(key.configKey, byValue);
+                    }
+                    byValue.put(key.value, group);
+                    break;
+                default: unindexedBuilder.add(group);
+                }
+            }
+            unindexed = ImmutableSet.copyOf(unindexedBuilder);
+            delivery = deliveryBuilder.build();
+        }
+        
+        Set<DynamicGroupImpl> candidates(Entity entity) {
+            if (unindexed.size() == all.size()) return all;
+            Set<DynamicGroupImpl> result = Sets.newLinkedHashSet(unindexed);
+            if (!byApplicationId.isEmpty()) {
+                result.addAll(byApplicationId.get(entity.getApplicationId()));
+            }
+            if (!byParentId.isEmpty()) {
+                Entity parent = entity.getParent();
+                if (parent != null) result.addAll(byParentId.get(parent.getId()));
+            }
+            for (Map.Entry<Class<?>, Collection<DynamicGroupImpl>> entry : byType.asMap().entrySet()) {
+                if (entry.getKey().isInstance(entity)) result.addAll(entry.getValue());
+            }
+            for (Map.Entry<ConfigKey<?>, SetMultimap<Object, DynamicGroupImpl>> entry : byConfig.entrySet()) {
+                result.addAll(entry.getValue().get(entity.getConfig(entry.getKey())));
+            }
+            if (!byTag.isEmpty()) {
+                for (Object tag : entity.tags().getTags()) {
+                    result.addAll(byTag.get(tag));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -85,6 +85,7 @@ import brooklyn.util.flags.FlagUtils;
 import brooklyn.util.guava.Maybe;
 import brooklyn.util.repeat.Repeater;
 import brooklyn.util.stream.Streams;
+import brooklyn.util.task.CompensatingThreadPoolExecutor;
 import brooklyn.util.task.DynamicTasks;
 import brooklyn.util.task.ParallelTask;
 import brooklyn.util.task.TaskTags;
@@ -1012,10 +1013,13 @@ public class Entities {
                 s.release();
             }
         });
+        boolean compensated = CompensatingThreadPoolExecutor.beginBlocking();
         try {
             s.acquire();
         } catch (InterruptedException e) {
             throw Exceptions.propagate(e);
+        } finally {
+            CompensatingThreadPoolExecutor.endBlocking(compensated);
         }
         executionContext.submit(result.get().asTask());
         return result.get();
@@ -21,11 +21,15 @@ package brooklyn.entity.basic;
 import static brooklyn.util.GroovyJavaMethods.elvis;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,6 +77,26 @@ public class EntityConfigMap implements ConfigMap {
     private final ConfigBag localConfigBag;
     private final ConfigBag inheritedConfigBag;
 
+    /**
+     * Memoised results of {@link #getConfig(ConfigKey, Object)} for keys whose values are static
+     * (i.e. not tasks, suppliers or collections needing deep resolution).
+     * The map is replaced (rather than cleared) whenever local or inherited config changes,
+     * so a lookup racing with a change can only ever populate a discarded map.
+     */
+    private volatile ConcurrentMap<ConfigKey<?>, ResolvedValue> resolvedValues = new ConcurrentHashMap<ConfigKey<?>, ResolvedValue>();
+    private final AtomicLong resolvedHits = new AtomicLong();
+    private final AtomicLong resolvedMisses = new AtomicLong();
+
+    private static class ResolvedValue {
+        /** the exact key instance requested; keys are equal by name, but may differ in type and default */
+        final ConfigKey<?> key;
+        final Object value;
+        ResolvedValue(ConfigKey<?> key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
     public EntityConfigMap(AbstractEntity entity, Map<ConfigKey<?>, Object> storage) {
         this.entity = checkNotNull(entity, "entity must be specified");
         this.ownConfig = checkNotNull(storage, "storage map must be specified");
@@ -96,6 +120,31 @@ public class EntityConfigMap implements ConfigMap {
     
     @SuppressWarnings("unchecked")
     public <T> T getConfig(ConfigKey<T> key, T defaultValue) {
+        if (defaultValue != null) {
+            return getConfigUncached(key, defaultValue, null);
+        }
+        ConcurrentMap<ConfigKey<?>, ResolvedValue> cache = resolvedValues;
+        ResolvedValue cached = cache.get(key);
+        if (cached != null && cached.key == key) {
+            resolvedHits.incrementAndGet();
+            return (T) cached.value;
+        }
+        resolvedMisses.incrementAndGet();
+        boolean[] cacheable = new boolean[] {false};
+        T result = getConfigUncached(key, null, cacheable);
+        if (cacheable[0]) {
+            cache.put(key, new ResolvedValue(key, result));
+        }
+        return result;
+    }
+
+    /**
+     * Performs the full lookup (own config, inherited config, then defaults).
+     * If {@code cacheable} is non-null, its first element is set to whether the result depends 
+     * only on the config maps (and so can be reused until they change).
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getConfigUncached(ConfigKey<T> key, T defaultValue, boolean[] cacheable) {
         // FIXME What about inherited task in config?!
         //              alex says: think that should work, no?
         // FIXME What if someone calls getConfig on a task, before setting parent app?
@@ -127,19 +176,23 @@ public class EntityConfigMap implements ConfigMap {
                 ExecutionContext exec = entity.getExecutionContext();
                 result = ((ConfigKeySelfExtracting<T>)ownKey).extractValue(ownConfig, exec);
                 complete = true;
+                if (cacheable!=null) cacheable[0] = isStatic(ownKey, rawval);
             } else if (isInherited(ownKey, inheritance) && 
                     ((ConfigKeySelfExtracting<T>)ownKey).isSet(inheritedConfig)) {
                 ExecutionContext exec = entity.getExecutionContext();
                 result = ((ConfigKeySelfExtracting<T>)ownKey).extractValue(inheritedConfig, exec);
                 complete = true;
+                if (cacheable!=null) cacheable[0] = isStatic(ownKey, inheritedConfig.get(key));
             } else if (localConfigBag.containsKey(ownKey)) {
                 // TODO configBag.get doesn't handle tasks/attributeWhenReady - it only uses TypeCoercions
                 result = localConfigBag.get(ownKey);
                 complete = true;
+                if (cacheable!=null) cacheable[0] = isStatic(ownKey, result);
             } else if (isInherited(ownKey, inheritance) && 
                     inheritedConfigBag.containsKey(ownKey)) {
                 result = inheritedConfigBag.get(ownKey);
                 complete = true;
+                if (cacheable!=null) cacheable[0] = isStatic(ownKey, result);
             }
 
             if (rawval instanceof Task) {
@@ -151,7 +204,33 @@ public class EntityConfigMap implements ConfigMap {
         } else {
             LOG.warn("Config key {} of {} is not a ConfigKeySelfExtracting; cannot retrieve value; returning default", ownKey, this);
         }
-        return TypeCoercions.coerce((defaultValue != null) ? defaultValue : ownKey.getDefaultValue(), key.getTypeToken());
+        Object defaultToUse = (defaultValue != null) ? defaultValue : ownKey.getDefaultValue();
+        if (cacheable!=null) cacheable[0] = isStatic(ownKey, defaultToUse);
+        return TypeCoercions.coerce(defaultToUse, key.getTypeToken());
+    }
+
+    /** whether a value found for the given key will resolve the same way every time, for as long as config is unchanged */
+    private static boolean isStatic(ConfigKey<?> key, Object rawval) {
+        if (key instanceof StructuredConfigKey) return false;
+        if (rawval instanceof Task || rawval instanceof Future || rawval instanceof DeferredSupplier) return false;
+        // collections and maps are deep-resolved into new instances on each lookup, and may contain tasks
+        if (rawval instanceof Collection || rawval instanceof Map) return false;
+        return true;
+    }
+
+    /** discards all memoised values; called whenever local or inherited config changes */
+    private void invalidateResolvedValues() {
+        resolvedValues = new ConcurrentHashMap<ConfigKey<?>, ResolvedValue>();
+    }
+
+    /** number of {@link #getConfig(ConfigKey)} calls answered from the memoised values */
+    public long getResolvedCacheHits() {
+        return resolvedHits.get();
+    }
+
+    /** number of {@link #getConfig(ConfigKey)} calls which required a full lookup */
+    public long getResolvedCacheMisses() {
+        return resolvedMisses.get();
     }
 
     private <T> boolean isInherited(ConfigKey<T> key) {
@@ -236,6 +315,7 @@ public class EntityConfigMap implements ConfigMap {
             oldVal = ownConfig.put(key, val);
             localConfigBag.put((ConfigKey<Object>)key, v);
         }
+        invalidateResolvedValues();
         entity.refreshInheritedConfigOfChildren();
         return oldVal;
     }
@@ -245,6 +325,7 @@ public class EntityConfigMap implements ConfigMap {
         localConfigBag.clear();
         ownConfig.putAll(vals);
         localConfigBag.putAll(vals);
+        invalidateResolvedValues();
     }
     
     public void setInheritedConfig(Map<ConfigKey<?>, ?> valsO, ConfigBag configBagVals) {
@@ -294,6 +375,7 @@ public class EntityConfigMap implements ConfigMap {
                 inheritedConfigBag.putStringKey(name, value);
             }
         }
+        invalidateResolvedValues();
     }
     
     private Map<ConfigKey<?>, ?> filterUninheritable(Map<ConfigKey<?>, ?> vals) {
@@ -310,11 +392,13 @@ public class EntityConfigMap implements ConfigMap {
         localConfigBag.putAll(vals);
         // quick fix for problem that ownConfig can get out of synch
         ownConfig.putAll(localConfigBag.getAllConfigAsConfigKeyMap());
+        invalidateResolvedValues();
     }
 
     public void clearInheritedConfig() {
         inheritedConfig.clear();
         inheritedConfigBag.clear();
+        invalidateResolvedValues();
     }
 
     @Override
@@ -20,6 +20,9 @@ package brooklyn.entity.basic;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import brooklyn.basic.BrooklynObjectInternal;
 import brooklyn.config.ConfigKey;
@@ -84,7 +87,35 @@ public interface EntityInternal extends BrooklynObjectInternal, EntityLocal, Reb
 
     @Beta
     void removeAttribute(AttributeSensor<?> attribute);
-    
+
+    /**
+     * Returns the version at which this entity's attributes, config, children or name last changed.
+     * Versions only increase, and any change to any entity in this JVM made after a version is returned here
+     * gets a greater version (but not across restarts or rebind), so can be used to detect changes cheaply, 
+     * e.g. for HTTP ETags.
+     */
+    @Beta
+    long getModificationVersion();
+
+    /**
+     * Returns the version (as per {@link #getModificationVersion()}) at which the given attribute was last set or removed,
+     * or 0 if it has not been set since this entity was created.
+     * <p>
+     * Only a bounded number of removals are remembered, so for an attribute removed long ago (or never set) 
+     * this may instead be the version up to which removals have been forgotten.
+     */
+    @Beta
+    long getAttributeModificationVersion(AttributeSensor<?> attribute);
+
+    /**
+     * Returns the names of attributes set or removed since the given {@link #getModificationVersion() version},
+     * including those which no longer have a value; or null if removals that old are no longer remembered,
+     * in which case the caller should read all attributes.
+     */
+    @Beta
+    @Nullable
+    Set<String> getAttributeNamesModifiedSince(long version);
+
     @Beta
     void refreshInheritedConfig();
 
@@ -135,7 +135,7 @@ public class EntityPredicates {
     // ---------------------------
 
     public static Predicate<Entity> applicationIdEqualTo(final String val) {
-        return applicationIdSatisfies(Predicates.equalTo(val));
+        return new ApplicationIdEqualTo(val);
     }
 
     public static Predicate<Entity> applicationIdSatisfies(final Predicate<? super String> condition) {
@@ -157,6 +157,15 @@ public class EntityPredicates {
         }
     }
 
+    /** retains the value, so that {@link DynamicGroupMembershipIndex} can index on it */
+    protected static class ApplicationIdEqualTo extends ApplicationIdSatisfies {
+        protected final String val;
+        protected ApplicationIdEqualTo(String val) {
+            super(Predicates.equalTo(val));
+            this.val = val;
+        }
+    }
+
     /** @deprecated since 0.7.0 kept only to allow conversion of anonymous inner classes */
     @SuppressWarnings("unused") @Deprecated 
     private static Predicate<Entity> applicationIdEqualToOld(final String val) {
@@ -213,7 +222,7 @@ public class EntityPredicates {
     // ---------------------------
 
     public static <T> Predicate<Entity> configEqualTo(final ConfigKey<T> configKey, final T val) {
-        return configSatisfies(configKey, Predicates.equalTo(val));
+        return new ConfigKeyEqualTo<T>(configKey, val);
     }
 
     public static <T> Predicate<Entity> configSatisfies(final ConfigKey<T> configKey, final Predicate<T> condition) {
@@ -245,6 +254,15 @@ public class EntityPredicates {
         }
     }
 
+    /** retains the value, so that {@link DynamicGroupMembershipIndex} can index on it */
+    protected static class ConfigKeyEqualTo<T> extends ConfigKeySatisfies<T> {
+        protected final T val;
+        private ConfigKeyEqualTo(ConfigKey<T> configKey, T val) {
+            super(configKey, Predicates.equalTo(val));
+            this.val = val;
+        }
+    }
+
     
     /** @deprecated since 0.7.0 kept only to allow conversion of anonymous inner classes */
     @SuppressWarnings("unused") @Deprecated 
@@ -386,6 +404,56 @@ public class EntityPredicates {
     
     // ---------------------------
 
+    /**
+     * Returns a predicate that determines if a given entity is an instance of the given type 
+     * (normally an entity interface, as entities are usually accessed through proxies).
+     * Unlike {@link Predicates#instanceOf(Class)}, this can be indexed by {@link DynamicGroup}s.
+     */
+    public static Predicate<Entity> isInstanceOf(final Class<?> type) {
+        return new IsInstanceOf(type);
+    }
+
+    protected static class IsInstanceOf implements SerializablePredicate<Entity> {
+        protected final Class<?> type;
+        protected IsInstanceOf(Class<?> type) {
+            this.type = type;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return type.isInstance(input);
+        }
+        @Override
+        public String toString() {
+            return "isInstanceOf("+type.getName()+")";
+        }
+    }
+
+    // ---------------------------
+
+    /**
+     * Returns a predicate that determines if a given entity has the given tag.
+     */
+    public static Predicate<Entity> hasTag(final Object tag) {
+        return new HasTag(tag);
+    }
+
+    protected static class HasTag implements SerializablePredicate<Entity> {
+        protected final Object tag;
+        protected HasTag(Object tag) {
+            this.tag = tag;
+        }
+        @Override
+        public boolean apply(@Nullable Entity input) {
+            return (input != null) && input.tags().containsTag(tag);
+        }
+        @Override
+        public String toString() {
+            return "hasTag("+tag+")";
+        }
+    }
+
+    // ---------------------------
+
     public static <T> Predicate<Entity> isManaged() {
         return new IsManaged();
     }
@@ -166,6 +166,31 @@ public interface DynamicCluster extends AbstractGroup, Cluster, MemberReplaceabl
             new TypeToken<Set<Location>>() {},
             "dynamiccluster.failedSubLocations", "Sub locations that seem to have failed");
 
+    @SetFromFlag("resizeWaveSize")
+    ConfigKey<Integer> RESIZE_WAVE_SIZE = ConfigKeys.newIntegerConfigKey(
+            "dynamiccluster.resize.waveSize",
+            "Maximum number of members to add or remove in each wave of a resize; the target size is re-read between waves, "
+            + "so that resize requests arriving mid-operation are merged in (0 or less means unlimited, i.e. a single wave)",
+            0);
+
+    @SetFromFlag("maxConcurrentMemberStarts")
+    ConfigKey<Integer> MAX_CONCURRENT_MEMBER_STARTS = ConfigKeys.newIntegerConfigKey(
+            "dynamiccluster.resize.maxConcurrentStarts",
+            "Maximum number of members to start concurrently when growing the cluster (0 or less means unlimited)",
+            0);
+
+    AttributeSensor<Boolean> RESIZE_IN_PROGRESS = Sensors.newBooleanSensor(
+            "dynamiccluster.resize.inProgress", "Whether a resize of the cluster is in progress");
+
+    AttributeSensor<Integer> RESIZE_TARGET_SIZE = Sensors.newIntegerSensor(
+            "dynamiccluster.resize.targetSize", "The size the cluster is currently being resized to (the most recent resize request)");
+
+    AttributeSensor<Integer> RESIZE_MEMBERS_STARTING = Sensors.newIntegerSensor(
+            "dynamiccluster.resize.membersStarting", "Number of new members in the current wave which are being started");
+
+    AttributeSensor<Integer> RESIZE_WAVES_COMPLETED = Sensors.newIntegerSensor(
+            "dynamiccluster.resize.wavesCompleted", "Number of waves completed by the current (or most recent) resize");
+
     AttributeSensor<Boolean> CLUSTER_MEMBER = Sensors.newBooleanSensor(
             "cluster.member", "Set on an entity if it is a member of a cluster");
 
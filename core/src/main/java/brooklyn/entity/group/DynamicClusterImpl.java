@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.annotation.Nullable;
 
@@ -62,6 +63,7 @@ import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.guava.Maybe;
 import brooklyn.util.javalang.JavaClassNames;
 import brooklyn.util.javalang.Reflections;
+import brooklyn.util.mutex.SemaphoreForTasks;
 import brooklyn.util.task.DynamicTasks;
 import brooklyn.util.task.TaskTags;
 import brooklyn.util.task.Tasks;
@@ -128,6 +130,17 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
      */
     protected final Object mutex = new Object[0];
 
+    /**
+     * Guards the state of the in-progress resize (if any), so that concurrent resize requests can be merged.
+     * Never acquired while holding {@link #mutex}.
+     */
+    private final Object resizeRequestMutex = new Object[0];
+    private boolean resizeInProgress;
+    private int resizeTarget;
+    private long resizeRequestsReceived;
+    private long resizeRequestsCompleted;
+    private Throwable resizeError;
+
     private static final Function<Collection<Entity>, Entity> defaultRemovalStrategy = new Function<Collection<Entity>, Entity>() {
         @Override public Entity apply(Collection<Entity> contenders) {
             // choose newest entity that is stoppable, or if none are stoppable take the newest non-stoppable
@@ -417,8 +430,60 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The resize is done in waves of at most {@link #RESIZE_WAVE_SIZE} members, with {@link #mutex} held
+     * only for the duration of each wave. If a resize is already in progress then the new size is merged
+     * in as that resize's target (picked up at the next wave), and this call returns once that resize completes.
+     */
     @Override
     public Integer resize(Integer desiredSize) {
+        if (Thread.holdsLock(mutex)) {
+            // called from code already holding the mutex (e.g. a sub-class's grow);
+            // waiting for another resize would deadlock, so resize directly as a single wave
+            setAttribute(RESIZE_TARGET_SIZE, desiredSize);
+            resizeOnce(desiredSize);
+            return getCurrentSize();
+        }
+
+        long request;
+        boolean merged = false;
+        synchronized (resizeRequestMutex) {
+            request = ++resizeRequestsReceived;
+            resizeTarget = desiredSize;
+            setAttribute(RESIZE_TARGET_SIZE, desiredSize);
+            if (resizeInProgress) {
+                merged = true;
+                LOG.debug("Resize of {} to {} merged into in-progress resize", this, desiredSize);
+                Tasks.setBlockingDetails("Waiting for in-progress resize of "+this+", merged with request for size "+desiredSize);
+                try {
+                    while (resizeInProgress && resizeRequestsCompleted < request) {
+                        resizeRequestMutex.wait();
+                    }
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                } finally {
+                    Tasks.resetBlockingDetails();
+                }
+            }
+            if (merged && resizeRequestsCompleted >= request) {
+                if (resizeError != null) {
+                    throw new IllegalStateException("Resize of "+this+" (to "+desiredSize+", merged with other requests) failed: "
+                            +Exceptions.collapseText(resizeError), resizeError);
+                }
+                return getCurrentSize();
+            }
+            // no resize in progress (or the one we merged with failed before seeing our request), so we drive it
+            resizeInProgress = true;
+        }
+
+        resizeInWaves();
+        return getCurrentSize();
+    }
+
+    /** Resizes to the given size in a single call to {@link #resizeByDelta(int)}, holding {@link #mutex} throughout. */
+    protected void resizeOnce(int desiredSize) {
         synchronized (mutex) {
             int originalSize = getCurrentSize();
             int delta = desiredSize - originalSize;
@@ -429,7 +494,95 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
             }
             resizeByDelta(delta);
         }
-        return getCurrentSize();
+    }
+
+    /**
+     * Repeatedly moves towards the most recently requested target size, one wave at a time, until it is reached
+     * (or until all new members for that target have been attempted), then marks the resize as complete.
+     * Must only be called by the thread which set {@link #resizeInProgress}.
+     */
+    private void resizeInWaves() {
+        List<Throwable> errors = Lists.newArrayList();
+        long requestsSeen = -1;
+        int target = -1;
+        int plannedSize = -1;
+        boolean stalled = false;
+        boolean completed = false;
+        int waves = 0;
+        setAttribute(RESIZE_IN_PROGRESS, true);
+        setAttribute(RESIZE_WAVES_COMPLETED, 0);
+        try {
+            while (true) {
+                synchronized (resizeRequestMutex) {
+                    if (requestsSeen == resizeRequestsReceived) {
+                        int currentSize = getCurrentSize();
+                        if (stalled || currentSize == target || (currentSize < target && plannedSize >= target)) {
+                            // target reached, or every member needed for it has been attempted; nothing newer to merge
+                            resizeRequestsCompleted = requestsSeen;
+                            resizeError = errors.isEmpty() ? null : (errors.size() == 1 ? errors.get(0) : Exceptions.create(errors));
+                            resizeInProgress = false;
+                            completed = true;
+                            resizeRequestMutex.notifyAll();
+                            break;
+                        }
+                    } else {
+                        requestsSeen = resizeRequestsReceived;
+                        target = resizeTarget;
+                        // a new request gets a fresh attempt at starting any members it needs
+                        plannedSize = -1;
+                        stalled = false;
+                    }
+                }
+
+                synchronized (mutex) {
+                    int currentSize = getCurrentSize();
+                    if (plannedSize < 0) {
+                        plannedSize = currentSize;
+                        if (target != currentSize) {
+                            LOG.info("Resize {} from {} to {}", new Object[] {this, currentSize, target});
+                        } else {
+                            if (LOG.isDebugEnabled()) LOG.debug("Resize no-op {} from {} to {}", new Object[] {this, currentSize, target});
+                        }
+                    }
+                    Integer waveSize = getConfig(RESIZE_WAVE_SIZE);
+                    int maxDelta = (waveSize == null || waveSize <= 0) ? Integer.MAX_VALUE : waveSize;
+                    int delta;
+                    if (target < currentSize) {
+                        delta = -Math.min(currentSize - target, maxDelta);
+                    } else {
+                        delta = Math.min(Math.max(target - plannedSize, 0), maxDelta);
+                    }
+                    try {
+                        resizeByDelta(delta);
+                    } catch (Exception e) {
+                        Exceptions.propagateIfFatal(e);
+                        errors.add(e);
+                    }
+                    if (delta > 0) {
+                        plannedSize += delta;
+                    } else if (delta < 0) {
+                        plannedSize = getCurrentSize();
+                        // guard against sub-classes whose shrink cannot reduce the size any further
+                        stalled = (plannedSize == currentSize);
+                    }
+                    if (delta != 0) waves++;
+                }
+                setAttribute(RESIZE_WAVES_COMPLETED, waves);
+            }
+        } finally {
+            if (!completed) {
+                synchronized (resizeRequestMutex) {
+                    // failed unexpectedly; let any merged callers take over
+                    resizeInProgress = false;
+                    resizeRequestMutex.notifyAll();
+                }
+            }
+            setAttribute(RESIZE_IN_PROGRESS, false);
+        }
+
+        if (!errors.isEmpty()) {
+            throw Exceptions.propagate(errors.size() == 1 ? errors.get(0) : Exceptions.create(errors));
+        }
     }
 
     /**
@@ -637,6 +790,10 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         Map<Entity, Location> addedEntityLocations = Maps.newLinkedHashMap();
         Map<Entity, Task<?>> tasks = Maps.newLinkedHashMap();
 
+        Integer maxConcurrentStarts = getConfig(MAX_CONCURRENT_MEMBER_STARTS);
+        SemaphoreForTasks startPermits = (maxConcurrentStarts == null || maxConcurrentStarts <= 0) ? null
+                : new SemaphoreForTasks("starting members of "+this, maxConcurrentStarts, true, getManagementContext());
+
         for (Location loc : locations) {
             Entity entity = addNode(loc, flags);
             addedEntities.add(entity);
@@ -644,14 +801,21 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
             if (entity instanceof Startable) {
                 Map<String, ?> args = ImmutableMap.of("locations", ImmutableList.of(loc));
                 Task<Void> task = Effectors.invocation(entity, Startable.START, args).asTask();
+                if (startPermits != null) task = newStartTaskWithPermit(entity, task, startPermits);
                 tasks.put(entity, task);
             }
         }
 
         Task<List<?>> parallel = Tasks.parallel("starting "+tasks.size()+" node"+Strings.s(tasks.size())+" (parallel)", tasks.values());
         TaskTags.markInessential(parallel);
-        DynamicTasks.queueIfPossible(parallel).orSubmitAsync(this);
-        Map<Entity, Throwable> errors = waitForTasksOnEntityStart(tasks);
+        setAttribute(RESIZE_MEMBERS_STARTING, tasks.size());
+        Map<Entity, Throwable> errors;
+        try {
+            DynamicTasks.queueIfPossible(parallel).orSubmitAsync(this);
+            errors = waitForTasksOnEntityStart(tasks);
+        } finally {
+            setAttribute(RESIZE_MEMBERS_STARTING, 0);
+        }
 
         // if tracking, then report success/fail to the ZoneFailureDetector
         if (isAvailabilityZoneEnabled()) {
@@ -685,6 +849,21 @@ public class DynamicClusterImpl extends AbstractGroupImpl implements DynamicClus
         return ReferenceWithError.newInstanceWithoutError(result);
     }
 
+    /** Wraps the start task so that it only runs once a permit is obtained, to limit how many members start concurrently. */
+    protected Task<Void> newStartTaskWithPermit(final Entity entity, final Task<Void> startTask, final SemaphoreForTasks startPermits) {
+        return Tasks.<Void>builder().name("starting "+entity+" (when permitted)")
+                .body(new Callable<Void>() {
+                    @Override public Void call() throws Exception {
+                        startPermits.acquire();
+                        try {
+                            return DynamicTasks.queue(startTask).get();
+                        } finally {
+                            startPermits.release();
+                        }
+                    }
+                }).build();
+    }
+
     protected void quarantineFailedNodes(Collection<Entity> failedEntities) {
         for (Entity entity : failedEntities) {
             emit(ENTITY_QUARANTINED, entity);
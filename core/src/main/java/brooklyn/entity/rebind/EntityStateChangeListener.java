@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind;
+
+import brooklyn.config.ConfigKey;
+import brooklyn.entity.Entity;
+import brooklyn.event.AttributeSensor;
+
+/**
+ * A {@link ChangeListener} which can also be told when only an entity's attributes or config have changed,
+ * as opposed to its structure (children, locations, policies, etc) which {@link #onChanged(brooklyn.basic.BrooklynObject)}
+ * implies. This allows the persister to avoid re-persisting everything the entity references when, for example,
+ * a single sensor is updated by a feed.
+ * <p>
+ * For internal use by the {@link RebindManagerImpl}.
+ */
+public interface EntityStateChangeListener extends ChangeListener {
+
+    void onAttributeChanged(Entity entity, AttributeSensor<?> attribute);
+
+    void onConfigChanged(Entity entity, ConfigKey<?> key);
+}
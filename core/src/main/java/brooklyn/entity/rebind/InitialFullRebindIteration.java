@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import brooklyn.config.BrooklynLogging;
 import brooklyn.entity.Entity;
 import brooklyn.entity.basic.EntityInternal;
+import brooklyn.entity.rebind.persister.BrooklynMementoPersisterToObjectStore;
 import brooklyn.entity.rebind.persister.PersistenceActivityMetrics;
 import brooklyn.management.ha.ManagementNodeState;
 import brooklyn.management.internal.BrooklynObjectManagementMode;
@@ -73,7 +74,11 @@ public class InitialFullRebindIteration extends RebindIteration {
     protected void loadManifestFiles() throws Exception {
         checkEnteringPhase(1);
         Preconditions.checkState(mementoRawData==null, "Memento raw data should not yet be set when calling this");
-        mementoRawData = persistenceStoreAccess.loadMementoRawData(exceptionHandler);
+        if (ManagementNodeState.isHotProxy(mode) && rebindManager.isReadOnlyIncrementalSupported()) {
+            mementoRawData = ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).loadMementoRawDataIncrementally(exceptionHandler);
+        } else {
+            mementoRawData = persistenceStoreAccess.loadMementoRawData(exceptionHandler);
+        }
         
         preprocessManifestFiles();
         
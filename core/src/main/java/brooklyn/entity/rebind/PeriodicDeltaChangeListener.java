@@ -20,8 +20,12 @@ package brooklyn.entity.rebind;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -33,23 +37,30 @@ import org.slf4j.LoggerFactory;
 import brooklyn.basic.BrooklynObject;
 import brooklyn.basic.BrooklynObjectInternal;
 import brooklyn.catalog.CatalogItem;
+import brooklyn.config.ConfigKey;
 import brooklyn.entity.Entity;
 import brooklyn.entity.Feed;
 import brooklyn.entity.basic.BrooklynTaskTags;
 import brooklyn.entity.basic.EntityInternal;
+import brooklyn.entity.rebind.dto.MementosGenerators;
+import brooklyn.entity.rebind.persister.BrooklynMementoPersisterToObjectStore;
 import brooklyn.entity.rebind.persister.BrooklynPersistenceUtils;
 import brooklyn.entity.rebind.persister.PersistenceActivityMetrics;
+import brooklyn.event.AttributeSensor;
 import brooklyn.internal.BrooklynFeatureEnablement;
 import brooklyn.location.Location;
 import brooklyn.management.ExecutionContext;
 import brooklyn.management.Task;
 import brooklyn.mementos.BrooklynMementoPersister;
+import brooklyn.mementos.EntityMemento;
+import brooklyn.mementos.Memento;
 import brooklyn.policy.Enricher;
 import brooklyn.policy.Policy;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.collections.MutableSet;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.exceptions.RuntimeInterruptedException;
+import brooklyn.util.guava.Maybe;
 import brooklyn.util.task.ScheduledTask;
 import brooklyn.util.task.Tasks;
 import brooklyn.util.time.CountdownTimer;
@@ -60,7 +71,11 @@ import com.google.common.collect.Lists;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
  * A "simple" implementation that periodically persists all entities/locations/policies that have changed
@@ -75,13 +90,17 @@ import com.google.common.collect.Sets;
  * @author aled
  *
  */
-public class PeriodicDeltaChangeListener implements ChangeListener {
+public class PeriodicDeltaChangeListener implements EntityStateChangeListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(PeriodicDeltaChangeListener.class);
 
     private static class DeltaCollector {
         private Set<Location> locations = Sets.newLinkedHashSet();
         private Set<Entity> entities = Sets.newLinkedHashSet();
+        /** entities which have changed in ways other than just attributes/config, so need a completely new memento */
+        private Set<Entity> entitiesChangedFully = Sets.newLinkedHashSet();
+        private SetMultimap<Entity, AttributeSensor<?>> changedAttributes = LinkedHashMultimap.create();
+        private SetMultimap<Entity, ConfigKey<?>> changedConfig = LinkedHashMultimap.create();
         private Set<Policy> policies = Sets.newLinkedHashSet();
         private Set<Enricher> enrichers = Sets.newLinkedHashSet();
         private Set<Feed> feeds = Sets.newLinkedHashSet();
@@ -106,11 +125,29 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         public void add(BrooklynObject instance) {
             BrooklynObjectType type = BrooklynObjectType.of(instance);
             getUnsafeCollectionOfType(type).add(instance);
+            if (type==BrooklynObjectType.ENTITY) {
+                entitiesChangedFully.add((Entity)instance);
+            }
             if (type==BrooklynObjectType.CATALOG_ITEM) {
                 removedCatalogItemIds.remove(instance.getId());
             }
         }
         
+        public void addAttributeChange(Entity entity, AttributeSensor<?> attribute) {
+            entities.add(entity);
+            changedAttributes.put(entity, attribute);
+        }
+        
+        public void addConfigChange(Entity entity, ConfigKey<?> key) {
+            entities.add(entity);
+            changedConfig.put(entity, key);
+        }
+        
+        /** whether only the attributes/config recorded for this entity have changed, so its previous memento can be updated */
+        public boolean isStateChangeOnly(Entity entity) {
+            return !entitiesChangedFully.contains(entity);
+        }
+        
         public void addIfNotRemoved(BrooklynObject instance) {
             BrooklynObjectType type = BrooklynObjectType.of(instance);
             if (!getRemovedIdsOfType(type).contains(instance.getId())) {
@@ -122,6 +159,11 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
             BrooklynObjectType type = BrooklynObjectType.of(instance);
             getUnsafeCollectionOfType(type).remove(instance);
             getRemovedIdsOfType(type).add(instance.getId());
+            if (type==BrooklynObjectType.ENTITY) {
+                entitiesChangedFully.remove(instance);
+                changedAttributes.removeAll(instance);
+                changedConfig.removeAll(instance);
+            }
         }
 
         @SuppressWarnings("unchecked")
@@ -167,6 +209,11 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
     
     private final AtomicLong writeCount = new AtomicLong();
     
+    private final AtomicLong incrementalMementoCount = new AtomicLong();
+    
+    /** the last memento generated for each entity, by id, so it can be updated when only attributes/config change */
+    private final Map<String, EntityMemento> entityMementos = Maps.newConcurrentMap();
+    
     private DeltaCollector deltaCollector = new DeltaCollector();
 
     private volatile boolean running = false;
@@ -272,6 +319,7 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         synchronized (this) {
             deltaCollector = new DeltaCollector();
         }
+        entityMementos.clear();
     }
     
     /**
@@ -386,18 +434,11 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
             } else {
                 PersisterDeltaImpl persisterDelta = new PersisterDeltaImpl();
                 
-                for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
-                    for (BrooklynObject instance: prevDeltaCollector.getCollectionOfType(type)) {
-                        try {
-                            persisterDelta.add(type, ((BrooklynObjectInternal)instance).getRebindSupport().getMemento());
-                        } catch (Exception e) {
-                            exceptionHandler.onGenerateMementoFailed(type, instance, e);
-                        }
-                    }
-                }
+                generateMementos(prevDeltaCollector, persisterDelta);
                 for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
                     persisterDelta.removed(type, prevDeltaCollector.getRemovedIdsOfType(type));
                 }
+                entityMementos.keySet().removeAll(prevDeltaCollector.removedEntityIds);
 
                 /*
                  * Need to guarantee "happens before", with any thread that subsequently reads
@@ -424,6 +465,89 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         }
     }
     
+    /**
+     * Generates the mementos for everything in the collector, adding them to the delta (in the standard persistence order).
+     * Where the persister has an executor, mementos are generated in parallel on it; the results are 
+     * still added to the delta from this thread.
+     * <p>
+     * For an entity where only attributes or config have changed, the memento last generated for it 
+     * is updated with just those values (see {@link MementosGenerators#updateEntityMemento(Entity, EntityMemento, Iterable, Iterable)}),
+     * rather than being rebuilt from all of the entity's attributes and config.
+     */
+    private void generateMementos(final DeltaCollector collector, PersisterDeltaImpl persisterDelta) throws InterruptedException {
+        ListeningExecutorService executor = (persister instanceof BrooklynMementoPersisterToObjectStore) 
+                ? ((BrooklynMementoPersisterToObjectStore)persister).getExecutor() : null;
+        
+        Map<BrooklynObject, Future<Memento>> futures = Maps.newLinkedHashMap();
+        if (executor != null) {
+            for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+                for (final BrooklynObject instance: collector.getCollectionOfType(type)) {
+                    try {
+                        futures.put(instance, executor.submit(new Callable<Memento>() {
+                            @Override public Memento call() {
+                                return generateMemento(collector, instance);
+                            }}));
+                    } catch (RejectedExecutionException e) {
+                        // persister shutting down; fall back to generating in this thread
+                        if (LOG.isTraceEnabled()) LOG.trace("Unable to generate memento of "+instance+" in parallel; will generate in-line", e);
+                        break;
+                    }
+                }
+            }
+        }
+        
+        for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            for (BrooklynObject instance: collector.getCollectionOfType(type)) {
+                try {
+                    Future<Memento> future = futures.get(instance);
+                    Memento memento;
+                    if (future != null) {
+                        try {
+                            memento = future.get();
+                        } catch (ExecutionException e) {
+                            throw Exceptions.propagate(e.getCause());
+                        }
+                    } else {
+                        memento = generateMemento(collector, instance);
+                    }
+                    persisterDelta.add(type, memento);
+                } catch (InterruptedException e) {
+                    for (Future<Memento> future : futures.values()) future.cancel(true);
+                    throw e;
+                } catch (Exception e) {
+                    Exceptions.propagateIfFatal(e);
+                    if (type==BrooklynObjectType.ENTITY) entityMementos.remove(instance.getId());
+                    exceptionHandler.onGenerateMementoFailed(type, instance, e);
+                }
+            }
+        }
+    }
+    
+    private Memento generateMemento(DeltaCollector collector, BrooklynObject instance) {
+        RebindSupport<?> rebindSupport = ((BrooklynObjectInternal)instance).getRebindSupport();
+        if (!(instance instanceof Entity)) {
+            return rebindSupport.getMemento();
+        }
+        
+        Entity entity = (Entity) instance;
+        EntityMemento previous = entityMementos.get(entity.getId());
+        EntityMemento result = null;
+        // only the basic rebind support is known not to add custom fields etc to its memento
+        if (previous != null && collector.isStateChangeOnly(entity) && rebindSupport.getClass() == BasicEntityRebindSupport.class) {
+            Maybe<EntityMemento> updated = MementosGenerators.updateEntityMemento(entity, previous, 
+                    collector.changedAttributes.get(entity), collector.changedConfig.get(entity));
+            if (updated.isPresent()) {
+                result = updated.get();
+                incrementalMementoCount.incrementAndGet();
+            }
+        }
+        if (result == null) {
+            result = (EntityMemento) rebindSupport.getMemento();
+        }
+        entityMementos.put(entity.getId(), result);
+        return result;
+    }
+    
     private static String limitedCountString(Collection<?> items) {
         if (items==null) return null;
         int size = items.size();
@@ -469,6 +593,28 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         }
     }
     
+    @Override
+    public synchronized void onAttributeChanged(Entity entity, AttributeSensor<?> attribute) {
+        if (LOG.isTraceEnabled()) LOG.trace("onAttributeChanged: {} {}", entity, attribute.getName());
+        if (!isStopped()) {
+            deltaCollector.addAttributeChange(entity, attribute);
+        }
+    }
+
+    @Override
+    public synchronized void onConfigChanged(Entity entity, ConfigKey<?> key) {
+        if (LOG.isTraceEnabled()) LOG.trace("onConfigChanged: {} {}", entity, key.getName());
+        if (!isStopped()) {
+            deltaCollector.addConfigChange(entity, key);
+        }
+    }
+    
+    /** number of entity mementos generated by updating the entity's previous memento, rather than from scratch */
+    @VisibleForTesting
+    public long getIncrementalMementoCount() {
+        return incrementalMementoCount.get();
+    }
+    
     public PersistenceExceptionHandler getExceptionHandler() {
         return exceptionHandler;
     }
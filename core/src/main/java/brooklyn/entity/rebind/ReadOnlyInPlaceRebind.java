@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.ConfigKey;
+import brooklyn.entity.Effector;
+import brooklyn.entity.Entity;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
+import brooklyn.entity.rebind.RebindManager.RebindFailureMode;
+import brooklyn.entity.rebind.RebindManagerImpl.RebindTracker;
+import brooklyn.entity.rebind.dto.MementosGenerators;
+import brooklyn.entity.rebind.persister.BrooklynMementoPersisterToObjectStore;
+import brooklyn.event.AttributeSensor;
+import brooklyn.event.AttributeSensor.SensorPersistenceMode;
+import brooklyn.management.internal.ManagementContextInternal;
+import brooklyn.mementos.BrooklynMemento;
+import brooklyn.mementos.BrooklynMementoRawData;
+import brooklyn.mementos.EntityMemento;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.collections.MutableSet;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.guava.Maybe;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Stopwatch;
+
+/**
+ * For a hot-standby or hot-backup node, applies the changes persisted by the master since the last read-only rebind
+ * directly to the existing read-only entities, rather than running a full read-only {@link RebindIteration}
+ * which instantiates everything again.
+ * <p>
+ * Only changes to the attributes of existing entities are applied in this way. If anything else has changed
+ * (objects added or removed, other changes to an entity, or changes to a location, adjunct or catalog item),
+ * nothing is applied and {@link #run()} returns false; a full read-only rebind is then needed.
+ * Objects which were re-written without any change to their persisted state are ignored.
+ *
+ * @see RebindManagerImpl#READ_ONLY_INCREMENTAL
+ */
+class ReadOnlyInPlaceRebind {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReadOnlyInPlaceRebind.class);
+
+    private final ManagementContextInternal managementContext;
+    private final BrooklynMementoPersisterToObjectStore persister;
+    private final ClassLoader classLoader;
+    private final Semaphore rebindActive;
+
+    ReadOnlyInPlaceRebind(ManagementContextInternal managementContext, BrooklynMementoPersisterToObjectStore persister,
+            ClassLoader classLoader, Semaphore rebindActive) {
+        this.managementContext = managementContext;
+        this.persister = persister;
+        this.classLoader = classLoader;
+        this.rebindActive = rebindActive;
+    }
+
+    /**
+     * Applies the changes in place, if possible.
+     * @return true if all changes have been applied; false if a full read-only rebind is needed
+     */
+    public boolean run() {
+        try {
+            rebindActive.acquire();
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        }
+        try {
+            RebindTracker.setRebinding();
+            return applyChanges();
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Unable to apply changes to read-only entities in place (will do full read-only rebind): "+e);
+            return false;
+        } finally {
+            RebindTracker.reset();
+            rebindActive.release();
+        }
+    }
+
+    protected boolean applyChanges() throws Exception {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+
+        // anything unexpected, such as a reference to an object we do not know, means a full rebind is needed
+        RebindExceptionHandler exceptionHandler = RebindExceptionHandlerImpl.builder()
+                .danglingRefFailureMode(RebindFailureMode.FAIL_FAST)
+                .rebindFailureMode(RebindFailureMode.FAIL_FAST)
+                .addPolicyFailureMode(RebindFailureMode.FAIL_FAST)
+                .loadPolicyFailureMode(RebindFailureMode.FAIL_FAST)
+                .build();
+
+        Maybe<BrooklynMementoRawData> changed = persister.loadChangedMementoRawData(exceptionHandler);
+        if (changed.isAbsent()) {
+            if (LOG.isTraceEnabled()) LOG.trace("Cannot apply changes to read-only entities in place: "+changed);
+            return false;
+        }
+        for (BrooklynObjectType type : BrooklynObjectType.values()) {
+            if (type!=BrooklynObjectType.ENTITY && type!=BrooklynObjectType.UNKNOWN && !changed.get().getObjectsOfType(type).isEmpty()) {
+                if (LOG.isTraceEnabled()) LOG.trace("Cannot apply changes to read-only entities in place: {} changed {}", type, changed.get().getObjectsOfType(type).keySet());
+                return false;
+            }
+        }
+        Map<String, String> changedEntities = changed.get().getEntities();
+        if (changedEntities.isEmpty()) return true;
+
+        RebindContextImpl rebindContext = new RebindContextImpl(managementContext, exceptionHandler, classLoader);
+        exceptionHandler.onStart(rebindContext);
+        BrooklynMemento memento = persister.loadMemento(changed.get(), rebindContext.lookup(), exceptionHandler);
+        exceptionHandler.onDone();
+
+        // check everything can be applied before changing anything
+        Map<EntityInternal, EntityMemento> toApply = MutableMap.of();
+        for (EntityMemento entityMemento : memento.getEntityMementos().values()) {
+            Entity entity = managementContext.getEntityManager().getEntity(entityMemento.getId());
+            if (entity == null) return false;
+            EntityInternal entityImpl = (EntityInternal) Entities.deproxy(entity);
+            entityMemento.injectTypeClass(entityImpl.getClass());
+            if (!isOnlyAttributesChanged(entityImpl, entityMemento)) {
+                if (LOG.isTraceEnabled()) LOG.trace("Cannot apply changes to read-only entity {} in place: not just attributes changed", entity);
+                return false;
+            }
+            toApply.put(entityImpl, entityMemento);
+        }
+        if (toApply.size() != changedEntities.size()) return false;
+
+        for (Map.Entry<EntityInternal, EntityMemento> entry : toApply.entrySet()) {
+            applyAttributes(entry.getKey(), entry.getValue());
+        }
+
+        if (LOG.isDebugEnabled()) LOG.debug("Applied changes to {} read-only entit{} in place; took {}",
+                new Object[] {toApply.size(), toApply.size()==1 ? "y" : "ies", stopwatch});
+        return true;
+    }
+
+    /** compares with the memento the entity would generate itself, i.e. reflecting what the entity was last rebinded from */
+    protected boolean isOnlyAttributesChanged(EntityInternal entity, EntityMemento memento) {
+        if (!Boolean.TRUE.equals(entity.getManagementSupport().isReadOnlyRaw())) return false;
+        // subclasses of the basic rebind support may reconstruct other things from the memento
+        if (entity.getRebindSupport().getClass() != BasicEntityRebindSupport.class) return false;
+        if (!memento.getCustomFields().isEmpty()) return false;
+
+        EntityMemento current = MementosGenerators.newEntityMemento(entity);
+        return Objects.equal(current.getType(), memento.getType())
+                && Objects.equal(current.getCatalogItemId(), memento.getCatalogItemId())
+                && Objects.equal(current.getDisplayName(), memento.getDisplayName())
+                && Objects.equal(current.getParent(), memento.getParent())
+                && current.isTopLevelApp() == memento.isTopLevelApp()
+                && current.getChildren().equals(memento.getChildren())
+                && current.getMembers().equals(memento.getMembers())
+                && current.getLocations().equals(memento.getLocations())
+                && current.getPolicies().equals(memento.getPolicies())
+                && current.getEnrichers().equals(memento.getEnrichers())
+                && current.getFeeds().equals(memento.getFeeds())
+                && MutableSet.copyOf(current.getTags()).equals(MutableSet.copyOf(memento.getTags()))
+                && effectorNames(current.getEffectors()).equals(effectorNames(memento.getEffectors()))
+                && configByName(current).equals(configByName(memento));
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void applyAttributes(EntityInternal entity, EntityMemento memento) {
+        Set<String> names = MutableSet.of();
+        for (Map.Entry<AttributeSensor<?>, Object> entry : memento.getAttributes().entrySet()) {
+            AttributeSensor<Object> key = (AttributeSensor<Object>) entry.getKey();
+            names.add(key.getName());
+            if (!Objects.equal(entity.getAttribute(key), entry.getValue())) {
+                entity.setAttributeWithoutPublishing(key, entry.getValue());
+            }
+        }
+        @SuppressWarnings("rawtypes")
+        Collection<AttributeSensor> current = entity.getAllAttributes().keySet();
+        for (AttributeSensor<?> key : current) {
+            if (key.getPersistenceMode() != SensorPersistenceMode.NONE && !names.contains(key.getName())) {
+                entity.removeAttribute(key);
+            }
+        }
+    }
+
+    private static Set<String> effectorNames(Collection<Effector<?>> effectors) {
+        Set<String> result = MutableSet.of();
+        for (Effector<?> effector : effectors) {
+            result.add(effector.getName());
+        }
+        return result;
+    }
+
+    private static Map<String, Object> configByName(EntityMemento memento) {
+        Map<String, Object> result = MutableMap.of();
+        for (Map.Entry<ConfigKey<?>, Object> entry : memento.getConfig().entrySet()) {
+            result.put(entry.getKey().getName(), entry.getValue());
+        }
+        result.putAll(memento.getConfigUnmatched());
+        return result;
+    }
+
+}
@@ -24,8 +24,12 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -55,6 +59,7 @@ import brooklyn.entity.proxying.InternalFactory;
 import brooklyn.entity.proxying.InternalLocationFactory;
 import brooklyn.entity.proxying.InternalPolicyFactory;
 import brooklyn.entity.rebind.RebindManagerImpl.RebindTracker;
+import brooklyn.entity.rebind.persister.BrooklynPersistenceUtils;
 import brooklyn.entity.rebind.persister.PersistenceActivityMetrics;
 import brooklyn.event.feed.AbstractFeed;
 import brooklyn.internal.BrooklynFeatureEnablement;
@@ -102,6 +107,9 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 /**
 Multi-phase deserialization:
@@ -120,6 +128,12 @@ Multi-phase deserialization:
 <li> 8. manage the entities
 </ul>
 
+ The per-object work in phases 3, 5, 6 and 7 is run in parallel, 
+ using up to {@link RebindManagerImpl#REBIND_THREAD_POOL_MAX_SIZE} threads.
+ Objects are still registered in the order of the manifest, and locations and entities are reconstructed 
+ one tree level at a time, so that parents are reconstructed before their children (for config inheritance).
+ Timings and per-type counts for each phase are recorded in the rebind metrics.
+
  If underlying data-store is changed between first and second manifest read (e.g. to add an
  entity), then second phase might try to reconstitute an entity that has not been put in
  the rebindContext. This should not affect normal production usage, because rebind is run
@@ -147,6 +161,10 @@ public abstract class RebindIteration {
 
     private static final Logger LOG = LoggerFactory.getLogger(RebindIteration.class);
     
+    private static final String[] PHASE_NAMES = { "notStarted", 
+        "loadManifests", "rebuildCatalog", "instantiateLocationsAndEntities", "instantiateMementos", 
+        "instantiateAdjuncts", "reconstruct", "associateAdjuncts", "manage" };
+    
     protected final RebindManagerImpl rebindManager;
     
     protected final ClassLoader classLoader;
@@ -172,7 +190,11 @@ public abstract class RebindIteration {
     /** phase is used to ensure our steps are run as we've expected, and documented (in javadoc at top).
      * it's worth the extra effort due to the complication and the subtleties. */
     protected int phase = 0;
-
+    
+    /** timings and counts for each phase, keyed by phase name */
+    protected final Map<String, Map<String,Object>> phaseMetrics = MutableMap.of();
+    private Stopwatch phaseTimer;
+    
     // set in first phase
     
     protected BrooklynMementoRawData mementoRawData;
@@ -261,10 +283,13 @@ public abstract class RebindIteration {
             exceptionHandler.onDone();
             
             rebindMetrics.noteSuccess(Duration.of(timer));
+            rebindMetrics.notePhases(phaseMetrics);
             noteErrors(exceptionHandler, null);
             
         } catch (Exception e) {
             rebindMetrics.noteFailure(Duration.of(timer));
+            notePhaseEnded();
+            rebindMetrics.notePhases(phaseMetrics);
             
             Exceptions.propagateIfFatal(e);
             noteErrors(exceptionHandler, e);
@@ -277,8 +302,10 @@ public abstract class RebindIteration {
     }
     
     protected void checkEnteringPhase(int targetPhase) {
+        notePhaseEnded();
         phase++;
         checkContinuingPhase(targetPhase);
+        phaseTimer = Stopwatch.createStarted();
     }
     protected void checkContinuingPhase(int targetPhase) {
         if (targetPhase!=phase)
@@ -297,6 +324,10 @@ public abstract class RebindIteration {
         
         overwritingMaster = false;
         isEmpty = mementoManifest.isEmpty();
+        
+        for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            notePhaseCount(type, mementoRawData.getObjectsOfType(type).size());
+        }
     }
 
     protected void rebuildCatalog() {
@@ -372,6 +403,7 @@ public abstract class RebindIteration {
         } else {
             logRebindingDebug("RebindManager not resetting catalog because catalog persistence is disabled");
         }
+        notePhaseCount(BrooklynObjectType.CATALOG_ITEM, rebindContext.getCatalogItems().size());
     }
 
     protected void instantiateLocationsAndEntities() {
@@ -380,37 +412,50 @@ public abstract class RebindIteration {
         
         // Instantiate locations
         logRebindingDebug("RebindManager instantiating locations: {}", mementoManifest.getLocationIdToType().keySet());
-        for (Map.Entry<String, String> entry : mementoManifest.getLocationIdToType().entrySet()) {
-            String locId = entry.getKey();
-            String locType = entry.getValue();
-            if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating location {}", locId);
-            
-            try {
-                Location location = instantiator.newLocation(locId, locType);
-                rebindContext.registerLocation(locId, location);
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.LOCATION, locId, locType, e);
-            }
+        final Map<String, Location> locations = Maps.newConcurrentMap();
+        forEachInParallel(mementoManifest.getLocationIdToType().entrySet(), new PerObjectWork<Map.Entry<String, String>>() {
+            public void run(Map.Entry<String, String> entry) {
+                String locId = entry.getKey();
+                String locType = entry.getValue();
+                if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating location {}", locId);
+                
+                try {
+                    locations.put(locId, instantiator.newLocation(locId, locType));
+                } catch (Exception e) {
+                    exceptionHandler.onCreateFailed(BrooklynObjectType.LOCATION, locId, locType, e);
+                }
+            }});
+        for (String locId : mementoManifest.getLocationIdToType().keySet()) {
+            Location location = locations.get(locId);
+            if (location != null) rebindContext.registerLocation(locId, location);
         }
+        notePhaseCount(BrooklynObjectType.LOCATION, locations.size());
         
         // Instantiate entities
         logRebindingDebug("RebindManager instantiating entities: {}", mementoManifest.getEntityIdToManifest().keySet());
-        for (Map.Entry<String, EntityMementoManifest> entry : mementoManifest.getEntityIdToManifest().entrySet()) {
-            String entityId = entry.getKey();
-            EntityMementoManifest entityManifest = entry.getValue();
-            String catalogItemId = findCatalogItemId(classLoader, mementoManifest.getEntityIdToManifest(), entityManifest);
-            
-            if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating entity {}", entityId);
-            
-            try {
-                Entity entity = (Entity) instantiator.newEntity(entityId, entityManifest.getType(), catalogItemId);
-                ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
-                rebindContext.registerEntity(entityId, entity);
-
-            } catch (Exception e) {
-                exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
-            }
+        final Map<String, Entity> entities = Maps.newConcurrentMap();
+        forEachInParallel(mementoManifest.getEntityIdToManifest().entrySet(), new PerObjectWork<Map.Entry<String, EntityMementoManifest>>() {
+            public void run(Map.Entry<String, EntityMementoManifest> entry) {
+                String entityId = entry.getKey();
+                EntityMementoManifest entityManifest = entry.getValue();
+                String catalogItemId = findCatalogItemId(classLoader, mementoManifest.getEntityIdToManifest(), entityManifest);
+                
+                if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating entity {}", entityId);
+                
+                try {
+                    Entity entity = (Entity) instantiator.newEntity(entityId, entityManifest.getType(), catalogItemId);
+                    ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
+                    entities.put(entityId, entity);
+    
+                } catch (Exception e) {
+                    exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
+                }
+            }});
+        for (String entityId : mementoManifest.getEntityIdToManifest().keySet()) {
+            Entity entity = entities.get(entityId);
+            if (entity != null) rebindContext.registerEntity(entityId, entity);
         }
+        notePhaseCount(BrooklynObjectType.ENTITY, entities.size());
     }
 
     protected void instantiateMementos() throws IOException {
@@ -418,25 +463,37 @@ public abstract class RebindIteration {
         checkEnteringPhase(4);
         
         memento = persistenceStoreAccess.loadMemento(mementoRawData, rebindContext.lookup(), exceptionHandler);
+        
+        notePhaseCount(BrooklynObjectType.LOCATION, memento.getLocationIds().size());
+        notePhaseCount(BrooklynObjectType.ENTITY, memento.getEntityIds().size());
+        notePhaseCount(BrooklynObjectType.POLICY, memento.getPolicyIds().size());
+        notePhaseCount(BrooklynObjectType.ENRICHER, memento.getEnricherIds().size());
+        notePhaseCount(BrooklynObjectType.FEED, memento.getFeedIds().size());
     }
 
-    protected void instantiateAdjuncts(BrooklynObjectInstantiator instantiator) {
+    protected void instantiateAdjuncts(final BrooklynObjectInstantiator instantiator) {
         
         checkEnteringPhase(5);
         
         // Instantiate policies
         if (rebindManager.persistPoliciesEnabled) {
             logRebindingDebug("RebindManager instantiating policies: {}", memento.getPolicyIds());
-            for (PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
-                logRebindingDebug("RebindManager instantiating policy {}", policyMemento);
-                
-                try {
-                    Policy policy = instantiator.newPolicy(policyMemento);
-                    rebindContext.registerPolicy(policyMemento.getId(), policy);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.POLICY, policyMemento.getId(), policyMemento.getType(), e);
-                }
+            final Map<String, Policy> policies = Maps.newConcurrentMap();
+            forEachInParallel(memento.getPolicyMementos().values(), new PerObjectWork<PolicyMemento>() {
+                public void run(PolicyMemento policyMemento) {
+                    logRebindingDebug("RebindManager instantiating policy {}", policyMemento);
+                    
+                    try {
+                        policies.put(policyMemento.getId(), instantiator.newPolicy(policyMemento));
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.POLICY, policyMemento.getId(), policyMemento.getType(), e);
+                    }
+                }});
+            for (String policyId : memento.getPolicyMementos().keySet()) {
+                Policy policy = policies.get(policyId);
+                if (policy != null) rebindContext.registerPolicy(policyId, policy);
             }
+            notePhaseCount(BrooklynObjectType.POLICY, policies.size());
         } else {
             logRebindingDebug("Not rebinding policies; feature disabled: {}", memento.getPolicyIds());
         }
@@ -444,16 +501,22 @@ public abstract class RebindIteration {
         // Instantiate enrichers
         if (rebindManager.persistEnrichersEnabled) {
             logRebindingDebug("RebindManager instantiating enrichers: {}", memento.getEnricherIds());
-            for (EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
-                logRebindingDebug("RebindManager instantiating enricher {}", enricherMemento);
-
-                try {
-                    Enricher enricher = instantiator.newEnricher(enricherMemento);
-                    rebindContext.registerEnricher(enricherMemento.getId(), enricher);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.ENRICHER, enricherMemento.getId(), enricherMemento.getType(), e);
-                }
+            final Map<String, Enricher> enrichers = Maps.newConcurrentMap();
+            forEachInParallel(memento.getEnricherMementos().values(), new PerObjectWork<EnricherMemento>() {
+                public void run(EnricherMemento enricherMemento) {
+                    logRebindingDebug("RebindManager instantiating enricher {}", enricherMemento);
+    
+                    try {
+                        enrichers.put(enricherMemento.getId(), instantiator.newEnricher(enricherMemento));
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.ENRICHER, enricherMemento.getId(), enricherMemento.getType(), e);
+                    }
+                }});
+            for (String enricherId : memento.getEnricherMementos().keySet()) {
+                Enricher enricher = enrichers.get(enricherId);
+                if (enricher != null) rebindContext.registerEnricher(enricherId, enricher);
             }
+            notePhaseCount(BrooklynObjectType.ENRICHER, enrichers.size());
         } else {
             logRebindingDebug("Not rebinding enrichers; feature disabled: {}", memento.getEnricherIds());
         } 
@@ -461,16 +524,22 @@ public abstract class RebindIteration {
         // Instantiate feeds
         if (rebindManager.persistFeedsEnabled) {
             logRebindingDebug("RebindManager instantiating feeds: {}", memento.getFeedIds());
-            for (FeedMemento feedMemento : memento.getFeedMementos().values()) {
-                if (LOG.isDebugEnabled()) LOG.debug("RebindManager instantiating feed {}", feedMemento);
-
-                try {
-                    Feed feed = instantiator.newFeed(feedMemento);
-                    rebindContext.registerFeed(feedMemento.getId(), feed);
-                } catch (Exception e) {
-                    exceptionHandler.onCreateFailed(BrooklynObjectType.FEED, feedMemento.getId(), feedMemento.getType(), e);
-                }
+            final Map<String, Feed> feeds = Maps.newConcurrentMap();
+            forEachInParallel(memento.getFeedMementos().values(), new PerObjectWork<FeedMemento>() {
+                public void run(FeedMemento feedMemento) {
+                    if (LOG.isDebugEnabled()) LOG.debug("RebindManager instantiating feed {}", feedMemento);
+    
+                    try {
+                        feeds.put(feedMemento.getId(), instantiator.newFeed(feedMemento));
+                    } catch (Exception e) {
+                        exceptionHandler.onCreateFailed(BrooklynObjectType.FEED, feedMemento.getId(), feedMemento.getType(), e);
+                    }
+                }});
+            for (String feedId : memento.getFeedMementos().keySet()) {
+                Feed feed = feeds.get(feedId);
+                if (feed != null) rebindContext.registerFeed(feedId, feed);
             }
+            notePhaseCount(BrooklynObjectType.FEED, feeds.size());
         } else {
             logRebindingDebug("Not rebinding feeds; feature disabled: {}", memento.getFeedIds());
         }
@@ -480,132 +549,163 @@ public abstract class RebindIteration {
         
         checkEnteringPhase(6);
         
-        // Reconstruct locations
+        // Reconstruct locations, parents before children
         logRebindingDebug("RebindManager reconstructing locations");
-        for (LocationMemento locMemento : sortParentFirst(memento.getLocationMementos()).values()) {
-            Location location = rebindContext.getLocation(locMemento.getId());
-            logRebindingDebug("RebindManager reconstructing location {}", locMemento);
-            if (location == null) {
-                // usually because of creation-failure, when not using fail-fast
-                exceptionHandler.onNotFound(BrooklynObjectType.LOCATION, locMemento.getId());
-            } else {
-                try {
-                    ((LocationInternal)location).getRebindSupport().reconstruct(rebindContext, locMemento);
-                } catch (Exception e) {
-                    exceptionHandler.onRebindFailed(BrooklynObjectType.LOCATION, location, e);
-                }
-            }
+        List<List<LocationMemento>> locationLevels = partitionParentFirst(memento.getLocationMementos());
+        for (List<LocationMemento> level : locationLevels) {
+            forEachInParallel(level, new PerObjectWork<LocationMemento>() {
+                public void run(LocationMemento locMemento) {
+                    Location location = rebindContext.getLocation(locMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing location {}", locMemento);
+                    if (location == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.LOCATION, locMemento.getId());
+                    } else {
+                        try {
+                            ((LocationInternal)location).getRebindSupport().reconstruct(rebindContext, locMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.LOCATION, location, e);
+                        }
+                    }
+                }});
         }
+        notePhaseCount(BrooklynObjectType.LOCATION, memento.getLocationMementos().size());
 
-        // Reconstruct policies
+        // Reconstruct policies; failed ones are unregistered once all are done, as other threads may be looking things up
         if (rebindManager.persistPoliciesEnabled) {
             logRebindingDebug("RebindManager reconstructing policies");
-            for (PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
-                Policy policy = rebindContext.getPolicy(policyMemento.getId());
-                logRebindingDebug("RebindManager reconstructing policy {}", policyMemento);
-   
-                if (policy == null) {
-                    // usually because of creation-failure, when not using fail-fast
-                    exceptionHandler.onNotFound(BrooklynObjectType.POLICY, policyMemento.getId());
-                } else {
-                    try {
-                        policy.getRebindSupport().reconstruct(rebindContext, policyMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.POLICY, policy, e);
-                        rebindContext.unregisterPolicy(policy);
+            final Queue<Policy> failedPolicies = new ConcurrentLinkedQueue<Policy>();
+            forEachInParallel(memento.getPolicyMementos().values(), new PerObjectWork<PolicyMemento>() {
+                public void run(PolicyMemento policyMemento) {
+                    Policy policy = rebindContext.getPolicy(policyMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing policy {}", policyMemento);
+       
+                    if (policy == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.POLICY, policyMemento.getId());
+                    } else {
+                        try {
+                            policy.getRebindSupport().reconstruct(rebindContext, policyMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.POLICY, policy, e);
+                            failedPolicies.add(policy);
+                        }
                     }
-                }
+                }});
+            for (Policy policy : failedPolicies) {
+                rebindContext.unregisterPolicy(policy);
             }
+            notePhaseCount(BrooklynObjectType.POLICY, memento.getPolicyMementos().size());
         }
 
         // Reconstruct enrichers
         if (rebindManager.persistEnrichersEnabled) {
             logRebindingDebug("RebindManager reconstructing enrichers");
-            for (EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
-                Enricher enricher = rebindContext.getEnricher(enricherMemento.getId());
-                logRebindingDebug("RebindManager reconstructing enricher {}", enricherMemento);
-      
-                if (enricher == null) {
-                    // usually because of creation-failure, when not using fail-fast
-                    exceptionHandler.onNotFound(BrooklynObjectType.ENRICHER, enricherMemento.getId());
-                } else {
-                    try {
-                        enricher.getRebindSupport().reconstruct(rebindContext, enricherMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.ENRICHER, enricher, e);
-                        rebindContext.unregisterEnricher(enricher);
+            final Queue<Enricher> failedEnrichers = new ConcurrentLinkedQueue<Enricher>();
+            forEachInParallel(memento.getEnricherMementos().values(), new PerObjectWork<EnricherMemento>() {
+                public void run(EnricherMemento enricherMemento) {
+                    Enricher enricher = rebindContext.getEnricher(enricherMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing enricher {}", enricherMemento);
+          
+                    if (enricher == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.ENRICHER, enricherMemento.getId());
+                    } else {
+                        try {
+                            enricher.getRebindSupport().reconstruct(rebindContext, enricherMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.ENRICHER, enricher, e);
+                            failedEnrichers.add(enricher);
+                        }
                     }
-                }
+                }});
+            for (Enricher enricher : failedEnrichers) {
+                rebindContext.unregisterEnricher(enricher);
             }
+            notePhaseCount(BrooklynObjectType.ENRICHER, memento.getEnricherMementos().size());
         }
    
         // Reconstruct feeds
         if (rebindManager.persistFeedsEnabled) {
             logRebindingDebug("RebindManager reconstructing feeds");
-            for (FeedMemento feedMemento : memento.getFeedMementos().values()) {
-                Feed feed = rebindContext.getFeed(feedMemento.getId());
-                logRebindingDebug("RebindManager reconstructing feed {}", feedMemento);
-      
-                if (feed == null) {
-                    // usually because of creation-failure, when not using fail-fast
-                    exceptionHandler.onNotFound(BrooklynObjectType.FEED, feedMemento.getId());
-                } else {
-                    try {
-                        feed.getRebindSupport().reconstruct(rebindContext, feedMemento);
-                    } catch (Exception e) {
-                        exceptionHandler.onRebindFailed(BrooklynObjectType.FEED, feed, e);
-                        rebindContext.unregisterFeed(feed);
+            final Queue<Feed> failedFeeds = new ConcurrentLinkedQueue<Feed>();
+            forEachInParallel(memento.getFeedMementos().values(), new PerObjectWork<FeedMemento>() {
+                public void run(FeedMemento feedMemento) {
+                    Feed feed = rebindContext.getFeed(feedMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing feed {}", feedMemento);
+          
+                    if (feed == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.FEED, feedMemento.getId());
+                    } else {
+                        try {
+                            feed.getRebindSupport().reconstruct(rebindContext, feedMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.FEED, feed, e);
+                            failedFeeds.add(feed);
+                        }
                     }
-                }
-
+                }});
+            for (Feed feed : failedFeeds) {
+                rebindContext.unregisterFeed(feed);
             }
+            notePhaseCount(BrooklynObjectType.FEED, memento.getFeedMementos().size());
         }
    
-        // Reconstruct entities
+        // Reconstruct entities, parents before children (as config is inherited when the parent is set)
         logRebindingDebug("RebindManager reconstructing entities");
-        for (EntityMemento entityMemento : sortParentFirst(memento.getEntityMementos()).values()) {
-            Entity entity = rebindContext.lookup().lookupEntity(entityMemento.getId());
-            logRebindingDebug("RebindManager reconstructing entity {}", entityMemento);
-   
-            if (entity == null) {
-                // usually because of creation-failure, when not using fail-fast
-                exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
-            } else {
-                try {
-                    entityMemento.injectTypeClass(entity.getClass());
-                    ((EntityInternal)entity).getRebindSupport().reconstruct(rebindContext, entityMemento);
-                } catch (Exception e) {
-                    exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
-                }
-            }
+        List<List<EntityMemento>> entityLevels = partitionParentFirst(memento.getEntityMementos());
+        for (List<EntityMemento> level : entityLevels) {
+            forEachInParallel(level, new PerObjectWork<EntityMemento>() {
+                public void run(EntityMemento entityMemento) {
+                    Entity entity = rebindContext.lookup().lookupEntity(entityMemento.getId());
+                    logRebindingDebug("RebindManager reconstructing entity {}", entityMemento);
+           
+                    if (entity == null) {
+                        // usually because of creation-failure, when not using fail-fast
+                        exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
+                    } else {
+                        try {
+                            entityMemento.injectTypeClass(entity.getClass());
+                            ((EntityInternal)entity).getRebindSupport().reconstruct(rebindContext, entityMemento);
+                        } catch (Exception e) {
+                            exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
+                        }
+                    }
+                }});
         }
+        notePhaseCount(BrooklynObjectType.ENTITY, memento.getEntityMementos().size());
+        notePhaseMetric("entityTreeDepth", entityLevels.size());
     }
 
     protected void associateAdjunctsWithEntities() {
         
         checkEnteringPhase(7);
 
+        // each entity only touches its own adjuncts here, so no ordering is needed
         logRebindingDebug("RebindManager associating adjuncts to entities");
-        for (EntityMemento entityMemento : sortParentFirst(memento.getEntityMementos()).values()) {
-            Entity entity = rebindContext.getEntity(entityMemento.getId());
-            logRebindingDebug("RebindManager associating adjuncts to entity {}", entityMemento);
-   
-            if (entity == null) {
-                // usually because of creation-failure, when not using fail-fast
-                exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
-            } else {
-                try {
-                    entityMemento.injectTypeClass(entity.getClass());
-                    // TODO these call to the entity which in turn sets the entity on the underlying feeds and enrichers;
-                    // that is taken as the cue to start, but it should not be. start should be a separate call.
-                    ((EntityInternal)entity).getRebindSupport().addPolicies(rebindContext, entityMemento);
-                    ((EntityInternal)entity).getRebindSupport().addEnrichers(rebindContext, entityMemento);
-                    ((EntityInternal)entity).getRebindSupport().addFeeds(rebindContext, entityMemento);
-                } catch (Exception e) {
-                    exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
+        forEachInParallel(memento.getEntityMementos().values(), new PerObjectWork<EntityMemento>() {
+            public void run(EntityMemento entityMemento) {
+                Entity entity = rebindContext.getEntity(entityMemento.getId());
+                logRebindingDebug("RebindManager associating adjuncts to entity {}", entityMemento);
+       
+                if (entity == null) {
+                    // usually because of creation-failure, when not using fail-fast
+                    exceptionHandler.onNotFound(BrooklynObjectType.ENTITY, entityMemento.getId());
+                } else {
+                    try {
+                        entityMemento.injectTypeClass(entity.getClass());
+                        // TODO these call to the entity which in turn sets the entity on the underlying feeds and enrichers;
+                        // that is taken as the cue to start, but it should not be. start should be a separate call.
+                        ((EntityInternal)entity).getRebindSupport().addPolicies(rebindContext, entityMemento);
+                        ((EntityInternal)entity).getRebindSupport().addEnrichers(rebindContext, entityMemento);
+                        ((EntityInternal)entity).getRebindSupport().addFeeds(rebindContext, entityMemento);
+                    } catch (Exception e) {
+                        exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
+                    }
                 }
-            }
-        }
+            }});
+        notePhaseCount(BrooklynObjectType.ENTITY, memento.getEntityMementos().size());
     }
 
     protected void manageTheObjects() {
@@ -661,6 +761,8 @@ public abstract class RebindIteration {
         cleanupOldEntities(oldEntities);
 
         this.applications = apps;
+        notePhaseCount(BrooklynObjectType.LOCATION, rebindContext.getLocations().size());
+        notePhaseCount(BrooklynObjectType.ENTITY, rebindContext.getEntities().size());
     }
 
     private <T extends BrooklynObject> ManagementTransitionMode updateTransitionMode(BrooklynObjectManagerInternal<T> boManager, T bo) {
@@ -701,6 +803,7 @@ public abstract class RebindIteration {
     protected void finishingUp() {
         
         checkContinuingPhase(8);
+        notePhaseEnded();
         
         if (!isEmpty) {
             BrooklynLogging.log(LOG, shouldLogRebinding() ? LoggingLevel.INFO : LoggingLevel.DEBUG, 
@@ -716,6 +819,7 @@ public abstract class RebindIteration {
             });
         }
 
+        logRebindingDebug("RebindManager phases: {}", phaseMetrics);
         // Return the top-level applications
         logRebindingDebug("RebindManager complete; apps: {}", getMementoRootEntities());
     }
@@ -1054,6 +1158,88 @@ public abstract class RebindIteration {
         return RebindManagerImpl.sortParentFirst(nodes);
     }
 
+    /** as {@link #sortParentFirst(Map)}, but grouped by depth in the tree, 
+     * so the nodes in each group can be processed in parallel once all earlier groups have been done */
+    protected <T extends TreeNode> List<List<T>> partitionParentFirst(Map<String, T> nodes) {
+        Map<String, Integer> depths = MutableMap.of();
+        List<List<T>> result = MutableList.of();
+        for (T node : sortParentFirst(nodes).values()) {
+            Integer parentDepth = (node.getParent() == null) ? null : depths.get(node.getParent());
+            int depth = (parentDepth == null) ? 0 : parentDepth + 1;
+            depths.put(node.getId(), depth);
+            while (result.size() <= depth) result.add(MutableList.<T>of());
+            result.get(depth).add(node);
+        }
+        return result;
+    }
+
+    protected interface PerObjectWork<T> {
+        /** does the work for the given item, handling (normally reporting to the exception handler) any errors */
+        void run(T item);
+    }
+
+    /**
+     * Runs the work for each item, in parallel where more than one thread is configured 
+     * (see {@link RebindManagerImpl#REBIND_THREAD_POOL_MAX_SIZE}), returning when all are done.
+     * Errors the work rethrows (e.g. when failing fast) are propagated once all items are done.
+     */
+    protected <T> void forEachInParallel(Collection<T> items, final PerObjectWork<? super T> work) {
+        int maxThreads = rebindManager.getRebindThreadPoolMaxSize();
+        if (maxThreads <= 1 || items.size() <= 1) {
+            for (T item : items) {
+                work.run(item);
+            }
+            return;
+        }
+        
+        ListeningExecutorService executor = rebindManager.getRebindExecutor();
+        List<ListenableFuture<?>> futures = Lists.newArrayList();
+        for (final T item : items) {
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    RebindTracker.setRebinding();
+                    try {
+                        work.run(item);
+                    } finally {
+                        RebindTracker.reset();
+                    }
+                }}));
+        }
+        try {
+            // Wait for all the tasks to complete or fail, rather than aborting on the first failure.
+            // But then propagate failure if any fail. (hence the two calls).
+            Futures.successfulAsList(futures).get();
+            Futures.allAsList(futures).get();
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        } catch (InterruptedException e) {
+            for (ListenableFuture<?> future : futures) {
+                future.cancel(true);
+            }
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    private void notePhaseEnded() {
+        if (phaseTimer == null) return;
+        notePhaseMetric("durationMillis", phaseTimer.elapsed(TimeUnit.MILLISECONDS));
+        phaseTimer = null;
+    }
+    
+    protected void notePhaseCount(BrooklynObjectType type, int count) {
+        notePhaseMetric(type.getSubPathName(), count);
+    }
+    
+    protected void notePhaseMetric(String key, Object value) {
+        String phaseName = (phase >= 0 && phase < PHASE_NAMES.length) ? PHASE_NAMES[phase] : "phase"+phase;
+        Map<String, Object> metrics = phaseMetrics.get(phaseName);
+        if (metrics == null) {
+            metrics = MutableMap.of();
+            phaseMetrics.put(phaseName, metrics);
+        }
+        metrics.put(key, value);
+    }
+
     /** logs at debug, except during subsequent read-only rebinds, in which it logs trace */
     protected void logRebindingDebug(String message, Object... args) {
         if (shouldLogRebinding()) {
@@ -24,7 +24,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -45,6 +48,7 @@ import brooklyn.entity.rebind.persister.BrooklynPersistenceUtils;
 import brooklyn.entity.rebind.persister.BrooklynPersistenceUtils.CreateBackupMode;
 import brooklyn.entity.rebind.persister.PersistenceActivityMetrics;
 import brooklyn.entity.rebind.transformer.CompoundTransformer;
+import brooklyn.event.AttributeSensor;
 import brooklyn.internal.BrooklynFeatureEnablement;
 import brooklyn.management.ExecutionContext;
 import brooklyn.management.Task;
@@ -72,6 +76,8 @@ import com.google.common.base.Function;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /** Manages the persistence/rebind process.
  * <p>
@@ -104,6 +110,20 @@ public class RebindManagerImpl implements RebindManager {
                 + "then linear regression to allow max 5% at 100 items and above", 
                 QuorumChecks.newLinearRange("[[0,-2],[10,8],[100,95],[200,190]]"));
 
+    public static final ConfigKey<Integer> REBIND_THREAD_POOL_MAX_SIZE =
+        ConfigKeys.newIntegerConfigKey("rebind.threadpool.maxSize",
+                "Maximum number of threads used to instantiate and reconstruct items in parallel during rebind "
+                + "(1 to do everything in the calling thread)", 
+                8);
+
+    @Beta
+    public static final ConfigKey<Boolean> READ_ONLY_INCREMENTAL =
+        ConfigKeys.newBooleanConfigKey("rebind.readOnly.incremental",
+                "Whether hot-standby and hot-backup nodes should use the persister's change journal (where available) "
+                + "to skip periodic read-only rebinds when nothing has changed, to apply changes to just entity attributes "
+                + "to the existing read-only entities, and to re-read only the changed items for other changes", 
+                false);
+
     public static final Logger LOG = LoggerFactory.getLogger(RebindManagerImpl.class);
 
     private final ManagementContextInternal managementContext;
@@ -118,6 +138,13 @@ public class RebindManagerImpl implements RebindManager {
     private volatile ScheduledTask readOnlyTask = null;
     private transient Semaphore rebindActive = new Semaphore(1);
     private transient AtomicInteger readOnlyRebindCount = new AtomicInteger(Integer.MIN_VALUE);
+    private transient AtomicInteger readOnlyRebindSkippedCount = new AtomicInteger(0);
+    private transient AtomicInteger readOnlyRebindInPlaceCount = new AtomicInteger(0);
+    private volatile boolean readOnlyIncremental;
+    private volatile int rebindThreadPoolMaxSize;
+    /** shared by all rebind iterations for parallel per-object work; created on demand, shut down by {@link #stop()} */
+    private ThreadPoolExecutor rebindThreadPool;
+    private ListeningExecutorService rebindExecutor;
     
     private volatile BrooklynMementoPersister persistenceStoreAccess;
 
@@ -176,6 +203,8 @@ public class RebindManagerImpl implements RebindManager {
         loadPolicyFailureMode = managementContext.getConfig().getConfig(LOAD_POLICY_FAILURE_MODE);
         
         danglingRefsQuorumRequiredHealthy = managementContext.getConfig().getConfig(DANGLING_REFERENCES_MIN_REQUIRED_HEALTHY);
+        readOnlyIncremental = managementContext.getConfig().getConfig(READ_ONLY_INCREMENTAL);
+        rebindThreadPoolMaxSize = managementContext.getConfig().getConfig(REBIND_THREAD_POOL_MAX_SIZE);
 
         LOG.debug("{} initialized, settings: policies={}, enrichers={}, feeds={}, catalog={}",
                 new Object[]{this, persistPoliciesEnabled, persistEnrichersEnabled, persistFeedsEnabled, persistCatalogItemsEnabled});
@@ -200,6 +229,55 @@ public class RebindManagerImpl implements RebindManager {
         setPeriodicPersistPeriod(Duration.of(periodMillis, TimeUnit.MILLISECONDS));
     }
 
+    /** @see #READ_ONLY_INCREMENTAL */
+    @Beta
+    public void setReadOnlyIncremental(boolean val) {
+        this.readOnlyIncremental = val;
+    }
+    
+    /** whether read-only rebinds should load incrementally, i.e. {@link #READ_ONLY_INCREMENTAL} is set and the persister supports it */
+    boolean isReadOnlyIncrementalSupported() {
+        return readOnlyIncremental && persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore;
+    }
+
+    /** @see #REBIND_THREAD_POOL_MAX_SIZE */
+    public void setRebindThreadPoolMaxSize(int val) {
+        this.rebindThreadPoolMaxSize = val;
+        synchronized (this) {
+            if (rebindThreadPool != null) {
+                int size = Math.max(val, 1);
+                if (size > rebindThreadPool.getMaximumPoolSize()) {
+                    rebindThreadPool.setMaximumPoolSize(size);
+                    rebindThreadPool.setCorePoolSize(size);
+                } else {
+                    rebindThreadPool.setCorePoolSize(size);
+                    rebindThreadPool.setMaximumPoolSize(size);
+                }
+            }
+        }
+    }
+    
+    int getRebindThreadPoolMaxSize() {
+        return rebindThreadPoolMaxSize;
+    }
+
+    /** the executor for parallel work in rebind iterations; its (daemon) threads time out when idle between rebinds */
+    synchronized ListeningExecutorService getRebindExecutor() {
+        if (rebindExecutor == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            int size = Math.max(rebindThreadPoolMaxSize, 1);
+            rebindThreadPool = new ThreadPoolExecutor(size, size, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override public Thread newThread(Runnable r) {
+                    Thread result = new Thread(r, "brooklyn-rebind-"+threadCount.incrementAndGet());
+                    result.setDaemon(true);
+                    return result;
+                }});
+            rebindThreadPool.allowCoreThreadTimeOut(true);
+            rebindExecutor = MoreExecutors.listeningDecorator(rebindThreadPool);
+        }
+        return rebindExecutor;
+    }
+
     public boolean isPersistenceRunning() {
         return persistenceRunning;
     }
@@ -288,6 +366,8 @@ public class RebindManagerImpl implements RebindManager {
         
         readOnlyRunning = true;
         readOnlyRebindCount.set(0);
+        readOnlyRebindSkippedCount.set(0);
+        readOnlyRebindInPlaceCount.set(0);
 
         try {
             rebind(null, null, mode);
@@ -300,6 +380,17 @@ public class RebindManagerImpl implements RebindManager {
                 return Tasks.<Void>builder().dynamic(false).name("rebind (periodic run").body(new Callable<Void>() {
                     public Void call() {
                         try {
+                            if (isReadOnlyIncrementalSupported()) {
+                                BrooklynMementoPersisterToObjectStore persister = (BrooklynMementoPersisterToObjectStore)persistenceStoreAccess;
+                                if (!persister.hasChangesSinceIncrementalLoad()) {
+                                    readOnlyRebindSkippedCount.incrementAndGet();
+                                    return null;
+                                }
+                                if (new ReadOnlyInPlaceRebind(managementContext, persister, managementContext.getCatalog().getRootClassLoader(), rebindActive).run()) {
+                                    readOnlyRebindInPlaceCount.incrementAndGet();
+                                    return null;
+                                }
+                            }
                             rebind(null, null, mode);
                             return null;
                         } catch (RuntimeInterruptedException e) {
@@ -345,6 +436,9 @@ public class RebindManagerImpl implements RebindManager {
             readOnlyTask = null;
             LOG.debug("Stopped read-only rebinding ("+this+"), mgmt "+managementContext.getManagementNodeId());
         }
+        if (persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore) {
+            ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).clearIncrementalLoadState();
+        }
     }
     
     @Override
@@ -364,6 +458,13 @@ public class RebindManagerImpl implements RebindManager {
         stopReadOnly();
         stopPersistence();
         if (persistenceStoreAccess != null) persistenceStoreAccess.stop(true);
+        synchronized (this) {
+            if (rebindExecutor != null) {
+                rebindExecutor.shutdownNow();
+                rebindExecutor = null;
+                rebindThreadPool = null;
+            }
+        }
     }
     
         
@@ -588,13 +689,39 @@ public class RebindManagerImpl implements RebindManager {
      * failed to persist, and we'd expect other threads to throw the OutOfMemoryError so
      * we shouldn't lose anything.
      */
-    private static class SafeChangeListener implements ChangeListener {
+    private static class SafeChangeListener implements EntityStateChangeListener {
         private final ChangeListener delegate;
         
         public SafeChangeListener(ChangeListener delegate) {
             this.delegate = delegate;
         }
         
+        @Override
+        public void onAttributeChanged(Entity entity, AttributeSensor<?> attribute) {
+            try {
+                if (delegate instanceof EntityStateChangeListener) {
+                    ((EntityStateChangeListener)delegate).onAttributeChanged(entity, attribute);
+                } else {
+                    delegate.onChanged(entity);
+                }
+            } catch (Throwable t) {
+                LOG.error("Error persisting mememento onAttributeChanged("+entity+", "+attribute+"); continuing.", t);
+            }
+        }
+        
+        @Override
+        public void onConfigChanged(Entity entity, ConfigKey<?> key) {
+            try {
+                if (delegate instanceof EntityStateChangeListener) {
+                    ((EntityStateChangeListener)delegate).onConfigChanged(entity, key);
+                } else {
+                    delegate.onChanged(entity);
+                }
+            } catch (Throwable t) {
+                LOG.error("Error persisting mememento onConfigChanged("+entity+", "+key+"); continuing.", t);
+            }
+        }
+        
         @Override
         public void onManaged(BrooklynObject instance) {
             try {
@@ -627,6 +754,16 @@ public class RebindManagerImpl implements RebindManager {
         return readOnlyRebindCount.get();
     }
     
+    /** number of periodic read-only rebinds skipped because the store was unchanged, when {@link #READ_ONLY_INCREMENTAL} */
+    public int getReadOnlyRebindSkippedCount() {
+        return readOnlyRebindSkippedCount.get();
+    }
+    
+    /** number of periodic read-only rebinds done by applying changes to the existing read-only entities, when {@link #READ_ONLY_INCREMENTAL} */
+    public int getReadOnlyRebindInPlaceCount() {
+        return readOnlyRebindInPlaceCount.get();
+    }
+    
     @Override
     public Map<String, Object> getMetrics() {
         Map<String,Object> result = MutableMap.of();
@@ -636,6 +773,10 @@ public class RebindManagerImpl implements RebindManager {
         
         if (readOnlyRebindCount.get()>=0)
             result.put("rebindReadOnlyCount", readOnlyRebindCount);
+        if (readOnlyRebindCount.get()>=0 && readOnlyIncremental) {
+            result.put("rebindReadOnlySkippedCount", readOnlyRebindSkippedCount);
+            result.put("rebindReadOnlyInPlaceCount", readOnlyRebindInPlaceCount);
+        }
         
         // include first rebind counts, so we know whether we rebinded or not
         result.put("firstRebindCounts", MutableMap.of(
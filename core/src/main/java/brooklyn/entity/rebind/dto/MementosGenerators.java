@@ -60,7 +60,9 @@ import brooklyn.policy.basic.AbstractPolicy;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.config.ConfigBag;
 import brooklyn.util.flags.FlagUtils;
+import brooklyn.util.guava.Maybe;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Predicates;
 
@@ -140,16 +142,7 @@ public class MementosGenerators {
         EntityInternal entity = (EntityInternal) entityRaw;
         BasicEntityMemento.Builder builder = BasicEntityMemento.builder();
         populateBrooklynObjectMementoBuilder(entity, builder);
-        
-        EntityDynamicType definedType = BrooklynTypes.getDefinedEntityType(entity.getClass());
-                
-        // TODO the dynamic attributeKeys and configKeys are computed in the BasicEntityMemento
-        // whereas effectors are computed here -- should be consistent! 
-        // (probably best to compute attrKeys and configKeys here)
-        builder.effectors.addAll(entity.getEntityType().getEffectors());
-        builder.effectors.removeAll(definedType.getEffectors().values());
-        
-        builder.isTopLevelApp = (entity instanceof Application && entity.getParent() == null);
+        populateEntityMementoStructure(entity, builder);
 
         Map<ConfigKey<?>, Object> localConfig = entity.getConfigMap().getLocalConfig();
         for (Map.Entry<ConfigKey<?>, Object> entry : localConfig.entrySet()) {
@@ -179,6 +172,62 @@ public class MementosGenerators {
             }
         }
         
+        return builder;
+    }
+    
+    /**
+     * Creates a memento for an entity by updating one previously generated for it, where only the given
+     * attributes and config keys have changed since. Everything else which is cheap to inspect (locations, 
+     * children, adjuncts, tags, etc) is re-inspected, but the values of all other attributes and config are 
+     * re-used from the previous memento rather than copying them all from the entity again.
+     * <p>
+     * Returns absent if the changes cannot be applied in this way (e.g. a changed attribute or config key 
+     * is now null or unset, so may have been removed), in which case callers should use {@link #newEntityMemento(Entity)}.
+     */
+    @Beta
+    public static Maybe<EntityMemento> updateEntityMemento(Entity entityRaw, EntityMemento previous, 
+            Iterable<? extends AttributeSensor<?>> changedAttributes, Iterable<? extends ConfigKey<?>> changedConfig) {
+        EntityInternal entity = (EntityInternal) entityRaw;
+        BasicEntityMemento.Builder builder = BasicEntityMemento.builder();
+        populateBrooklynObjectMementoBuilder(entity, builder);
+        populateEntityMementoStructure(entity, builder);
+        
+        builder.config.putAll(previous.getConfig());
+        builder.configUnmatched.putAll(previous.getConfigUnmatched());
+        builder.attributes.putAll(previous.getAttributes());
+        
+        for (ConfigKey<?> key : changedConfig) {
+            Maybe<Object> value = entity.getConfigMap().getConfigRaw(key, false);
+            if (value.isAbsentOrNull()) return Maybe.absent("Config "+key.getName()+" of "+entity+" may have been removed");
+            builder.config.put(key, configValueToPersistable(value.get()));
+            builder.configUnmatched.remove(key.getName());
+        }
+        
+        for (AttributeSensor<?> sensor : changedAttributes) {
+            if (sensor.getPersistenceMode() == SensorPersistenceMode.NONE) continue;
+            
+            // key on the entity type's own sensor, as newEntityMementoBuilder does
+            AttributeSensor<?> key = (AttributeSensor<?>) entity.getEntityType().getSensor(sensor.getName());
+            if (key == null) key = sensor;
+            Object value = entity.getAttribute(key);
+            if (value == null) return Maybe.absent("Attribute "+key.getName()+" of "+entity+" may have been removed");
+            builder.attributes.put(key, value);
+        }
+        
+        return Maybe.of(builder.build());
+    }
+    
+    private static void populateEntityMementoStructure(EntityInternal entity, BasicEntityMemento.Builder builder) {
+        EntityDynamicType definedType = BrooklynTypes.getDefinedEntityType(entity.getClass());
+                
+        // TODO the dynamic attributeKeys and configKeys are computed in the BasicEntityMemento
+        // whereas effectors are computed here -- should be consistent! 
+        // (probably best to compute attrKeys and configKeys here)
+        builder.effectors.addAll(entity.getEntityType().getEffectors());
+        builder.effectors.removeAll(definedType.getEffectors().values());
+        
+        builder.isTopLevelApp = (entity instanceof Application && entity.getParent() == null);
+
         for (Location location : entity.getLocations()) {
             builder.locations.add(location.getId()); 
         }
@@ -207,8 +256,6 @@ public class MementosGenerators {
                 builder.members.add(member.getId()); 
             }
         }
-
-        return builder;
     }
     
     public static Function<Entity, EntityMemento> entityMementoFunction() {
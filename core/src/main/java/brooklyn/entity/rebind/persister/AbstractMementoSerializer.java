@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.io.CharStreams;
+
+/**
+ * Convenience base for {@link StreamingMementoSerializer} implementations, 
+ * where {@link #serialize(Object, Writer)} simply writes the result of {@link #toString(Object)}
+ * and {@link #deserialize(Reader)} reads the whole input and passes it to {@link #fromString(String)};
+ * subclasses which can genuinely stream should override them.
+ */
+public abstract class AbstractMementoSerializer<T> implements StreamingMementoSerializer<T> {
+
+    @Override
+    public void serialize(T memento, Writer writer) {
+        try {
+            writer.write(toString(memento));
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+    
+    @Override
+    public T deserialize(Reader reader) {
+        try {
+            return fromString(CharStreams.toString(reader));
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+    
+}
@@ -21,6 +21,12 @@ package brooklyn.entity.rebind.persister;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +56,7 @@ import brooklyn.entity.rebind.PersisterDeltaImpl;
 import brooklyn.entity.rebind.RebindExceptionHandler;
 import brooklyn.entity.rebind.dto.BrooklynMementoImpl;
 import brooklyn.entity.rebind.dto.BrooklynMementoManifestImpl;
+import brooklyn.entity.rebind.persister.PersistenceObjectStore.ContentsWriter;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore.StoreObjectAccessor;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore.StoreObjectAccessorWithLock;
 import brooklyn.management.classloading.ClassLoaderFromBrooklynClassLoadingContext;
@@ -62,6 +69,7 @@ import brooklyn.mementos.Memento;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.exceptions.CompoundRuntimeException;
 import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.guava.Maybe;
 import brooklyn.util.text.Strings;
 import brooklyn.util.time.Duration;
 import brooklyn.util.time.Time;
@@ -69,10 +77,12 @@ import brooklyn.util.xstream.XmlUtil;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
 import com.google.common.base.Objects;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -99,8 +109,17 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             "Maximum number of attempts to serialize a memento (e.g. if first attempts fail because of concurrent modifications of an entity)", 
             5);
 
+    @Beta
+    public static final ConfigKey<Integer> PERSISTER_CHANGE_JOURNAL_SIZE = ConfigKeys.newIntegerConfigKey(
+            "persister.changeJournal.size",
+            "Number of recent changes to record in the change journal written alongside the persisted state, "
+            + "so that hot-standby nodes can skip or limit their reads when little has changed "
+            + "(0, the default, to disable; set on the master for rebind.readOnly.incremental to have any effect)", 
+            0);
+
     private final PersistenceObjectStore objectStore;
     private final MementoSerializer<Object> serializerWithStandardClassLoader;
+    private final int maxSerializationAttempts;
 
     private final Map<String, StoreObjectAccessorWithLock> writers = new LinkedHashMap<String, PersistenceObjectStore.StoreObjectAccessorWithLock>();
 
@@ -116,15 +135,33 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
      */
     private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
 
+    /** changes written by this node, when master; null if the journal is disabled */
+    @Nullable private final MementoChangeJournal changeJournal;
+
+    /** number of changes in the stored journal, which is appended to until it reaches twice the journal size;
+     * -1 if it must next be rewritten in full; guarded by the write lock */
+    private int changeJournalSizeInStore = -1;
+
+    /** state of the last incremental load, when a read-only node; guarded by itself */
+    private final IncrementalLoadState incrementalLoadState = new IncrementalLoadState();
+
+    private static class IncrementalLoadState {
+        BrooklynMementoRawData rawData;
+        String epoch;
+        long seq;
+    }
+
     public BrooklynMementoPersisterToObjectStore(PersistenceObjectStore objectStore, StringConfigMap brooklynProperties, ClassLoader classLoader) {
         this.objectStore = checkNotNull(objectStore, "objectStore");
         this.brooklynProperties = brooklynProperties;
         
-        int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
+        this.maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
         MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
         this.serializerWithStandardClassLoader = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
 
         int maxThreadPoolSize = brooklynProperties.getConfig(PERSISTER_MAX_THREAD_POOL_SIZE);
+        int changeJournalSize = brooklynProperties.getConfig(PERSISTER_CHANGE_JOURNAL_SIZE);
+        this.changeJournal = changeJournalSize > 0 ? new MementoChangeJournal(changeJournalSize) : null;
 
         objectStore.createSubPath("entities");
         objectStore.createSubPath("locations");
@@ -132,6 +169,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         objectStore.createSubPath("enrichers");
         objectStore.createSubPath("feeds");
         objectStore.createSubPath("catalog");
+        objectStore.createSubPath(MementoChangeJournal.SUBPATH);
 
         // FIXME does it belong here or to ManagementPlaneSyncRecordPersisterToObjectStore ?
         objectStore.createSubPath("plane");
@@ -143,6 +181,12 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             }}));
     }
 
+    /** the executor used for parallel reads and writes; can also be used for other work done on behalf of the persister,
+     * such as generating mementos */
+    public ListeningExecutorService getExecutor() {
+        return executor;
+    }
+    
     public MementoSerializer<Object> getMementoSerializer() {
         return getSerializerWithStandardClassLoader();
     }
@@ -179,6 +223,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     }
     
     @Override public void enableWriteAccess() {
+        if (!writesAllowed) restartChangeJournal();
         writesAllowed = true;
     }
     
@@ -312,6 +357,253 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return result;
     }
 
+    /**
+     * Whether the change journal in the store reports any change since the last call to 
+     * {@link #loadMementoRawDataIncrementally(RebindExceptionHandler)}; 
+     * true if there has been no such call, or if the journal is absent or unreadable.
+     */
+    @Beta
+    public boolean hasChangesSinceIncrementalLoad() {
+        synchronized (incrementalLoadState) {
+            if (incrementalLoadState.rawData==null) return true;
+            MementoChangeJournal journal = readChangeJournal();
+            if (journal==null) return true;
+            return !journal.getEpoch().equals(incrementalLoadState.epoch) || journal.getLastSeq()!=incrementalLoadState.seq;
+        }
+    }
+
+    /**
+     * As {@link #loadMementoRawData(RebindExceptionHandler)}, but where the data returned by the previous call
+     * is still current according to the change journal, re-reads only the objects which have changed since then.
+     * Falls back to a full load if there was no previous call, or if the journal is absent, was restarted 
+     * (e.g. by a new master) or no longer holds all changes since the previous call.
+     */
+    @Beta
+    public BrooklynMementoRawData loadMementoRawDataIncrementally(final RebindExceptionHandler exceptionHandler) {
+        synchronized (incrementalLoadState) {
+            // read the journal first: anything written after this will be re-read next time
+            MementoChangeJournal journal = readChangeJournal();
+            BrooklynMementoRawData result;
+            if (journal==null || incrementalLoadState.rawData==null || !journal.hasAllChangesSince(incrementalLoadState.epoch, incrementalLoadState.seq)) {
+                if (LOG.isDebugEnabled()) LOG.debug("Full load of raw data from {}, change journal {}", objectStore.getSummaryName(), journal);
+                result = loadMementoRawData(exceptionHandler);
+            } else {
+                result = applyChanges(incrementalLoadState.rawData, journal.getChangesSince(incrementalLoadState.seq), exceptionHandler);
+            }
+            incrementalLoadState.rawData = (journal!=null ? result : null);
+            incrementalLoadState.epoch = (journal!=null ? journal.getEpoch() : null);
+            incrementalLoadState.seq = (journal!=null ? journal.getLastSeq() : 0);
+            return result;
+        }
+    }
+
+    /**
+     * Where the data returned by the previous incremental load is still current according to the change journal,
+     * and everything changed since then was already in that data (i.e. nothing has been added or removed), 
+     * re-reads the changed objects and returns the raw data of just those whose contents are different.
+     * That data is then taken as loaded, for subsequent incremental loads.
+     * <p>
+     * Otherwise returns absent, leaving the state unchanged so that the next call to 
+     * {@link #loadMementoRawDataIncrementally(RebindExceptionHandler)} loads whatever is needed. 
+     */
+    @Beta
+    public Maybe<BrooklynMementoRawData> loadChangedMementoRawData(final RebindExceptionHandler exceptionHandler) {
+        synchronized (incrementalLoadState) {
+            MementoChangeJournal journal = readChangeJournal();
+            if (journal==null || incrementalLoadState.rawData==null || !journal.hasAllChangesSince(incrementalLoadState.epoch, incrementalLoadState.seq)) {
+                return Maybe.absent("No current incremental load state or change journal");
+            }
+            BrooklynMementoRawData previous = incrementalLoadState.rawData;
+            Collection<MementoChangeJournal.Change> changes = latestChanges(journal.getChangesSince(incrementalLoadState.seq));
+            for (MementoChangeJournal.Change change : changes) {
+                if (change.isRemoved() || !previous.getObjectsOfType(change.getType()).containsKey(change.getId())) {
+                    return Maybe.absent("Objects added or removed");
+                }
+            }
+            Map<MementoChangeJournal.Change, String> contents = readChanges(changes, exceptionHandler);
+            
+            BrooklynMementoRawData.Builder changed = BrooklynMementoRawData.builder();
+            for (MementoChangeJournal.Change change : changes) {
+                String newContents = contents.get(change);
+                // absent if deleted since the journal was written
+                if (newContents==null) return Maybe.absent("Object "+change.getId()+" removed");
+                if (!newContents.equals(previous.getObjectsOfType(change.getType()).get(change.getId()))) {
+                    changed.put(change.getType(), change.getId(), newContents);
+                }
+            }
+            BrooklynMementoRawData result = changed.build();
+            
+            incrementalLoadState.rawData = merge(previous, result);
+            incrementalLoadState.epoch = journal.getEpoch();
+            incrementalLoadState.seq = journal.getLastSeq();
+            return Maybe.of(result);
+        }
+    }
+
+    /** discards the state kept for {@link #loadMementoRawDataIncrementally(RebindExceptionHandler)}, so the next load will be a full load */
+    @Beta
+    public void clearIncrementalLoadState() {
+        synchronized (incrementalLoadState) {
+            incrementalLoadState.rawData = null;
+            incrementalLoadState.epoch = null;
+            incrementalLoadState.seq = 0;
+        }
+    }
+
+    protected BrooklynMementoRawData applyChanges(BrooklynMementoRawData previous, List<MementoChangeJournal.Change> changes, final RebindExceptionHandler exceptionHandler) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        
+        Collection<MementoChangeJournal.Change> latestChanges = latestChanges(changes);
+        Map<MementoChangeJournal.Change, String> contents = readChanges(latestChanges, exceptionHandler);
+        
+        Map<BrooklynObjectType, Map<String,String>> data = MutableMap.of();
+        for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            data.put(type, MutableMap.copyOf(previous.getObjectsOfType(type)));
+        }
+        for (MementoChangeJournal.Change change : latestChanges) {
+            Map<String,String> objectsOfType = data.get(change.getType());
+            if (objectsOfType==null) continue;
+            String newContents = contents.get(change);
+            // absent if removed, or deleted since the journal was written (the removal will be in a later journal)
+            if (newContents==null) {
+                objectsOfType.remove(change.getId());
+            } else {
+                objectsOfType.put(change.getId(), newContents);
+            }
+        }
+        
+        BrooklynMementoRawData.Builder builder = BrooklynMementoRawData.builder();
+        for (Map.Entry<BrooklynObjectType, Map<String,String>> entry : data.entrySet()) {
+            builder.putAll(entry.getKey(), entry.getValue());
+        }
+        BrooklynMementoRawData result = builder.build();
+        
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Loaded rebind raw data incrementally; took {}; re-read {} of {} changed objects, from {}", new Object[]{
+                    Time.makeTimeStringRounded(stopwatch), contents.size(), latestChanges.size(), objectStore.getSummaryName() });
+        }
+        return result;
+    }
+    
+    /** the latest change for each object, as only that one matters */
+    private static Collection<MementoChangeJournal.Change> latestChanges(List<MementoChangeJournal.Change> changes) {
+        Map<String, MementoChangeJournal.Change> result = MutableMap.of();
+        for (MementoChangeJournal.Change change : changes) {
+            String key = change.getType()+"/"+change.getId();
+            result.remove(key);
+            result.put(key, change);
+        }
+        return result.values();
+    }
+    
+    /** reads, in parallel, the current contents of each object changed but not removed; contents are absent for any not found */
+    private Map<MementoChangeJournal.Change, String> readChanges(Collection<MementoChangeJournal.Change> changes, final RebindExceptionHandler exceptionHandler) {
+        final Map<MementoChangeJournal.Change, String> result = Maps.newConcurrentMap();
+        List<ListenableFuture<?>> futures = Lists.newArrayList();
+        for (final MementoChangeJournal.Change change : changes) {
+            if (change.isRemoved()) continue;
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    try {
+                        String contents = read(getPath(change.getType().getSubPathName(), change.getId()));
+                        if (contents!=null) result.put(change, contents);
+                    } catch (Exception e) {
+                        Exceptions.propagateIfFatal(e);
+                        exceptionHandler.onLoadMementoFailed(change.getType(), "memento "+change.getId()+" read error", e);
+                    }
+                }}));
+        }
+        try {
+            Futures.allAsList(futures).get();
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        }
+        return result;
+    }
+    
+    private static BrooklynMementoRawData merge(BrooklynMementoRawData previous, BrooklynMementoRawData changed) {
+        BrooklynMementoRawData.Builder builder = BrooklynMementoRawData.builder();
+        for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            builder.putAll(type, previous.getObjectsOfType(type));
+            builder.putAll(type, changed.getObjectsOfType(type));
+        }
+        return builder.build();
+    }
+
+    @Nullable
+    protected MementoChangeJournal readChangeJournal() {
+        try {
+            return MementoChangeJournal.parse(read(MementoChangeJournal.PATH));
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Unable to read change journal from "+objectStore.getSummaryName()+" (will do full load): "+e);
+            return null;
+        }
+    }
+
+    /**
+     * Starts a new epoch in the stored change journal when this node becomes the writer (e.g. on promotion to master),
+     * so readers cannot mistake it for a journal they have already seen; or, if the journal is disabled here,
+     * deletes any journal left by an earlier master, which would otherwise claim nothing has changed.
+     */
+    private void restartChangeJournal() {
+        lock.writeLock().lock();
+        try {
+            if (changeJournal!=null) {
+                changeJournal.reset();
+                writeChangeJournal(null, null);
+            } else {
+                invalidateChangeJournal();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 
+     * Writes the change journal, appending the given changes to the stored journal, or rewriting it in full 
+     * (dropping changes no longer held) if the changes are null or the stored journal has reached twice the journal size.
+     * On failure the stored journal is deleted, so readers do a full load. Caller must hold the write lock.
+     */
+    private void writeChangeJournal(@Nullable List<MementoChangeJournal.Change> changes, @Nullable PersistenceExceptionHandler exceptionHandler) {
+        try {
+            StoreObjectAccessorWithLock writer = getWriter(MementoChangeJournal.PATH);
+            if (changes==null || changeJournalSizeInStore<0 || changeJournalSizeInStore+changes.size() > 2*changeJournal.getMaxSize()) {
+                writer.put(changeJournal.toText());
+                changeJournalSizeInStore = changeJournal.size();
+            } else if (!changes.isEmpty()) {
+                writer.append(MementoChangeJournal.toText(changes));
+                changeJournalSizeInStore += changes.size();
+            }
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            invalidateChangeJournal();
+            if (exceptionHandler!=null) {
+                exceptionHandler.onPersistRawMementoFailed(BrooklynObjectType.UNKNOWN, "change-journal", e);
+            } else {
+                LOG.warn("Unable to write change journal to "+objectStore.getSummaryName()+" (continuing): "+e);
+            }
+        }
+    }
+
+    /** 
+     * Deletes the stored change journal, e.g. when it may have missed changes, so that readers do a full load; 
+     * the next write (if enabled) starts a new epoch. Caller must hold the write lock.
+     */
+    private void invalidateChangeJournal() {
+        if (changeJournal!=null) {
+            changeJournal.reset();
+            changeJournalSizeInStore = -1;
+        }
+        try {
+            getWriter(MementoChangeJournal.PATH).delete();
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Unable to delete change journal from "+objectStore.getSummaryName()+"; "
+                + "hot-standby nodes may miss changes until it is next written: "+e);
+        }
+    }
+
     @Override
     public BrooklynMementoManifest loadMementoManifest(final RebindExceptionHandler exceptionHandler) throws IOException {
         return loadMementoManifest(null, exceptionHandler);
@@ -390,8 +682,10 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     @Override
     public BrooklynMemento loadMemento(BrooklynMementoRawData mementoData, final LookupContext lookupContext, final RebindExceptionHandler exceptionHandler) throws IOException {
-        if (mementoData==null)
-            mementoData = loadMementoRawData(exceptionHandler);
+        // without raw data, each object is deserialized as it is read from the store (rather than read into a string first)
+        final boolean readFromStore = (mementoData==null);
+        if (readFromStore)
+            mementoData = listMementoSubPathsAsData(exceptionHandler);
 
         Stopwatch stopwatch = Stopwatch.createStarted();
 
@@ -401,7 +695,8 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             @Override
             public void visit(BrooklynObjectType type, String objectId, String contents) throws Exception {
                 try {
-                    Memento memento = (Memento) getSerializerWithCustomClassLoader(lookupContext, type, objectId).fromString(contents);
+                    MementoSerializer<Object> serializer = getSerializerWithCustomClassLoader(lookupContext, type, objectId);
+                    Memento memento = (Memento) (readFromStore ? readAndDeserialize(contents, serializer) : serializer.fromString(contents));
                     if (memento == null) {
                         LOG.warn("No "+type.toCamelCase()+"-memento deserialized from " + objectId + "; ignoring and continuing");
                     } else {
@@ -530,8 +825,14 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 Futures.successfulAsList(futures).get();
                 Futures.allAsList(futures).get();
             } catch (Exception e) {
+                if (changeJournal!=null) invalidateChangeJournal();
                 throw Exceptions.propagate(e);
             }
+            if (changeJournal!=null && !futures.isEmpty()) {
+                // everything may have changed, so readers must reload everything
+                changeJournal.reset();
+                writeChangeJournal(null, exceptionHandler);
+            }
             if (LOG.isDebugEnabled()) LOG.debug("Checkpointed entire memento in {}", Time.makeTimeStringRounded(stopwatch));
         } finally {
             lock.writeLock().unlock();
@@ -551,7 +852,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         delta.addAll(BrooklynObjectType.FEED, newMemento.getFeedMementos().values());
         delta.addAll(BrooklynObjectType.CATALOG_ITEM, newMemento.getCatalogItemMementos().values());
         
-        Stopwatch stopwatch = deltaImpl(delta, exceptionHandler);
+        Stopwatch stopwatch = deltaImpl(delta, true, exceptionHandler);
         
         if (LOG.isDebugEnabled()) LOG.debug("Checkpointed entire memento in {}", Time.makeTimeStringRounded(stopwatch));
     }
@@ -560,7 +861,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     public void delta(Delta delta, PersistenceExceptionHandler exceptionHandler) {
         checkWritesAllowed();
 
-        Stopwatch stopwatch = deltaImpl(delta, exceptionHandler);
+        Stopwatch stopwatch = deltaImpl(delta, false, exceptionHandler);
         
         if (LOG.isDebugEnabled()) LOG.debug("Checkpointed delta of memento in {}: "
                 + "updated {} entities, {} locations, {} policies, {} enrichers, {} catalog items; "
@@ -576,8 +877,11 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
      * 
      * TODO Longer term, if we care more about concurrent calls we could merge the queued deltas so that we
      * don't do unnecessary repeated writes of an entity.
+     * 
+     * @param fullCheckpoint whether the delta is the entire state, in which case the change journal is restarted
+     *        rather than recording every object
      */
-    private Stopwatch deltaImpl(Delta delta, PersistenceExceptionHandler exceptionHandler) {
+    private Stopwatch deltaImpl(Delta delta, boolean fullCheckpoint, PersistenceExceptionHandler exceptionHandler) {
         try {
             lock.writeLock().lockInterruptibly();
         } catch (InterruptedException e) {
@@ -606,9 +910,28 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 Futures.successfulAsList(futures).get();
                 Futures.allAsList(futures).get();
             } catch (Exception e) {
+                // some objects may have been written, so the journal cannot be trusted
+                if (changeJournal!=null) invalidateChangeJournal();
                 throw Exceptions.propagate(e);
             }
             
+            if (changeJournal!=null && !futures.isEmpty()) {
+                if (fullCheckpoint) {
+                    changeJournal.reset();
+                    writeChangeJournal(null, exceptionHandler);
+                } else {
+                    List<MementoChangeJournal.Change> changes = Lists.newArrayList();
+                    for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+                        List<String> updatedIds = Lists.newArrayList();
+                        for (Memento memento : delta.getObjectsOfType(type)) {
+                            updatedIds.add(memento.getId());
+                        }
+                        changes.addAll(changeJournal.add(type, updatedIds, delta.getRemovedIdsOfType(type)));
+                    }
+                    writeChangeJournal(changes, exceptionHandler);
+                }
+            }
+            
             return stopwatch;
         } finally {
             lock.writeLock().unlock();
@@ -646,9 +969,52 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return objectAccessor.get();
     }
 
-    private void persist(String subPath, Memento memento, PersistenceExceptionHandler exceptionHandler) {
+    /** as {@link #read(String)} then {@link MementoSerializer#fromString(String)}, but streaming where the serializer supports it */
+    private Object readAndDeserialize(String subPath, MementoSerializer<Object> serializer) throws IOException {
+        if (!(serializer instanceof StreamingMementoSerializer)) {
+            return serializer.fromString(read(subPath));
+        }
+        InputStream in = objectStore.newAccessor(subPath).getInputStream();
+        if (in==null) return null;
+        try {
+            return ((StreamingMementoSerializer<Object>)serializer).deserialize(new InputStreamReader(in, Charsets.UTF_8));
+        } finally {
+            in.close();
+        }
+    }
+
+    private void persist(String subPath, final Memento memento, PersistenceExceptionHandler exceptionHandler) {
         try {
-            getWriter(getPath(subPath, memento.getId())).put(getSerializerWithStandardClassLoader().toString(memento));
+            StoreObjectAccessorWithLock writer = getWriter(getPath(subPath, memento.getId()));
+            final MementoSerializer<Object> serializer = getSerializerWithStandardClassLoader();
+            // streamed straight to the store, rather than building the whole xml string in memory
+            ContentsWriter contents = new ContentsWriter() {
+                @Override public void writeTo(OutputStream out) throws IOException {
+                    Writer outWriter = new OutputStreamWriter(out, Charsets.UTF_8);
+                    if (serializer instanceof StreamingMementoSerializer) {
+                        ((StreamingMementoSerializer<Object>)serializer).serialize(memento, outWriter);
+                    } else {
+                        outWriter.write(serializer.toString(memento));
+                    }
+                    outWriter.flush();
+                }};
+            
+            // partial output cannot be retried by the serializer, so retry the whole write;
+            // a failed write leaves any previous contents in place
+            int attempt = 0;
+            while (true) {
+                attempt++;
+                try {
+                    writer.put(contents);
+                    if (attempt>1) 
+                        LOG.info("Success following previous serialization error");
+                    break;
+                } catch (RuntimeException e) {
+                    if (attempt >= maxSerializationAttempts) throw e;
+                    LOG.warn("Error serializing memento (attempt "+attempt+" of "+maxSerializationAttempts+") for "+memento+
+                            "; expected sometimes if attribute value modified", e);
+                }
+            }
         } catch (Exception e) {
             exceptionHandler.onPersistMementoFailed(memento, e);
         }
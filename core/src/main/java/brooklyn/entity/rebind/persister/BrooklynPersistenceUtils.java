@@ -71,12 +71,15 @@ public class BrooklynPersistenceUtils {
         BrooklynObjectType.ENTITY, BrooklynObjectType.LOCATION, BrooklynObjectType.POLICY,
         BrooklynObjectType.ENRICHER, BrooklynObjectType.FEED, BrooklynObjectType.CATALOG_ITEM);
 
-    /** Creates a {@link PersistenceObjectStore} for general-purpose use. */
+    /** 
+     * Creates a {@link PersistenceObjectStore} for general-purpose use, e.g. copies and backups; 
+     * these are written only by this node, so are not shared with other nodes as for high availability. 
+     */
     public static PersistenceObjectStore newPersistenceObjectStore(ManagementContext managementContext,
             String locationSpec, String locationContainer) {
         
         return newPersistenceObjectStore(managementContext, locationSpec, locationContainer,
-            PersistMode.AUTO, HighAvailabilityMode.STANDBY);
+            PersistMode.AUTO, HighAvailabilityMode.DISABLED);
     }
     
     /** Creates a {@link PersistenceObjectStore} for use with a specified set of modes. */
@@ -18,15 +18,23 @@
  */
 package brooklyn.entity.rebind.persister;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import brooklyn.entity.rebind.persister.PersistenceObjectStore.ContentsWriter;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.io.FileUtil;
+import brooklyn.util.stream.Streams;
 import brooklyn.util.text.Strings;
 
 import com.google.common.base.Charsets;
@@ -61,6 +69,15 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
         }
     }
 
+    @Override
+    public InputStream getInputStream() {
+        try {
+            return new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
     @Override
     public boolean exists() {
         return file.exists();
@@ -82,6 +99,28 @@ public class FileBasedStoreObjectAccessor implements PersistenceObjectStore.Stor
         }
     }
 
+    @Override
+    public void put(ContentsWriter contents) {
+        OutputStream out = null;
+        boolean written = false;
+        try {
+            FileUtil.setFilePermissionsTo600(tmpFile);
+            out = new BufferedOutputStream(new FileOutputStream(tmpFile));
+            contents.writeTo(out);
+            out.close();
+            out = null;
+            FileBasedObjectStore.moveFile(tmpFile, file);
+            written = true;
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            if (out != null) Streams.closeQuietly(out);
+            if (!written) tmpFile.delete();
+        }
+    }
+
     @Override
     public void append(String val) {
         try {
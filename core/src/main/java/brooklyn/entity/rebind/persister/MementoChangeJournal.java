@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import brooklyn.entity.rebind.BrooklynObjectType;
+import brooklyn.util.text.Identifiers;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A bounded record of the most recent changes written to the persisted state, 
+ * stored alongside the mementos so that read-only (hot-standby) nodes can tell whether anything 
+ * has changed since their last pass, and if so which objects to re-read.
+ * <p>
+ * Each changed object gets a sequence number, increasing within an <em>epoch</em>.
+ * A new epoch is started by each writer (i.e. each master), and on every full checkpoint;
+ * readers must reload everything if the epoch differs from the one they last saw,
+ * or if changes they have not seen have already been dropped from the journal.
+ * <p>
+ * Serialized as plain text: a header line with the epoch, then one line per change,
+ * <code>seq TYPE +|- id</code> (<code>-</code> for removals). Writers append the lines for new changes
+ * (see {@link #toText(List)}), and only occasionally rewrite the whole journal to drop old changes;
+ * readers ignore any incomplete last line.
+ */
+@Beta
+public class MementoChangeJournal {
+
+    public static final String SUBPATH = "changes";
+    public static final String PATH = SUBPATH+"/change-journal";
+
+    public static class Change {
+        private final long seq;
+        private final BrooklynObjectType type;
+        private final String id;
+        private final boolean removed;
+        
+        public Change(long seq, BrooklynObjectType type, String id, boolean removed) {
+            this.seq = seq;
+            this.type = checkNotNull(type, "type");
+            this.id = checkNotNull(id, "id");
+            this.removed = removed;
+        }
+        public long getSeq() {
+            return seq;
+        }
+        public BrooklynObjectType getType() {
+            return type;
+        }
+        public String getId() {
+            return id;
+        }
+        public boolean isRemoved() {
+            return removed;
+        }
+        @Override
+        public String toString() {
+            return seq+" "+type.name()+" "+(removed ? "-" : "+")+" "+id;
+        }
+    }
+
+    private final int maxSize;
+    private String epoch;
+    private long lastSeq;
+    private final LinkedList<Change> changes = new LinkedList<Change>();
+
+    public MementoChangeJournal(int maxSize) {
+        this(Identifiers.makeRandomId(8), 0, maxSize);
+    }
+    
+    protected MementoChangeJournal(String epoch, long lastSeq, int maxSize) {
+        this.epoch = checkNotNull(epoch, "epoch");
+        this.lastSeq = lastSeq;
+        this.maxSize = maxSize;
+    }
+
+    /** parses the text written by {@link #toText()}, plus any appended changes; returns null if the text is null or not a valid journal */
+    @Nullable
+    public static MementoChangeJournal parse(@Nullable String text) {
+        if (text==null) return null;
+        // a change may be part-way through being appended
+        int end = text.lastIndexOf('\n');
+        if (end < 0) return null;
+        String[] lines = text.substring(0, end).split("\n");
+        String epoch = lines[0].trim();
+        if (epoch.isEmpty() || epoch.contains(" ")) return null;
+        try {
+            MementoChangeJournal result = new MementoChangeJournal(epoch, 0, Integer.MAX_VALUE);
+            for (int i = 1; i < lines.length; i++) {
+                String line = lines[i].trim();
+                if (line.isEmpty()) continue;
+                String[] parts = line.split(" ", 4);
+                if (parts.length != 4) return null;
+                Change change = new Change(Long.parseLong(parts[0]), BrooklynObjectType.valueOf(parts[1]), parts[3], "-".equals(parts[2]));
+                if (change.getSeq() <= result.lastSeq) return null;
+                result.changes.add(change);
+                result.lastSeq = change.getSeq();
+            }
+            return result;
+        } catch (IllegalArgumentException e) {
+            // includes NumberFormatException
+            return null;
+        }
+    }
+
+    public synchronized String getEpoch() {
+        return epoch;
+    }
+    
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /** starts a new epoch, discarding all changes; used when the entire state has been rewritten */
+    public synchronized void reset() {
+        epoch = Identifiers.makeRandomId(8);
+        lastSeq = 0;
+        changes.clear();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** number of changes held, at most {@link #getMaxSize()} */
+    public synchronized int size() {
+        return changes.size();
+    }
+
+    /** records the given changes, returning them (e.g. to append to the stored journal) */
+    public synchronized List<Change> add(BrooklynObjectType type, Collection<String> updatedIds, Collection<String> removedIds) {
+        ImmutableList.Builder<Change> result = ImmutableList.builder();
+        for (String id : updatedIds) {
+            result.add(new Change(++lastSeq, type, id, false));
+        }
+        for (String id : removedIds) {
+            result.add(new Change(++lastSeq, type, id, true));
+        }
+        List<Change> added = result.build();
+        changes.addAll(added);
+        while (changes.size() > maxSize) {
+            changes.removeFirst();
+        }
+        return added;
+    }
+
+    /** whether the journal still holds every change made after the given sequence number in this epoch */
+    public synchronized boolean hasAllChangesSince(String epoch, long seq) {
+        if (!this.epoch.equals(epoch) || seq > lastSeq) return false;
+        long firstRetained = changes.isEmpty() ? lastSeq+1 : changes.getFirst().getSeq();
+        return seq >= firstRetained-1;
+    }
+
+    /** returns the changes made after the given sequence number, oldest first */
+    public synchronized List<Change> getChangesSince(long seq) {
+        ImmutableList.Builder<Change> result = ImmutableList.builder();
+        for (Change change : changes) {
+            if (change.getSeq() > seq) result.add(change);
+        }
+        return result.build();
+    }
+
+    /** the whole journal, i.e. the epoch and the changes held */
+    public synchronized String toText() {
+        return epoch+"\n"+toText(changes);
+    }
+
+    /** the lines for the given changes, to append to the text of a journal */
+    public static String toText(List<Change> changes) {
+        StringBuilder result = new StringBuilder();
+        for (Change change : changes) {
+            result.append(change).append("\n");
+        }
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "MementoChangeJournal["+getEpoch()+"@"+getLastSeq()+"]";
+    }
+}
@@ -32,6 +32,7 @@ public class PersistenceActivityMetrics {
     long count=0, failureCount=0;
     Long lastSuccessTime, lastDuration, lastFailureTime;
     List<Map<String,Object>> errorMessages = MutableList.of();
+    Map<String,Object> lastPhases;
 
     public void noteSuccess(Duration duration) {
         count++;
@@ -46,6 +47,15 @@ public class PersistenceActivityMetrics {
         lastDuration = duration!=null ? duration.toMilliseconds() : -1;
     }
 
+    /** records a breakdown of the most recent activity, such as the timings and counts for each phase of a rebind */
+    public synchronized void notePhases(Map<String, ? extends Map<String,?>> phases) {
+        Map<String,Object> copy = MutableMap.of();
+        for (Map.Entry<String, ? extends Map<String,?>> entry : phases.entrySet()) {
+            copy.put(entry.getKey(), MutableMap.copyOf(entry.getValue()));
+        }
+        lastPhases = copy;
+    }
+    
     public void noteError(String error) {
         noteErrorObject(error);
     }
@@ -72,6 +82,7 @@ public class PersistenceActivityMetrics {
         result.put("lastFailureTimeUtc", lastFailureTime);
         result.put("lastFailureTimeMillisSince", since(lastFailureTime));
         result.put("errorMessages", MutableList.copyOf(errorMessages));
+        if (lastPhases!=null) result.put("lastPhases", MutableMap.copyOf(lastPhases));
         return result;
     }
 
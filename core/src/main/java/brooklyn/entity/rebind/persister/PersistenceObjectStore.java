@@ -18,6 +18,9 @@
  */
 package brooklyn.entity.rebind.persister;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
@@ -35,12 +38,22 @@ import com.google.common.annotations.Beta;
  */
 public interface PersistenceObjectStore {
 
+    /** writes the contents of an object to a stream, for {@link StoreObjectAccessor#put(ContentsWriter)} */
+    public interface ContentsWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+    
     /** accessor to an object/item in a {@link PersistenceObjectStore} */
     public interface StoreObjectAccessor {
         /** gets the object, or null if not found */
         String get();
+        /** gets the object as a stream of (UTF-8, for text) bytes, or null if not found; the caller must close the stream */
+        InputStream getInputStream();
         boolean exists();
         void put(String contentsToReplaceOrCreate);
+        /** as {@link #put(String)}, but with the contents written by the given writer, which the store
+         * may stream rather than hold in memory; if the writer fails, any existing object is left unchanged */
+        void put(ContentsWriter contentsToReplaceOrCreate);
         void append(String contentsToAppendOrCreate);
         void delete();
         // NB: creation date is available for many blobstores but 
@@ -20,12 +20,15 @@ package brooklyn.entity.rebind.persister;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.Reader;
+import java.io.Writer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import brooklyn.mementos.BrooklynMementoPersister.LookupContext;
 
-public class RetryingMementoSerializer<T> implements MementoSerializer<T> {
+public class RetryingMementoSerializer<T> extends AbstractMementoSerializer<T> {
     
     private static final Logger LOG = LoggerFactory.getLogger(RetryingMementoSerializer.class);
     
@@ -84,6 +87,29 @@ public class RetryingMementoSerializer<T> implements MementoSerializer<T> {
         throw lastException;
     }
 
+    /** 
+     * Delegates without retrying, if the delegate can stream, as partial output cannot be taken back;
+     * callers wanting retries should retry the whole write (as {@link BrooklynMementoPersisterToObjectStore} does). 
+     */
+    @Override
+    public void serialize(T memento, Writer writer) {
+        if (delegate instanceof StreamingMementoSerializer) {
+            ((StreamingMementoSerializer<T>)delegate).serialize(memento, writer);
+        } else {
+            super.serialize(memento, writer);
+        }
+    }
+    
+    /** Delegates without retrying, if the delegate can stream, as the reader cannot be re-read. */
+    @Override
+    public T deserialize(Reader reader) {
+        if (delegate instanceof StreamingMementoSerializer) {
+            return ((StreamingMementoSerializer<T>)delegate).deserialize(reader);
+        } else {
+            return super.deserialize(reader);
+        }
+    }
+
     @Override
     public void setLookupContext(LookupContext lookupContext) {
         delegate.setLookupContext(lookupContext);
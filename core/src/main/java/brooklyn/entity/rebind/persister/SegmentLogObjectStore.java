@@ -0,0 +1,818 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.BrooklynServerConfig;
+import brooklyn.config.ConfigKey;
+import brooklyn.config.StringConfigMap;
+import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.management.ManagementContext;
+import brooklyn.management.ha.HighAvailabilityMode;
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.exceptions.FatalConfigurationRuntimeException;
+import brooklyn.util.io.FileUtil;
+import brooklyn.util.os.Os;
+import brooklyn.util.stream.Streams;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps all objects in an append-only log of checksummed records, split over segment files in a single 
+ * directory, rather than one file per object as {@link FileBasedObjectStore} does.
+ * <p>
+ * Each put or delete appends one record to the active segment. Writers which arrive while another is 
+ * syncing share the next sync, so a checkpoint of many objects costs a few sequential fsyncs rather than 
+ * a file create, chmod and rename per object. On startup the segments are scanned sequentially to build
+ * an in-memory index of the latest record for each path; a torn or corrupt record at the end of a segment 
+ * (e.g. after a crash) is discarded. Once superseded records make up more than {@link #COMPACTION_THRESHOLD}
+ * of the log, the live records are copied to new segments and the old segments deleted.
+ * <p>
+ * A put of a {@link ContentsWriter} runs the writer into a buffer in memory before taking the log for 
+ * appending, so that (slow) serialization by one writer does not delay others; only the finished record
+ * is appended while holding the log.
+ * <p>
+ * The store is for use by a single management node: records appended by other processes after 
+ * it has been prepared are not seen, so it cannot be used with high availability (it fails to prepare
+ * unless {@link HighAvailabilityMode#DISABLED}). The format is not interchangeable with {@link FileBasedObjectStore},
+ * but if the directory holds objects written by a {@link FileBasedObjectStore} (and no segments) when the
+ * store is prepared, they are copied into the log and the files moved to a backup directory beside it
+ * (a one-way migration).
+ */
+public class SegmentLogObjectStore implements PersistenceObjectStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentLogObjectStore.class);
+
+    public static final ConfigKey<Long> MAX_SEGMENT_SIZE = ConfigKeys.newConfigKey(
+            Long.class,
+            "brooklyn.persistence.segmentLog.maxSegmentSize", 
+            "Size in bytes after which a new segment file is started", 
+            64L*1024*1024);
+
+    public static final ConfigKey<Double> COMPACTION_THRESHOLD = ConfigKeys.newDoubleConfigKey(
+            "brooklyn.persistence.segmentLog.compactionThreshold", 
+            "Fraction of the log which must be superseded or deleted records before it is compacted", 
+            0.5);
+
+    public static final ConfigKey<Long> COMPACTION_MIN_SIZE = ConfigKeys.newConfigKey(
+            Long.class,
+            "brooklyn.persistence.segmentLog.compactionMinSize", 
+            "Size in bytes below which the log is never compacted", 
+            1024L*1024);
+
+    public static final ConfigKey<Boolean> SYNC_ON_WRITE = ConfigKeys.newBooleanConfigKey(
+            "brooklyn.persistence.segmentLog.syncOnWrite", 
+            "Whether each write waits for the log to be synced to disk (writers arriving together share one sync)", 
+            true);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    /** record length and checksum */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /** shared by all stores, with its thread stopping when idle, so that stores need not be closed to release a thread */
+    private static final ExecutorService COMPACTOR;
+    static {
+        ThreadPoolExecutor compactor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), 
+                new ThreadFactoryBuilder().setNameFormat("brooklyn-segment-log-compactor-%d").setDaemon(true).build());
+        compactor.allowCoreThreadTimeOut(true);
+        COMPACTOR = compactor;
+    }
+
+    private static class Segment {
+        final long id;
+        final File file;
+        final RandomAccessFile raf;
+        final FileChannel channel;
+        /** guarded by appendLock */
+        volatile long size;
+        /** guarded by syncLock */
+        long syncedSize;
+        
+        Segment(long id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+            this.channel = raf.getChannel();
+            this.size = raf.length();
+            this.syncedSize = size;
+        }
+    }
+    
+    private static class Entry {
+        final Segment segment;
+        final long dataOffset;
+        final int dataLength;
+        final long timestamp;
+        final int recordSize;
+        
+        Entry(Segment segment, long dataOffset, int dataLength, long timestamp, int recordSize) {
+            this.segment = segment;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+            this.timestamp = timestamp;
+            this.recordSize = recordSize;
+        }
+    }
+    
+    private final File basedir;
+    private ManagementContext mgmt;
+    private volatile boolean prepared = false;
+    private boolean deferredBackupNeeded = false;
+    private final AtomicBoolean doneFirstContentiousWrite = new AtomicBoolean(false);
+    
+    private long maxSegmentSize;
+    private double compactionThreshold;
+    private long compactionMinSize;
+    private boolean syncOnWrite;
+    
+    /** held for read by all accesses, and for write when compacting or closing (as segments are then closed) */
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    
+    private final NavigableMap<String, Entry> index = new ConcurrentSkipListMap<String, Entry>();
+    /** guarded by appendLock */
+    private final List<Segment> segments = Lists.newArrayList();
+    private Segment active;
+    private long totalBytes;
+    private long liveBytes;
+    
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final AtomicLong numSyncs = new AtomicLong();
+    private final AtomicLong numCompactions = new AtomicLong();
+
+    public SegmentLogObjectStore(File basedir) {
+        this.basedir = checkNotNull(basedir, "basedir");
+        if (basedir.isFile()) throw new FatalConfigurationRuntimeException("Invalid persistence directory " + basedir + ": must not be a file");
+        log.debug("Segment-log objectStore will use directory {}", basedir);
+    }
+
+    @Override
+    public String getSummaryName() {
+        return getBaseDir().getAbsolutePath();
+    }
+    
+    public File getBaseDir() {
+        return basedir;
+    }
+
+    @Override
+    public void injectManagementContext(ManagementContext mgmt) {
+        if (this.mgmt!=null && !this.mgmt.equals(mgmt))
+            throw new IllegalStateException("Cannot change mgmt context of "+this);
+        this.mgmt = mgmt;
+    }
+
+    @Override
+    public void prepareForSharedUse(@Nullable PersistMode persistMode, HighAvailabilityMode haMode) {
+        if (mgmt==null) throw new NullPointerException("Must inject ManagementContext before preparing "+this);
+        if (haMode!=null && haMode!=HighAvailabilityMode.DISABLED) {
+            // another node's appends would not be seen, and after promotion this node would append over them
+            throw new FatalConfigurationRuntimeException("Invalid high availability mode "+haMode+" for "+this
+                    + ": the segment log supports only a single management node, so high availability must be disabled");
+        }
+        
+        StringConfigMap config = mgmt.getConfig();
+        maxSegmentSize = config.getConfig(MAX_SEGMENT_SIZE);
+        compactionThreshold = config.getConfig(COMPACTION_THRESHOLD);
+        compactionMinSize = config.getConfig(COMPACTION_MIN_SIZE);
+        syncOnWrite = config.getConfig(SYNC_ON_WRITE);
+        
+        try {
+            if (persistMode==PersistMode.CLEAN && basedir.exists()) {
+                Os.deleteRecursively(basedir).throwIfFailed();
+                log.info("Persistence mode CLEAN, directory "+basedir.getAbsolutePath()+" deleted");
+            }
+            open();
+            if (persistMode!=PersistMode.CLEAN) migrateFileBasedStoreIfPresent();
+            if (persistMode==PersistMode.REBIND && index.isEmpty()) {
+                throw new FatalConfigurationRuntimeException("Invalid persistence directory "+basedir+" because it has no persisted state");
+            }
+        } catch (IOException e) {
+            throw new FatalConfigurationRuntimeException("Error using persistence directory "+basedir.getAbsolutePath(), e);
+        }
+        
+        // as for FileBasedObjectStore, back up existing state (if configured) before the first write
+        @SuppressWarnings("deprecation")
+        Boolean backups = config.getConfig(BrooklynServerConfig.PERSISTENCE_BACKUPS_REQUIRED);
+        deferredBackupNeeded = Boolean.TRUE.equals(backups) && persistMode!=PersistMode.CLEAN && !index.isEmpty();
+        prepared = true;
+    }
+
+    @Override
+    public void prepareForMasterUse() {
+        if (doneFirstContentiousWrite.get())
+            return;
+        synchronized (this) {
+            if (doneFirstContentiousWrite.get())
+                return;
+            if (deferredBackupNeeded) {
+                File backup = backupDirByCopying();
+                log.info("Persistence deferred backup, directory "+basedir+" backed up to "+backup.getAbsolutePath());
+                deferredBackupNeeded = false;
+            }
+            doneFirstContentiousWrite.set(true);
+        }
+    }
+
+    /** copies the segments to a backup directory beside the store, while no records are being appended */
+    private File backupDirByCopying() {
+        segmentsLock.readLock().lock();
+        try {
+            synchronized (appendLock) {
+                String timestamp = new SimpleDateFormat("yyyyMMdd-hhmmssSSS").format(new Date());
+                File backupDir = new File(basedir.getParentFile(), basedir.getName()+"."+timestamp+".bak");
+                FileUtil.copyDir(basedir, backupDir);
+                FileUtil.setFilePermissionsTo700(backupDir);
+                return backupDir;
+            }
+        } catch (Exception e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void createSubPath(String subPath) {
+        if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
+        // paths are only keys in the index; nothing to create
+    }
+
+    @Override
+    public StoreObjectAccessor newAccessor(String path) {
+        if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
+        return new SegmentLogStoreObjectAccessor(normalize(path));
+    }
+
+    @Override
+    public List<String> listContentsWithSubPath(String parentSubPath) {
+        if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
+        
+        String prefix = normalize(parentSubPath);
+        if (!prefix.endsWith("/")) prefix += "/";
+        List<String> result = MutableList.of();
+        for (String path : index.subMap(prefix, prefix+Character.MAX_VALUE).keySet()) {
+            // only immediate children, as for a directory listing
+            if (path.indexOf('/', prefix.length()) < 0) result.add(path);
+        }
+        return result;
+    }
+
+    @Override
+    public void deleteCompletely() {
+        segmentsLock.writeLock().lock();
+        try {
+            synchronized (appendLock) {
+                closeSegments();
+                Os.deleteRecursively(basedir).throwIfFailed();
+                if (prepared) open();
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    /** 
+     * Syncs and closes the segments. Any compaction in progress completes first (as it holds the segments lock), 
+     * and compactions scheduled but not yet started then find nothing to compact.
+     */
+    @Override
+    public void close() {
+        segmentsLock.writeLock().lock();
+        try {
+            synchronized (appendLock) {
+                if (active != null) sync(active, active.size);
+                closeSegments();
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    public int getNumSegments() {
+        synchronized (appendLock) {
+            return segments.size();
+        }
+    }
+
+    /** bytes in the log, including superseded and deleted records */
+    public long getTotalBytes() {
+        synchronized (appendLock) {
+            return totalBytes;
+        }
+    }
+
+    /** bytes in the log used by the current record for each path */
+    public long getLiveBytes() {
+        synchronized (appendLock) {
+            return liveBytes;
+        }
+    }
+
+    public long getNumSyncs() {
+        return numSyncs.get();
+    }
+
+    public long getNumCompactions() {
+        return numCompactions.get();
+    }
+
+    /** copies the live records to new segments, and deletes the old segments */
+    public void compact() {
+        segmentsLock.writeLock().lock();
+        try {
+            List<Segment> oldSegments;
+            synchronized (appendLock) {
+                if (segments.isEmpty()) return;
+                oldSegments = MutableList.copyOf(segments);
+                rollSegment();
+                for (Map.Entry<String, Entry> entry : index.entrySet()) {
+                    Entry old = entry.getValue();
+                    appendRecord(OP_PUT, entry.getKey(), read(old), old.timestamp);
+                }
+                for (Segment segment : segments) {
+                    if (!oldSegments.contains(segment)) sync(segment, segment.size);
+                }
+                // delete in order, so that if interrupted a deletion is never lost while an older put of the same path remains
+                for (Segment segment : oldSegments) {
+                    segments.remove(segment);
+                    totalBytes -= segment.size;
+                    segment.channel.close();
+                    if (!segment.file.delete()) log.warn("Unable to delete compacted segment "+segment.file);
+                }
+            }
+            numCompactions.incrementAndGet();
+            if (log.isDebugEnabled()) log.debug("Compacted {}: {} segments, {} live of {} bytes", new Object[] {this, getNumSegments(), getLiveBytes(), getTotalBytes()});
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this).add("basedir", basedir).toString();
+    }
+
+    protected String normalize(String path) {
+        while (path.startsWith("/")) path = path.substring(1);
+        return path;
+    }
+
+    /** scans all segments sequentially, building the index, and opens the last segment for appending */
+    private void open() throws IOException {
+        synchronized (appendLock) {
+            if (!basedir.exists()) {
+                if (!basedir.mkdirs()) throw new FatalConfigurationRuntimeException("Failed to create persistence directory "+basedir);
+                FileUtil.setFilePermissionsTo700(basedir);
+            }
+            index.clear();
+            segments.clear();
+            totalBytes = 0;
+            liveBytes = 0;
+            
+            File[] files = basedir.listFiles(new FilenameFilter() {
+                @Override public boolean accept(File dir, String name) {
+                    return isSegmentFileName(name);
+                }});
+            List<Segment> found = Lists.newArrayList();
+            for (File file : files) {
+                found.add(new Segment(segmentId(file), file));
+            }
+            Collections.sort(found, new Comparator<Segment>() {
+                @Override public int compare(Segment s1, Segment s2) {
+                    return Long.valueOf(s1.id).compareTo(s2.id);
+                }});
+            for (Segment segment : found) {
+                scan(segment);
+                segments.add(segment);
+                totalBytes += segment.size;
+            }
+            if (segments.isEmpty()) {
+                rollSegment();
+            } else {
+                active = segments.get(segments.size()-1);
+            }
+            log.debug("Opened {}: {} objects in {} segments", new Object[] {this, index.size(), segments.size()});
+        }
+    }
+
+    /**
+     * Copies into the log any objects left in the directory by a {@link FileBasedObjectStore} (i.e. any files other 
+     * than segments), then moves them to a backup directory beside it. Fails if the log already has records, 
+     * e.g. if an earlier migration was interrupted after writing the log, rather than guess which is current.
+     */
+    private void migrateFileBasedStoreIfPresent() throws IOException {
+        File[] legacy = basedir.listFiles(new FilenameFilter() {
+            @Override public boolean accept(File dir, String name) {
+                return !isSegmentFileName(name);
+            }});
+        Map<String, File> files = MutableMap.of();
+        for (File file : legacy) {
+            findFileBasedObjects(file, file.getName(), files);
+        }
+        if (files.isEmpty()) return;
+        
+        segmentsLock.readLock().lock();
+        try {
+            synchronized (appendLock) {
+                if (totalBytes > 0) {
+                    throw new FatalConfigurationRuntimeException("Invalid persistence directory "+basedir+": it has both a segment log "
+                            + "and files written by a file-based store (e.g. from an interrupted migration); move one of them elsewhere");
+                }
+                for (Map.Entry<String, File> entry : files.entrySet()) {
+                    appendRecord(OP_PUT, entry.getKey(), Files.toByteArray(entry.getValue()), entry.getValue().lastModified());
+                }
+                for (Segment segment : segments) {
+                    sync(segment, segment.size);
+                }
+            }
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+        
+        String timestamp = new SimpleDateFormat("yyyyMMdd-hhmmssSSS").format(new Date());
+        File backupDir = new File(basedir.getParentFile(), basedir.getName()+".file-store."+timestamp+".bak");
+        if (!backupDir.mkdirs()) throw new IOException("Failed to create backup directory "+backupDir);
+        FileUtil.setFilePermissionsTo700(backupDir);
+        for (File file : legacy) {
+            if (!file.renameTo(new File(backupDir, file.getName()))) throw new IOException("Could not move "+file+" to "+backupDir);
+        }
+        log.info("Migrated {} objects from file-based store in {} to segment log; files moved to {}", new Object[] {files.size(), basedir, backupDir});
+    }
+
+    private void findFileBasedObjects(File file, String path, Map<String, File> result) {
+        if (file.isDirectory()) {
+            for (File child : file.listFiles()) {
+                findFileBasedObjects(child, path+"/"+child.getName(), result);
+            }
+        } else if (!file.getName().endsWith(".tmp") && !file.getName().endsWith(".swp")) {
+            // as ignored by FileBasedObjectStore
+            result.put(path, file);
+        }
+    }
+
+    private static boolean isSegmentFileName(String name) {
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private void scan(Segment segment) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+        long position = 0;
+        try {
+            while (position < segment.size) {
+                int bodyLength;
+                long checksum;
+                byte[] body;
+                try {
+                    bodyLength = in.readInt();
+                    checksum = in.readInt() & 0xffffffffL;
+                    if (bodyLength < 0 || position + RECORD_HEADER_SIZE + bodyLength > segment.size) break;
+                    body = new byte[bodyLength];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if (crc.getValue() != checksum) break;
+                
+                DataInputStream bodyIn = new DataInputStream(new ByteArrayInputStream(body));
+                byte op = bodyIn.readByte();
+                long timestamp = bodyIn.readLong();
+                String path = bodyIn.readUTF();
+                int dataLength = bodyIn.readInt();
+                long dataOffset = position + RECORD_HEADER_SIZE + bodyLength - dataLength;
+                int recordSize = RECORD_HEADER_SIZE + bodyLength;
+                index(op, path, new Entry(segment, dataOffset, dataLength, timestamp, recordSize));
+                position += recordSize;
+            }
+        } finally {
+            Streams.closeQuietly(in);
+        }
+        if (position < segment.size) {
+            log.warn("Discarding "+(segment.size-position)+" bytes of incomplete or corrupt records at end of "+segment.file);
+            segment.channel.truncate(position);
+            segment.size = position;
+            segment.syncedSize = position;
+        }
+    }
+
+    /** updates the index and byte counts for a record; caller must hold appendLock */
+    private void index(byte op, String path, Entry entry) {
+        Entry old = (op == OP_PUT) ? index.put(path, entry) : index.remove(path);
+        if (old != null) liveBytes -= old.recordSize;
+        if (op == OP_PUT) liveBytes += entry.recordSize;
+    }
+
+    private long segmentId(File file) {
+        String name = file.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length()-SEGMENT_SUFFIX.length()));
+    }
+
+    /** starts a new active segment; caller must hold appendLock */
+    private void rollSegment() throws IOException {
+        long id = segments.isEmpty() ? 1 : segments.get(segments.size()-1).id + 1;
+        File file = new File(basedir, String.format("%s%012d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        FileUtil.setFilePermissionsTo600(file);
+        active = new Segment(id, file);
+        segments.add(active);
+    }
+
+    private void closeSegments() throws IOException {
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+        segments.clear();
+        index.clear();
+        active = null;
+    }
+
+    /** appends a record to the active segment, returning it; caller must hold appendLock (and the segments read lock) */
+    private Entry appendRecord(byte op, String path, byte[] data, long timestamp) throws IOException {
+        return appendRecord(op, path, newRecord(op, path, data, data.length, timestamp), data.length, timestamp);
+    }
+
+    /** appends a record made by {@link #newRecord(byte, String, byte[], int, long)}; caller must hold appendLock (and the segments read lock) */
+    private Entry appendRecord(byte op, String path, ByteBuffer record, int dataLength, long timestamp) throws IOException {
+        long recordStart = active.size;
+        writeFully(active, record, recordStart);
+        return recordAppended(op, path, recordStart, record.limit(), dataLength, timestamp);
+    }
+
+    /** makes a complete record, with header, ready to append; needs no locks, so is done before taking appendLock */
+    private static ByteBuffer newRecord(byte op, String path, byte[] data, int dataLength, long timestamp) throws IOException {
+        byte[] prefix = recordPrefix(op, timestamp, path, dataLength);
+        CRC32 crc = new CRC32();
+        crc.update(prefix);
+        crc.update(data, 0, dataLength);
+        
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + prefix.length + dataLength);
+        record.putInt(prefix.length + dataLength);
+        record.putInt((int) crc.getValue());
+        record.put(prefix);
+        record.put(data, 0, dataLength);
+        record.flip();
+        return record;
+    }
+
+    /** the start of a record's body: everything but the data */
+    private static byte[] recordPrefix(byte op, long timestamp, String path, int dataLength) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(path.length() + 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(op);
+        out.writeLong(timestamp);
+        out.writeUTF(path);
+        out.writeInt(dataLength);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /** updates the active segment, index and byte counts for a record just written; caller must hold appendLock */
+    private Entry recordAppended(byte op, String path, long recordStart, int recordSize, int dataLength, long timestamp) throws IOException {
+        Segment segment = active;
+        segment.size = recordStart + recordSize;
+        totalBytes += recordSize;
+        
+        Entry entry = new Entry(segment, segment.size - dataLength, dataLength, timestamp, recordSize);
+        index(op, path, entry);
+        if (segment.size >= maxSegmentSize) rollSegment();
+        return entry;
+    }
+
+    private static void writeFully(Segment segment, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += segment.channel.write(buffer, position);
+        }
+    }
+
+    /** a buffer for the contents from a {@link ContentsWriter}, giving access to its bytes without copying */
+    private static class ContentsBuffer extends ByteArrayOutputStream {
+        byte[] bytes() {
+            return buf;
+        }
+        int length() {
+            return count;
+        }
+    }
+
+    /** syncs the segment to at least the given size, unless another writer already has */
+    private void sync(Segment segment, long size) throws IOException {
+        synchronized (syncLock) {
+            if (segment.syncedSize >= size || !segment.channel.isOpen()) return;
+            long sizeBeforeSync = segment.size;
+            segment.channel.force(false);
+            segment.syncedSize = sizeBeforeSync;
+            numSyncs.incrementAndGet();
+        }
+    }
+
+    /** 
+     * appends a record with the given data, or else with that written by the given contents writer;
+     * the contents are written and the record built before taking the log for appending 
+     */
+    private void write(byte op, String path, @Nullable byte[] data, @Nullable ContentsWriter contents) {
+        try {
+            int dataLength;
+            if (contents != null) {
+                ContentsBuffer buffer = new ContentsBuffer();
+                contents.writeTo(buffer);
+                data = buffer.bytes();
+                dataLength = buffer.length();
+            } else {
+                dataLength = data.length;
+            }
+            long timestamp = System.currentTimeMillis();
+            ByteBuffer record = newRecord(op, path, data, dataLength, timestamp);
+            
+            segmentsLock.readLock().lock();
+            try {
+                Entry entry;
+                synchronized (appendLock) {
+                    if (active == null) throw new IllegalStateException("Store closed: "+this);
+                    entry = appendRecord(op, path, record, dataLength, timestamp);
+                }
+                if (syncOnWrite) sync(entry.segment, entry.dataOffset + entry.dataLength);
+            } finally {
+                segmentsLock.readLock().unlock();
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+        scheduleCompactionIfNeeded();
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        synchronized (appendLock) {
+            if (totalBytes < compactionMinSize || (totalBytes - liveBytes) < compactionThreshold * totalBytes) return;
+        }
+        if (compactionScheduled.compareAndSet(false, true)) {
+            try {
+                COMPACTOR.submit(new Runnable() {
+                    @Override public void run() {
+                        try {
+                            compact();
+                        } catch (Exception e) {
+                            log.warn("Error compacting "+SegmentLogObjectStore.this+" (continuing): "+e, e);
+                        } finally {
+                            compactionScheduled.set(false);
+                        }
+                    }});
+            } catch (Exception e) {
+                // e.g. rejected as closed
+                compactionScheduled.set(false);
+            }
+        }
+    }
+
+    /** reads the data of a record; caller must hold the segments lock */
+    private byte[] read(Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.dataLength);
+        long position = entry.dataOffset;
+        while (buffer.hasRemaining()) {
+            int count = entry.segment.channel.read(buffer, position);
+            if (count < 0) throw new EOFException("Unexpected end of "+entry.segment.file);
+            position += count;
+        }
+        return buffer.array();
+    }
+
+    private byte[] read(String path) {
+        segmentsLock.readLock().lock();
+        try {
+            Entry entry = index.get(path);
+            return (entry == null) ? null : read(entry);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    /** Accesses a single path. Callers should wrap in {@link StoreObjectAccessorLocking} if multiple threads may be accessing this. */
+    protected class SegmentLogStoreObjectAccessor implements StoreObjectAccessor {
+        private final String path;
+        
+        protected SegmentLogStoreObjectAccessor(String path) {
+            this.path = path;
+        }
+        
+        @Override
+        public String get() {
+            byte[] data = read(path);
+            return (data == null) ? null : new String(data, Charsets.UTF_8);
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            byte[] data = read(path);
+            return (data == null) ? null : new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public boolean exists() {
+            return index.containsKey(path);
+        }
+
+        @Override
+        public void put(String val) {
+            write(OP_PUT, path, (val == null ? "" : val).getBytes(Charsets.UTF_8), null);
+        }
+
+        @Override
+        public void put(ContentsWriter contents) {
+            write(OP_PUT, path, null, checkNotNull(contents, "contents"));
+        }
+
+        @Override
+        public void append(String val) {
+            String old = get();
+            put((old == null ? "" : old) + (val == null ? "" : val));
+        }
+
+        @Override
+        public void delete() {
+            if (exists()) write(OP_DELETE, path, new byte[0], null);
+        }
+
+        @Override
+        public Date getLastModifiedDate() {
+            Entry entry = index.get(path);
+            return (entry == null) ? null : new Date(entry.timestamp);
+        }
+        
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("store", SegmentLogObjectStore.this).add("path", path).toString();
+        }
+    }
+}
@@ -18,6 +18,7 @@
  */
 package brooklyn.entity.rebind.persister;
 
+import java.io.InputStream;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Set;
@@ -27,6 +28,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import brooklyn.entity.rebind.persister.PersistenceObjectStore.ContentsWriter;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore.StoreObjectAccessor;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.javalang.JavaClassNames;
@@ -42,6 +44,8 @@ import brooklyn.util.time.Duration;
  * of this class for a given item.
  * <p>
  * No locking is done with respect to {@link #getLastModifiedDate()}. 
+ * The read lock is held by {@link #getInputStream()} only while the stream is opened,
+ * relying on stores replacing objects atomically on put (as file and blob stores do).
  **/
 public class StoreObjectAccessorLocking implements PersistenceObjectStore.StoreObjectAccessorWithLock {
 
@@ -82,6 +86,24 @@ public class StoreObjectAccessorLocking implements PersistenceObjectStore.StoreO
         }
     }
 
+    @Override
+    public InputStream getInputStream() {
+        try {
+            queuedReaders.add(Thread.currentThread());
+            lock.readLock().lockInterruptibly();
+            try {
+                return delegate.getInputStream();
+                
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            queuedReaders.remove(Thread.currentThread());
+        }
+    }
+
     @Override
     public boolean exists() {
         try {
@@ -127,6 +149,28 @@ public class StoreObjectAccessorLocking implements PersistenceObjectStore.StoreO
         }
     }
     
+    @Override
+    public void put(ContentsWriter contents) {
+        try {
+            queuedWriters.add(Thread.currentThread());
+            lock.writeLock().lockInterruptibly();
+            try {
+                queuedWriters.remove(Thread.currentThread());
+                if (hasScheduledPutOrDeleteWithNoRead()) 
+                    // don't bother writing if someone will write after us and no one is reading
+                    return;
+                delegate.put(contents);
+                
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            queuedWriters.remove(Thread.currentThread());
+        }
+    }
+    
     @Override
     public void append(String val) {
         try {
@@ -0,0 +1,32 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import java.io.Reader;
+import java.io.Writer;
+
+/** A {@link MementoSerializer} which can also stream, rather than building the whole serialized form as a string;
+ * see {@link AbstractMementoSerializer} for default implementations. */
+public interface StreamingMementoSerializer<T> extends MementoSerializer<T> {
+
+    /** as {@link #toString(Object)}, but streaming to the given writer (which is not closed) */
+    void serialize(T memento, Writer writer);
+    /** as {@link #fromString(String)}, but streaming from the given reader (which is not closed) */
+    T deserialize(Reader reader);
+}
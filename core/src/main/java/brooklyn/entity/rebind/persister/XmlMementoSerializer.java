@@ -82,7 +82,7 @@ import com.thoughtworks.xstream.mapper.MapperWrapper;
  * 
  * there is an early attempt at doing this with JSON in pull request #344 but 
  * it is not nicely deserializable, see comments at http://xstream.codehaus.org/json-tutorial.html */  
-public class XmlMementoSerializer<T> extends XmlSerializer<T> implements MementoSerializer<T> {
+public class XmlMementoSerializer<T> extends XmlSerializer<T> implements StreamingMementoSerializer<T> {
 
     private static final Logger LOG = LoggerFactory.getLogger(XmlMementoSerializer.class);
 
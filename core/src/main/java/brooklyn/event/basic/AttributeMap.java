@@ -22,7 +22,15 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,7 +47,9 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * A {@link Map} of {@link Entity} attribute values.
@@ -59,6 +69,18 @@ public final class AttributeMap implements Serializable {
     // Assumed to be something like a ConcurrentMap passed in.
     private final Map<Collection<String>, Object> values;
 
+    /** The number of removed paths whose versions are remembered, beyond which the oldest are forgotten. */
+    public static final int MAX_REMOVED_VERSIONS = 1000;
+
+    /**
+     * The entity's {@link AbstractEntity#getModificationVersion() version} at which each path was last set or removed,
+     * for all current paths and up to (about) {@link #MAX_REMOVED_VERSIONS} removed ones.
+     */
+    private final ConcurrentMap<Collection<String>, Long> versions = new ConcurrentHashMap<Collection<String>, Long>();
+
+    /** The latest version of any removed path which has been forgotten from {@link #versions}. */
+    private volatile long forgottenVersion;
+
     /**
      * Creates a new AttributeMap.
      *
@@ -106,6 +128,8 @@ public final class AttributeMap implements Serializable {
 
         @SuppressWarnings("unchecked")
         T oldValue = (T) values.put(path, newValue);
+        // record after the put, so anyone who has seen this version will also see the new value
+        versions.put(path, entity.noteModified());
         return (isNull(oldValue)) ? null : oldValue;
     }
 
@@ -169,6 +193,63 @@ public final class AttributeMap implements Serializable {
         }
 
         values.remove(path);
+        versions.put(path, entity.noteModified());
+        
+        if (versions.size() > values.size() + MAX_REMOVED_VERSIONS) {
+            forgetOldestRemovedVersions();
+        }
+    }
+
+    private void forgetOldestRemovedVersions() {
+        synchronized (versions) {
+            List<Map.Entry<Collection<String>, Long>> removed = Lists.newArrayList();
+            for (Map.Entry<Collection<String>, Long> entry : versions.entrySet()) {
+                if (!values.containsKey(entry.getKey())) removed.add(Maps.immutableEntry(entry.getKey(), entry.getValue()));
+            }
+            if (removed.size() <= MAX_REMOVED_VERSIONS) return;
+            
+            // forget the oldest half, so this is not repeated on every subsequent removal
+            Collections.sort(removed, new Comparator<Map.Entry<Collection<String>, Long>>() {
+                @Override public int compare(Map.Entry<Collection<String>, Long> o1, Map.Entry<Collection<String>, Long> o2) {
+                    return o1.getValue().compareTo(o2.getValue());
+                }});
+            for (Map.Entry<Collection<String>, Long> entry : removed.subList(0, removed.size() - MAX_REMOVED_VERSIONS/2)) {
+                // raise the floor before forgetting, so readers who miss the entry see why; 
+                // and only forget if not concurrently set again
+                forgottenVersion = Math.max(forgottenVersion, entry.getValue());
+                versions.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the version at which the given attribute was last set or removed, or 0 if it has not been since
+     * this map was created.
+     * <p>
+     * If the attribute was removed so long ago that its version has been forgotten, returns the latest 
+     * forgotten version instead (which is also returned for attributes never set, once any have been forgotten).
+     * 
+     * @see AbstractEntity#getModificationVersion()
+     */
+    public long getModificationVersion(AttributeSensor<?> attribute) {
+        Long result = versions.get(attribute.getNameParts());
+        return (result == null) ? forgottenVersion : result;
+    }
+
+    /**
+     * Returns the names of the attributes set or removed since the given version; or null if removals since
+     * then may have been forgotten, so the caller should treat all attributes as modified.
+     * 
+     * @see #getModificationVersion(AttributeSensor)
+     */
+    @Nullable
+    public Set<String> getNamesModifiedSince(long version) {
+        Set<String> result = Sets.newLinkedHashSet();
+        for (Map.Entry<Collection<String>, Long> entry : versions.entrySet()) {
+            if (entry.getValue() > version) result.add(Joiner.on('.').join(entry.getKey()));
+        }
+        // checked after the scan, as the floor is raised before entries are forgotten
+        return (forgottenVersion > version) ? null : result;
     }
 
     /**
@@ -189,7 +270,27 @@ public final class AttributeMap implements Serializable {
 
     @SuppressWarnings("unchecked")
     public <T> T getValue(AttributeSensor<T> sensor) {
-        return (T) TypeCoercions.coerce(getValue(sensor.getNameParts()), sensor.getType());
+        Object result = values.get(sensor.getNameParts());
+        if (result == null || isNull(result)) return null;
+        // Values are almost always stored with the sensor's own type; only go through the
+        // (comparatively expensive) coercion lookup when they are not, e.g. set by path or on rebind
+        Class<? super T> type = sensor.getType();
+        if (type.isInstance(result)) return (T) result;
+        return (T) TypeCoercions.coerce(result, type);
+    }
+
+    /**
+     * Whether publishing {@code newValue} in place of {@code oldValue} would be a no-op, i.e. the values are equal
+     * or, if a {@code deadband} is supplied and both values are numbers, they differ by no more than the deadband.
+     * Used by feeds and enrichers which are configured to suppress duplicate publishes.
+     */
+    public static boolean isUnchanged(Object oldValue, Object newValue, Number deadband) {
+        if (Objects.equal(oldValue, newValue)) return true;
+        if (deadband != null && oldValue instanceof Number && newValue instanceof Number) {
+            double delta = Math.abs(((Number)newValue).doubleValue() - ((Number)oldValue).doubleValue());
+            return delta <= deadband.doubleValue();
+        }
+        return false;
     }
 
     @SuppressWarnings("unchecked")
@@ -29,7 +29,8 @@ import brooklyn.util.guava.TypeTokens;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Splitter;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.reflect.TypeToken;
 
 /**
@@ -40,11 +41,18 @@ public class BasicSensor<T> implements Sensor<T> {
     
     private static final Splitter dots = Splitter.on('.');
 
+    /**
+     * Sensors with the same name share a single name-parts list, so that attribute map lookups
+     * (which are keyed on the name parts) usually short-circuit on identity in {@code equals};
+     * the list's hash code is precomputed (see {@link SensorNameParts}).
+     */
+    private static final Interner<List<String>> namePartsInterner = Interners.newWeakInterner();
+
     private TypeToken<T> typeToken;
     private Class<? super T> type;
     private String name;
     private String description;
-    private transient List<String> nameParts;
+    private transient volatile List<String> nameParts;
     
     // FIXME In groovy, fields were `public final` with a default constructor; do we need the gson?
     public BasicSensor() { /* for gson */ }
@@ -80,9 +88,14 @@ public class BasicSensor<T> implements Sensor<T> {
     public String getName() { return name; }
  
     /** @see Sensor#getNameParts() */
-    public synchronized List<String> getNameParts() {
-        if (nameParts==null) nameParts = ImmutableList.copyOf(dots.split(name));
-        return nameParts; 
+    public List<String> getNameParts() {
+        // benign race: concurrent callers compute equal (and interned) lists, so no need to synchronize
+        List<String> result = nameParts;
+        if (result==null) {
+            result = namePartsInterner.intern(new SensorNameParts(dots.split(name)));
+            nameParts = result;
+        }
+        return result;
     }
  
     /** @see Sensor#getDescription() */
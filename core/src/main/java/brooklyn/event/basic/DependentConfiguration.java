@@ -65,6 +65,7 @@ import brooklyn.util.guava.Functionals;
 import brooklyn.util.guava.Maybe;
 import brooklyn.util.task.BasicExecutionContext;
 import brooklyn.util.task.BasicTask;
+import brooklyn.util.task.CompensatingThreadPoolExecutor;
 import brooklyn.util.task.DeferredSupplier;
 import brooklyn.util.task.DynamicTasks;
 import brooklyn.util.task.ParallelTask;
@@ -272,6 +273,7 @@ public class DependentConfiguration {
             final Semaphore semaphore = new Semaphore(0); // could use Exchanger
             SubscriptionHandle subscription = null;
             List<SubscriptionHandle> abortSubscriptions = Lists.newArrayList();
+            boolean compensated = false;
             
             try {
                 subscription = ((EntityInternal)entity).getSubscriptionContext().subscribe(source, sensor, new SensorEventListener<T>() {
@@ -299,6 +301,8 @@ public class DependentConfiguration {
                 CountdownTimer timer = timeout!=null ? timeout.countdownTimer() : null;
                 Duration maxPeriod = Duration.millis(200);
                 Duration nextPeriod = Duration.millis(10);
+                // the value may be set by a task queued behind this one in a bounded pool
+                compensated = CompensatingThreadPoolExecutor.beginBlocking();
                 while (true) {
                     // check the source on initial run (could be done outside the loop) 
                     // and also (optionally) on each iteration in case it is more recent 
@@ -353,6 +357,7 @@ public class DependentConfiguration {
             } catch (InterruptedException e) {
                 throw Exceptions.propagate(e);
             } finally {
+                CompensatingThreadPoolExecutor.endBlocking(compensated);
                 if (subscription != null) {
                     ((EntityInternal)entity).getSubscriptionContext().unsubscribe(subscription);
                 }
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.event.basic;
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.google.common.collect.ForwardingList;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The name parts of a sensor, used as the key in an {@link AttributeMap}, with the hash code computed once.
+ * <p>
+ * Equal to (and with the same hash code as) any other list of the same strings, as per the {@link List} contract,
+ * so values stored under a plain list of the name parts (e.g. by path, or on rebind) are still found.
+ */
+final class SensorNameParts extends ForwardingList<String> implements Serializable {
+
+    private static final long serialVersionUID = 3271436518217480436L;
+
+    private final ImmutableList<String> parts;
+    private final int hash;
+
+    SensorNameParts(Iterable<String> parts) {
+        this.parts = ImmutableList.copyOf(parts);
+        this.hash = this.parts.hashCode();
+    }
+
+    @Override
+    protected List<String> delegate() {
+        return parts;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || parts.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -20,6 +20,8 @@ package brooklyn.event.feed;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +32,7 @@ import brooklyn.entity.basic.EntityLocal;
 import brooklyn.entity.basic.Lifecycle;
 import brooklyn.entity.basic.Lifecycle.Transition;
 import brooklyn.event.AttributeSensor;
+import brooklyn.event.basic.AttributeMap;
 import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.task.Tasks;
 import brooklyn.util.time.Duration;
@@ -65,6 +68,8 @@ public class AttributePollHandler<V> implements PollHandler<V> {
     private volatile boolean currentProblemLoggedAsWarning = false;
     private volatile boolean lastWasProblem = false;
     
+    private final AtomicLong numSuppressedDuplicates = new AtomicLong();
+    
     public AttributePollHandler(FeedConfig<V,?,?> config, EntityLocal entity, AbstractFeed feed) {
         this.config = checkNotNull(config, "config");
         this.entity = checkNotNull(entity, "entity");
@@ -218,10 +223,22 @@ public class AttributePollHandler<V> implements PollHandler<V> {
         } else if (sensor == FeedConfig.NO_SENSOR) {
             // nothing
         } else {
-            entity.setAttribute(sensor, TypeCoercions.coerce(v, sensor.getType()));
+            Object newValue = TypeCoercions.coerce(v, sensor.getType());
+            if (config.isSuppressDuplicates() && 
+                    AttributeMap.isUnchanged(entity.getAttribute(sensor), newValue, config.getSuppressDuplicatesDeadband())) {
+                numSuppressedDuplicates.incrementAndGet();
+                return;
+            }
+            entity.setAttribute(sensor, newValue);
         }
     }
 
+    /** number of poll results which were not published because they were duplicates of the current value;
+     * see {@link FeedConfig#suppressDuplicates(boolean)} */
+    public long getNumSuppressedDuplicates() {
+        return numSuppressedDuplicates.get();
+    }
+
     @Override
     public String toString() {
         return super.toString()+"["+getDescription()+"]";
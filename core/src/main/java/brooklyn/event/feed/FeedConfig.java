@@ -62,6 +62,8 @@ public class FeedConfig<V, T, F extends FeedConfig<V, T, F>> {
     private Function<? super V, T> onfailure;
     private Function<? super Exception, T> onexception;
     private Predicate<? super V> checkSuccess;
+    private boolean suppressDuplicates;
+    private Number suppressDuplicatesDeadband;
 
     public FeedConfig(AttributeSensor<T> sensor) {
         this.sensor = checkNotNull(sensor, "sensor");
@@ -73,6 +75,8 @@ public class FeedConfig<V, T, F extends FeedConfig<V, T, F>> {
         this.onfailure = other.onfailure;
         this.onexception = other.onexception;
         this.checkSuccess = other.checkSuccess;
+        this.suppressDuplicates = other.suppressDuplicates;
+        this.suppressDuplicatesDeadband = other.suppressDuplicatesDeadband;
     }
 
     @SuppressWarnings("unchecked")
@@ -100,6 +104,14 @@ public class FeedConfig<V, T, F extends FeedConfig<V, T, F>> {
         return onexception;
     }
 
+    public boolean isSuppressDuplicates() {
+        return suppressDuplicates;
+    }
+    
+    public Number getSuppressDuplicatesDeadband() {
+        return suppressDuplicatesDeadband;
+    }
+
     /** sets the predicate used to check whether a feed run is successful */
     public F checkSuccess(Predicate<? super V> val) {
         this.checkSuccess = checkNotNull(val, "checkSuccess");
@@ -175,6 +187,20 @@ public class FeedConfig<V, T, F extends FeedConfig<V, T, F>> {
         return onFailureOrException(Functions.constant(val));
     }
 
+    /** whether a value equal to the sensor's current value should be ignored, rather than re-published;
+     * useful for frequently polled values which rarely change */
+    public F suppressDuplicates(boolean val) {
+        this.suppressDuplicates = val;
+        return self();
+    }
+    
+    /** as {@link #suppressDuplicates(boolean)}, also treating numeric values which differ from the
+     * current value by no more than the given deadband as duplicates */
+    public F suppressDuplicatesWithinDeadband(Number deadband) {
+        this.suppressDuplicatesDeadband = checkNotNull(deadband, "deadband");
+        return suppressDuplicates(true);
+    }
+
     public boolean hasSuccessHandler() {
         return this.onsuccess != null;
     }
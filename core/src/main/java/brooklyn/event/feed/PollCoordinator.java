@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.event.feed;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import brooklyn.config.ConfigKey;
+import brooklyn.config.StringConfigMap;
+import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.util.time.Duration;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Coordinates the polls of all {@link Poller}s in a management context.
+ * <ul>
+ *   <li>Start offsets: when pollers are restarted, i.e. on rebind (including promotion to master) or when 
+ *       resumed, the first poll of each job is delayed by an offset spread evenly over a fraction of that 
+ *       job's own period ({@link #INITIAL_DELAY_FRACTION}), capped by {@link #MAX_INITIAL_DELAY}, so that 
+ *       the many feeds restarted together do not then poll in lock-step. A new poller's first polls are not 
+ *       delayed, so that a newly started entity gets its first values promptly.
+ *   <li>Per-target rate limits: polls which declare a target (e.g. a host and port) are skipped if that 
+ *       target has been polled more than {@link #MAX_POLLS_PER_SECOND_PER_TARGET} times per second.
+ *       A skipped poll does not update its sensors at all (neither with a value nor an error), so they 
+ *       keep their previous values until the next poll which is allowed to run.
+ *   <li>Metrics: poll lag (the delay between the time a poll was scheduled for and it starting to run), 
+ *       overruns (polls which took longer than their period, or were skipped because the previous 
+ *       run of the same job was still going), and polls skipped by the rate limit.
+ * </ul>
+ */
+public class PollCoordinator {
+
+    public static final ConfigKey<Double> INITIAL_DELAY_FRACTION = ConfigKeys.newDoubleConfigKey(
+            "brooklyn.poller.initialDelayFraction", 
+            "Fraction of each job's period over which first polls are spread when pollers are restarted, e.g. on rebind "
+            + "(zero means all jobs poll immediately when restarted)", 
+            1.0);
+
+    public static final ConfigKey<Duration> MAX_INITIAL_DELAY = ConfigKeys.newConfigKey(
+            Duration.class,
+            "brooklyn.poller.maxInitialDelay", 
+            "Maximum delay before the first poll of a restarted job, whatever its period "
+            + "(zero means all jobs poll immediately when restarted)",
+            Duration.FIVE_SECONDS);
+
+    public static final ConfigKey<Double> MAX_POLLS_PER_SECOND_PER_TARGET = ConfigKeys.newDoubleConfigKey(
+            "brooklyn.poller.maxPollsPerSecondPerTarget", 
+            "Maximum rate at which any one target (e.g. host and port) will be polled, across all feeds; "
+            + "polls in excess of this are skipped (default is no limit)");
+
+    /** gives a low-discrepancy sequence of fractions, so offsets are spread evenly however many jobs are started */
+    private static final double GOLDEN_RATIO_CONJUGATE = 0.6180339887498949;
+    
+    private final double initialDelayFraction;
+    private final Duration maxInitialDelay;
+    private final Double maxPollsPerSecondPerTarget;
+    private final LoadingCache<Object, RateLimiter> rateLimiters;
+    
+    private final AtomicLong startCount = new AtomicLong();
+    private final AtomicLong totalPolls = new AtomicLong();
+    private final AtomicLong totalOverruns = new AtomicLong();
+    private final AtomicLong totalThrottled = new AtomicLong();
+    private final AtomicLong totalLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    public PollCoordinator(StringConfigMap config) {
+        Double fraction = config.getConfig(INITIAL_DELAY_FRACTION);
+        this.initialDelayFraction = (fraction == null) ? 0 : Math.max(0, Math.min(1, fraction));
+        this.maxInitialDelay = config.getConfig(MAX_INITIAL_DELAY);
+        this.maxPollsPerSecondPerTarget = config.getConfig(MAX_POLLS_PER_SECOND_PER_TARGET);
+        this.rateLimiters = CacheBuilder.newBuilder()
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build(new CacheLoader<Object, RateLimiter>() {
+                    @Override public RateLimiter load(Object key) {
+                        return RateLimiter.create(maxPollsPerSecondPerTarget);
+                    }});
+    }
+    
+    /** 
+     * the delay before the first poll of a job with the given period; 
+     * zero unless restarting (e.g. on rebind), as only then are many jobs started together 
+     */
+    public Duration nextInitialDelay(Duration period, boolean restarting) {
+        if (!restarting || initialDelayFraction <= 0 || !period.isPositive()) return Duration.ZERO;
+        long spreadMillis = (long) (period.toMilliseconds() * initialDelayFraction);
+        if (maxInitialDelay != null) spreadMillis = Math.min(spreadMillis, Math.max(0, maxInitialDelay.toMilliseconds()));
+        double fraction = (startCount.getAndIncrement() * GOLDEN_RATIO_CONJUGATE) % 1.0;
+        return Duration.millis((long) (fraction * spreadMillis));
+    }
+    
+    /** whether a poll of the given target (which may be null) may run now */
+    public boolean tryAcquire(Object target) {
+        if (target == null || maxPollsPerSecondPerTarget == null) return true;
+        if (rateLimiters.getUnchecked(target).tryAcquire()) return true;
+        totalThrottled.incrementAndGet();
+        return false;
+    }
+    
+    public void recordPoll(Duration lag, Duration duration, Duration period) {
+        totalPolls.incrementAndGet();
+        long lagNanos = lag.toNanoseconds();
+        totalLagNanos.addAndGet(lagNanos);
+        long max;
+        while ((max = maxLagNanos.get()) < lagNanos && !maxLagNanos.compareAndSet(max, lagNanos)) {}
+        if (duration.compareTo(period) > 0) totalOverruns.incrementAndGet();
+    }
+    
+    public void recordSkippedAsStillRunning() {
+        totalOverruns.incrementAndGet();
+    }
+    
+    public long getTotalPolls() {
+        return totalPolls.get();
+    }
+    
+    public long getTotalOverruns() {
+        return totalOverruns.get();
+    }
+    
+    public long getTotalThrottled() {
+        return totalThrottled.get();
+    }
+    
+    public Duration getMeanLag() {
+        long count = totalPolls.get();
+        return (count == 0) ? Duration.ZERO : Duration.nanos(totalLagNanos.get() / count);
+    }
+    
+    public Duration getMaxLag() {
+        return Duration.nanos(maxLagNanos.get());
+    }
+}
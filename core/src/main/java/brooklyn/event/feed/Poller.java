@@ -21,6 +21,8 @@ package brooklyn.event.feed;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +32,10 @@ import brooklyn.entity.basic.BrooklynTaskTags;
 import brooklyn.entity.basic.Entities;
 import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.basic.EntityLocal;
+import brooklyn.entity.rebind.RebindManagerImpl.RebindTracker;
+import brooklyn.management.ManagementContext;
 import brooklyn.management.Task;
+import brooklyn.management.internal.AbstractManagementContext;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.task.DynamicSequentialTask;
 import brooklyn.util.task.ScheduledTask;
@@ -38,6 +43,7 @@ import brooklyn.util.task.Tasks;
 import brooklyn.util.time.Duration;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
 
 
 /** 
@@ -46,6 +52,11 @@ import com.google.common.base.Objects;
  * The jobs will then be executed periodically, and the handler called for the result/failure.
  * 
  * Assumes the schedule+start will be done single threaded, and that stop will not be done concurrently.
+ * <p>
+ * Where the entity's management context supplies a {@link PollCoordinator}, first polls are spread 
+ * over the poll period, polls of a rate-limited target may be skipped (leaving their sensors unchanged),
+ * and lag (from when each poll was scheduled to run) and overruns are recorded.
+ * A poll is skipped if the previous run of the same job is still going (e.g. after a quick stop and start).
  */
 public class Poller<V> {
     public static final Logger log = LoggerFactory.getLogger(Poller.class);
@@ -57,16 +68,25 @@ public class Poller<V> {
     private final Set<Task<?>> oneOffTasks = new LinkedHashSet<Task<?>>();
     private final Set<ScheduledTask> tasks = new LinkedHashSet<ScheduledTask>();
     private volatile boolean started = false;
+    /** whether started before (so being resumed now) */
+    private boolean startedBefore = false;
+    private final AtomicLong numOverruns = new AtomicLong();
+    private final AtomicLong numSkipped = new AtomicLong();
     
     private static class PollJob<V> {
         final PollHandler<? super V> handler;
         final Duration pollPeriod;
+        final Supplier<?> target;
         final Runnable wrappedJob;
+        final AtomicBoolean running = new AtomicBoolean();
+        /** {@link System#nanoTime()} at which the next run is scheduled, for measuring lag */
+        volatile long nextDueTime;
         private boolean loggedPreviousException = false;
         
-        PollJob(final Callable<V> job, final PollHandler<? super V> handler, Duration period) {
+        PollJob(final Callable<V> job, final PollHandler<? super V> handler, Duration period, Supplier<?> target) {
             this.handler = handler;
             this.pollPeriod = period;
+            this.target = target;
             
             wrappedJob = new Runnable() {
                 public void run() {
@@ -114,10 +134,17 @@ public class Poller<V> {
         scheduleAtFixedRate(job, handler, Duration.millis(period));
     }
     public void scheduleAtFixedRate(Callable<V> job, PollHandler<? super V> handler, Duration period) {
+        scheduleAtFixedRate(job, handler, period, null);
+    }
+    /**
+     * As {@link #scheduleAtFixedRate(Callable, PollHandler, Duration)}, where the target supplier 
+     * (which may be null) gives the thing being polled, e.g. host and port, for per-target rate limiting.
+     */
+    public void scheduleAtFixedRate(Callable<V> job, PollHandler<? super V> handler, Duration period, Supplier<?> target) {
         if (started) {
             throw new IllegalStateException("Cannot schedule additional tasks after poller has started");
         }
-        PollJob<V> foo = new PollJob<V>(job, handler, period);
+        PollJob<V> foo = new PollJob<V>(job, handler, period, target);
         pollJobs.add(foo);
     }
 
@@ -133,6 +160,10 @@ public class Poller<V> {
         }
         
         started = true;
+        final PollCoordinator coordinator = getPollCoordinator();
+        // spread first polls only if restarting, along with many others, rather than starting a new feed
+        boolean restarting = startedBefore || RebindTracker.isRebinding();
+        startedBefore = true;
         
         for (final Callable<?> oneOffJob : oneOffJobs) {
             Task<?> task = Tasks.builder().dynamic(false).body((Callable<Object>) oneOffJob).name("Poll").description("One-time poll job "+oneOffJob).build();
@@ -146,17 +177,25 @@ public class Poller<V> {
                     public Task<?> call() {
                         DynamicSequentialTask<Void> task = new DynamicSequentialTask<Void>(MutableMap.of("displayName", scheduleName, "entity", entity), 
                             new Callable<Void>() { public Void call() {
-                                if (onlyIfServiceUp && !Boolean.TRUE.equals(entity.getAttribute(Attributes.SERVICE_UP))) {
+                                try {
+                                    if (onlyIfServiceUp && !Boolean.TRUE.equals(entity.getAttribute(Attributes.SERVICE_UP))) {
                                         return null;
+                                    }
+                                    runPollJob(pollJob, coordinator, pollJob.nextDueTime);
+                                    return null;
+                                } finally {
+                                    // the scheduled task re-schedules this a period after it completes
+                                    pollJob.nextDueTime = System.nanoTime() + pollJob.pollPeriod.toNanoseconds();
                                 }
-                                pollJob.wrappedJob.run();
-                                return null; 
                             } } );
                         BrooklynTaskTags.setTransient(task);
                         return task;
                     }
                 };
                 ScheduledTask task = new ScheduledTask(MutableMap.of("period", pollJob.pollPeriod, "displayName", "scheduled:"+scheduleName), pollingTaskFactory);
+                Duration initialDelay = (coordinator != null) ? coordinator.nextInitialDelay(pollJob.pollPeriod, restarting) : Duration.ZERO;
+                task.delay(initialDelay);
+                pollJob.nextDueTime = System.nanoTime() + initialDelay.toNanoseconds();
                 tasks.add((ScheduledTask)Entities.submit(entity, task));
             } else {
                 if (log.isDebugEnabled()) log.debug("Activating poll (but leaving off, as period {}) for {} (using {})", new Object[] {pollJob.pollPeriod, entity, this});
@@ -164,6 +203,35 @@ public class Poller<V> {
         }
     }
     
+    private void runPollJob(PollJob<V> pollJob, PollCoordinator coordinator, long dueTime) {
+        if (!pollJob.running.compareAndSet(false, true)) {
+            if (log.isDebugEnabled()) log.debug("Skipping poll {} for {}, as previous run still in progress", pollJob.handler.getDescription(), entity);
+            numOverruns.incrementAndGet();
+            numSkipped.incrementAndGet();
+            if (coordinator != null) coordinator.recordSkippedAsStillRunning();
+            return;
+        }
+        try {
+            if (coordinator != null && pollJob.target != null && !coordinator.tryAcquire(pollJob.target.get())) {
+                if (log.isTraceEnabled()) log.trace("Skipping poll {} for {}, as target {} rate-limited", new Object[] {pollJob.handler.getDescription(), entity, pollJob.target.get()});
+                numSkipped.incrementAndGet();
+                return;
+            }
+            long startTime = System.nanoTime();
+            pollJob.wrappedJob.run();
+            Duration duration = Duration.nanos(System.nanoTime() - startTime);
+            if (duration.compareTo(pollJob.pollPeriod) > 0) numOverruns.incrementAndGet();
+            if (coordinator != null) coordinator.recordPoll(Duration.nanos(startTime - dueTime), duration, pollJob.pollPeriod);
+        } finally {
+            pollJob.running.set(false);
+        }
+    }
+    
+    private PollCoordinator getPollCoordinator() {
+        ManagementContext mgmt = ((EntityInternal)entity).getManagementContext();
+        return (mgmt instanceof AbstractManagementContext) ? ((AbstractManagementContext)mgmt).getPollCoordinator() : null;
+    }
+    
     public void stop() {
         if (log.isDebugEnabled()) log.debug("Stopping poll for {} (using {})", new Object[] {entity, this});
         if (!started) { 
@@ -196,6 +264,16 @@ public class Poller<V> {
         return started && hasActiveTasks;
     }
     
+    /** number of polls which took longer than their period, or were skipped as the previous run was still going */
+    public long getNumOverruns() {
+        return numOverruns.get();
+    }
+    
+    /** number of polls skipped, because the previous run was still going or the target was rate-limited */
+    public long getNumSkipped() {
+        return numSkipped.get();
+    }
+    
     protected boolean isEmpty() {
         return pollJobs.isEmpty();
     }
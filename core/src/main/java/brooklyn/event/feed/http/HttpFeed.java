@@ -30,21 +30,30 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CookieStore;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import brooklyn.config.ConfigKey;
 import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.basic.EntityLocal;
 import brooklyn.event.feed.AbstractFeed;
 import brooklyn.event.feed.AttributePollHandler;
 import brooklyn.event.feed.DelegatingPollHandler;
 import brooklyn.event.feed.Poller;
+import brooklyn.management.ManagementContext;
+import brooklyn.management.internal.AbstractManagementContext;
 import brooklyn.util.http.HttpTool;
 import brooklyn.util.http.HttpTool.HttpClientBuilder;
 import brooklyn.util.http.HttpToolResponse;
+import brooklyn.util.http.SharedHttpClients;
 import brooklyn.util.time.Duration;
 
 import com.google.common.base.Objects;
@@ -319,7 +328,12 @@ public class HttpFeed extends AbstractFeed {
             //     threads of execution, it is highly recommended that each thread maintains its
             //     own dedicated instance of HttpContext.
             //  http://hc.apache.org/httpcomponents-client-ga/tutorial/html/connmgmt.html
-            final HttpClient httpClient = createHttpClient(pollInfo);
+            // Where available we use the management context's pooled clients, so connections are re-used
+            // across polls and feeds; otherwise each poll identifier gets a dedicated client.
+            // Either way each poll identifier keeps its own cookies (e.g. a session from a login), as when
+            // it always had a dedicated client.
+            final Supplier<HttpClient> httpClient = httpClientSupplier(pollInfo);
+            final CookieStore cookieStore = new BasicCookieStore();
 
             Set<HttpPollConfig<?>> configs = polls.get(pollInfo);
             long minPeriod = Integer.MAX_VALUE;
@@ -336,28 +350,57 @@ public class HttpFeed extends AbstractFeed {
                 pollJob = new Callable<HttpToolResponse>() {
                     public HttpToolResponse call() throws Exception {
                         if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return HttpTool.httpGet(httpClient, pollInfo.uriProvider.get(), pollInfo.headers);
+                        return HttpTool.httpGet(httpClient.get(), pollInfo.uriProvider.get(), pollInfo.headers, newHttpContext(cookieStore));
                     }};
             } else if (pollInfo.method.equals("post")) {
                 pollJob = new Callable<HttpToolResponse>() {
                     public HttpToolResponse call() throws Exception {
                         if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return HttpTool.httpPost(httpClient, pollInfo.uriProvider.get(), pollInfo.headers, pollInfo.body);
+                        return HttpTool.httpPost(httpClient.get(), pollInfo.uriProvider.get(), pollInfo.headers, pollInfo.body, newHttpContext(cookieStore));
                     }};
             } else if (pollInfo.method.equals("head")) {
                 pollJob = new Callable<HttpToolResponse>() {
                     public HttpToolResponse call() throws Exception {
                         if (log.isTraceEnabled()) log.trace("http polling for {} sensors at {}", entity, pollInfo);
-                        return HttpTool.httpHead(httpClient, pollInfo.uriProvider.get(), pollInfo.headers);
+                        return HttpTool.httpHead(httpClient.get(), pollInfo.uriProvider.get(), pollInfo.headers, newHttpContext(cookieStore));
                     }};
             } else {
                 throw new IllegalStateException("Unexpected http method: "+pollInfo.method);
             }
             
-            getPoller().scheduleAtFixedRate(pollJob, new DelegatingPollHandler<HttpToolResponse>(handlers), minPeriod);
+            // rate limits (if configured) apply per host and port, across all feeds polling it
+            Supplier<String> target = new Supplier<String>() {
+                @Override public String get() {
+                    URI uri = pollInfo.uriProvider.get();
+                    return (uri == null) ? null : uri.getHost()+":"+uri.getPort();
+                }};
+            
+            getPoller().scheduleAtFixedRate(pollJob, new DelegatingPollHandler<HttpToolResponse>(handlers), Duration.millis(minPeriod), target);
         }
     }
 
+    private static HttpContext newHttpContext(CookieStore cookieStore) {
+        HttpContext result = new BasicHttpContext();
+        result.setAttribute(ClientContext.COOKIE_STORE, cookieStore);
+        return result;
+    }
+    
+    private Supplier<HttpClient> httpClientSupplier(final HttpPollIdentifier pollIdentifier) {
+        ManagementContext mgmt = ((EntityInternal)entity).getManagementContext();
+        if (mgmt instanceof AbstractManagementContext && ((AbstractManagementContext)mgmt).getSharedHttpClients().isEnabled()) {
+            final SharedHttpClients sharedClients = ((AbstractManagementContext)mgmt).getSharedHttpClients();
+            final SharedHttpClients.ClientKey key = new SharedHttpClients.ClientKey(pollIdentifier.credentials, true, true, 
+                    pollIdentifier.connectionTimeout, pollIdentifier.socketTimeout);
+            return new Supplier<HttpClient>() {
+                @Override public HttpClient get() {
+                    // looked up on each poll, as the uri (for scoping credentials) may only become available later
+                    return sharedClients.getClient(key, pollIdentifier.uriProvider.get());
+                }};
+        } else {
+            return Suppliers.ofInstance(createHttpClient(pollIdentifier));
+        }
+    }
+    
     // TODO Should we really trustAll for https? Make configurable?
     private HttpClient createHttpClient(HttpPollIdentifier pollIdentifier) {
         URI uri = pollIdentifier.uriProvider.get();
@@ -30,6 +30,7 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import brooklyn.config.BrooklynServerConfig;
 import brooklyn.config.ConfigKey;
 import brooklyn.config.ConfigKey.HasConfigKey;
 import brooklyn.entity.basic.BrooklynConfigKeys;
@@ -37,6 +38,7 @@ import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.entity.rebind.persister.FileBasedObjectStore;
 import brooklyn.entity.rebind.persister.LocationWithObjectStore;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore;
+import brooklyn.entity.rebind.persister.SegmentLogObjectStore;
 import brooklyn.location.AddressableLocation;
 import brooklyn.location.LocationSpec;
 import brooklyn.location.OsDetails;
@@ -332,6 +334,9 @@ public class LocalhostMachineProvisioningLocation extends FixedListMachineProvis
     public PersistenceObjectStore newPersistenceObjectStore(String container) {
         File basedir = new File(container);
         if (basedir.isFile()) throw new IllegalArgumentException("Destination directory must not be a file");
+        if (getManagementContext()!=null && Boolean.TRUE.equals(getManagementContext().getConfig().getConfig(BrooklynServerConfig.PERSISTENCE_SEGMENT_LOG))) {
+            return new SegmentLogObjectStore(basedir);
+        }
         return new FileBasedObjectStore(basedir);
     }
     
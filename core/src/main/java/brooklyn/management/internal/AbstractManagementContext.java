@@ -46,6 +46,7 @@ import brooklyn.entity.Effector;
 import brooklyn.entity.Entity;
 import brooklyn.entity.basic.AbstractEntity;
 import brooklyn.entity.basic.BrooklynTaskTags;
+import brooklyn.entity.basic.DynamicGroupMembershipIndex;
 import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.drivers.BasicEntityDriverManager;
 import brooklyn.entity.drivers.EntityDriverManager;
@@ -53,6 +54,7 @@ import brooklyn.entity.drivers.downloads.BasicDownloadsManager;
 import brooklyn.entity.drivers.downloads.DownloadResolverManager;
 import brooklyn.entity.rebind.RebindManager;
 import brooklyn.entity.rebind.RebindManagerImpl;
+import brooklyn.event.feed.PollCoordinator;
 import brooklyn.internal.storage.BrooklynStorage;
 import brooklyn.internal.storage.DataGrid;
 import brooklyn.internal.storage.DataGridFactory;
@@ -75,6 +77,7 @@ import brooklyn.util.ResourceUtils;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.config.ConfigBag;
 import brooklyn.util.guava.Maybe;
+import brooklyn.util.http.SharedHttpClients;
 import brooklyn.util.task.BasicExecutionContext;
 import brooklyn.util.task.Tasks;
 
@@ -154,6 +157,10 @@ public abstract class AbstractManagementContext implements ManagementContextInte
     private final HighAvailabilityManager highAvailabilityManager;
     
     protected volatile BrooklynGarbageCollector gc;
+    
+    private volatile SharedHttpClients sharedHttpClients;
+    private volatile PollCoordinator pollCoordinator;
+    private volatile DynamicGroupMembershipIndex dynamicGroupMembershipIndex;
 
     private final EntityDriverManager entityDriverManager;
     protected DownloadResolverManager downloadsManager;
@@ -192,6 +199,7 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         running = false;
         rebindManager.stop();
         storage.terminate();
+        if (sharedHttpClients != null) sharedHttpClients.shutdown();
         // Don't unmanage everything; different entities get given their events at different times 
         // so can cause problems (e.g. a group finds out that a member is unmanaged, before the
         // group itself has been told that it is unmanaged).
@@ -423,6 +431,36 @@ public abstract class AbstractManagementContext implements ManagementContextInte
         return gc;
     }
 
+    /** pooled http clients, for use by feeds etc; created on first use */
+    public SharedHttpClients getSharedHttpClients() {
+        if (sharedHttpClients == null) {
+            synchronized (this) {
+                if (sharedHttpClients == null) sharedHttpClients = new SharedHttpClients(configMap);
+            }
+        }
+        return sharedHttpClients;
+    }
+
+    /** spreads, rate-limits and records metrics for the polls of all feeds; created on first use */
+    public PollCoordinator getPollCoordinator() {
+        if (pollCoordinator == null) {
+            synchronized (this) {
+                if (pollCoordinator == null) pollCoordinator = new PollCoordinator(configMap);
+            }
+        }
+        return pollCoordinator;
+    }
+
+    /** routes entity additions and removals to interested {@link brooklyn.entity.basic.DynamicGroup}s */
+    public DynamicGroupMembershipIndex getDynamicGroupMembershipIndex() {
+        if (dynamicGroupMembershipIndex == null) {
+            synchronized (this) {
+                if (dynamicGroupMembershipIndex == null) dynamicGroupMembershipIndex = new DynamicGroupMembershipIndex(this);
+            }
+        }
+        return dynamicGroupMembershipIndex;
+    }
+
     @Override
     public void setManagementNodeUri(URI uri) {
         this.uri = Maybe.of(checkNotNull(uri, "uri"));
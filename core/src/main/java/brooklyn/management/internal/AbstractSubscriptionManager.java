@@ -95,6 +95,10 @@ public abstract class AbstractSubscriptionManager implements SubscriptionManager
      * <li>subscriberExecutionManagerTag - a tag to pass to execution manager (without setting any execution semantics / TaskPreprocessor);
      *      if not supplied and there is a subscriber, this will be inferred from the subscriber and set up with SingleThreadedScheduler
      * <li>eventFilter - a Predicate&lt;SensorEvent&gt; instance to filter what events are delivered
+     * <li>batchDelivery - if true, events are queued and delivered in batches (in order) in a single task,
+     *      rather than submitting a task per event
+     * <li>coalesceAttributeUpdates - if true (implies batchDelivery), queued updates to the same attribute 
+     *      from the same producer are collapsed so that only the latest value is delivered
      * </ul>
      * 
      * @see SubscriptionManager#subscribe(Map, Entity, Sensor, SensorEventListener)
@@ -19,17 +19,18 @@
 package brooklyn.management.internal;
 
 import static brooklyn.util.JavaGroovyEquivalents.elvis;
-import static brooklyn.util.JavaGroovyEquivalents.groovyTruth;
 import static brooklyn.util.JavaGroovyEquivalents.join;
 import static brooklyn.util.JavaGroovyEquivalents.mapOf;
+import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -38,20 +39,22 @@ import org.slf4j.LoggerFactory;
 
 import brooklyn.entity.Entity;
 import brooklyn.entity.basic.Entities;
+import brooklyn.event.AttributeSensor;
 import brooklyn.event.Sensor;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
 import brooklyn.management.ExecutionManager;
 import brooklyn.management.SubscriptionHandle;
 import brooklyn.management.SubscriptionManager;
+import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.task.BasicExecutionManager;
 import brooklyn.util.task.SingleThreadedScheduler;
 import brooklyn.util.text.Identifiers;
 
 import com.google.common.base.Predicate;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimaps;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 /**
  * A {@link SubscriptionManager} that stores subscription details locally.
@@ -66,13 +69,36 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
 
     private final AtomicLong totalEventsPublishedCount = new AtomicLong();
     private final AtomicLong totalEventsDeliveredCount = new AtomicLong();
+    private final AtomicLong totalEventsCoalescedCount = new AtomicLong();
     
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<String, Subscription> allSubscriptions = new ConcurrentHashMap<String, Subscription>();
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsBySubscriber = new ConcurrentHashMap<Object, Set<Subscription>>();
+    
+    /**
+     * Subscriptions indexed by producer then by sensor name, using {@link #ANY} for a wildcard (null) producer or sensor.
+     * <p>
+     * The arrays are copy-on-write and never mutated once published, so {@link #publish(SensorEvent)} can read them 
+     * without locking or allocating. Changes are made while holding the {@link #lockFor(Object)} stripe of the producer
+     * (or of the subscriber, for {@link #subscriptionsBySubscriber}).
+     */
     @SuppressWarnings("rawtypes")
-    protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsByToken = new ConcurrentHashMap<Object, Set<Subscription>>();
+    protected final ConcurrentMap<Object, ConcurrentMap<Object, Subscription[]>> subscriptionsByProducerAndSensor = new ConcurrentHashMap<Object, ConcurrentMap<Object, Subscription[]>>();
+    
+    /** key used in {@link #subscriptionsByProducerAndSensor} when subscribing to all producers or all sensors */
+    private static final Object ANY = new Object() {
+        @Override public String toString() { return "*"; }
+    };
+    
+    @SuppressWarnings("rawtypes")
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+    
+    private static final int NUM_LOCK_STRIPES = 32;
+    private final Object[] lockStripes = new Object[NUM_LOCK_STRIPES];
+    {
+        for (int i=0; i<NUM_LOCK_STRIPES; i++) lockStripes[i] = new Object();
+    }
     
     public LocalSubscriptionManager(ExecutionManager m) {
         this.em = m;
@@ -90,8 +116,13 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return totalEventsDeliveredCount.get();
     }
     
+    /** count of events not delivered because a later update to the same attribute superseded them */
+    public long getTotalEventsCoalesced() {
+        return totalEventsCoalescedCount.get();
+    }
+    
     @SuppressWarnings("unchecked")
-    protected synchronized <T> SubscriptionHandle subscribe(Map<String, Object> flags, Subscription<T> s) {
+    protected <T> SubscriptionHandle subscribe(Map<String, Object> flags, Subscription<T> s) {
         Entity producer = s.producer;
         Sensor<T> sensor= s.sensor;
         s.subscriber = getSubscriber(flags, s);
@@ -106,13 +137,16 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
             s.subscriberExecutionManagerTagSupplied = false;
         }
         s.eventFilter = (Predicate<SensorEvent<T>>) flags.remove("eventFilter");
+        s.coalesceAttributeUpdates = Boolean.TRUE.equals(TypeCoercions.coerce(flags.remove("coalesceAttributeUpdates"), Boolean.class));
+        s.batchDelivery = s.coalesceAttributeUpdates || Boolean.TRUE.equals(TypeCoercions.coerce(flags.remove("batchDelivery"), Boolean.class));
+        if (s.batchDelivery) s.pendingEvents = new ConcurrentLinkedQueue<SensorEvent<T>>();
         s.flags = flags;
         
         if (LOG.isDebugEnabled()) LOG.debug("Creating subscription {} for {} on {} {} in {}", new Object[] {s.id, s.subscriber, producer, sensor, this});
         allSubscriptions.put(s.id, s);
-        addToMapOfSets(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        addToIndex(s);
         if (s.subscriber!=null) {
-            addToMapOfSets(subscriptionsBySubscriber, s.subscriber, s);
+            addToSubscriberSet(s);
         }
         if (!s.subscriberExecutionManagerTagSupplied && s.subscriberExecutionManagerTag!=null) {
             ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
@@ -125,12 +159,15 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return (Set<SubscriptionHandle>) ((Set<?>) elvis(subscriptionsBySubscriber.get(subscriber), Collections.emptySet()));
     }
 
-    public synchronized Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
+    public Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
         Set<SubscriptionHandle> subscriptions = new LinkedHashSet<SubscriptionHandle>();
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, null)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, null)), Collections.emptySet()));
+        ConcurrentMap<Object, Subscription[]> forSource = (source != null) ? subscriptionsByProducerAndSensor.get(source) : null;
+        ConcurrentMap<Object, Subscription[]> forAnySource = subscriptionsByProducerAndSensor.get(ANY);
+        Object sensorKey = (sensor != null) ? sensor.getName() : null;
+        Collections.addAll(subscriptions, lookup(forSource, sensorKey));
+        Collections.addAll(subscriptions, lookup(forAnySource, sensorKey));
+        Collections.addAll(subscriptions, lookup(forSource, ANY));
+        Collections.addAll(subscriptions, lookup(forAnySource, ANY));
         return subscriptions;
     }
 
@@ -140,14 +177,14 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
      * @see #subscribe(Map, Entity, Sensor, SensorEventListener)
      */
     @SuppressWarnings("rawtypes")
-    public synchronized boolean unsubscribe(SubscriptionHandle sh) {
+    public boolean unsubscribe(SubscriptionHandle sh) {
         if (!(sh instanceof Subscription)) throw new IllegalArgumentException("Only subscription handles of type Subscription supported: sh="+sh+"; type="+(sh != null ? sh.getClass().getCanonicalName() : null));
         Subscription s = (Subscription) sh;
         boolean result = allSubscriptions.remove(s.id) != null;
-        boolean b2 = removeFromMapOfCollections(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        boolean b2 = removeFromIndex(s);
         assert result==b2;
         if (s.subscriber!=null) {
-            boolean b3 = removeFromMapOfCollections(subscriptionsBySubscriber, s.subscriber, s);
+            boolean b3 = removeFromSubscriberSet(s);
             assert b3 == b2;
         }
 
@@ -173,120 +210,206 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         if (LOG.isTraceEnabled()) LOG.trace("{} got event {}", this, event);
         totalEventsPublishedCount.incrementAndGet();
         
-        Set<Subscription> subs = (Set<Subscription>) ((Set<?>) getSubscriptionsForEntitySensor(event.getSource(), event.getSensor()));
-        if (groovyTruth(subs)) {
-            if (LOG.isTraceEnabled()) LOG.trace("sending {}, {} to {}", new Object[] {event.getSensor().getName(), event, join(subs, ",")});
-            for (Subscription s : subs) {
-                if (s.eventFilter!=null && !s.eventFilter.apply(event))
-                    continue;
-                final Subscription sAtClosureCreation = s;
-                
-//                Set<Object> tags = MutableSet.of();
-//                if (s.subscriberExecutionManagerTag!=null) tags.add(s.subscriberExecutionManagerTag);
-//                if (event.getSource()!=null) tags.add(BrooklynTaskTags.tagForContextEntity(event.getSource()));
-//                Map<String, Object> tagsMap = mapOf("tags", (Object)tags);
-                // use code above, instead of line below, if we want subscription deliveries associated with the entity;
-                // that will cause them to be cancelled when the entity is unmanaged
-                // (not sure that is useful, and likely NOT worth the expense, but it might be...) -Alex Oct 2014
-                Map<String, Object> tagsMap = mapOf("tag", s.subscriberExecutionManagerTag);
-                
-                em.submit(tagsMap, new Runnable() {
-                    @Override
-                    public String toString() {
-                        return "LSM.publish("+event+")";
-                    }
-                    public void run() {
-                        try {
-                            sAtClosureCreation.listener.onEvent(event);
-                        } catch (Throwable t) {
-                            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
-                                LOG.debug("Error in "+this+", after entity unmanaged: "+t, t);
-                            } else {
-                                LOG.warn("Error in "+this+": "+t, t);
-                            }
-                        }
-                    }});
+        // lock-free lookup: each subscription is in exactly one of these (disjoint) arrays
+        Entity source = event.getSource();
+        ConcurrentMap<Object, Subscription[]> forSource = (source != null) ? subscriptionsByProducerAndSensor.get(source) : null;
+        ConcurrentMap<Object, Subscription[]> forAnySource = subscriptionsByProducerAndSensor.get(ANY);
+        Object sensorKey = (event.getSensor() != null) ? event.getSensor().getName() : null;
+        
+        publish(event, lookup(forSource, sensorKey));
+        publish(event, lookup(forAnySource, sensorKey));
+        publish(event, lookup(forSource, ANY));
+        publish(event, lookup(forAnySource, ANY));
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private <T> void publish(final SensorEvent<T> event, Subscription[] subs) {
+        if (subs.length == 0) return;
+        if (LOG.isTraceEnabled()) LOG.trace("sending {}, {} to {}", new Object[] {event.getSensor().getName(), event, join(Arrays.asList(subs), ",")});
+        for (Subscription s : subs) {
+            if (s.eventFilter!=null && !s.eventFilter.apply(event))
+                continue;
+            if (s.batchDelivery) {
+                publishBatched(s, event);
+                continue;
+            }
+            final Subscription sAtClosureCreation = s;
+            
+//            Set<Object> tags = MutableSet.of();
+//            if (s.subscriberExecutionManagerTag!=null) tags.add(s.subscriberExecutionManagerTag);
+//            if (event.getSource()!=null) tags.add(BrooklynTaskTags.tagForContextEntity(event.getSource()));
+//            Map<String, Object> tagsMap = mapOf("tags", (Object)tags);
+            // use code above, instead of line below, if we want subscription deliveries associated with the entity;
+            // that will cause them to be cancelled when the entity is unmanaged
+            // (not sure that is useful, and likely NOT worth the expense, but it might be...) -Alex Oct 2014
+            Map<String, Object> tagsMap = mapOf("tag", s.subscriberExecutionManagerTag);
+            
+            em.submit(tagsMap, new Runnable() {
+                @Override
+                public String toString() {
+                    return "LSM.publish("+event+")";
+                }
+                public void run() {
+                    deliver(sAtClosureCreation, event, this);
+                }});
+            totalEventsDeliveredCount.incrementAndGet();
+        }
+    }
+    
+    /** 
+     * Queues the event for the subscription, submitting a task to deliver the queue if one is not already pending;
+     * events published while a delivery task is pending or running are picked up by that same task.
+     */
+    private <T> void publishBatched(final Subscription<T> s, SensorEvent<T> event) {
+        s.pendingEvents.add(event);
+        if (s.batchDeliveryScheduled.compareAndSet(false, true)) {
+            em.submit(mapOf("tag", s.subscriberExecutionManagerTag), new Runnable() {
+                @Override
+                public String toString() {
+                    return "LSM.publishBatch("+s+")";
+                }
+                public void run() {
+                    deliverPendingEvents(s, this);
+                }});
+        }
+    }
+    
+    private <T> void deliverPendingEvents(Subscription<T> s, Object context) {
+        do {
+            List<SensorEvent<T>> batch = Lists.newArrayList();
+            SensorEvent<T> next;
+            while ((next = s.pendingEvents.poll()) != null) {
+                batch.add(next);
+            }
+            if (s.coalesceAttributeUpdates) {
+                int sizeBefore = batch.size();
+                batch = coalesceAttributeUpdates(batch);
+                totalEventsCoalescedCount.addAndGet(sizeBefore - batch.size());
+            }
+            for (SensorEvent<T> event : batch) {
+                deliver(s, event, context);
                 totalEventsDeliveredCount.incrementAndGet();
             }
+            s.batchDeliveryScheduled.set(false);
+            // re-check, in case an event was queued after we drained but before we cleared the flag
+        } while (!s.pendingEvents.isEmpty() && s.batchDeliveryScheduled.compareAndSet(false, true));
+    }
+    
+    /** 
+     * Drops all but the latest update to each attribute (per producer) in the batch; each surviving event 
+     * keeps its position relative to the others. Events for non-attribute sensors are always kept. 
+     */
+    private static <T> List<SensorEvent<T>> coalesceAttributeUpdates(List<SensorEvent<T>> batch) {
+        if (batch.size() <= 1) return batch;
+        Set<List<Object>> seen = Sets.newHashSet();
+        List<SensorEvent<T>> result = Lists.newArrayListWithCapacity(batch.size());
+        for (SensorEvent<T> event : Lists.reverse(batch)) {
+            if (!(event.getSensor() instanceof AttributeSensor) || 
+                    seen.add(Arrays.<Object>asList(event.getSource(), event.getSensor().getName()))) {
+                result.add(event);
+            }
         }
+        return Lists.reverse(result);
     }
     
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void deliver(Subscription s, SensorEvent event, Object context) {
+        try {
+            s.listener.onEvent(event);
+        } catch (Throwable t) {
+            if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
+                LOG.debug("Error in "+context+", after entity unmanaged: "+t, t);
+            } else {
+                LOG.warn("Error in "+context+": "+t, t);
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return tostring;
     }
+
+    /** returns the subscriptions for the given sensor key (a sensor name, or {@link #ANY}; null is treated as ANY) */
+    @SuppressWarnings("rawtypes")
+    private static Subscription[] lookup(Map<Object, Subscription[]> bySensor, Object sensorKey) {
+        if (bySensor == null) return NO_SUBSCRIPTIONS;
+        Subscription[] result = bySensor.get(sensorKey != null ? sensorKey : ANY);
+        return (result != null) ? result : NO_SUBSCRIPTIONS;
+    }
     
-    /**
-     * Copied from LanguageUtils.groovy, to remove dependency.
-     * 
-     * Adds the given value to a collection in the map under the key.
-     * 
-     * A collection (as {@link LinkedHashMap}) will be created if necessary,
-     * synchronized on map for map access/change and set for addition there
-     *
-     * @return the updated set (instance, not copy)
-     * 
-     * @deprecated since 0.5; use {@link HashMultimap}, and {@link Multimaps#synchronizedSetMultimap(com.google.common.collect.SetMultimap)}
-     */
-    @Deprecated
-    private static <K,V> Set<V> addToMapOfSets(Map<K,Set<V>> map, K key, V valueInCollection) {
-        Set<V> coll;
-        synchronized (map) {
-            coll = map.get(key);
-            if (coll==null) {
-                coll = new LinkedHashSet<V>();
-                map.put(key, coll);
-            }
-            if (coll.isEmpty()) {
-                synchronized (coll) {
-                    coll.add(valueInCollection);
-                }
-                //if collection was empty then add to the collection while holding the map lock, to prevent removal
-                return coll;
+    private Object lockFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return lockStripes[(h & 0x7fffffff) % NUM_LOCK_STRIPES];
+    }
+    
+    private static Object producerKey(Subscription<?> s) {
+        return (s.producer != null) ? s.producer : ANY;
+    }
+    
+    private static Object sensorKey(Subscription<?> s) {
+        return (s.sensor != null) ? checkNotNull(s.sensor.getName(), "sensor must have non-null name: %s", s.sensor) : ANY;
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private void addToIndex(Subscription<?> s) {
+        Object producerKey = producerKey(s);
+        Object sensorKey = sensorKey(s);
+        synchronized (lockFor(producerKey)) {
+            ConcurrentMap<Object, Subscription[]> bySensor = subscriptionsByProducerAndSensor.get(producerKey);
+            if (bySensor == null) {
+                bySensor = new ConcurrentHashMap<Object, Subscription[]>();
+                subscriptionsByProducerAndSensor.put(producerKey, bySensor);
             }
+            Subscription[] oldSubs = bySensor.get(sensorKey);
+            Subscription[] newSubs = (oldSubs == null) ? new Subscription[1] : Arrays.copyOf(oldSubs, oldSubs.length+1);
+            newSubs[newSubs.length-1] = s;
+            bySensor.put(sensorKey, newSubs);
         }
-        synchronized (coll) {
-            if (!coll.isEmpty()) {
-                coll.add(valueInCollection);
-                return coll;
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private boolean removeFromIndex(Subscription<?> s) {
+        Object producerKey = producerKey(s);
+        Object sensorKey = sensorKey(s);
+        synchronized (lockFor(producerKey)) {
+            ConcurrentMap<Object, Subscription[]> bySensor = subscriptionsByProducerAndSensor.get(producerKey);
+            if (bySensor == null) return false;
+            Subscription[] oldSubs = bySensor.get(sensorKey);
+            if (oldSubs == null) return false;
+            List<Subscription> newSubs = Lists.newArrayList(oldSubs);
+            if (!newSubs.remove(s)) return false;
+            if (newSubs.isEmpty()) {
+                bySensor.remove(sensorKey);
+                if (bySensor.isEmpty()) subscriptionsByProducerAndSensor.remove(producerKey);
+            } else {
+                bySensor.put(sensorKey, newSubs.toArray(new Subscription[newSubs.size()]));
             }
+            return true;
         }
-        //if was empty, recurse, because someone else might be removing the collection
-        return addToMapOfSets(map, key, valueInCollection);
     }
-
-    /**
-     * Copied from LanguageUtils.groovy, to remove dependency.
-     * 
-     * Removes the given value from a collection in the map under the key.
-     *
-     * @return the updated set (instance, not copy)
-     * 
-     * @deprecated since 0.5; use {@link ArrayListMultimap} or {@link HashMultimap}, and {@link Multimaps#synchronizedListMultimap(com.google.common.collect.ListMultimap)} etc
-     */
-    @Deprecated
-    private static <K,V> boolean removeFromMapOfCollections(Map<K,? extends Collection<V>> map, K key, V valueInCollection) {
-        Collection<V> coll;
-        synchronized (map) {
-            coll = map.get(key);
-            if (coll==null) return false;
-        }
-        boolean result;
-        synchronized (coll) {
-            result = coll.remove(valueInCollection);
+    
+    @SuppressWarnings("rawtypes")
+    private void addToSubscriberSet(Subscription<?> s) {
+        synchronized (lockFor(s.subscriber)) {
+            Set<Subscription> oldSubs = subscriptionsBySubscriber.get(s.subscriber);
+            Set<Subscription> newSubs = ImmutableSet.<Subscription>builder().addAll(elvis(oldSubs, ImmutableSet.<Subscription>of())).add(s).build();
+            subscriptionsBySubscriber.put(s.subscriber, newSubs);
         }
-        if (coll.isEmpty()) {
-            synchronized (map) {
-                synchronized (coll) {
-                    if (coll.isEmpty()) {
-                        //only remove from the map if no one is adding to the collection or to the map, and the collection is still in the map
-                        if (map.get(key)==coll) {
-                            map.remove(key);
-                        }
-                    }
-                }
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private boolean removeFromSubscriberSet(Subscription<?> s) {
+        synchronized (lockFor(s.subscriber)) {
+            Set<Subscription> oldSubs = subscriptionsBySubscriber.get(s.subscriber);
+            if (oldSubs == null || !oldSubs.contains(s)) return false;
+            if (oldSubs.size() == 1) {
+                subscriptionsBySubscriber.remove(s.subscriber);
+            } else {
+                subscriptionsBySubscriber.put(s.subscriber, ImmutableSet.copyOf(Sets.difference(oldSubs, ImmutableSet.of(s))));
             }
+            return true;
         }
-        return result;
     }
 }
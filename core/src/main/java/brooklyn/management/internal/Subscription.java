@@ -19,6 +19,8 @@
 package brooklyn.management.internal;
 
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import brooklyn.entity.Entity;
 import brooklyn.event.Sensor;
@@ -41,6 +43,14 @@ class Subscription<T> implements SubscriptionHandle {
     public final SensorEventListener<? super T> listener;
     public Map<String,Object> flags;
     public Predicate<SensorEvent<T>> eventFilter;
+    /** whether events are queued and handed to the listener in batches, one task per batch */
+    public boolean batchDelivery;
+    /** whether batched updates to the same attribute are collapsed, so only the latest value is delivered */
+    public boolean coalesceAttributeUpdates;
+    /** events awaiting batched delivery; only set if {@link #batchDelivery} */
+    Queue<SensorEvent<T>> pendingEvents;
+    /** whether a task has been submitted to deliver the {@link #pendingEvents} */
+    final AtomicBoolean batchDeliveryScheduled = new AtomicBoolean();
 
     public Subscription(Entity producer, Sensor<T> sensor, SensorEventListener<? super T> listener) {
         this.producer = producer;
@@ -21,6 +21,7 @@ package brooklyn.util.flags;
 import groovy.lang.Closure;
 import groovy.time.TimeDuration;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -39,7 +40,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,9 +69,14 @@ import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableTable;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -87,9 +92,50 @@ public class TypeCoercions {
     
     private TypeCoercions() {}
 
-    /** Store the coercion {@link Function functions} in a {@link Table table}. */
-    @GuardedBy("TypeCoercions.class")
-    private static Table<Class, Class, Function> registry = HashBasedTable.create();
+    /** 
+     * Store the coercion {@link Function functions} in a {@link Table table}.
+     * Copy-on-write, so that lookups do not need a lock; updates are made under the class lock.
+     */
+    private static volatile Table<Class, Class, Function> registry = ImmutableTable.of();
+
+    /** 
+     * The reflective and registry lookups for each value class then target type, including where there 
+     * is no match; cached as coercion is done on many config and attribute reads.
+     * <p>
+     * Both levels have weak keys, and plans do not refer strongly to any class, 
+     * so the cache does not keep classes (and their class loaders) from being unloaded.
+     */
+    private static final LoadingCache<Class<?>, Cache<Class<?>, CoercionPlan>> plans = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(1000)
+            .build(new CacheLoader<Class<?>, Cache<Class<?>, CoercionPlan>>() {
+                @Override public Cache<Class<?>, CoercionPlan> load(Class<?> sourceType) {
+                    return CacheBuilder.newBuilder().weakKeys().maximumSize(100).build();
+                }});
+
+    /** 
+     * How to coerce from a given class to a given target type, by the strategies which are looked up rather than computed.
+     * Methods are recorded by name and looked up when used, as holding a {@link Method} would keep its class loader reachable.
+     */
+    private static class CoercionPlan {
+        /** the registry used when planning, so a stale plan is not used after an adapter is registered */
+        final Table<Class, Class, Function> registry;
+        /** name of a no-arg method on the value class */
+        @Nullable final String asMethodName;
+        /** name of a static method on the target type, taking {@link #fromMethodParameterType} */
+        @Nullable final String fromMethodName;
+        /** a super-type of the value class, so reachable for as long as the plan is used */
+        @Nullable final WeakReference<Class<?>> fromMethodParameterType;
+        @Nullable final Function adapter;
+        
+        CoercionPlan(Table<Class, Class, Function> registry, Method asMethod, Method fromMethod, Function adapter) {
+            this.registry = registry;
+            this.asMethodName = (asMethod == null) ? null : asMethod.getName();
+            this.fromMethodName = (fromMethod == null) ? null : fromMethod.getName();
+            this.fromMethodParameterType = (fromMethod == null) ? null : new WeakReference<Class<?>>(fromMethod.getParameterTypes()[0]);
+            this.adapter = adapter;
+        }
+    }
 
     /**
      * Attempts to coerce {@code value} to {@code targetType}.
@@ -178,35 +224,23 @@ public class TypeCoercions {
             return (T) value.toString();
         }
 
+        CoercionPlan plan = getPlan(value.getClass(), targetType);
+        
         //look for value.asType where Type is castable to targetType
-        String targetTypeSimpleName = getVerySimpleName(targetType);
-        if (targetTypeSimpleName!=null && targetTypeSimpleName.length()>0) {
-            for (Method m: value.getClass().getMethods()) {
-                if (m.getName().startsWith("as") && m.getParameterTypes().length==0 &&
-                        targetType.isAssignableFrom(m.getReturnType()) ) {
-                    if (m.getName().equals("as"+getVerySimpleName(m.getReturnType()))) {
-                        try {
-                            return (T) m.invoke(value);
-                        } catch (Exception e) {
-                            throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+m.getName()+" adapting failed, "+e);
-                        }
-                    }
-                }
+        if (plan.asMethodName!=null) {
+            try {
+                return (T) value.getClass().getMethod(plan.asMethodName).invoke(value);
+            } catch (Exception e) {
+                throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+plan.asMethodName+" adapting failed, "+e);
             }
         }
         
         //now look for static TargetType.fromType(Type t) where value instanceof Type  
-        for (Method m: targetType.getMethods()) {
-            if (((m.getModifiers()&Modifier.STATIC)==Modifier.STATIC) && 
-                    m.getName().startsWith("from") && m.getParameterTypes().length==1 &&
-                    m.getParameterTypes()[0].isInstance(value)) {
-                if (m.getName().equals("from"+getVerySimpleName(m.getParameterTypes()[0]))) {
-                    try {
-                        return (T) m.invoke(null, value);
-                    } catch (Exception e) {
-                        throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+m.getName()+" adapting failed, "+e);
-                    }
-                }
+        if (plan.fromMethodName!=null) {
+            try {
+                return (T) targetType.getMethod(plan.fromMethodName, plan.fromMethodParameterType.get()).invoke(null, value);
+            } catch (Exception e) {
+                throw new ClassCoercionException("Cannot coerce type "+value.getClass()+" to "+targetType.getCanonicalName()+" ("+value+"): "+plan.fromMethodName+" adapting failed, "+e);
             }
         }
         
@@ -234,24 +268,19 @@ public class TypeCoercions {
         }
 
         //now look in registry
-        synchronized (TypeCoercions.class) {
-            Map<Class, Function> adapters = registry.row(targetType);
-            for (Map.Entry<Class, Function> entry : adapters.entrySet()) {
-                if (entry.getKey().isInstance(value)) {
-                    T result = (T) entry.getValue().apply(value);
-                    
-                    // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
-                    // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
-                    // First check that value has changed, to avoid stack overflow!
-                    if (!Objects.equal(value, result) && targetTypeToken.getType() instanceof ParameterizedType) {
-                        // Could duplicate check for `result instanceof Collection` etc; but recursive call
-                        // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
-                        // and just return the result.
-                        return coerce(result, targetTypeToken);
-                    }
-                    return result;
-                }
-            }
+        if (plan.adapter!=null) {
+            T result = (T) plan.adapter.apply(value);
+            
+            // Check if need to unwrap again (e.g. if want List<Integer> and are given a String "1,2,3"
+            // then we'll have so far converted to List.of("1", "2", "3"). Call recursively.
+            // First check that value has changed, to avoid stack overflow!
+            if (!Objects.equal(value, result) && targetTypeToken.getType() instanceof ParameterizedType) {
+                // Could duplicate check for `result instanceof Collection` etc; but recursive call
+                // will be fine as if that doesn't match we'll safely reach `targetType.isInstance(value)`
+                // and just return the result.
+                return coerce(result, targetTypeToken);
+            }
+            return result;
         }
 
         //not found
@@ -475,7 +504,60 @@ public class TypeCoercions {
 
     /** Registers an adapter for use with type coercion. Returns any old adapter. */
     public synchronized static <A,B> Function registerAdapter(Class<A> sourceType, Class<B> targetType, Function<? super A,B> fn) {
-        return registry.put(targetType, sourceType, fn);
+        Table<Class, Class, Function> newRegistry = HashBasedTable.create(registry);
+        Function result = newRegistry.put(targetType, sourceType, fn);
+        registry = ImmutableTable.copyOf(newRegistry);
+        plans.invalidateAll();
+        return result;
+    }
+
+    private static CoercionPlan getPlan(Class<?> sourceType, Class<?> targetType) {
+        Cache<Class<?>, CoercionPlan> plansForSource = plans.getUnchecked(sourceType);
+        Table<Class, Class, Function> currentRegistry = registry;
+        CoercionPlan result = plansForSource.getIfPresent(targetType);
+        if (result==null || result.registry!=currentRegistry) {
+            result = newPlan(sourceType, targetType, currentRegistry);
+            plansForSource.put(targetType, result);
+        }
+        return result;
+    }
+
+    private static CoercionPlan newPlan(Class<?> sourceType, Class<?> targetType, Table<Class, Class, Function> currentRegistry) {
+        Method asMethod = null;
+        String targetTypeSimpleName = getVerySimpleName(targetType);
+        if (targetTypeSimpleName!=null && targetTypeSimpleName.length()>0) {
+            for (Method m: sourceType.getMethods()) {
+                if (m.getName().startsWith("as") && m.getParameterTypes().length==0 &&
+                        targetType.isAssignableFrom(m.getReturnType()) ) {
+                    if (m.getName().equals("as"+getVerySimpleName(m.getReturnType()))) {
+                        asMethod = m;
+                        break;
+                    }
+                }
+            }
+        }
+        
+        Method fromMethod = null;
+        for (Method m: targetType.getMethods()) {
+            if (((m.getModifiers()&Modifier.STATIC)==Modifier.STATIC) && 
+                    m.getName().startsWith("from") && m.getParameterTypes().length==1 &&
+                    m.getParameterTypes()[0].isAssignableFrom(sourceType)) {
+                if (m.getName().equals("from"+getVerySimpleName(m.getParameterTypes()[0]))) {
+                    fromMethod = m;
+                    break;
+                }
+            }
+        }
+        
+        Function adapter = null;
+        for (Map.Entry<Class, Function> entry : currentRegistry.row(targetType).entrySet()) {
+            if (entry.getKey().isAssignableFrom(sourceType)) {
+                adapter = entry.getValue();
+                break;
+            }
+        }
+        
+        return new CoercionPlan(currentRegistry, asMethod, fromMethod, adapter);
     }
 
     static { BrooklynInitialization.initTypeCoercionStandardAdapters(); }
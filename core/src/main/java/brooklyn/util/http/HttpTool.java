@@ -61,6 +61,7 @@ import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -351,10 +352,33 @@ public class HttpTool {
         return execAndConsume(httpClient, req);
     }
     
+    /** as {@link #httpGet(HttpClient, URI, Map)}, executing in the given context (e.g. to supply a cookie store) */
+    public static HttpToolResponse httpGet(HttpClient httpClient, URI uri, Map<String,String> headers, HttpContext context) {
+        HttpGet req = new HttpGetBuilder(uri).headers(headers).build();
+        return execAndConsume(httpClient, req, context);
+    }
+
+    /** as {@link #httpPost(HttpClient, URI, Map, byte[])}, executing in the given context (e.g. to supply a cookie store) */
+    public static HttpToolResponse httpPost(HttpClient httpClient, URI uri, Map<String,String> headers, byte[] body, HttpContext context) {
+        HttpPost req = new HttpPostBuilder(uri).headers(headers).body(body).build();
+        return execAndConsume(httpClient, req, context);
+    }
+
+    /** as {@link #httpHead(HttpClient, URI, Map)}, executing in the given context (e.g. to supply a cookie store) */
+    public static HttpToolResponse httpHead(HttpClient httpClient, URI uri, Map<String,String> headers, HttpContext context) {
+        HttpHead req = new HttpHeadBuilder(uri).headers(headers).build();
+        return execAndConsume(httpClient, req, context);
+    }
+    
     public static HttpToolResponse execAndConsume(HttpClient httpClient, HttpUriRequest req) {
+        return execAndConsume(httpClient, req, null);
+    }
+    
+    /** @param context the context to execute in, or null for the client's default context */
+    public static HttpToolResponse execAndConsume(HttpClient httpClient, HttpUriRequest req, HttpContext context) {
         long startTime = System.currentTimeMillis();
         try {
-            HttpResponse httpResponse = httpClient.execute(req);
+            HttpResponse httpResponse = (context == null) ? httpClient.execute(req) : httpClient.execute(req, context);
             
             try {
                 return new HttpToolResponse(httpResponse, startTime);
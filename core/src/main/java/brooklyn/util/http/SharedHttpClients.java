@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.http;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.HttpClient;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.ConfigKey;
+import brooklyn.config.StringConfigMap;
+import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Management-context-wide cache of pooled {@link HttpClient}s, for things such as feeds which
+ * make frequent requests to many hosts. 
+ * <p>
+ * One client is kept per distinct combination of credentials, trust setting, redirect setting 
+ * and timeouts. Each client has its own pooling connection manager, so that connections are
+ * kept alive and re-used between requests, bounded by {@link #MAX_CONNECTIONS} and 
+ * {@link #MAX_CONNECTIONS_PER_ROUTE}. Idle connections are closed lazily, when clients are
+ * requested, after {@link #IDLE_CONNECTION_TIMEOUT}.
+ * <p>
+ * Shared clients do not keep cookies themselves, as otherwise state from one caller could leak to 
+ * another caller talking to the same host. Callers which need cookies (e.g. a session from a login) 
+ * should supply their own {@link CookieStore} in the {@link org.apache.http.protocol.HttpContext} of 
+ * each request, as {@link brooklyn.event.feed.http.HttpFeed} does for each poll.
+ */
+public class SharedHttpClients {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedHttpClients.class);
+
+    public static final ConfigKey<Boolean> ENABLED = ConfigKeys.newBooleanConfigKey(
+            "brooklyn.http.sharedClients.enabled", 
+            "Whether feeds should use a pooled HTTP client shared across the management context, rather than one client each", 
+            true);
+
+    public static final ConfigKey<Integer> MAX_CONNECTIONS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.sharedClients.maxConnections", 
+            "Maximum number of connections in the pool of each shared HTTP client", 
+            1000);
+
+    public static final ConfigKey<Integer> MAX_CONNECTIONS_PER_ROUTE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.http.sharedClients.maxConnectionsPerRoute", 
+            "Maximum number of connections to any one host:port, in the pool of each shared HTTP client", 
+            4);
+
+    public static final ConfigKey<Duration> IDLE_CONNECTION_TIMEOUT = ConfigKeys.newConfigKey(
+            Duration.class,
+            "brooklyn.http.sharedClients.idleConnectionTimeout", 
+            "Time after which idle pooled connections are closed", 
+            Duration.THIRTY_SECONDS);
+
+    /** Identifies a distinct client configuration */
+    public static class ClientKey {
+        private final Optional<Credentials> credentials;
+        private final boolean trustAll;
+        private final boolean laxRedirect;
+        private final Duration connectionTimeout;
+        private final Duration socketTimeout;
+        
+        public ClientKey(Optional<Credentials> credentials, boolean trustAll, boolean laxRedirect, Duration connectionTimeout, Duration socketTimeout) {
+            this.credentials = checkNotNull(credentials, "credentials");
+            this.trustAll = trustAll;
+            this.laxRedirect = laxRedirect;
+            this.connectionTimeout = connectionTimeout;
+            this.socketTimeout = socketTimeout;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(credentials, trustAll, laxRedirect, connectionTimeout, socketTimeout);
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ClientKey)) return false;
+            ClientKey o = (ClientKey) obj;
+            return Objects.equal(credentials, o.credentials) && trustAll == o.trustAll && laxRedirect == o.laxRedirect
+                    && Objects.equal(connectionTimeout, o.connectionTimeout) && Objects.equal(socketTimeout, o.socketTimeout);
+        }
+        
+        @Override
+        public String toString() {
+            // don't include the credentials themselves
+            return Objects.toStringHelper(this).omitNullValues()
+                    .add("credentials", credentials.isPresent() ? credentials.get().getUserPrincipal() : null)
+                    .add("trustAll", trustAll)
+                    .add("laxRedirect", laxRedirect)
+                    .add("connectionTimeout", connectionTimeout)
+                    .add("socketTimeout", socketTimeout)
+                    .toString();
+        }
+    }
+    
+    private static class SharedClient {
+        final DefaultHttpClient client;
+        final PoolingClientConnectionManager connectionManager;
+        final Set<AuthScope> credentialScopes = Sets.newConcurrentHashSet();
+        
+        SharedClient(DefaultHttpClient client, PoolingClientConnectionManager connectionManager) {
+            this.client = client;
+            this.connectionManager = connectionManager;
+        }
+    }
+    
+    /** used as the shared clients' own cookie store, so that cookies are only kept in stores supplied by callers */
+    private static final CookieStore NO_COOKIES = new CookieStore() {
+        @Override public void addCookie(Cookie cookie) {}
+        @Override public List<Cookie> getCookies() { return Collections.emptyList(); }
+        @Override public boolean clearExpired(Date date) { return false; }
+        @Override public void clear() {}
+    };
+    
+    private final ConcurrentMap<ClientKey, SharedClient> clients = Maps.newConcurrentMap();
+    private final boolean enabled;
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final Duration idleConnectionTimeout;
+    private final AtomicLong lastIdleCheckTime = new AtomicLong(System.currentTimeMillis());
+    private volatile boolean shutdown;
+
+    public SharedHttpClients(StringConfigMap config) {
+        this.enabled = config.getConfig(ENABLED);
+        this.maxConnections = config.getConfig(MAX_CONNECTIONS);
+        this.maxConnectionsPerRoute = config.getConfig(MAX_CONNECTIONS_PER_ROUTE);
+        this.idleConnectionTimeout = config.getConfig(IDLE_CONNECTION_TIMEOUT);
+    }
+
+    public boolean isEnabled() {
+        return enabled && !shutdown;
+    }
+    
+    /**
+     * Returns the shared client for the given configuration, creating it if necessary, and ensures
+     * the credentials (if any) will be used for the host and port of the given uri.
+     */
+    public HttpClient getClient(ClientKey key, URI uri) {
+        if (shutdown) throw new IllegalStateException("Shared http clients have been shut down");
+        closeIdleConnectionsIfDue();
+        
+        SharedClient result = clients.get(key);
+        if (result == null) {
+            SharedClient newClient = newClient(key);
+            result = clients.putIfAbsent(key, newClient);
+            if (result == null) {
+                if (LOG.isDebugEnabled()) LOG.debug("Created shared http client for {}", key);
+                result = newClient;
+            } else {
+                newClient.connectionManager.shutdown();
+            }
+        }
+        
+        if (uri != null && key.credentials.isPresent()) {
+            AuthScope scope = new AuthScope(uri.getHost(), uri.getPort());
+            if (result.credentialScopes.add(scope)) {
+                result.client.getCredentialsProvider().setCredentials(scope, key.credentials.get());
+            }
+        }
+        return result.client;
+    }
+    
+    public int getNumClients() {
+        return clients.size();
+    }
+    
+    /** total connections (leased and available) across all shared clients' pools */
+    public int getNumPooledConnections() {
+        int result = 0;
+        for (SharedClient client : clients.values()) {
+            result += client.connectionManager.getTotalStats().getLeased() + client.connectionManager.getTotalStats().getAvailable();
+        }
+        return result;
+    }
+    
+    public void shutdown() {
+        shutdown = true;
+        for (SharedClient client : clients.values()) {
+            try {
+                client.connectionManager.shutdown();
+            } catch (Exception e) {
+                LOG.debug("Error shutting down shared http client (continuing)", e);
+            }
+        }
+        clients.clear();
+    }
+    
+    protected SharedClient newClient(ClientKey key) {
+        PoolingClientConnectionManager connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault());
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        
+        HttpTool.HttpClientBuilder builder = HttpTool.httpClientBuilder()
+                .clientConnectionManager(connectionManager)
+                .laxRedirect(key.laxRedirect);
+        if (key.trustAll) {
+            // registers the trust-all https scheme; the port is only the default, for uris which do not specify one
+            builder.https(true).port(443).trustAll();
+        }
+        if (key.connectionTimeout != null) builder.connectionTimeout(key.connectionTimeout);
+        if (key.socketTimeout != null) builder.socketTimeout(key.socketTimeout);
+        
+        DefaultHttpClient client = (DefaultHttpClient) builder.build();
+        client.setCookieStore(NO_COOKIES);
+        return new SharedClient(client, connectionManager);
+    }
+    
+    protected void closeIdleConnectionsIfDue() {
+        long now = System.currentTimeMillis();
+        long last = lastIdleCheckTime.get();
+        if (now - last >= idleConnectionTimeout.toMilliseconds() && lastIdleCheckTime.compareAndSet(last, now)) {
+            for (SharedClient client : clients.values()) {
+                client.connectionManager.closeExpiredConnections();
+                client.connectionManager.closeIdleConnections(idleConnectionTimeout.toMilliseconds(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
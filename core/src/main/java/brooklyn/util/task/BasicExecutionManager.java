@@ -20,8 +20,10 @@ package brooklyn.util.task;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -35,6 +37,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -48,6 +51,9 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import brooklyn.config.ConfigKey;
+import brooklyn.config.StringConfigMap;
+import brooklyn.entity.basic.ConfigKeys;
 import brooklyn.internal.BrooklynFeatureEnablement;
 import brooklyn.management.ExecutionManager;
 import brooklyn.management.HasTaskChildren;
@@ -56,6 +62,7 @@ import brooklyn.management.TaskAdaptable;
 import brooklyn.util.collections.MutableList;
 import brooklyn.util.exceptions.Exceptions;
 import brooklyn.util.text.Identifiers;
+import brooklyn.util.time.Duration;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
@@ -74,6 +81,38 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 public class BasicExecutionManager implements ExecutionManager {
     private static final Logger log = LoggerFactory.getLogger(BasicExecutionManager.class);
 
+    /** How the threads used to run tasks are pooled. */
+    @Beta
+    public enum ThreadPoolMode {
+        /** a new thread is created whenever no idle thread is available; threads are not bounded */
+        UNBOUNDED,
+        /** 
+         * a pool of {@link BasicExecutionManager#THREAD_POOL_SIZE} threads with a work queue, 
+         * allowed extra threads while pool threads are blocked on other tasks
+         * (see {@link CompensatingThreadPoolExecutor}); tasks which wait on other tasks 
+         * other than through the blocking points listed there can deadlock this pool
+         */
+        BOUNDED,
+        /** a new virtual thread per task, on JVMs which support them; otherwise as {@link #UNBOUNDED} */
+        VIRTUAL
+    }
+    
+    @Beta
+    public static final ConfigKey<ThreadPoolMode> THREAD_POOL_MODE = ConfigKeys.newConfigKey(ThreadPoolMode.class,
+            "brooklyn.executionManager.threadPool.mode", "how task threads are pooled: UNBOUNDED, BOUNDED or VIRTUAL", 
+            ThreadPoolMode.UNBOUNDED);
+    
+    @Beta
+    public static final ConfigKey<Integer> THREAD_POOL_SIZE = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.threadPool.size", "the number of threads in a BOUNDED thread pool", 
+            200);
+    
+    @Beta
+    public static final ConfigKey<Integer> THREAD_POOL_MAX_COMPENSATING_THREADS = ConfigKeys.newIntegerConfigKey(
+            "brooklyn.executionManager.threadPool.maxCompensatingThreads", 
+            "the maximum number of extra threads a BOUNDED thread pool may use while its threads are blocked on other tasks", 
+            2000);
+
     private static final boolean RENAME_THREADS = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_RENAME_THREADS);
     
     private static class PerThreadCurrentTaskHolder {
@@ -89,18 +128,21 @@ public class BasicExecutionManager implements ExecutionManager {
     private final ThreadFactory daemonThreadFactory;
     
     private final ExecutorService runner;
+    
+    private final ThreadPoolMode threadPoolMode;
         
     private final ScheduledExecutorService delayedRunner;
     
     // TODO Could have a set of all knownTasks; but instead we're having a separate set per tag,
     // so the same task could be listed multiple times if it has multiple tags...
 
-    //access to this field AND to members in this field is synchronized, 
-    //to allow us to preserve order while guaranteeing thread-safe
-    //(but more testing is needed before we are completely sure it is thread-safe!)
-    //synch blocks are as finely grained as possible for efficiency;
-    //NB CopyOnWriteArraySet is a perf bottleneck, and the simple map makes it easier to remove when a tag is empty
-    private Map<Object,Set<Task<?>>> tasksByTag = new HashMap<Object,Set<Task<?>>>();
+    // index of tasks by tag (including the entity tags, so this is also the entity->tasks index),
+    // with each task's submission sequence number (the same under every tag) so that queries can return tasks 
+    // in submission order, including when merging the tasks of several tags;
+    // the maps are concurrent so submission, deletion and queries do not contend on a lock.
+    // an empty map is removed from the index; see addTaskToTag and removeTaskFromTag for how that is made safe
+    private final ConcurrentMap<Object,ConcurrentMap<Task<?>,Long>> tasksByTag = new ConcurrentHashMap<Object,ConcurrentMap<Task<?>,Long>>();
+    private final AtomicLong taskIndexSequence = new AtomicLong();
     
     private ConcurrentMap<String,Task<?>> tasksById = new ConcurrentHashMap<String,Task<?>>();
 
@@ -115,6 +157,10 @@ public class BasicExecutionManager implements ExecutionManager {
     /** tasks started but not yet finished */
     private final AtomicInteger activeTaskCount = new AtomicInteger();
     
+    /** tasks started, and the total time between their submission and their start */
+    private final AtomicLong startedTaskCount = new AtomicLong();
+    private final AtomicLong totalTaskWaitMillis = new AtomicLong();
+    
     private final List<ExecutionListener> listeners = new CopyOnWriteArrayList<ExecutionListener>();
     
     private final static ThreadLocal<String> threadOriginalName = new ThreadLocal<String>() {
@@ -126,19 +172,58 @@ public class BasicExecutionManager implements ExecutionManager {
     };
     
     public BasicExecutionManager(String contextid) {
+        this(contextid, null);
+    }
+    
+    /** 
+     * @param config optional properties (e.g. brooklyn.properties) from which to read 
+     *        {@link #THREAD_POOL_MODE} etc; if null, an {@link ThreadPoolMode#UNBOUNDED} pool is used
+     */
+    public BasicExecutionManager(String contextid, StringConfigMap config) {
         threadFactory = newThreadFactory(contextid);
         daemonThreadFactory = new ThreadFactoryBuilder()
                 .setThreadFactory(threadFactory)
                 .setDaemon(true)
                 .build();
-                
-        // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
-        runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
-                daemonThreadFactory);
+        
+        ThreadPoolMode mode = (config != null) ? config.getConfig(THREAD_POOL_MODE) : ThreadPoolMode.UNBOUNDED;
+        ExecutorService runnerForMode = null;
+        if (mode == ThreadPoolMode.VIRTUAL) {
+            runnerForMode = newVirtualThreadPerTaskExecutor("brooklyn-execmanager-"+contextid+"-virtual-");
+            if (runnerForMode == null) {
+                log.warn("Virtual threads not supported in this JVM; using "+ThreadPoolMode.UNBOUNDED+" thread pool for "+this);
+                mode = ThreadPoolMode.UNBOUNDED;
+            }
+        }
+        if (mode == ThreadPoolMode.BOUNDED) {
+            runnerForMode = new CompensatingThreadPoolExecutor(config.getConfig(THREAD_POOL_SIZE), 
+                    config.getConfig(THREAD_POOL_MAX_COMPENSATING_THREADS), daemonThreadFactory);
+        } else if (mode == ThreadPoolMode.UNBOUNDED) {
+            // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
+            runnerForMode = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
+                    daemonThreadFactory);
+        }
+        threadPoolMode = mode;
+        runner = runnerForMode;
             
         delayedRunner = new ScheduledThreadPoolExecutor(1, daemonThreadFactory);
     }
     
+    /** uses reflection to create a virtual-thread-per-task executor (Java 21+), returning null if not supported */
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            if (log.isDebugEnabled()) log.debug("Virtual threads not available: "+e);
+            return null;
+        }
+    }
+    
     private final static class UncaughtExceptionHandlerImplementation implements Thread.UncaughtExceptionHandler {
         @Override
         public void uncaughtException(Thread t, Throwable e) {
@@ -178,12 +263,9 @@ public class BasicExecutionManager implements ExecutionManager {
      * a reference to it as a tag.
      */
     public void deleteTag(Object tag) {
-        Set<Task<?>> tasks;
-        synchronized (tasksByTag) {
-            tasks = tasksByTag.remove(tag);
-        }
+        Map<Task<?>,Long> tasks = tasksByTag.remove(tag);
         if (tasks != null) {
-            for (Task<?> task : tasks) {
+            for (Task<?> task : tasks.keySet()) {
                 deleteTask(task);
             }
         }
@@ -203,18 +285,10 @@ public class BasicExecutionManager implements ExecutionManager {
 
     protected boolean deleteTaskNonRecursive(Task<?> task) {
         Set<?> tags = checkNotNull(task, "task").getTags();
+        Task<?> removed = tasksById.remove(task.getId());
         for (Object tag : tags) {
-            synchronized (tasksByTag) {
-                Set<Task<?>> tasks = tasksWithTagLiveOrNull(tag);
-                if (tasks != null) {
-                    tasks.remove(task);
-                    if (tasks.isEmpty()) {
-                        tasksByTag.remove(tag);
-                    }
-                }
-            }
+            removeTaskFromTag(tag, task);
         }
-        Task<?> removed = tasksById.remove(task.getId());
         incompleteTaskIds.remove(task.getId());
         if (removed!=null && removed.isSubmitted() && !removed.isDone()) {
             log.warn("Deleting submitted task before completion: "+removed+"; this task will continue to run in the background outwith "+this+", but perhaps it should have been cancelled?");
@@ -245,25 +319,61 @@ public class BasicExecutionManager implements ExecutionManager {
     public long getNumInMemoryTasks() {
         return tasksById.size();
     }
+    
+    public ThreadPoolMode getThreadPoolMode() {
+        return threadPoolMode;
+    }
+    
+    /** number of threads in the pool used to run tasks; for {@link ThreadPoolMode#VIRTUAL} this is the number of active tasks */
+    public int getNumPoolThreads() {
+        if (runner instanceof ThreadPoolExecutor) return ((ThreadPoolExecutor)runner).getPoolSize();
+        return activeTaskCount.get();
+    }
+    
+    /** number of jobs queued waiting for a pool thread (always 0 unless using a {@link ThreadPoolMode#BOUNDED} pool) */
+    public int getPoolQueueSize() {
+        if (runner instanceof ThreadPoolExecutor) return ((ThreadPoolExecutor)runner).getQueue().size();
+        return 0;
+    }
+    
+    /** mean time between a task being submitted and it starting (including any time queued in a {@link TaskScheduler}) */
+    public Duration getMeanTaskWaitTime() {
+        long started = startedTaskCount.get();
+        return Duration.millis(started == 0 ? 0 : totalTaskWaitMillis.get() / started);
+    }
 
-    private Set<Task<?>> tasksWithTagCreating(Object tag) {
+    private void addTaskToTag(Object tag, Task<?> task, Long sequence) {
         Preconditions.checkNotNull(tag);
-        synchronized (tasksByTag) {
-            Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
-            if (result==null) {
-                result = Collections.synchronizedSet(new LinkedHashSet<Task<?>>());
-                tasksByTag.put(tag, result);
+        while (true) {
+            ConcurrentMap<Task<?>,Long> tasks = tasksByTag.get(tag);
+            if (tasks == null) {
+                ConcurrentMap<Task<?>,Long> newTasks = new ConcurrentHashMap<Task<?>,Long>();
+                tasks = tasksByTag.putIfAbsent(tag, newTasks);
+                if (tasks == null) tasks = newTasks;
+            }
+            tasks.putIfAbsent(task, sequence);
+            // if the map was concurrently emptied and removed from the index, add to its replacement instead
+            if (tasksByTag.get(tag) == tasks) return;
+        }
+    }
+    
+    private void removeTaskFromTag(Object tag, Task<?> task) {
+        ConcurrentMap<Task<?>,Long> tasks = tasksByTag.get(tag);
+        if (tasks == null) return;
+        tasks.remove(task);
+        if (tasks.isEmpty() && tasksByTag.remove(tag, tasks)) {
+            // a task may have been added between the isEmpty check and the removal; if so, re-index it
+            for (Map.Entry<Task<?>,Long> survivor : tasks.entrySet()) {
+                if (tasksById.containsKey(survivor.getKey().getId())) addTaskToTag(tag, survivor.getKey(), survivor.getValue());
             }
-            return result;
         }
     }
 
-    /** exposes live view, for internal use only */
+    /** exposes live view (safe to iterate concurrently with changes), for internal use only */
     @Beta
     public Set<Task<?>> tasksWithTagLiveOrNull(Object tag) {
-        synchronized (tasksByTag) {
-            return tasksByTag.get(tag);
-        }
+        Map<Task<?>,Long> tasks = tasksByTag.get(tag);
+        return (tasks != null) ? tasks.keySet() : null;
     }
 
     @Override
@@ -282,57 +392,69 @@ public class BasicExecutionManager implements ExecutionManager {
     
     @Override
     public Set<Task<?>> getTasksWithTag(Object tag) {
-        Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
-        if (result==null) return Collections.emptySet();
-        synchronized (result) {
-            return (Set<Task<?>>)Collections.unmodifiableSet(new LinkedHashSet<Task<?>>(result));
-        }
+        Map<Task<?>,Long> tasks = tasksByTag.get(tag);
+        if (tasks==null) return Collections.emptySet();
+        return Collections.unmodifiableSet(inSubmissionOrder(tasks));
     }
     
     @Override
     public Set<Task<?>> getTasksWithAnyTag(Iterable<?> tags) {
-        Set<Task<?>> result = new LinkedHashSet<Task<?>>();
+        Map<Task<?>,Long> result = new HashMap<Task<?>,Long>();
         Iterator<?> ti = tags.iterator();
         while (ti.hasNext()) {
-            Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(ti.next());
+            Map<Task<?>,Long> tasksForTag = tasksByTag.get(ti.next());
             if (tasksForTag!=null) {
-                synchronized (tasksForTag) {
-                    result.addAll(tasksForTag);
-                }
+                result.putAll(tasksForTag);
             }
         }
-        return Collections.unmodifiableSet(result);
+        return Collections.unmodifiableSet(inSubmissionOrder(result));
     }
 
     /** only works with at least one tag; returns empty if no tags */
     @Override
     public Set<Task<?>> getTasksWithAllTags(Iterable<?> tags) {
-        //NB: for this method retrieval for multiple tags could be made (much) more efficient (if/when it is used with multiple tags!)
-        //by first looking for the least-used tag, getting those tasks, and then for each of those tasks
-        //checking whether it contains the other tags (looking for second-least used, then third-least used, etc)
-        Set<Task<?>> result = new LinkedHashSet<Task<?>>();
-        boolean first = true;
-        Iterator<?> ti = tags.iterator();
-        while (ti.hasNext()) {
-            Object tag = ti.next();
-            if (first) { 
-                first = false;
-                result.addAll(getTasksWithTag(tag));
-            } else {
-                result.retainAll(getTasksWithTag(tag));
+        // intersect the index entries, iterating over the least-used tag and looking up its tasks under the others
+        List<Map<Task<?>,Long>> tasksForTags = new ArrayList<Map<Task<?>,Long>>();
+        Map<Task<?>,Long> smallest = null;
+        for (Object tag : tags) {
+            Map<Task<?>,Long> tasksForTag = tasksByTag.get(tag);
+            if (tasksForTag==null) return Collections.emptySet();
+            tasksForTags.add(tasksForTag);
+            if (smallest==null || tasksForTag.size() < smallest.size()) smallest = tasksForTag;
+        }
+        if (smallest==null) return Collections.emptySet();
+        Map<Task<?>,Long> result = new HashMap<Task<?>,Long>();
+        entries: for (Map.Entry<Task<?>,Long> entry : smallest.entrySet()) {
+            for (Map<Task<?>,Long> tasksForTag : tasksForTags) {
+                if (tasksForTag != smallest && !tasksForTag.containsKey(entry.getKey())) continue entries;
             }
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return Collections.unmodifiableSet(inSubmissionOrder(result));
+    }
+    
+    private static Set<Task<?>> inSubmissionOrder(Map<Task<?>,Long> tasksWithSequence) {
+        List<Map.Entry<Task<?>,Long>> entries = new ArrayList<Map.Entry<Task<?>,Long>>(tasksWithSequence.entrySet());
+        Collections.sort(entries, SUBMISSION_ORDER);
+        Set<Task<?>> result = new LinkedHashSet<Task<?>>();
+        for (Map.Entry<Task<?>,Long> entry : entries) {
+            result.add(entry.getKey());
         }
-        return Collections.unmodifiableSet(result);
+        return result;
     }
+    
+    private static final Comparator<Map.Entry<Task<?>,Long>> SUBMISSION_ORDER = new Comparator<Map.Entry<Task<?>,Long>>() {
+        @Override public int compare(Map.Entry<Task<?>,Long> e1, Map.Entry<Task<?>,Long> e2) {
+            return e1.getValue().compareTo(e2.getValue());
+        }
+    };
 
     /** live view of all tasks, for internal use only */
     @Beta
     public Collection<Task<?>> allTasksLive() { return tasksById.values(); }
     
     public Set<Object> getTaskTags() { 
-        synchronized (tasksByTag) {
-            return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
-        }
+        return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
     }
 
     public Task<?> submit(Runnable r) { return submit(new LinkedHashMap<Object,Object>(1), r); }
@@ -607,8 +729,9 @@ public class BasicExecutionManager implements ExecutionManager {
         if (flags.get("tag")!=null) ((TaskInternal<?>)task).getMutableTags().add(flags.remove("tag"));
         if (flags.get("tags")!=null) ((TaskInternal<?>)task).getMutableTags().addAll((Collection<?>)flags.remove("tags"));
 
+        Long sequence = taskIndexSequence.incrementAndGet();
         for (Object tag: ((TaskInternal<?>)task).getTags()) {
-            tasksWithTagCreating(tag).add(task);
+            addTaskToTag(tag, task, sequence);
         }
     }
 
@@ -617,6 +740,10 @@ public class BasicExecutionManager implements ExecutionManager {
     }
     protected void beforeStartAtomicTask(Map<?,?> flags, Task<?> task) {
         internalBeforeStart(flags, task);
+        if (task.getSubmitTimeUtc() > 0 && task.getStartTimeUtc() > 0) {
+            startedTaskCount.incrementAndGet();
+            totalTaskWaitMillis.addAndGet(Math.max(0, task.getStartTimeUtc() - task.getSubmitTimeUtc()));
+        }
     }
     
     /** invoked in a task's thread when a task is starting to run (may be some time after submitted), 
@@ -636,6 +763,16 @@ public class BasicExecutionManager implements ExecutionManager {
             }
             PerThreadCurrentTaskHolder.perThreadCurrentTask.set(task);
             ((TaskInternal<?>)task).setStartTimeUtc(System.currentTimeMillis());
+
+            for (ExecutionListener listener : listeners) {
+                if (listener instanceof ExecutionStartListener) {
+                    try {
+                        ((ExecutionStartListener)listener).onTaskStarted(task);
+                    } catch (Exception e) {
+                        log.warn("Error running execution listener "+listener+" of task "+task+" start", e);
+                    }
+                }
+            }
         }
         ExecutionUtils.invoke(flags.get("newTaskStartCallback"), task);
     }
@@ -336,12 +336,16 @@ public class BasicTask<T> implements TaskInternal<T> {
 
     @Override
     public T get() throws InterruptedException, ExecutionException {
+        boolean compensated = false;
         try {
-            if (!isDone())
+            if (!isDone()) {
                 Tasks.setBlockingTask(this);
+                compensated = CompensatingThreadPoolExecutor.beginBlocking();
+            }
             blockUntilStarted();
             return internalFuture.get();
         } finally {
+            CompensatingThreadPoolExecutor.endBlocking(compensated);
             Tasks.resetBlockingTask();
         }
     }
@@ -392,6 +396,7 @@ public class BasicTask<T> implements TaskInternal<T> {
     @Override
     public boolean blockUntilEnded(Duration timeout) {
         Long endTime = timeout==null ? null : System.currentTimeMillis() + timeout.toMillisecondsRoundingUp();
+        boolean compensated = !isDone() && CompensatingThreadPoolExecutor.beginBlocking();
         try { 
             boolean started = blockUntilStarted(timeout);
             if (!started) return false;
@@ -408,6 +413,8 @@ public class BasicTask<T> implements TaskInternal<T> {
             if (!(t instanceof TimeoutException) && log.isDebugEnabled())
                 log.debug("call from "+Thread.currentThread()+", blocking until '"+this+"' finishes, ended with error: "+t);
             return isDone(); 
+        } finally {
+            CompensatingThreadPoolExecutor.endBlocking(compensated);
         }
     }
 
@@ -418,6 +425,15 @@ public class BasicTask<T> implements TaskInternal<T> {
     
     @Override
     public T get(Duration duration) throws InterruptedException, ExecutionException, TimeoutException {
+        boolean compensated = !isDone() && CompensatingThreadPoolExecutor.beginBlocking();
+        try {
+            return getWithoutCompensation(duration);
+        } finally {
+            CompensatingThreadPoolExecutor.endBlocking(compensated);
+        }
+    }
+    
+    private T getWithoutCompensation(Duration duration) throws InterruptedException, ExecutionException, TimeoutException {
         long start = System.currentTimeMillis();
         Long end  = duration==null ? null : start + duration.toMillisecondsRoundingUp();
         while (end==null || end > System.currentTimeMillis()) {
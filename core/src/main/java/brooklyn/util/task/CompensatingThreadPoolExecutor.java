@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A bounded thread pool, with a work queue, which compensates for tasks that block waiting on other tasks.
+ * <p>
+ * Brooklyn tasks frequently block their thread waiting for child tasks to complete. With a fixed-size pool
+ * that would deadlock once all threads are waiting for tasks still in the queue; so when a thread from this 
+ * pool is about to block (see {@link #beginBlocking()}) the pool is temporarily allowed one extra thread,
+ * up to a maximum number of such compensating threads.
+ * <p>
+ * Compensation only happens at the blocking points which call {@link #beginBlocking()}: {@link BasicTask#get()}
+ * and {@link BasicTask#blockUntilEnded()} (and their variants with timeouts), draining a
+ * {@link DynamicSequentialTask} (e.g. {@link DynamicTasks#waitForLast()}), 
+ * {@link brooklyn.event.basic.DependentConfiguration#waitInTaskForAttributeReady(brooklyn.entity.Entity, brooklyn.event.AttributeSensor, com.google.common.base.Predicate) waiting for an attribute},
+ * and {@link brooklyn.entity.basic.Entities#submit(brooklyn.entity.Entity, brooklyn.management.TaskFactory) Entities.submit}. 
+ * A task which blocks in any other way on work done by another task in the same pool (for example on a latch, 
+ * a monitor, or a plain {@link java.util.concurrent.Future} which is not a {@link BasicTask}) is <em>not</em> 
+ * compensated, and can deadlock the pool once all its threads are waiting like that; such code should wrap the 
+ * wait with {@link #callBlocking(Callable)}, or should not be used with a bounded pool.
+ */
+@Beta
+public class CompensatingThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private static final ThreadLocal<CompensatingThreadPoolExecutor> CURRENT_POOL = new ThreadLocal<CompensatingThreadPoolExecutor>();
+    
+    private final int baseSize;
+    private final int maxCompensatingThreads;
+    private final AtomicInteger numCompensating = new AtomicInteger();
+    
+    public CompensatingThreadPoolExecutor(int size, int maxCompensatingThreads, ThreadFactory threadFactory) {
+        super(size, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+        this.baseSize = size;
+        this.maxCompensatingThreads = maxCompensatingThreads;
+        allowCoreThreadTimeOut(true);
+    }
+    
+    /**
+     * To be called by a thread that is about to block waiting for another task. If the thread belongs to a 
+     * {@link CompensatingThreadPoolExecutor}, that pool is allowed an extra thread until {@link #endBlocking(boolean)}.
+     * 
+     * @return whether compensation was applied, to be passed to {@link #endBlocking(boolean)}
+     */
+    public static boolean beginBlocking() {
+        CompensatingThreadPoolExecutor pool = CURRENT_POOL.get();
+        return (pool != null) && pool.compensate();
+    }
+
+    /** to be called in a finally block after {@link #beginBlocking()} */
+    public static void endBlocking(boolean compensated) {
+        if (compensated) {
+            CompensatingThreadPoolExecutor pool = CURRENT_POOL.get();
+            if (pool != null) pool.uncompensate();
+        }
+    }
+    
+    /**
+     * Invokes the given code, which is expected to block waiting for other tasks, allowing an extra thread 
+     * (as per {@link #beginBlocking()}) while it runs if the caller is a thread from a compensating pool.
+     */
+    public static <T> T callBlocking(Callable<T> blockingCall) throws Exception {
+        boolean compensated = beginBlocking();
+        try {
+            return blockingCall.call();
+        } finally {
+            endBlocking(compensated);
+        }
+    }
+    
+    private boolean compensate() {
+        while (true) {
+            int current = numCompensating.get();
+            if (current >= maxCompensatingThreads) return false;
+            if (numCompensating.compareAndSet(current, current+1)) break;
+        }
+        resize();
+        return true;
+    }
+    
+    private void uncompensate() {
+        numCompensating.decrementAndGet();
+        resize();
+    }
+    
+    private synchronized void resize() {
+        // starts extra threads if work is queued; excess threads exit once idle
+        setCorePoolSize(baseSize + numCompensating.get());
+    }
+    
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        CURRENT_POOL.set(this);
+        super.beforeExecute(t, r);
+    }
+    
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        CURRENT_POOL.remove();
+    }
+    
+    /** the configured pool size, excluding compensating threads */
+    public int getBaseSize() {
+        return baseSize;
+    }
+    
+    /** number of extra threads currently allowed because pool threads are blocked waiting on other tasks */
+    public int getNumCompensatingThreads() {
+        return numCompensating.get();
+    }
+}
@@ -420,7 +420,12 @@ public class DynamicSequentialTask<T> extends BasicTask<T> implements HasTaskChi
                         if (!includePrimary && secondaryJobsRemaining.isEmpty()) return;
                         // parent still running, no children though
                         Tasks.setBlockingTask(DynamicSequentialTask.this);
-                        jobTransitionLock.wait(remaining.toMilliseconds());
+                        boolean compensated = CompensatingThreadPoolExecutor.beginBlocking();
+                        try {
+                            jobTransitionLock.wait(remaining.toMilliseconds());
+                        } finally {
+                            CompensatingThreadPoolExecutor.endBlocking(compensated);
+                        }
                         Tasks.resetBlockingDetails();
                     }
                 }
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import brooklyn.management.Task;
+
+import com.google.common.annotations.Beta;
+
+/** An {@link ExecutionListener} which is also told when tasks start running,
+ * e.g. so that observers can show new activity without polling the execution manager. */
+@Beta
+public interface ExecutionStartListener extends ExecutionListener {
+
+    /** invoked in the task's thread when a task is starting to run (may be some time after it was submitted),
+     * after {@link Task#getStartTimeUtc()} has been set but before any of the task's work is done;
+     * implementations must return quickly, as they delay the task */
+    public void onTaskStarted(Task<?> task);
+    
+}
@@ -20,19 +20,23 @@ package brooklyn.util.task;
 
 import java.util.Queue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import brooklyn.management.Task;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Preconditions;
 
 /**
  * Instances of this class ensures that {@link Task}s execute with in-order
@@ -41,21 +45,63 @@ import brooklyn.management.Task;
  * Tasks can be presented through {@link #submit(Callable)}. The order of execution is the
  * sumbission order.
  * <p>
- * This implementation does so by blocking on a {@link ConcurrentLinkedQueue}, <em>after</em>
- * the task is started in a thread (and {@link Task#isBegun()} returns true), but (of course)
- * <em>before</em> the {@link TaskInternal#getJob()} actually gets invoked.
+ * This implementation queues submissions in a lock-free mailbox, and at most one "drainer" 
+ * is running in the injected executor at any time; the drainer runs up to 
+ * {@link #setMaxItemsPerDrain(int)} submissions in one thread hop, then yields the thread 
+ * (re-submitting itself if more work is queued).
+ * <p>
+ * The queue is unbounded by default; see {@link #setMaxQueueSize(int)} and {@link OverflowPolicy}.
+ * Queue depth and queueing delay are available from the getters here, rather than being logged.
  */
 public class SingleThreadedScheduler implements TaskScheduler, CanSetName {
     private static final Logger LOG = LoggerFactory.getLogger(SingleThreadedScheduler.class);
     
+    /** What to do when a submission finds the queue at its {@link SingleThreadedScheduler#setMaxQueueSize(int) maximum size}. */
+    public enum OverflowPolicy {
+        /** 
+         * The submitter waits until there is space in the queue.
+         * Submissions made from within a task run by this scheduler are never blocked (to avoid deadlock).
+         */
+        BLOCK,
+        /** The oldest queued (not yet started) submission is cancelled to make room. */
+        DROP_OLDEST
+    }
+    
+    public static final int DEFAULT_MAX_ITEMS_PER_DRAIN = 100;
+    
     private final Queue<QueuedSubmission<?>> order = new ConcurrentLinkedQueue<QueuedSubmission<?>>();
-    private int queueSize = 0;
+    private final AtomicInteger queueSize = new AtomicInteger();
     private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Thread drainingThread;
+    private final Object spaceAvailable = new Object();
+    private final AtomicInteger numBlockedSubmitters = new AtomicInteger();
+    
+    private volatile int maxQueueSize = Integer.MAX_VALUE;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private volatile int maxItemsPerDrain = DEFAULT_MAX_ITEMS_PER_DRAIN;
+    
+    private final AtomicLong totalSubmitted = new AtomicLong();
+    private final AtomicLong totalDropped = new AtomicLong();
+    private final AtomicLong totalStarted = new AtomicLong();
+    private final AtomicLong totalDrains = new AtomicLong();
+    private final AtomicLong totalQueueDelayNanos = new AtomicLong();
+    private final AtomicLong maxQueueDelayNanos = new AtomicLong();
+    private final AtomicInteger maxQueueSizeObserved = new AtomicInteger();
+    private volatile int nextBacklogLogThreshold = 100;
     
     private ExecutorService executor;
 
     private String name;
     
+    private final Runnable drainer = new Runnable() {
+        @Override public void run() {
+            drain();
+        }
+        @Override public String toString() {
+            return "drainer["+SingleThreadedScheduler.this+"]";
+        }
+    };
+    
     @Override
     public void setName(String name) {
         this.name = name;
@@ -71,147 +117,170 @@ public class SingleThreadedScheduler implements TaskScheduler, CanSetName {
         this.executor = executor;
     }
 
+    /** Sets the maximum number of queued (not yet started) submissions; defaults to unbounded. */
+    public void setMaxQueueSize(int maxQueueSize) {
+        Preconditions.checkArgument(maxQueueSize > 0, "maxQueueSize must be positive");
+        this.maxQueueSize = maxQueueSize;
+    }
+    
+    /** Sets what to do when the queue is full; defaults to {@link OverflowPolicy#BLOCK}. */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = Preconditions.checkNotNull(overflowPolicy, "overflowPolicy");
+    }
+    
+    /** Sets how many submissions are run in one thread hop before yielding the thread; defaults to {@value #DEFAULT_MAX_ITEMS_PER_DRAIN}. */
+    public void setMaxItemsPerDrain(int maxItemsPerDrain) {
+        Preconditions.checkArgument(maxItemsPerDrain > 0, "maxItemsPerDrain must be positive");
+        this.maxItemsPerDrain = maxItemsPerDrain;
+    }
+    
+    /** number of submissions queued but not yet started */
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+    
+    /** the largest {@link #getQueueSize()} seen */
+    public int getMaxQueueSizeObserved() {
+        return maxQueueSizeObserved.get();
+    }
+    
+    public long getTotalSubmitted() {
+        return totalSubmitted.get();
+    }
+    
+    /** number of submissions cancelled by {@link OverflowPolicy#DROP_OLDEST} */
+    public long getTotalDropped() {
+        return totalDropped.get();
+    }
+    
+    /** number of thread hops taken to run the submissions */
+    public long getTotalDrains() {
+        return totalDrains.get();
+    }
+    
+    /** mean time between a submission being queued and it being started */
+    public Duration getMeanQueueDelay() {
+        long started = totalStarted.get();
+        return Duration.nanos(started == 0 ? 0 : totalQueueDelayNanos.get() / started);
+    }
+    
+    /** longest time between a submission being queued and it being started */
+    public Duration getMaxQueueDelay() {
+        return Duration.nanos(maxQueueDelayNanos.get());
+    }
+
     @Override
-    public synchronized <T> Future<T> submit(Callable<T> c) {
-        if (running.compareAndSet(false, true)) {
-            return executeNow(c);
-        } else {
-            WrappingFuture<T> f = new WrappingFuture<T>();
-            order.add(new QueuedSubmission<T>(c, f));
-            queueSize++;
-            if (queueSize>0 && (queueSize == 50 || (queueSize<=500 && (queueSize%100)==0) || (queueSize%1000)==0) && queueSize!=lastSizeWarn) {
-                LOG.warn("{} is backing up, {} tasks queued", this, queueSize);
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug("Task queue backing up detail, queue "+this+"; task context is "+Tasks.current()+"; latest task is "+c+"; first task is "+order.peek());
-                }
-                lastSizeWarn = queueSize;
-            }
-            return f;
-        }
+    public <T> Future<T> submit(Callable<T> c) {
+        QueuedSubmission<T> qs = new QueuedSubmission<T>(c);
+        makeSpace();
+        order.add(qs);
+        totalSubmitted.incrementAndGet();
+        onQueueSizeIncreased(queueSize.incrementAndGet(), c);
+        scheduleDrainIfNeeded();
+        return qs;
     }
-    int lastSizeWarn = 0;
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
-    private synchronized void onEnd() {
-        boolean done = false;
-        while (!done) {
-            if (order.isEmpty()) {
-                running.set(false);
-                done = true;
-            } else {
-                QueuedSubmission<?> qs = order.remove();
-                queueSize--;
-                if (!qs.f.isCancelled()) {
-                    Future future = executeNow(qs.c);
-                    qs.f.setDelegate(future);
-                    done = true;
+    private void makeSpace() {
+        if (queueSize.get() < maxQueueSize) return;
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            while (queueSize.get() >= maxQueueSize) {
+                QueuedSubmission<?> oldest = order.poll();
+                if (oldest == null) break;
+                queueSize.decrementAndGet();
+                oldest.cancel(false);
+                totalDropped.incrementAndGet();
+                if (LOG.isTraceEnabled()) LOG.trace("{} dropped {} as queue full", this, oldest);
+            }
+        } else if (Thread.currentThread() != drainingThread) {
+            numBlockedSubmitters.incrementAndGet();
+            try {
+                synchronized (spaceAvailable) {
+                    while (queueSize.get() >= maxQueueSize) {
+                        spaceAvailable.wait(100);
+                    }
                 }
+            } catch (InterruptedException e) {
+                throw Exceptions.propagate(e);
+            } finally {
+                numBlockedSubmitters.decrementAndGet();
             }
         }
     }
-
-    private synchronized <T> Future<T> executeNow(final Callable<T> c) {
-        return executor.submit(new Callable<T>() {
-            @Override public T call() throws Exception {
-                try {
-                    return c.call();
-                } finally {
-                    onEnd();
-                }
-            }});
-    }
-    
     
-    private static class QueuedSubmission<T> {
-        final Callable<T> c;
-        final WrappingFuture<T> f;
-        
-        QueuedSubmission(Callable<T> c, WrappingFuture<T> f) {
-            this.c = c;
-            this.f = f;
+    private void onQueueSizeIncreased(int size, Callable<?> c) {
+        int max;
+        while (size > (max = maxQueueSizeObserved.get())) {
+            if (maxQueueSizeObserved.compareAndSet(max, size)) break;
         }
-        
-        @Override
-        public String toString() {
-            return "QueuedSubmission["+c+"]@"+Integer.toHexString(System.identityHashCode(this));
+        if (size >= nextBacklogLogThreshold) {
+            nextBacklogLogThreshold = size*10;
+            if (LOG.isDebugEnabled()) LOG.debug("{} is backing up, {} tasks queued; latest task is {}", new Object[] {this, size, c});
         }
     }
     
-    /**
-     * A future, where the task may not yet have been submitted to the real executor.
-     * It delegates to the real future if present, and otherwise waits for that to appear
-     */
-    private static class WrappingFuture<T> implements Future<T> {
-        private volatile Future<T> delegate;
-        private boolean cancelled;
-        
-        void setDelegate(Future<T> delegate) {
-            synchronized (this) {
-                this.delegate = delegate;
-                notifyAll();
+    private void scheduleDrainIfNeeded() {
+        if (!order.isEmpty() && running.compareAndSet(false, true)) {
+            try {
+                executor.execute(drainer);
+            } catch (RejectedExecutionException e) {
+                running.set(false);
+                throw e;
             }
         }
-        
-        @Override public boolean cancel(boolean mayInterruptIfRunning) {
-            if (delegate != null) {
-                return delegate.cancel(mayInterruptIfRunning);
-            } else {
-                cancelled = true;
-                synchronized (this) {
-                    notifyAll();
+    }
+    
+    private void drain() {
+        totalDrains.incrementAndGet();
+        drainingThread = Thread.currentThread();
+        try {
+            for (int i = 0; i < maxItemsPerDrain; i++) {
+                QueuedSubmission<?> qs = order.poll();
+                if (qs == null) break;
+                queueSize.decrementAndGet();
+                if (numBlockedSubmitters.get() > 0) {
+                    synchronized (spaceAvailable) {
+                        spaceAvailable.notifyAll();
+                    }
+                }
+                if (!qs.isCancelled()) {
+                    recordQueueDelay(System.nanoTime() - qs.queuedTimeNanos);
+                    qs.run();
+                    // the task may have been cancelled (with interrupt) while running; don't let that leak into the next task
+                    if (Thread.interrupted() && executor.isShutdown()) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
                 }
-                return true;
-            }
-        }
-        
-        @Override public boolean isCancelled() {
-            if (delegate != null) {
-                return delegate.isCancelled();
-            } else {
-                return cancelled;
             }
+        } finally {
+            drainingThread = null;
+            running.set(false);
         }
-        
-        @Override public boolean isDone() {
-            return (delegate != null) ? delegate.isDone() : cancelled;
+        // picks up anything queued while we were finishing, or beyond the max items per drain
+        scheduleDrainIfNeeded();
+    }
+    
+    private void recordQueueDelay(long delayNanos) {
+        totalStarted.incrementAndGet();
+        totalQueueDelayNanos.addAndGet(delayNanos);
+        long max;
+        while (delayNanos > (max = maxQueueDelayNanos.get())) {
+            if (maxQueueDelayNanos.compareAndSet(max, delayNanos)) break;
         }
+    }
+    
+    private static class QueuedSubmission<T> extends FutureTask<T> {
+        final Callable<T> c;
+        final long queuedTimeNanos = System.nanoTime();
         
-        @Override public T get() throws CancellationException, ExecutionException, InterruptedException {
-            if (cancelled) {
-                throw new CancellationException();
-            } else if (delegate != null) {
-                return delegate.get();
-            } else {
-                synchronized (this) {
-                    while (delegate == null && !cancelled) {
-                        wait();
-                    }
-                }
-                return get();
-            }
+        QueuedSubmission(Callable<T> c) {
+            super(c);
+            this.c = c;
         }
         
-        @Override public T get(long timeout, TimeUnit unit) throws CancellationException, ExecutionException, InterruptedException, TimeoutException {
-            long endtime = System.currentTimeMillis()+unit.toMillis(timeout);
-            
-            if (cancelled) {
-                throw new CancellationException();
-            } else if (delegate != null) {
-                return delegate.get(timeout, unit);
-            } else if (System.currentTimeMillis() >= endtime) {
-                throw new TimeoutException();
-            } else {
-                synchronized (this) {
-                    while (delegate == null && !cancelled && System.currentTimeMillis() < endtime) {
-                        long remaining = endtime - System.currentTimeMillis();
-                        if (remaining > 0) {
-                            wait(remaining);
-                        }
-                    }
-                }
-                long remaining = endtime - System.currentTimeMillis();
-                return get(remaining, TimeUnit.MILLISECONDS);
-            }
+        @Override
+        public String toString() {
+            return "QueuedSubmission["+c+"]@"+Integer.toHexString(System.identityHashCode(this));
         }
     }
 }
@@ -26,6 +26,7 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import brooklyn.enricher.basic.AbstractEnricher;
 import brooklyn.entity.BrooklynAppUnitTestSupport;
 import brooklyn.entity.basic.BasicGroup;
 import brooklyn.entity.basic.Entities;
@@ -44,6 +45,7 @@ import brooklyn.util.collections.MutableMap;
 import brooklyn.util.collections.MutableSet;
 import brooklyn.util.guava.Functionals;
 import brooklyn.util.text.StringFunctions;
+import brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
@@ -241,6 +243,31 @@ public class EnrichersTest extends BrooklynAppUnitTestSupport {
         Asserts.assertThat(record.events, CollectionFunctionals.sizeEquals(3));
     }
 
+    @Test
+    public void testTransformingSuppressDuplicatesWithinDeadband() {
+        RecordingSensorEventListener record = new RecordingSensorEventListener();
+        app.getManagementContext().getSubscriptionManager().subscribe(entity, NUM2, record);
+        
+        Enricher enricher = entity.addEnricher(Enrichers.builder()
+                .transforming(NUM1)
+                .publishing(NUM2)
+                .computing(Functions.<Integer>identity())
+                .suppressDuplicatesWithinDeadband(5)
+                .build());
+
+        entity.setAttribute(NUM1, 100);
+        EntityTestUtils.assertAttributeEqualsEventually(entity, NUM2, 100);
+        
+        entity.setAttribute(NUM1, 103);
+        entity.setAttribute(NUM1, 96);
+        entity.setAttribute(NUM1, 106);
+        EntityTestUtils.assertAttributeEqualsEventually(entity, NUM2, 106);
+        entity.setAttribute(NUM1, 102);
+        EntityTestUtils.assertAttributeEqualsContinually(entity, NUM2, 106);
+        Asserts.assertThat(record.events, CollectionFunctionals.sizeEquals(2));
+        Assert.assertEquals(((AbstractEnricher)enricher).getNumSuppressedDuplicates(), 3);
+    }
+
     @Test
     public void testPropagating() {
         entity.addEnricher(Enrichers.builder()
@@ -303,6 +330,85 @@ public class EnrichersTest extends BrooklynAppUnitTestSupport {
         EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 5);
     }
 
+    @Test
+    public void testAggregatingGroupMaxAndMinTracksRemovals() {
+        group.addMember(entity);
+        group.addMember(entity2);
+        group.addEnricher(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM2)
+                .fromMembers()
+                .computingMax()
+                .build());
+        group.addEnricher(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM3)
+                .fromMembers()
+                .computingMin()
+                .build());
+        
+        entity.setAttribute(NUM1, 2);
+        entity2.setAttribute(NUM1, 7);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 7);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM3, 2);
+        
+        group.removeMember(entity2);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 2);
+        
+        entity.setAttribute(NUM1, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 1);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM3, 1);
+    }
+    
+    @Test
+    public void testAggregatingGroupCountAndPercentile() {
+        group.addMember(entity);
+        group.addMember(entity2);
+        group.addEnricher(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM2)
+                .fromMembers()
+                .computingCount()
+                .build());
+        group.addEnricher(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(LONG1)
+                .fromMembers()
+                .computingPercentile(100)
+                .build());
+        
+        entity.setAttribute(NUM1, 100);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 1);
+        entity2.setAttribute(NUM1, 1000);
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 2);
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                Long val = group.getAttribute(LONG1);
+                Assert.assertNotNull(val);
+                Assert.assertTrue(Math.abs(val - 1000) <= 10, "val="+val);
+            }});
+    }
+    
+    @Test
+    public void testAggregatingWithMinPublishPeriodCoalescesChanges() {
+        group.addMember(entity);
+        RecordingSensorEventListener record = new RecordingSensorEventListener();
+        app.getManagementContext().getSubscriptionManager().subscribe(group, NUM2, record);
+        group.addEnricher(Enrichers.builder()
+                .aggregating(NUM1)
+                .publishing(NUM2)
+                .fromMembers()
+                .computingSum()
+                .minPublishPeriod(Duration.millis(500))
+                .build());
+        
+        for (int i = 1; i <= 20; i++) {
+            entity.setAttribute(NUM1, i);
+        }
+        EntityTestUtils.assertAttributeEqualsEventually(group, NUM2, 20);
+        Assert.assertTrue(record.events.size() < 10, "events="+record.events);
+    }
+
     @Test
     public void testAggregatingExcludingBlankString() {
         group.addMember(entity);
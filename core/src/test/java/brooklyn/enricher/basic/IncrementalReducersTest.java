@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.enricher.basic;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+public class IncrementalReducersTest {
+
+    @Test
+    public void testSumAddAndRemove() {
+        IncrementalReducer<Number, Number> reducer = IncrementalReducers.sum(null, null, Integer.class).get();
+        assertNull(reducer.get());
+        reducer.add(3);
+        reducer.add(4);
+        reducer.add(null);
+        assertEquals(reducer.get(), 7);
+        reducer.remove(3);
+        reducer.remove(null);
+        assertEquals(reducer.get(), 4);
+        reducer.remove(4);
+        assertNull(reducer.get());
+    }
+
+    @Test
+    public void testSumUsesValueIfNullAndValueIfNone() {
+        IncrementalReducer<Number, Number> reducer = IncrementalReducers.sum(10, 0, Long.class).get();
+        assertEquals(reducer.get(), 0L);
+        reducer.add(null);
+        reducer.add(1);
+        assertEquals(reducer.get(), 11L);
+    }
+
+    @Test
+    public void testSumOfIntegralValuesDoesNotDrift() {
+        IncrementalReducer<Number, Number> reducer = IncrementalReducers.sum(null, null, Integer.class).get();
+        reducer.add(0.1);
+        reducer.add(5);
+        for (int i = 0; i < 1000; i++) {
+            reducer.add(i);
+            reducer.add(0.3);
+            reducer.remove(0.3);
+            reducer.remove(i);
+        }
+        reducer.remove(0.1);
+        assertEquals(reducer.get(), 5);
+    }
+
+    @Test
+    public void testMean() {
+        IncrementalReducer<Number, Number> reducer = IncrementalReducers.mean(null, 0, Double.class).get();
+        assertEquals(reducer.get(), 0d);
+        reducer.add(1);
+        reducer.add(2);
+        reducer.add(6);
+        assertEquals(reducer.get(), 3d);
+        reducer.remove(6);
+        assertEquals(reducer.get(), 1.5d);
+    }
+
+    @Test
+    public void testCount() {
+        IncrementalReducer<Object, Integer> reducer = IncrementalReducers.count(false).get();
+        reducer.add("a");
+        reducer.add(null);
+        assertEquals(reducer.get(), (Integer)1);
+        
+        reducer = IncrementalReducers.count(true).get();
+        reducer.add("a");
+        reducer.add(null);
+        assertEquals(reducer.get(), (Integer)2);
+    }
+
+    @Test
+    public void testMinAndMaxWithDuplicatesAndRemoval() {
+        IncrementalReducer<Integer, Integer> max = IncrementalReducers.<Integer>max(-1).get();
+        IncrementalReducer<Integer, Integer> min = IncrementalReducers.<Integer>min(-1).get();
+        for (int val : new int[] {5, 9, 9, 1}) {
+            max.add(val);
+            min.add(val);
+        }
+        assertEquals(max.get(), (Integer)9);
+        assertEquals(min.get(), (Integer)1);
+        
+        max.remove(9);
+        min.remove(1);
+        assertEquals(max.get(), (Integer)9);
+        assertEquals(min.get(), (Integer)5);
+        
+        max.remove(9);
+        assertEquals(max.get(), (Integer)5);
+        
+        max.remove(5);
+        max.remove(1);
+        assertEquals(max.get(), (Integer)(-1));
+    }
+
+    @Test
+    public void testPercentileWithinRelativeAccuracy() {
+        IncrementalReducer<Number, Number> median = IncrementalReducers.percentile(50, null, null, Double.class).get();
+        IncrementalReducer<Number, Number> p90 = IncrementalReducers.percentile(90, null, null, Double.class).get();
+        for (int i = 1; i <= 1000; i++) {
+            median.add(i);
+            p90.add(i);
+        }
+        assertWithin(median.get(), 500, 0.01);
+        assertWithin(p90.get(), 900, 0.01);
+        
+        // remove the top half; median of what remains is about 250
+        for (int i = 501; i <= 1000; i++) {
+            median.remove(i);
+        }
+        assertWithin(median.get(), 250, 0.01);
+    }
+
+    @Test
+    public void testPercentileHandlesNegativeAndZeroValues() {
+        IncrementalReducer<Number, Number> min = IncrementalReducers.percentile(0, null, 42, Integer.class).get();
+        IncrementalReducer<Number, Number> max = IncrementalReducers.percentile(100, null, 42, Integer.class).get();
+        assertEquals(min.get(), 42);
+        
+        Random random = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            int val = random.nextInt(200) - 100;
+            min.add(val);
+            max.add(val);
+        }
+        min.add(-500);
+        max.add(0);
+        assertWithin(min.get(), -500, 0.01);
+        assertTrue(max.get().intValue() <= 100 && max.get().intValue() >= 90, "max="+max.get());
+    }
+
+    private void assertWithin(Number actual, double expected, double relativeAccuracy) {
+        assertTrue(Math.abs(actual.doubleValue() - expected) <= Math.abs(expected) * relativeAccuracy + 1, 
+                "actual="+actual+"; expected="+expected);
+    }
+}
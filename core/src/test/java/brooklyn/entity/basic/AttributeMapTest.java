@@ -19,6 +19,8 @@
 package brooklyn.entity.basic;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Collection;
@@ -34,6 +36,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import brooklyn.entity.Application;
+import brooklyn.entity.proxying.EntitySpec;
 import brooklyn.event.AttributeSensor;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
@@ -41,6 +44,7 @@ import brooklyn.event.basic.AttributeMap;
 import brooklyn.event.basic.Sensors;
 import brooklyn.test.Asserts;
 import brooklyn.test.entity.TestApplication;
+import brooklyn.test.entity.TestEntity;
 import brooklyn.test.entity.TestEntityImpl;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.guava.Maybe;
@@ -48,6 +52,7 @@ import brooklyn.util.guava.Maybe;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
 public class AttributeMapTest {
@@ -135,6 +140,54 @@ public class AttributeMapTest {
         assertEquals(map.getValue(ImmutableList.of("b","c")), "2val");
     }
         
+    @Test
+    public void testValueStoredByPathIsCoercedToSensorType() throws Exception {
+        AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "");
+        
+        map.update(ImmutableList.of("a"), "123");
+        
+        assertEquals(map.getValue(sensor), Integer.valueOf(123));
+        assertEquals(map.getValue(ImmutableList.of("a")), "123");
+    }
+    
+    @Test
+    public void testNullValueRetrievedAsNull() throws Exception {
+        AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "");
+        
+        map.update(sensor, null);
+        
+        assertNull(map.getValue(sensor));
+        assertTrue(map.asMap().containsKey("a"));
+    }
+    
+    @Test
+    public void testSensorsWithSameNameShareNameParts() throws Exception {
+        AttributeSensor<String> sensor1 = Sensors.newStringSensor("attributeMapTest.shared", "");
+        AttributeSensor<String> sensor2 = Sensors.newStringSensor("attributeMapTest.shared", "other description");
+        
+        assertSame(sensor1.getNameParts(), sensor2.getNameParts());
+        assertEquals(sensor1.getNameParts(), ImmutableList.of("attributeMapTest", "shared"));
+        
+        map.update(sensor1, "val");
+        assertEquals(map.getValue(sensor2), "val");
+    }
+    
+    @Test
+    public void testSensorNamePartsAreInterchangeableWithPlainPaths() throws Exception {
+        AttributeSensor<String> sensor = Sensors.newStringSensor("attributeMapTest.path", "");
+        List<String> path = ImmutableList.of("attributeMapTest", "path");
+        
+        assertEquals(sensor.getNameParts(), path);
+        assertEquals(path, sensor.getNameParts());
+        assertEquals(sensor.getNameParts().hashCode(), path.hashCode());
+        
+        map.update(path, "byPath");
+        assertEquals(map.getValue(sensor), "byPath");
+        map.update(sensor, "bySensor");
+        assertEquals(map.getValue(path), "bySensor");
+        assertEquals(map.asRawMap().size(), 1);
+    }
+    
     @Test
     public void testCanStoreSensorThenChildSensor() throws Exception {
         AttributeSensor<String> sensor = Sensors.newStringSensor("a", "");
@@ -183,6 +236,101 @@ public class AttributeMapTest {
         assertEquals(map.getValue(sensor), Integer.valueOf(1000));
     }
     
+    @Test
+    public void testModificationVersionsIncreaseOnUpdateAndRemove() throws Exception {
+        AttributeSensor<String> sensor1 = Sensors.newStringSensor("a", "");
+        AttributeSensor<String> sensor2 = Sensors.newStringSensor("b.c", "");
+        assertEquals(map.getModificationVersion(sensor1), 0);
+        
+        map.update(sensor1, "1val");
+        long v1 = map.getModificationVersion(sensor1);
+        assertTrue(v1 > 0);
+        assertTrue(entity.getModificationVersion() >= v1);
+        
+        map.update(sensor2, "2val");
+        long v2 = map.getModificationVersion(sensor2);
+        assertTrue(v2 > v1);
+        assertEquals(map.getNamesModifiedSince(v1), ImmutableSet.of("b.c"));
+        
+        map.remove(sensor1);
+        assertTrue(map.getModificationVersion(sensor1) > v2);
+        assertEquals(map.getNamesModifiedSince(v2), ImmutableSet.of("a"));
+        assertEquals(map.getNamesModifiedSince(0), ImmutableSet.of("a", "b.c"));
+        assertTrue(entity.getModificationVersion() >= map.getModificationVersion(sensor1));
+    }
+    
+    @Test
+    public void testModificationVersionsAfterObservedVersionsUnderConcurrentUpdates() throws Exception {
+        TestEntityImpl other = new TestEntityImpl(app);
+        Entities.manage(other);
+        final AttributeMap otherMap = new AttributeMap(other, Collections.synchronizedMap(MutableMap.<Collection<String>,Object>of()));
+        final List<TestEntityImpl> entities = ImmutableList.of(entity, other);
+        final List<AttributeMap> maps = ImmutableList.of(map, otherMap);
+        List<Future<?>> futures = Lists.newArrayList();
+        
+        for (int t = 0; t < 10; t++) {
+            final AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("sensor"+t, "");
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override public Void call() {
+                    for (int i = 0; i < 1000; i++) {
+                        // a version seen on one entity must be before any later change to the other
+                        long observed = entities.get(i % 2).getModificationVersion();
+                        AttributeMap target = maps.get((i+1) % 2);
+                        long previous = target.getModificationVersion(sensor);
+                        target.update(sensor, i);
+                        long version = target.getModificationVersion(sensor);
+                        assertTrue(version > observed, "version="+version+"; observed="+observed);
+                        assertTrue(version > previous, "version="+version+"; previous="+previous);
+                        assertTrue(target.getNamesModifiedSince(observed).contains(sensor.getName()));
+                    }
+                    return null;
+                }}));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+    
+    @Test
+    public void testForgetsOldestRemovedVersions() throws Exception {
+        AttributeSensor<String> kept = Sensors.newStringSensor("kept", "");
+        AttributeSensor<String> neverSet = Sensors.newStringSensor("neverSet", "");
+        map.update(kept, "myval");
+        long keptVersion = map.getModificationVersion(kept);
+        long v0 = entity.getModificationVersion();
+        
+        int numRemoved = AttributeMap.MAX_REMOVED_VERSIONS*3;
+        long vRecent = 0;
+        for (int i = 0; i < numRemoved; i++) {
+            if (i == numRemoved-10) vRecent = entity.getModificationVersion();
+            List<String> path = ImmutableList.of("removed"+i);
+            map.update(path, "val");
+            map.remove(path);
+        }
+        
+        assertNull(map.getNamesModifiedSince(v0));
+        assertEquals(map.getNamesModifiedSince(vRecent).size(), 10);
+        assertTrue(map.getModificationVersion(neverSet) > v0);
+        assertTrue(map.getNamesModifiedSince(map.getModificationVersion(neverSet)).size() <= AttributeMap.MAX_REMOVED_VERSIONS);
+        assertEquals(map.getModificationVersion(kept), keptVersion);
+        assertEquals(map.getValue(kept), "myval");
+    }
+    
+    @Test
+    public void testEntityModificationVersionIncreasesOnConfigAndChildChanges() throws Exception {
+        long v0 = entity.getModificationVersion();
+        entity.setConfig(TestEntity.CONF_NAME, "myval");
+        long v1 = entity.getModificationVersion();
+        assertTrue(v1 > v0);
+        
+        entity.setDisplayName("myname");
+        long v2 = entity.getModificationVersion();
+        assertTrue(v2 > v1);
+        
+        entity.addChild(EntitySpec.create(TestEntity.class));
+        assertTrue(entity.getModificationVersion() > v2);
+    }
+    
     @Test
     public void testModifyAttributeReturningAbsentDoesNotEmit() throws Exception {
         AttributeSensor<Integer> sensor = Sensors.newIntegerSensor("a", "");
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.basic;
+
+import static brooklyn.test.Asserts.assertEqualsIgnoringOrder;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.BrooklynAppUnitTestSupport;
+import brooklyn.entity.Entity;
+import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.management.internal.AbstractManagementContext;
+import brooklyn.test.Asserts;
+import brooklyn.test.entity.TestEntity;
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableSet;
+
+public class DynamicGroupMembershipIndexTest extends BrooklynAppUnitTestSupport {
+
+    private DynamicGroupMembershipIndex index;
+    
+    @BeforeMethod(alwaysRun=true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        index = ((AbstractManagementContext)mgmt).getDynamicGroupMembershipIndex();
+    }
+
+    @Test
+    public void testRoutesOnlyToGroupsWhoseIndexedValueMatches() throws Exception {
+        DynamicGroup byConfig = newGroup(EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "a"));
+        DynamicGroup byOtherConfig = newGroup(EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "b"));
+        DynamicGroup byType = newGroup(EntityPredicates.isInstanceOf(TestEntity.class));
+        DynamicGroup byOtherType = newGroup(EntityPredicates.isInstanceOf(BasicGroup.class));
+        DynamicGroup byParent = newGroup(EntityPredicates.isChildOf(app));
+        DynamicGroup byTag = newGroup(EntityPredicates.hasTag("othertag"));
+        DynamicGroup byApp = newGroup(EntityPredicates.applicationIdEqualTo(app.getId()));
+        DynamicGroup byOtherApp = newGroup(EntityPredicates.applicationIdEqualTo("wrongid"));
+        DynamicGroup unindexed = newGroup(Predicates.alwaysTrue());
+        
+        final TestEntity entity = app.addChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "a"));
+        final Set<DynamicGroupImpl> all = ImmutableSet.of(unwrap(byConfig), unwrap(byOtherConfig), unwrap(byType), unwrap(byOtherType), 
+                unwrap(byParent), unwrap(byTag), unwrap(byApp), unwrap(byOtherApp), unwrap(unindexed));
+        final Set<DynamicGroupImpl> expected = ImmutableSet.of(unwrap(byConfig), unwrap(byType), unwrap(byParent), unwrap(byApp), unwrap(unindexed));
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(index.getRegisteredGroups().containsAll(all));
+                assertEqualsIgnoringOrder(index.getCandidateGroups(entity), expected);
+            }});
+    }
+
+    @Test
+    public void testIndexedGroupsDetectNewAndRemovedEntities() throws Exception {
+        final DynamicGroup byConfig = newGroup(EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "a"));
+        final DynamicGroup byTag = newGroup(EntityPredicates.hasTag("mytag"));
+        final DynamicGroup byType = newGroup(EntityPredicates.isInstanceOf(TestEntity.class));
+        
+        final TestEntity e1 = app.createAndManageChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "a"));
+        final TestEntity e2 = app.createAndManageChild(EntitySpec.create(TestEntity.class).tag("mytag"));
+        
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(byConfig.getMembers(), ImmutableSet.of(e1));
+                assertEqualsIgnoringOrder(byTag.getMembers(), ImmutableSet.of(e2));
+                assertEqualsIgnoringOrder(byType.getMembers(), ImmutableSet.of(e1, e2));
+            }});
+        
+        Entities.unmanage(e1);
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(byConfig.getMembers(), ImmutableSet.of());
+                assertEqualsIgnoringOrder(byType.getMembers(), ImmutableSet.of(e2));
+            }});
+    }
+
+    @Test
+    public void testRescanUsesParentsChildren() throws Exception {
+        TestEntity parent = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity child = parent.createAndManageChild(EntitySpec.create(TestEntity.class));
+        
+        DynamicGroup group = newGroup(EntityPredicates.isChildOf(parent));
+        assertEqualsIgnoringOrder(group.getMembers(), ImmutableSet.of(child));
+        assertEqualsIgnoringOrder(DynamicGroupMembershipIndex.getCandidateEntities(EntityPredicates.isChildOf(parent), mgmt), ImmutableSet.of(child));
+    }
+
+    @Test
+    public void testChangingFilterReindexes() throws Exception {
+        final DynamicGroup group = newGroup(EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "a"));
+        final TestEntity entity = app.addChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "b"));
+        assertRegisteredEventually(group);
+        assertFalse(index.getCandidateGroups(entity).contains(unwrap(group)));
+        
+        group.setEntityFilter(EntityPredicates.configEqualTo(TestEntity.CONF_NAME, "b"));
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(index.getCandidateGroups(entity).contains(unwrap(group)));
+            }});
+    }
+
+    @Test
+    public void testStoppedGroupIsUnregistered() throws Exception {
+        DynamicGroup group = newGroup(EntityPredicates.isInstanceOf(TestEntity.class));
+        assertRegisteredEventually(group);
+        
+        group.stop();
+        assertFalse(index.getRegisteredGroups().contains(unwrap(group)));
+        assertEquals(group.getMembers().size(), 0);
+    }
+
+    @Test
+    public void testSubclassIndexedOnlyIfOptsIn() throws Exception {
+        DynamicGroup subclass = app.createAndManageChild(EntitySpec.create(DynamicGroup.class)
+                .impl(BlockingDynamicGroupImpl.class)
+                .configure(DynamicGroup.ENTITY_FILTER, EntityPredicates.isInstanceOf(BasicGroup.class)));
+        DynamicGroup optedIn = app.createAndManageChild(EntitySpec.create(DynamicGroup.class)
+                .impl(FilterOnlyDynamicGroupImpl.class)
+                .configure(DynamicGroup.ENTITY_FILTER, EntityPredicates.isInstanceOf(BasicGroup.class)));
+        TestEntity entity = app.addChild(EntitySpec.create(TestEntity.class));
+        assertRegisteredEventually(subclass);
+        assertRegisteredEventually(optedIn);
+        
+        assertTrue(index.getCandidateGroups(entity).contains(unwrap(subclass)));
+        assertFalse(index.getCandidateGroups(entity).contains(unwrap(optedIn)));
+    }
+
+    @Test
+    public void testSlowGroupDoesNotDelayOthers() throws Exception {
+        BlockingDynamicGroupImpl.latch = new CountDownLatch(1);
+        try {
+            DynamicGroup slow = app.createAndManageChild(EntitySpec.create(DynamicGroup.class)
+                    .impl(BlockingDynamicGroupImpl.class)
+                    .configure(DynamicGroup.ENTITY_FILTER, EntityPredicates.isInstanceOf(TestEntity.class)));
+            final DynamicGroup fast = newGroup(EntityPredicates.isInstanceOf(TestEntity.class));
+            assertRegisteredEventually(slow);
+            assertRegisteredEventually(fast);
+            
+            final TestEntity e1 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+            final TestEntity e2 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+            Asserts.succeedsEventually(new Runnable() {
+                public void run() {
+                    assertEqualsIgnoringOrder(fast.getMembers(), ImmutableSet.of(e1, e2));
+                }});
+            assertEquals(slow.getMembers().size(), 0);
+            
+            BlockingDynamicGroupImpl.latch.countDown();
+            assertMembersEventually(slow, ImmutableSet.of(e1, e2));
+        } finally {
+            BlockingDynamicGroupImpl.latch.countDown();
+        }
+    }
+
+    /** a subclass, so not indexed; blocks when told of an added entity, if {@link #latch} is set */
+    public static class BlockingDynamicGroupImpl extends DynamicGroupImpl {
+        static volatile CountDownLatch latch;
+        
+        @Override
+        protected void onEntityAdded(Entity item) {
+            CountDownLatch current = latch;
+            if (current != null) {
+                try {
+                    current.await();
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }
+            super.onEntityAdded(item);
+        }
+    }
+
+    public static class FilterOnlyDynamicGroupImpl extends DynamicGroupImpl {
+        @Override
+        protected boolean isMembershipByFilterOnly() {
+            return true;
+        }
+    }
+
+    private void assertMembersEventually(final DynamicGroup group, final Set<? extends Entity> expected) {
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEqualsIgnoringOrder(group.getMembers(), expected);
+            }});
+    }
+
+    private DynamicGroup newGroup(com.google.common.base.Predicate<? super Entity> filter) {
+        return app.createAndManageChild(EntitySpec.create(DynamicGroup.class).configure(DynamicGroup.ENTITY_FILTER, filter));
+    }
+    
+    private void assertRegisteredEventually(final DynamicGroup group) {
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(index.getRegisteredGroups().contains(unwrap(group)));
+            }});
+    }
+    
+    private DynamicGroupImpl unwrap(DynamicGroup group) {
+        return (DynamicGroupImpl) Entities.deproxy(group);
+    }
+}
@@ -19,6 +19,9 @@
 package brooklyn.entity.basic;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -29,6 +32,7 @@ import brooklyn.entity.proxying.EntitySpec;
 import brooklyn.management.ManagementContext;
 import brooklyn.test.entity.LocalManagementContextForTests;
 import brooklyn.util.flags.SetFromFlag;
+import brooklyn.util.task.DeferredSupplier;
 
 import com.google.common.collect.ImmutableMap;
 
@@ -150,6 +154,75 @@ public class EntityConfigTest {
         assertEquals(child.getLocalConfigBag().getAllConfig(), ImmutableMap.of("mychildentity.myconfigwithflagname", "overrideMyval"));
     }
     
+    @Test
+    public void testRepeatedGetConfigIsMemoised() throws Exception {
+        EntityInternal entity = managementContext.getEntityManager().createEntity(EntitySpec.create(MyEntity.class)
+                .configure(MyEntity.MY_CONFIG, "myval"));
+        EntityConfigMap configMap = entity.getConfigMap();
+        long hitsBefore = configMap.getResolvedCacheHits();
+        long missesBefore = configMap.getResolvedCacheMisses();
+        
+        for (int i = 0; i < 10; i++) {
+            assertEquals(entity.getConfig(MyEntity.MY_CONFIG), "myval");
+            assertNull(entity.getConfig(MyEntity.MY_CONFIG_WITH_FLAGNAME));
+        }
+        assertEquals(configMap.getResolvedCacheMisses() - missesBefore, 2);
+        assertEquals(configMap.getResolvedCacheHits() - hitsBefore, 18);
+    }
+
+    @Test
+    public void testMemoisedConfigInvalidatedOnLocalChange() throws Exception {
+        EntityInternal entity = managementContext.getEntityManager().createEntity(EntitySpec.create(MyEntity.class)
+                .configure(MyEntity.MY_CONFIG, "myval"));
+        assertEquals(entity.getConfig(MyEntity.MY_CONFIG), "myval");
+        assertNull(entity.getConfig(MyEntity.MY_CONFIG_WITH_FLAGNAME));
+        
+        entity.setConfig(MyEntity.MY_CONFIG, "myval2");
+        entity.setConfig(MyEntity.MY_CONFIG_WITH_FLAGNAME, "myval3");
+        assertEquals(entity.getConfig(MyEntity.MY_CONFIG), "myval2");
+        assertEquals(entity.getConfig(MyEntity.MY_CONFIG_WITH_FLAGNAME), "myval3");
+    }
+
+    @Test
+    public void testMemoisedConfigInvalidatedOnParentChange() throws Exception {
+        EntityInternal entity = managementContext.getEntityManager().createEntity(EntitySpec.create(MyEntity.class)
+                .configure(MyEntity.MY_CONFIG, "myval"));
+        EntityInternal child = managementContext.getEntityManager().createEntity(EntitySpec.create(MyChildEntity.class)
+                .parent(entity));
+        EntityInternal grandchild = managementContext.getEntityManager().createEntity(EntitySpec.create(MyChildEntity.class)
+                .parent(child));
+        assertEquals(child.getConfig(MyEntity.MY_CONFIG), "myval");
+        assertEquals(grandchild.getConfig(MyEntity.MY_CONFIG), "myval");
+        
+        entity.setConfig(MyEntity.MY_CONFIG, "myval2");
+        assertEquals(child.getConfig(MyEntity.MY_CONFIG), "myval2");
+        assertEquals(grandchild.getConfig(MyEntity.MY_CONFIG), "myval2");
+    }
+
+    @Test
+    public void testDeferredConfigIsNotMemoised() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        EntityInternal entity = managementContext.getEntityManager().createEntity(EntitySpec.create(MyEntity.class));
+        entity.getConfigMap().setConfig(MyEntity.MY_CONFIG, new DeferredSupplier<String>() {
+            @Override public String get() {
+                return "val"+counter.incrementAndGet();
+            }});
+        
+        assertEquals(entity.getConfig(MyEntity.MY_CONFIG), "val1");
+        assertEquals(entity.getConfig(MyEntity.MY_CONFIG), "val2");
+    }
+
+    @Test
+    public void testMemoisedConfigRespectsKeyType() throws Exception {
+        EntityInternal entity = managementContext.getEntityManager().createEntity(EntitySpec.create(MyEntity.class));
+        ConfigKey<String> strKey = ConfigKeys.newStringConfigKey("myentity.numeric", "", "1");
+        ConfigKey<Integer> intKey = ConfigKeys.newIntegerConfigKey("myentity.numeric", "", 1);
+        
+        assertEquals(entity.getConfig(strKey), "1");
+        assertEquals(entity.getConfig(intKey), (Integer)1);
+        assertEquals(entity.getConfig(strKey), "1");
+    }
+
     public static class MyEntity extends AbstractEntity {
         public static final ConfigKey<String> MY_CONFIG = ConfigKeys.newStringConfigKey("myentity.myconfig");
 
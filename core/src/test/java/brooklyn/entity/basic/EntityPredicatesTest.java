@@ -92,6 +92,21 @@ public class EntityPredicatesTest extends BrooklynAppUnitTestSupport {
         assertFalse(EntityPredicates.isChildOf(entity).apply(app));
     }
     
+    @Test
+    public void testIsInstanceOf() throws Exception {
+        assertTrue(EntityPredicates.isInstanceOf(TestEntity.class).apply(entity));
+        assertFalse(EntityPredicates.isInstanceOf(TestEntity.class).apply(group));
+        assertFalse(EntityPredicates.isInstanceOf(TestEntity.class).apply(null));
+    }
+    
+    @Test
+    public void testHasTag() throws Exception {
+        entity.tags().addTag("mytag");
+        assertTrue(EntityPredicates.hasTag("mytag").apply(entity));
+        assertFalse(EntityPredicates.hasTag("wrongtag").apply(entity));
+        assertFalse(EntityPredicates.hasTag("mytag").apply(group));
+    }
+    
     @Test
     public void testIsMemberOf() throws Exception {
         group.addMember(entity);
@@ -62,6 +62,7 @@ import brooklyn.location.basic.SimulatedLocation;
 import brooklyn.management.Task;
 import brooklyn.test.Asserts;
 import brooklyn.test.EntityTestUtils;
+import brooklyn.test.entity.BlockingEntity;
 import brooklyn.test.entity.TestEntity;
 import brooklyn.test.entity.TestEntityImpl;
 import brooklyn.util.collections.MutableMap;
@@ -73,6 +74,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -889,6 +891,110 @@ public class DynamicClusterTest extends BrooklynAppUnitTestSupport {
         assertTrue(cluster.getAttribute(Attributes.SERVICE_UP));
     }
 
+    @Test
+    public void testResizeInWavesOfConfiguredSize() throws Exception {
+        DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class))
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.RESIZE_WAVE_SIZE, 2));
+        cluster.start(ImmutableList.of(loc));
+
+        assertEquals(cluster.resize(5), (Integer)5);
+        assertEquals(cluster.getAttribute(DynamicCluster.RESIZE_WAVES_COMPLETED), (Integer)3);
+        assertEquals(cluster.getAttribute(DynamicCluster.RESIZE_TARGET_SIZE), (Integer)5);
+        assertEquals(cluster.getAttribute(DynamicCluster.RESIZE_IN_PROGRESS), Boolean.FALSE);
+
+        assertEquals(cluster.resize(1), (Integer)1);
+        assertEquals(cluster.getAttribute(DynamicCluster.RESIZE_WAVES_COMPLETED), (Integer)2);
+        for (Entity member : cluster.getMembers()) {
+            assertEquals(((TestEntity)member).getCount(), 1);
+        }
+    }
+
+    @Test
+    public void testMaxConcurrentMemberStarts() throws Exception {
+        final CountDownLatch startupLatch = new CountDownLatch(1);
+        final CountDownLatch executingLatch = new CountDownLatch(5);
+        final DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(BlockingEntity.class)
+                        .configure(BlockingEntity.STARTUP_LATCH, startupLatch)
+                        .configure(BlockingEntity.EXECUTING_STARTUP_NOTIFICATION_LATCH, executingLatch))
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.MAX_CONCURRENT_MEMBER_STARTS, 2));
+        cluster.start(ImmutableList.of(loc));
+
+        Thread thread = new Thread(new Runnable() {
+                @Override public void run() {
+                    cluster.resize(5);
+                }});
+        try {
+            thread.start();
+            EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.RESIZE_MEMBERS_STARTING, 5);
+            Asserts.succeedsContinually(ImmutableMap.of("timeout", 250), new Runnable() {
+                @Override public void run() {
+                    assertEquals(executingLatch.getCount(), 3);
+                }});
+
+            startupLatch.countDown();
+            thread.join(TIMEOUT_MS);
+            assertFalse(thread.isAlive());
+            assertEquals(cluster.getCurrentSize(), (Integer)5);
+            assertEquals(cluster.getAttribute(DynamicCluster.RESIZE_MEMBERS_STARTING), (Integer)0);
+        } finally {
+            startupLatch.countDown();
+            thread.interrupt();
+        }
+    }
+
+    @Test
+    public void testResizeRequestMergedIntoInProgressResize() throws Exception {
+        final CountDownLatch startupLatch = new CountDownLatch(1);
+        final CountDownLatch executingLatch = new CountDownLatch(1);
+        final DynamicCluster cluster = app.createAndManageChild(EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(BlockingEntity.class)
+                        .configure(BlockingEntity.STARTUP_LATCH, startupLatch)
+                        .configure(BlockingEntity.EXECUTING_STARTUP_NOTIFICATION_LATCH, executingLatch))
+                .configure(DynamicCluster.INITIAL_SIZE, 0)
+                .configure(DynamicCluster.RESIZE_WAVE_SIZE, 1));
+        cluster.start(ImmutableList.of(loc));
+
+        final AtomicReference<Integer> firstResult = Atomics.newReference();
+        final AtomicReference<Integer> secondResult = Atomics.newReference();
+        Thread first = new Thread(new Runnable() {
+                @Override public void run() {
+                    firstResult.set(cluster.resize(4));
+                }});
+        Thread second = new Thread(new Runnable() {
+                @Override public void run() {
+                    secondResult.set(cluster.resize(1));
+                }});
+        try {
+            first.start();
+            assertTrue(executingLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            assertEquals(cluster.getAttribute(DynamicCluster.RESIZE_IN_PROGRESS), Boolean.TRUE);
+
+            // second request must not wait for the whole of the first resize; it changes its target instead
+            second.start();
+            EntityTestUtils.assertAttributeEqualsEventually(cluster, DynamicCluster.RESIZE_TARGET_SIZE, 1);
+
+            startupLatch.countDown();
+            first.join(TIMEOUT_MS);
+            second.join(TIMEOUT_MS);
+            assertFalse(first.isAlive());
+            assertFalse(second.isAlive());
+
+            assertEquals(firstResult.get(), (Integer)1);
+            assertEquals(secondResult.get(), (Integer)1);
+            assertEquals(cluster.getCurrentSize(), (Integer)1);
+            assertEquals(cluster.getAttribute(DynamicCluster.RESIZE_WAVES_COMPLETED), (Integer)1);
+            assertEquals(cluster.getAttribute(DynamicCluster.RESIZE_IN_PROGRESS), Boolean.FALSE);
+        } finally {
+            startupLatch.countDown();
+            first.interrupt();
+            second.interrupt();
+        }
+    }
+
     private Throwable unwrapException(Throwable e) {
         if (e instanceof ExecutionException) {
             return unwrapException(e.getCause());
@@ -46,6 +46,7 @@ import brooklyn.entity.basic.AbstractEntity;
 import brooklyn.entity.basic.AbstractGroupImpl;
 import brooklyn.entity.basic.BasicGroup;
 import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.basic.EntityLocal;
 import brooklyn.entity.basic.EntityPredicates;
 import brooklyn.entity.proxying.EntitySpec;
@@ -603,6 +604,30 @@ public class RebindEntityTest extends RebindTestFixtureWithApp {
         assertEquals(newApp.getEntityType().getSensor(sensorName).getDescription(), sensorDescription);
     }
 
+    @Test
+    public void testRebindPersistsAttributeAndConfigChangesSinceLastPersisted() throws Exception {
+        final AttributeSensor<String> MY_OTHER_SENSOR = Sensors.newStringSensor("test.myothersensor");
+        MyEntity origE = origApp.createAndManageChild(EntitySpec.create(MyEntity.class)
+                .configure(MyEntity.MY_CONFIG, "myval"));
+        origE.setAttribute(MyEntity.MY_SENSOR, "myval");
+        origE.setAttribute(MY_OTHER_SENSOR, "myotherval");
+        RebindTestUtils.waitForPersisted(origApp);
+
+        // subsequent changes to just attributes/config update the entity's previous memento
+        origE.setAttribute(MyEntity.MY_SENSOR, "mynewval");
+        ((EntityInternal)origE).setConfig(MyEntity.MY_CONFIG, "mynewval");
+        RebindTestUtils.waitForPersisted(origApp);
+        
+        ((EntityInternal)origE).removeAttribute(MY_OTHER_SENSOR);
+
+        newApp = rebind();
+        MyEntity newE = (MyEntity) Iterables.find(newApp.getChildren(), Predicates.instanceOf(MyEntity.class));
+
+        assertEquals(newE.getAttribute(MyEntity.MY_SENSOR), "mynewval");
+        assertFalse(((EntityInternal)newE).getAllAttributes().containsKey(MY_OTHER_SENSOR));
+        assertEquals(newE.getConfig(MyEntity.MY_CONFIG), "mynewval");
+    }
+
     @Test
     public void testRebindDoesNotPersistTransientAttribute() throws Exception {
         final String sensorName = "test.mydynamicsensor";
@@ -19,7 +19,11 @@
 package brooklyn.entity.rebind;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import org.testng.annotations.Test;
@@ -33,7 +37,9 @@ import brooklyn.util.task.BasicTask;
 import brooklyn.util.task.DynamicTasks;
 
 import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 public class RebindManagerTest extends RebindTestFixtureWithApp {
 
@@ -45,6 +51,61 @@ public class RebindManagerTest extends RebindTestFixtureWithApp {
         Entity newEntity = Iterables.find(newApp.getChildren(), Predicates.instanceOf(TestEntity.class));
         assertEquals(newEntity.getAttribute(TestEntity.NAME), "abc");
     }
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRebindsTreeInParallelAndRecordsPhaseMetrics() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            TestEntity child = origApp.createAndManageChild(EntitySpec.create(TestEntity.class)
+                    .configure(TestEntity.CONF_NAME, "child"+i));
+            for (int j = 0; j < 4; j++) {
+                child.createAndManageChild(EntitySpec.create(TestEntity.class));
+            }
+        }
+        
+        newApp = rebind();
+        
+        assertEquals(newApp.getChildren().size(), 5);
+        for (Entity child : newApp.getChildren()) {
+            assertEquals(child.getChildren().size(), 4);
+            for (Entity grandchild : child.getChildren()) {
+                assertEquals(grandchild.getParent(), child);
+                // inherited, so requires the parent to have been reconstructed first
+                assertEquals(grandchild.getConfig(TestEntity.CONF_NAME), child.getConfig(TestEntity.CONF_NAME));
+            }
+        }
+        
+        Map<String, Object> rebindMetrics = (Map<String, Object>) newManagementContext.getRebindManager().getMetrics().get("rebind");
+        Map<String, Map<String, Object>> phases = (Map<String, Map<String, Object>>) rebindMetrics.get("lastPhases");
+        assertEquals(phases.keySet(), ImmutableSet.of("loadManifests", "rebuildCatalog", "instantiateLocationsAndEntities", 
+                "instantiateMementos", "instantiateAdjuncts", "reconstruct", "associateAdjuncts", "manage"));
+        for (Map<String, Object> phase : phases.values()) {
+            assertNotNull(phase.get("durationMillis"), "phases="+phases);
+        }
+        assertEquals(phases.get("instantiateLocationsAndEntities").get("entities"), 26);
+        assertEquals(phases.get("reconstruct").get("entities"), 26);
+        assertEquals(phases.get("reconstruct").get("entityTreeDepth"), 3);
+    }
+
+    @Test
+    public void testRebindExecutorIsSharedAndStoppedWithRebindManager() throws Exception {
+        origApp.createAndManageChild(EntitySpec.create(TestEntity.class));
+        origApp.createAndManageChild(EntitySpec.create(TestEntity.class));
+        newApp = rebind();
+        
+        RebindManagerImpl rebindManager = (RebindManagerImpl) newManagementContext.getRebindManager();
+        ListeningExecutorService executor = rebindManager.getRebindExecutor();
+        assertSame(rebindManager.getRebindExecutor(), executor);
+        Thread thread = executor.submit(new Callable<Thread>() {
+            @Override public Thread call() {
+                return Thread.currentThread();
+            }}).get();
+        assertTrue(thread.isDaemon(), "thread="+thread);
+        assertTrue(thread.getName().startsWith("brooklyn-rebind-"), "thread="+thread);
+        
+        rebindManager.stop();
+        assertTrue(executor.isShutdown());
+    }
+
     public static class TestEntityWithTaskInRebind extends TestEntityImpl {
         @Override
         public void rebind() {
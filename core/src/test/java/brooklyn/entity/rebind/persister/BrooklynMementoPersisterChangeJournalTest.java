@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.rebind.BrooklynObjectType;
+import brooklyn.entity.rebind.PersistenceExceptionHandlerImpl;
+import brooklyn.entity.rebind.PersisterDeltaImpl;
+import brooklyn.management.ha.HighAvailabilityMode;
+import brooklyn.management.internal.LocalManagementContext;
+import brooklyn.test.entity.LocalManagementContextForTests;
+import brooklyn.util.collections.MutableMap;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests how {@link BrooklynMementoPersisterToObjectStore} writes its {@link MementoChangeJournal}.
+ */
+public class BrooklynMementoPersisterChangeJournalTest {
+
+    @SuppressWarnings("serial")
+    static class FailingJournalMap extends MutableMap<String,String> {
+        volatile boolean failJournalWrites;
+        
+        @Override
+        public String put(String key, String value) {
+            if (failJournalWrites && MementoChangeJournal.PATH.equals(key)) throw new IllegalStateException("Simulated failure writing "+key);
+            return super.put(key, value);
+        }
+    }
+
+    private LocalManagementContext mgmt;
+    private FailingJournalMap files;
+    private InMemoryObjectStore objectStore;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        mgmt = LocalManagementContextForTests.newInstance();
+        files = new FailingJournalMap();
+        objectStore = new InMemoryObjectStore(files, MutableMap.<String,Date>of());
+        objectStore.injectManagementContext(mgmt);
+        objectStore.prepareForSharedUse(PersistMode.CLEAN, HighAvailabilityMode.DISABLED);
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (mgmt != null) Entities.destroyAll(mgmt);
+    }
+
+    protected BrooklynMementoPersisterToObjectStore newPersister(int journalSize) {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BrooklynMementoPersisterToObjectStore.PERSISTER_CHANGE_JOURNAL_SIZE, journalSize);
+        return new BrooklynMementoPersisterToObjectStore(objectStore, props, getClass().getClassLoader());
+    }
+
+    protected void removeEntities(BrooklynMementoPersisterToObjectStore persister, String ...ids) {
+        PersisterDeltaImpl delta = new PersisterDeltaImpl();
+        delta.removed(BrooklynObjectType.ENTITY, ImmutableSet.copyOf(ids));
+        persister.delta(delta, PersistenceExceptionHandlerImpl.builder().build());
+    }
+
+    protected MementoChangeJournal storedJournal() {
+        return MementoChangeJournal.parse(files.get(MementoChangeJournal.PATH));
+    }
+
+    @Test
+    public void testEachPromotionStartsNewEpoch() throws Exception {
+        BrooklynMementoPersisterToObjectStore persister = newPersister(10);
+        persister.enableWriteAccess();
+        removeEntities(persister, "e1");
+        MementoChangeJournal first = storedJournal();
+        assertEquals(first.getLastSeq(), 1);
+        
+        persister.disableWriteAccess(true);
+        persister.enableWriteAccess();
+        MementoChangeJournal second = storedJournal();
+        assertNotEquals(second.getEpoch(), first.getEpoch());
+        assertEquals(second.getLastSeq(), 0);
+    }
+
+    @Test
+    public void testMasterWithJournalDisabledDeletesStaleJournal() throws Exception {
+        BrooklynMementoPersisterToObjectStore oldMaster = newPersister(10);
+        oldMaster.enableWriteAccess();
+        removeEntities(oldMaster, "e1");
+        assertNotNull(storedJournal());
+        oldMaster.disableWriteAccess(true);
+        
+        newPersister(0).enableWriteAccess();
+        assertFalse(files.containsKey(MementoChangeJournal.PATH));
+    }
+
+    @Test
+    public void testAppendsChangesAndRewritesWhenTwiceTheSize() throws Exception {
+        BrooklynMementoPersisterToObjectStore persister = newPersister(3);
+        persister.enableWriteAccess();
+        String epoch = storedJournal().getEpoch();
+        
+        for (int i = 1; i <= 10; i++) {
+            removeEntities(persister, "e"+i);
+            MementoChangeJournal journal = storedJournal();
+            assertEquals(journal.getEpoch(), epoch);
+            assertEquals(journal.getLastSeq(), i);
+            assertTrue(journal.hasAllChangesSince(epoch, i-1));
+            // header plus at most twice the journal size
+            int lines = files.get(MementoChangeJournal.PATH).split("\n").length;
+            assertTrue(lines <= 1+6, "lines="+lines);
+        }
+        // rewritten at the 7th change, with 3 changes held, then 3 appended
+        assertEquals(storedJournal().getChangesSince(0).size(), 6);
+    }
+
+    @Test
+    public void testFailedJournalWriteDeletesJournal() throws Exception {
+        BrooklynMementoPersisterToObjectStore persister = newPersister(10);
+        persister.enableWriteAccess();
+        removeEntities(persister, "e1");
+        String epoch = storedJournal().getEpoch();
+        
+        files.failJournalWrites = true;
+        removeEntities(persister, "e2");
+        assertFalse(files.containsKey(MementoChangeJournal.PATH));
+        
+        // rewritten in full, with a new epoch, once writes work again
+        files.failJournalWrites = false;
+        removeEntities(persister, "e3");
+        MementoChangeJournal journal = storedJournal();
+        assertNotEquals(journal.getEpoch(), epoch);
+        assertFalse(journal.hasAllChangesSince(epoch, 1));
+    }
+}
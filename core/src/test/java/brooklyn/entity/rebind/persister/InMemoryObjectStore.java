@@ -18,6 +18,10 @@
  */
 package brooklyn.entity.rebind.persister;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -29,7 +33,9 @@ import brooklyn.management.ManagementContext;
 import brooklyn.management.ha.HighAvailabilityMode;
 import brooklyn.util.collections.MutableList;
 import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Objects;
 
 public class InMemoryObjectStore implements PersistenceObjectStore {
@@ -86,6 +92,11 @@ public class InMemoryObjectStore implements PersistenceObjectStore {
             }
         }
         @Override
+        public InputStream getInputStream() {
+            String val = get();
+            return (val == null) ? null : new ByteArrayInputStream(val.getBytes(Charsets.UTF_8));
+        }
+        @Override
         public boolean exists() {
             synchronized (map) {
                 return map.containsKey(key);
@@ -99,13 +110,23 @@ public class InMemoryObjectStore implements PersistenceObjectStore {
             }
         }
         @Override
+        public void put(ContentsWriter contents) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                contents.writeTo(out);
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+            put(new String(out.toByteArray(), Charsets.UTF_8));
+        }
+        @Override
         public void append(String val) {
             synchronized (map) {
                 String val2 = get();
                 if (val2==null) val2 = val;
                 else val2 = val2 + val;
 
-                map.put(key, val);
+                map.put(key, val2);
                 mapModTime.put(key, new Date());
             }
         }
@@ -18,6 +18,9 @@
  */
 package brooklyn.entity.rebind.persister;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
@@ -35,6 +38,7 @@ import brooklyn.util.time.CountdownTimer;
 import brooklyn.util.time.Duration;
 
 import com.google.common.base.Preconditions;
+import com.google.common.io.CountingOutputStream;
 
 public class ListeningObjectStore implements PersistenceObjectStore {
 
@@ -210,6 +214,21 @@ public class ListeningObjectStore implements PersistenceObjectStore {
             delegate.put(val);
         }
         @Override
+        public void put(final ContentsWriter contents) {
+            if (writesFailSilently)
+                return;
+
+            final long[] size = new long[1];
+            delegate.put(new ContentsWriter() {
+                @Override public void writeTo(OutputStream out) throws IOException {
+                    CountingOutputStream countingOut = new CountingOutputStream(out);
+                    contents.writeTo(countingOut);
+                    size[0] = countingOut.getCount();
+                }});
+            for (ObjectStoreTransactionListener listener: listeners)
+                listener.recordDataOut("writing "+path, (int) size[0]);
+        }
+        @Override
         public void append(String s) {
             if (writesFailSilently)
                 return;
@@ -238,6 +257,12 @@ public class ListeningObjectStore implements PersistenceObjectStore {
             return result;
         }
         @Override
+        public InputStream getInputStream() {
+            for (ObjectStoreTransactionListener listener: listeners)
+                listener.recordQueryOut("requesting "+path, path.length());
+            return delegate.getInputStream();
+        }
+        @Override
         public Date getLastModifiedDate() {
             return delegate.getLastModifiedDate();
         }
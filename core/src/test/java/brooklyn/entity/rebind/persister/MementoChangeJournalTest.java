@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import brooklyn.entity.rebind.BrooklynObjectType;
+
+import com.google.common.collect.ImmutableList;
+
+public class MementoChangeJournalTest {
+
+    @Test
+    public void testRoundTripsThroughText() {
+        MementoChangeJournal journal = new MementoChangeJournal(10);
+        journal.add(BrooklynObjectType.ENTITY, ImmutableList.of("e1", "e2"), ImmutableList.of("e3"));
+        journal.add(BrooklynObjectType.LOCATION, ImmutableList.of("l1"), ImmutableList.<String>of());
+        
+        MementoChangeJournal parsed = MementoChangeJournal.parse(journal.toText());
+        assertEquals(parsed.getEpoch(), journal.getEpoch());
+        assertEquals(parsed.getLastSeq(), 4);
+        
+        List<MementoChangeJournal.Change> changes = parsed.getChangesSince(0);
+        assertEquals(changes.size(), 4);
+        assertChange(changes.get(0), 1, BrooklynObjectType.ENTITY, "e1", false);
+        assertChange(changes.get(2), 3, BrooklynObjectType.ENTITY, "e3", true);
+        assertChange(changes.get(3), 4, BrooklynObjectType.LOCATION, "l1", false);
+        assertEquals(parsed.toText(), journal.toText());
+    }
+
+    @Test
+    public void testGetChangesSince() {
+        MementoChangeJournal journal = new MementoChangeJournal(10);
+        journal.add(BrooklynObjectType.ENTITY, ImmutableList.of("e1", "e2", "e3"), ImmutableList.<String>of());
+        
+        List<MementoChangeJournal.Change> changes = journal.getChangesSince(2);
+        assertEquals(changes.size(), 1);
+        assertChange(changes.get(0), 3, BrooklynObjectType.ENTITY, "e3", false);
+        assertTrue(journal.getChangesSince(3).isEmpty());
+    }
+
+    @Test
+    public void testTrimsToMaxSizeAndReportsGaps() {
+        MementoChangeJournal journal = new MementoChangeJournal(2);
+        String epoch = journal.getEpoch();
+        journal.add(BrooklynObjectType.ENTITY, ImmutableList.of("e1", "e2", "e3", "e4"), ImmutableList.<String>of());
+        
+        assertEquals(journal.getLastSeq(), 4);
+        assertEquals(journal.getChangesSince(0).size(), 2);
+        assertTrue(journal.hasAllChangesSince(epoch, 4));
+        assertTrue(journal.hasAllChangesSince(epoch, 3));
+        assertTrue(journal.hasAllChangesSince(epoch, 2));
+        assertFalse(journal.hasAllChangesSince(epoch, 1));
+        assertFalse(journal.hasAllChangesSince(epoch, 5));
+        assertFalse(journal.hasAllChangesSince("other", 4));
+    }
+
+    @Test
+    public void testResetStartsNewEpoch() {
+        MementoChangeJournal journal = new MementoChangeJournal(10);
+        String epoch = journal.getEpoch();
+        journal.add(BrooklynObjectType.ENTITY, ImmutableList.of("e1"), ImmutableList.<String>of());
+        journal.reset();
+        
+        assertNotEquals(journal.getEpoch(), epoch);
+        assertEquals(journal.getLastSeq(), 0);
+        assertTrue(journal.getChangesSince(0).isEmpty());
+        assertFalse(journal.hasAllChangesSince(epoch, 1));
+        assertTrue(journal.hasAllChangesSince(journal.getEpoch(), 0));
+    }
+
+    @Test
+    public void testParseRejectsInvalidText() {
+        assertNull(MementoChangeJournal.parse(null));
+        assertNull(MementoChangeJournal.parse("not a journal"));
+        assertNull(MementoChangeJournal.parse("abc notanumber\n"));
+        assertNull(MementoChangeJournal.parse("abc\n1 NOT_A_TYPE + e1\n"));
+        assertNull(MementoChangeJournal.parse("abc\n2 ENTITY + e1\n1 ENTITY + e2\n"));
+    }
+
+    @Test
+    public void testParsesAppendedChangesIgnoringIncompleteLine() {
+        MementoChangeJournal journal = new MementoChangeJournal(10);
+        String text = journal.toText();
+        text += MementoChangeJournal.toText(journal.add(BrooklynObjectType.ENTITY, ImmutableList.of("e1"), ImmutableList.<String>of()));
+        text += MementoChangeJournal.toText(journal.add(BrooklynObjectType.ENTITY, ImmutableList.of("e2"), ImmutableList.<String>of("e3")));
+        assertEquals(text, journal.toText());
+        
+        // e.g. read while the next change is being appended
+        MementoChangeJournal parsed = MementoChangeJournal.parse(text + "4 ENTITY + e");
+        assertEquals(parsed.getEpoch(), journal.getEpoch());
+        assertEquals(parsed.getLastSeq(), 3);
+        assertChange(parsed.getChangesSince(2).get(0), 3, BrooklynObjectType.ENTITY, "e3", true);
+    }
+
+    private void assertChange(MementoChangeJournal.Change change, long seq, BrooklynObjectType type, String id, boolean removed) {
+        assertEquals(change.getSeq(), seq);
+        assertEquals(change.getType(), type);
+        assertEquals(change.getId(), id);
+        assertEquals(change.isRemoved(), removed);
+    }
+}
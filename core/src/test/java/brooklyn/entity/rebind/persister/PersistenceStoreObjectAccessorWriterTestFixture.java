@@ -20,8 +20,11 @@ package brooklyn.entity.rebind.persister;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
 import java.util.concurrent.Executors;
 
@@ -30,11 +33,14 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import brooklyn.entity.rebind.persister.PersistenceObjectStore.ContentsWriter;
 import brooklyn.entity.rebind.persister.PersistenceObjectStore.StoreObjectAccessorWithLock;
 import brooklyn.util.text.Identifiers;
 import brooklyn.util.time.Duration;
 import brooklyn.util.time.Time;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 
@@ -70,6 +76,50 @@ public abstract class PersistenceStoreObjectAccessorWriterTestFixture {
         assertEquals(accessor.get(), "abc");
     }
 
+    @Test
+    public void testStreamingPutAndGet() throws Exception {
+        final String big = makeBigString(biggishSize());
+        accessor.put(new ContentsWriter() {
+            @Override public void writeTo(OutputStream out) throws IOException {
+                out.write(big.getBytes(Charsets.UTF_8));
+            }});
+        accessor.waitForCurrentWrites(TIMEOUT);
+
+        assertEquals(accessor.get(), big);
+        InputStream in = accessor.getInputStream();
+        try {
+            assertEquals(new String(ByteStreams.toByteArray(in), Charsets.UTF_8), big);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void testFailedStreamingPutLeavesPreviousContents() throws Exception {
+        accessor.put("abc");
+        try {
+            accessor.put(new ContentsWriter() {
+                @Override public void writeTo(OutputStream out) throws IOException {
+                    out.write("partial".getBytes(Charsets.UTF_8));
+                    throw new IOException("Simulated failure");
+                }});
+            Assert.fail("should have failed");
+        } catch (Exception e) {
+            // expected
+        }
+        accessor.waitForCurrentWrites(TIMEOUT);
+
+        assertEquals(accessor.get(), "abc");
+    }
+
+    @Test
+    public void testGetInputStreamWhenAbsent() throws Exception {
+        accessor.delete();
+        accessor.waitForCurrentWrites(TIMEOUT);
+        
+        assertNull(accessor.getInputStream());
+    }
+
     /** most storage systems support <= 1ms resolution; but some file systems -- esp FAT and OSX HFS+ are much much higher! */
     protected Duration getLastModifiedResolution() {
         return Duration.millis(1);
@@ -0,0 +1,389 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.entity.rebind.persister;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.config.BrooklynServerConfig;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.rebind.persister.PersistenceObjectStore.ContentsWriter;
+import brooklyn.management.ha.HighAvailabilityMode;
+import brooklyn.test.Asserts;
+import brooklyn.test.entity.LocalManagementContextForTests;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.exceptions.FatalConfigurationRuntimeException;
+import brooklyn.util.os.Os;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+public class SegmentLogObjectStoreTest {
+
+    private LocalManagementContextForTests mgmt;
+    private File parentdir;
+    private File basedir;
+    private SegmentLogObjectStore store;
+    private ExecutorService executor;
+    
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(SegmentLogObjectStore.COMPACTION_MIN_SIZE, 0L);
+        // compaction is triggered explicitly, except where testing automatic compaction
+        props.put(SegmentLogObjectStore.COMPACTION_THRESHOLD, 2.0);
+        mgmt = new LocalManagementContextForTests(props);
+        parentdir = Files.createTempDir();
+        basedir = new File(parentdir, "mystore");
+        store = newStore();
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (executor != null) executor.shutdownNow();
+        if (store != null) store.close();
+        if (parentdir != null) Os.deleteRecursively(parentdir);
+        if (mgmt != null) Entities.destroyAll(mgmt);
+    }
+    
+    private SegmentLogObjectStore newStore() {
+        SegmentLogObjectStore result = new SegmentLogObjectStore(basedir);
+        result.injectManagementContext(mgmt);
+        result.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        return result;
+    }
+    
+    private SegmentLogObjectStore reopenStore() {
+        store.close();
+        store = newStore();
+        return store;
+    }
+    
+    @Test
+    public void testPutGetAndDelete() throws Exception {
+        store.newAccessor("entities/a").put("val-a");
+        store.newAccessor("entities/b").put("val-b");
+        store.newAccessor("locations/c").put("val-c");
+        store.newAccessor("entities/a").put("val-a2");
+        
+        assertEquals(store.newAccessor("entities/a").get(), "val-a2");
+        assertEquals(ImmutableSet.copyOf(store.listContentsWithSubPath("entities")), ImmutableSet.of("entities/a", "entities/b"));
+        assertEquals(store.listContentsWithSubPath("locations"), ImmutableSet.of("locations/c").asList());
+        
+        store.newAccessor("entities/b").delete();
+        assertFalse(store.newAccessor("entities/b").exists());
+        assertNull(store.newAccessor("entities/b").get());
+        assertEquals(store.listContentsWithSubPath("entities"), ImmutableSet.of("entities/a").asList());
+    }
+    
+    @Test
+    public void testStateRecoveredOnReopen() throws Exception {
+        store.newAccessor("entities/a").put("val-a");
+        store.newAccessor("entities/b").put("val-b");
+        store.newAccessor("entities/a").append("-more");
+        store.newAccessor("entities/b").delete();
+        
+        reopenStore();
+        
+        assertEquals(store.newAccessor("entities/a").get(), "val-a-more");
+        assertFalse(store.newAccessor("entities/b").exists());
+        assertEquals(store.listContentsWithSubPath("entities"), ImmutableSet.of("entities/a").asList());
+    }
+    
+    @Test
+    public void testTornRecordDiscardedOnReopen() throws Exception {
+        store.newAccessor("entities/a").put("val-a");
+        store.newAccessor("entities/b").put("val-b");
+        store.close();
+        
+        // simulate a crash part-way through writing the last record
+        File segment = basedir.listFiles()[0];
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            raf.setLength(raf.length() - 3);
+        } finally {
+            raf.close();
+        }
+        store = newStore();
+        
+        assertEquals(store.newAccessor("entities/a").get(), "val-a");
+        assertFalse(store.newAccessor("entities/b").exists());
+        
+        // and can continue writing after the truncated record
+        store.newAccessor("entities/c").put("val-c");
+        reopenStore();
+        assertEquals(store.newAccessor("entities/a").get(), "val-a");
+        assertEquals(store.newAccessor("entities/c").get(), "val-c");
+    }
+    
+    @Test
+    public void testFailedStreamingPutDiscardedOnReopen() throws Exception {
+        store.newAccessor("entities/a").put("val-a");
+        try {
+            store.newAccessor("entities/b").put(new ContentsWriter() {
+                @Override public void writeTo(OutputStream out) throws IOException {
+                    out.write(Strings.repeat("x", 100*1000).getBytes(Charsets.UTF_8));
+                    throw new IOException("Simulated failure");
+                }});
+            Assert.fail("should have failed");
+        } catch (Exception e) {
+            if (Exceptions.getFirstThrowableOfType(e, IOException.class) == null) throw e;
+        }
+        store.newAccessor("entities/c").put(new ContentsWriter() {
+            @Override public void writeTo(OutputStream out) throws IOException {
+                out.write("val-c".getBytes(Charsets.UTF_8));
+            }});
+        assertEquals(store.getTotalBytes(), store.getLiveBytes());
+        
+        reopenStore();
+        assertEquals(store.newAccessor("entities/a").get(), "val-a");
+        assertFalse(store.newAccessor("entities/b").exists());
+        assertEquals(store.newAccessor("entities/c").get(), "val-c");
+    }
+    
+    @Test
+    public void testSlowStreamingPutDoesNotDelayOtherWriters() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor = Executors.newCachedThreadPool();
+        Future<?> slowPut = executor.submit(new Runnable() {
+            @Override public void run() {
+                store.newAccessor("entities/slow").put(new ContentsWriter() {
+                    @Override public void writeTo(OutputStream out) throws IOException {
+                        out.write("val-slow".getBytes(Charsets.UTF_8));
+                        writing.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw Exceptions.propagate(e);
+                        }
+                    }});
+            }});
+        try {
+            assertTrue(writing.await(10, TimeUnit.SECONDS));
+            Future<?> otherPut = executor.submit(new Runnable() {
+                @Override public void run() {
+                    store.newAccessor("entities/other").put("val-other");
+                }});
+            otherPut.get(10, TimeUnit.SECONDS);
+            assertFalse(store.newAccessor("entities/slow").exists());
+        } finally {
+            release.countDown();
+        }
+        slowPut.get(10, TimeUnit.SECONDS);
+        
+        reopenStore();
+        assertEquals(store.newAccessor("entities/slow").get(), "val-slow");
+        assertEquals(store.newAccessor("entities/other").get(), "val-other");
+    }
+    
+    @Test
+    public void testRefusesHighAvailability() throws Exception {
+        store.close();
+        store = null;
+        for (HighAvailabilityMode haMode : ImmutableList.of(HighAvailabilityMode.AUTO, HighAvailabilityMode.HOT_STANDBY, HighAvailabilityMode.MASTER)) {
+            SegmentLogObjectStore haStore = new SegmentLogObjectStore(basedir);
+            haStore.injectManagementContext(mgmt);
+            try {
+                haStore.prepareForSharedUse(PersistMode.AUTO, haMode);
+                Assert.fail("should have refused "+haMode);
+            } catch (FatalConfigurationRuntimeException e) {
+                // expected
+            }
+        }
+    }
+    
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testBacksUpBeforeFirstWriteAsMasterIfRequired() throws Exception {
+        store.newAccessor("entities/a").put("val-a");
+        store.close();
+        mgmt.getBrooklynProperties().put(BrooklynServerConfig.PERSISTENCE_BACKUPS_REQUIRED, true);
+        store = newStore();
+        FilenameFilter backupsFilter = new FilenameFilter() {
+            @Override public boolean accept(File dir, String name) {
+                return name.startsWith(basedir.getName()+".") && name.endsWith(".bak");
+            }};
+        assertEquals(parentdir.listFiles(backupsFilter).length, 0);
+        
+        store.prepareForMasterUse();
+        store.newAccessor("entities/a").put("val-a2");
+        store.prepareForMasterUse();
+        
+        File[] backups = parentdir.listFiles(backupsFilter);
+        assertEquals(backups.length, 1);
+        SegmentLogObjectStore backupStore = new SegmentLogObjectStore(backups[0]);
+        backupStore.injectManagementContext(mgmt);
+        backupStore.prepareForSharedUse(PersistMode.REBIND, HighAvailabilityMode.DISABLED);
+        try {
+            assertEquals(backupStore.newAccessor("entities/a").get(), "val-a");
+        } finally {
+            backupStore.close();
+        }
+    }
+    
+    @Test
+    public void testMigratesFileBasedStore() throws Exception {
+        store.close();
+        Os.deleteRecursively(basedir);
+        FileBasedObjectStore fileStore = new FileBasedObjectStore(basedir);
+        fileStore.injectManagementContext(mgmt);
+        fileStore.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        fileStore.createSubPath("entities");
+        fileStore.createSubPath("locations");
+        fileStore.newAccessor("entities/a").put("val-a");
+        fileStore.newAccessor("locations/b").put("val-b");
+        fileStore.close();
+        
+        store = newStore();
+        assertEquals(store.newAccessor("entities/a").get(), "val-a");
+        assertEquals(store.newAccessor("locations/b").get(), "val-b");
+        assertEquals(store.listContentsWithSubPath("entities"), ImmutableSet.of("entities/a").asList());
+        assertFalse(new File(basedir, "entities").exists());
+        
+        File[] backups = parentdir.listFiles(new FilenameFilter() {
+            @Override public boolean accept(File dir, String name) {
+                return name.startsWith(basedir.getName()+".file-store.");
+            }});
+        assertEquals(backups.length, 1);
+        assertEquals(Files.toString(new File(backups[0], "entities/a"), Charsets.UTF_8), "val-a");
+        
+        // and the migrated state survives a restart
+        reopenStore();
+        assertEquals(store.newAccessor("entities/a").get(), "val-a");
+    }
+    
+    @Test
+    public void testRefusesFileBasedStoreAlongsideSegments() throws Exception {
+        store.newAccessor("entities/a").put("val-a");
+        store.close();
+        store = null;
+        new File(basedir, "entities").mkdirs();
+        Files.write("val-b", new File(basedir, "entities/b"), Charsets.UTF_8);
+        
+        try {
+            newStore();
+            Assert.fail("should have refused directory with segments and files");
+        } catch (FatalConfigurationRuntimeException e) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testCompactionKeepsLiveRecordsOnly() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            store.newAccessor("entities/a").put("val-a-"+i);
+        }
+        store.newAccessor("entities/b").put("val-b");
+        store.newAccessor("entities/b").delete();
+        store.newAccessor("entities/c").put("val-c");
+        long sizeBefore = store.getTotalBytes();
+        
+        store.compact();
+        
+        assertTrue(store.getTotalBytes() < sizeBefore, "before="+sizeBefore+"; after="+store.getTotalBytes());
+        assertEquals(store.getTotalBytes(), store.getLiveBytes());
+        assertEquals(store.newAccessor("entities/a").get(), "val-a-99");
+        assertEquals(store.newAccessor("entities/c").get(), "val-c");
+        
+        reopenStore();
+        assertEquals(store.newAccessor("entities/a").get(), "val-a-99");
+        assertEquals(store.newAccessor("entities/c").get(), "val-c");
+        assertFalse(store.newAccessor("entities/b").exists());
+        assertEquals(store.getNumSegments(), 1);
+    }
+    
+    @Test
+    public void testCompactsAutomatically() throws Exception {
+        store.close();
+        mgmt.getBrooklynProperties().put(SegmentLogObjectStore.COMPACTION_THRESHOLD, 0.5);
+        store = newStore();
+        
+        for (int i = 0; i < 100; i++) {
+            store.newAccessor("entities/a").put("val-a-"+i);
+        }
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue(store.getNumCompactions() > 0);
+            }});
+        assertEquals(store.newAccessor("entities/a").get(), "val-a-99");
+    }
+    
+    @Test
+    public void testRollsSegments() throws Exception {
+        store.close();
+        mgmt.getBrooklynProperties().put(SegmentLogObjectStore.MAX_SEGMENT_SIZE, 100L);
+        store = newStore();
+        
+        for (int i = 0; i < 10; i++) {
+            store.newAccessor("entities/e"+i).put(Strings.repeat("x", 100));
+        }
+        assertTrue(store.getNumSegments() >= 10, "segments="+store.getNumSegments());
+        
+        reopenStore();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(store.newAccessor("entities/e"+i).get().length(), 100);
+        }
+    }
+    
+    @Test
+    public void testConcurrentWritersShareSyncs() throws Exception {
+        executor = Executors.newFixedThreadPool(20);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int i = 0; i < 200; i++) {
+            final String path = "entities/e"+i;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override public Void call() {
+                    store.newAccessor(path).put("val");
+                    return null;
+                }}));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        
+        assertEquals(store.listContentsWithSubPath("entities").size(), 200);
+        assertTrue(store.getNumSyncs() <= 200, "syncs="+store.getNumSyncs());
+    }
+}
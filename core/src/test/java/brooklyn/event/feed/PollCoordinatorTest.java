@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.event.feed;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.util.time.Duration;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+public class PollCoordinatorTest {
+
+    @Test
+    public void testInitialDelaysSpreadEvenlyOverPeriod() throws Exception {
+        PollCoordinator coordinator = new PollCoordinator(BrooklynProperties.Factory.newEmpty());
+        Duration period = Duration.millis(1000);
+        
+        List<Long> delays = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            Duration delay = coordinator.nextInitialDelay(period, true);
+            assertTrue(delay.compareTo(Duration.ZERO) >= 0 && delay.compareTo(period) < 0, "delay="+delay);
+            delays.add(delay.toMilliseconds());
+        }
+        
+        // no two of the ten offsets should fall be bunched together
+        List<Long> sorted = Ordering.natural().sortedCopy(delays);
+        for (int i = 1; i < sorted.size(); i++) {
+            assertTrue(sorted.get(i) - sorted.get(i-1) >= 30, "delays="+sorted);
+        }
+    }
+    
+    @Test
+    public void testInitialDelaySpreadOverFractionOfPeriod() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(PollCoordinator.INITIAL_DELAY_FRACTION, 0.1);
+        props.put(PollCoordinator.MAX_INITIAL_DELAY, Duration.ONE_HOUR);
+        PollCoordinator coordinator = new PollCoordinator(props);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(coordinator.nextInitialDelay(Duration.ONE_MINUTE, true).compareTo(Duration.seconds(6)) < 0);
+        }
+        
+        props.put(PollCoordinator.INITIAL_DELAY_FRACTION, 0.0);
+        coordinator = new PollCoordinator(props);
+        assertEquals(coordinator.nextInitialDelay(Duration.ONE_MINUTE, true), Duration.ZERO);
+    }
+    
+    @Test
+    public void testInitialDelayCappedAndCanBeDisabled() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(PollCoordinator.MAX_INITIAL_DELAY, Duration.millis(100));
+        PollCoordinator coordinator = new PollCoordinator(props);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(coordinator.nextInitialDelay(Duration.ONE_HOUR, true).compareTo(Duration.millis(100)) < 0);
+        }
+        
+        props.put(PollCoordinator.MAX_INITIAL_DELAY, Duration.ZERO);
+        coordinator = new PollCoordinator(props);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(coordinator.nextInitialDelay(Duration.ONE_HOUR, true), Duration.ZERO);
+        }
+    }
+    
+    @Test
+    public void testNoInitialDelayUnlessRestarting() throws Exception {
+        PollCoordinator coordinator = new PollCoordinator(BrooklynProperties.Factory.newEmpty());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(coordinator.nextInitialDelay(Duration.ONE_MINUTE, false), Duration.ZERO);
+        }
+    }
+    
+    @Test
+    public void testInitialDelayCappedByDefault() throws Exception {
+        PollCoordinator coordinator = new PollCoordinator(BrooklynProperties.Factory.newEmpty());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(coordinator.nextInitialDelay(Duration.ONE_HOUR, true).compareTo(Duration.FIVE_SECONDS) < 0);
+        }
+    }
+    
+    @Test
+    public void testRateLimitsPerTarget() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(PollCoordinator.MAX_POLLS_PER_SECOND_PER_TARGET, 0.1);
+        PollCoordinator coordinator = new PollCoordinator(props);
+        
+        assertTrue(coordinator.tryAcquire("host1:80"));
+        assertFalse(coordinator.tryAcquire("host1:80"));
+        assertTrue(coordinator.tryAcquire("host2:80"));
+        assertTrue(coordinator.tryAcquire(null));
+        assertEquals(coordinator.getTotalThrottled(), 1);
+    }
+    
+    @Test
+    public void testUnlimitedByDefault() throws Exception {
+        PollCoordinator coordinator = new PollCoordinator(BrooklynProperties.Factory.newEmpty());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(coordinator.tryAcquire("host1:80"));
+        }
+    }
+    
+    @Test
+    public void testRecordsLagAndOverruns() throws Exception {
+        PollCoordinator coordinator = new PollCoordinator(BrooklynProperties.Factory.newEmpty());
+        coordinator.recordPoll(Duration.millis(10), Duration.millis(5), Duration.millis(100));
+        coordinator.recordPoll(Duration.millis(30), Duration.millis(200), Duration.millis(100));
+        coordinator.recordSkippedAsStillRunning();
+        
+        assertEquals(coordinator.getTotalPolls(), 2);
+        assertEquals(coordinator.getTotalOverruns(), 2);
+        assertEquals(coordinator.getMeanLag(), Duration.millis(20));
+        assertEquals(coordinator.getMaxLag(), Duration.millis(30));
+    }
+}
@@ -18,9 +18,11 @@
  */
 package brooklyn.event.feed;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -32,12 +34,15 @@ import org.testng.annotations.Test;
 
 import brooklyn.entity.BrooklynAppUnitTestSupport;
 import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.management.internal.AbstractManagementContext;
 import brooklyn.test.Asserts;
 import brooklyn.test.entity.TestEntity;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.task.DynamicTasks;
 import brooklyn.util.time.Duration;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+
 public class PollerTest extends BrooklynAppUnitTestSupport {
 
     private static final Logger LOG = LoggerFactory.getLogger(PollerTest.class);
@@ -104,4 +109,100 @@ public class PollerTest extends BrooklynAppUnitTestSupport {
             }
         });
     }
+
+    @Test
+    public void testSkipsPollWhilePreviousRunStillGoing() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        final CountDownLatch firstPollStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstPoll = new CountDownLatch(1);
+        poller.scheduleAtFixedRate(
+                new Callable<Integer>() {
+                    @Override public Integer call() throws Exception {
+                        int result = counter.incrementAndGet();
+                        if (result == 1) {
+                            firstPollStarted.countDown();
+                            Uninterruptibles.awaitUninterruptibly(releaseFirstPoll);
+                        }
+                        return result;
+                    }
+                },
+                new RecordingPollHandler(), 
+                Duration.millis(10));
+        poller.start();
+        assertTrue(firstPollStarted.await(30, TimeUnit.SECONDS));
+        
+        // restarting while the first poll is still going must not run the job concurrently
+        poller.stop();
+        poller.start();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue(poller.getNumSkipped() > 0);
+            }});
+        assertEquals(counter.get(), 1);
+        assertTrue(poller.getNumOverruns() > 0);
+        
+        releaseFirstPoll.countDown();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue(counter.get() > 1);
+            }});
+    }
+    
+    @Test
+    public void testRecordsPollsInCoordinator() throws Exception {
+        final PollCoordinator coordinator = ((AbstractManagementContext)mgmt).getPollCoordinator();
+        final long initialPolls = coordinator.getTotalPolls();
+        final AtomicInteger counter = new AtomicInteger();
+        poller.scheduleAtFixedRate(
+                new Callable<Integer>() {
+                    @Override public Integer call() throws Exception {
+                        return counter.incrementAndGet();
+                    }
+                },
+                new RecordingPollHandler(), 
+                Duration.millis(10));
+        poller.start();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue(coordinator.getTotalPolls() >= initialPolls + 2);
+            }});
+        assertTrue(coordinator.getMaxLag().compareTo(coordinator.getMeanLag()) >= 0);
+    }
+    
+    @Test
+    public void testNewPollerPollsImmediately() throws Exception {
+        final AtomicInteger counter = new AtomicInteger();
+        poller.scheduleAtFixedRate(
+                new Callable<Integer>() {
+                    @Override public Integer call() throws Exception {
+                        return counter.incrementAndGet();
+                    }
+                },
+                new RecordingPollHandler(), 
+                Duration.ONE_HOUR);
+        poller.start();
+        
+        // not delayed by the spread applied when restarting (which would be up to the default cap of some seconds)
+        Asserts.succeedsEventually(MutableMap.of("timeout", Duration.ONE_SECOND), new Runnable() {
+            @Override public void run() {
+                assertEquals(counter.get(), 1);
+            }});
+    }
+    
+    private static class RecordingPollHandler implements PollHandler<Integer> {
+        @Override public boolean checkSuccess(Integer val) {
+            return true;
+        }
+        @Override public void onSuccess(Integer val) {
+        }
+        @Override public void onFailure(Integer val) {
+        }
+        @Override public void onException(Exception exception) {
+            LOG.info("Exception in test poller", exception);
+        }
+        @Override public String getDescription() {
+            return "mypollhandler";
+        }
+    }
 }
@@ -50,6 +50,7 @@ import brooklyn.location.basic.LocalhostMachineProvisioningLocation;
 import brooklyn.test.Asserts;
 import brooklyn.test.EntityTestUtils;
 import brooklyn.test.entity.TestEntity;
+import brooklyn.util.collections.MutableMap;
 
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
@@ -140,6 +141,67 @@ public class FunctionFeedTest extends BrooklynAppUnitTestSupport {
         EntityTestUtils.assertAttributeEqualsEventually(entity, SENSOR_INT, 124);
     }
     
+    @Test
+    public void testSuppressesDuplicates() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final List<Integer> ints = new CopyOnWriteArrayList<Integer>();
+        
+        entity.subscribe(entity, SENSOR_INT, new SensorEventListener<Integer>() {
+                @Override public void onEvent(SensorEvent<Integer> event) {
+                    ints.add(event.getValue());
+                }});
+        
+        feed = FunctionFeed.builder()
+                .entity(entity)
+                .poll(new FunctionPollConfig<Integer, Integer>(SENSOR_INT)
+                        .period(1)
+                        .callable(new Callable<Integer>() {
+                            @Override public Integer call() {
+                                calls.incrementAndGet();
+                                return 123;
+                            }})
+                        .suppressDuplicates(true))
+                .build();
+
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(calls.get() > 5, "calls="+calls);
+                assertEquals(ints, ImmutableList.of(123));
+            }});
+        Asserts.succeedsContinually(MutableMap.of("timeout", 100), new Runnable() {
+            public void run() {
+                assertEquals(ints, ImmutableList.of(123));
+            }});
+    }
+    
+    @Test
+    public void testSuppressesDuplicatesWithinDeadband() throws Exception {
+        final List<Integer> ints = new CopyOnWriteArrayList<Integer>();
+        
+        entity.subscribe(entity, SENSOR_INT, new SensorEventListener<Integer>() {
+                @Override public void onEvent(SensorEvent<Integer> event) {
+                    ints.add(event.getValue());
+                }});
+        
+        feed = FunctionFeed.builder()
+                .entity(entity)
+                .poll(new FunctionPollConfig<Integer, Integer>(SENSOR_INT)
+                        .period(1)
+                        .callable(new IncrementingCallable())
+                        .suppressDuplicatesWithinDeadband(5))
+                .build();
+
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(ints.size() >= 3, "ints="+ints);
+            }});
+        // values are published only once they move by more than 5 from the last published value
+        List<Integer> published = ImmutableList.copyOf(ints);
+        for (int i = 1; i < published.size(); i++) {
+            assertEquals(published.get(i) - published.get(i-1), 6, "ints="+published);
+        }
+    }
+    
     @Test
     public void testCallsOnExceptionWithExceptionFromCallable() throws Exception {
         final String errMsg = "my err msg";
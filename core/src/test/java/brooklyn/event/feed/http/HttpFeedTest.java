@@ -22,6 +22,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
 import java.net.URL;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -44,6 +45,7 @@ import brooklyn.event.basic.Sensors;
 import brooklyn.event.feed.FeedConfig;
 import brooklyn.event.feed.PollConfig;
 import brooklyn.location.Location;
+import brooklyn.management.internal.AbstractManagementContext;
 import brooklyn.test.Asserts;
 import brooklyn.test.entity.TestEntity;
 import brooklyn.util.collections.MutableList;
@@ -51,15 +53,19 @@ import brooklyn.util.collections.MutableMap;
 import brooklyn.util.guava.Functionals;
 import brooklyn.util.http.BetterMockWebServer;
 import brooklyn.util.http.HttpToolResponse;
+import brooklyn.util.http.SharedHttpClients;
 import brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
+import com.google.common.base.Objects;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.mockwebserver.Dispatcher;
 import com.google.mockwebserver.MockResponse;
+import com.google.mockwebserver.RecordedRequest;
 import com.google.mockwebserver.SocketPolicy;
 
 public class HttpFeedTest extends BrooklynAppUnitTestSupport {
@@ -120,6 +126,81 @@ public class HttpFeedTest extends BrooklynAppUnitTestSupport {
         assertSensorEventually(SENSOR_STRING, "{\"foo\":\"myfoo\"}", TIMEOUT_MS);
     }
     
+    @Test
+    public void testUsesSharedPooledClientWithKeepAlive() throws Exception {
+        feed = HttpFeed.builder()
+                .entity(entity)
+                .baseUrl(baseUrl)
+                .poll(HttpPollConfig.forSensor(SENSOR_INT)
+                        .period(100)
+                        .onSuccess(HttpValueFunctions.responseCode()))
+                .build();
+        assertSensorEventually(SENSOR_INT, (Integer)200, TIMEOUT_MS);
+        
+        SharedHttpClients sharedClients = ((AbstractManagementContext)mgmt).getSharedHttpClients();
+        assertEquals(sharedClients.getNumClients(), 1);
+        
+        // subsequent requests should re-use the same connection
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertTrue(server.getRequestCount() >= 3, "requests="+server.getRequestCount());
+            }});
+        server.takeRequest();
+        server.takeRequest();
+        assertTrue(server.takeRequest().getSequenceNumber() > 0, "connection not re-used");
+    }
+    
+    @Test
+    public void testKeepsCookiesPerPollWhenUsingSharedClient() throws Exception {
+        final List<RecordedRequest> requests = Collections.synchronizedList(Lists.<RecordedRequest>newArrayList());
+        BetterMockWebServer cookieServer = BetterMockWebServer.newInstanceLocalhost();
+        cookieServer.setDispatcher(new Dispatcher() {
+            @Override public MockResponse dispatch(RecordedRequest request) {
+                requests.add(request);
+                MockResponse response = new MockResponse().setResponseCode(200).setBody("ok");
+                if (request.getPath().equals("/login")) response.addHeader("Set-Cookie: session=abc; Path=/");
+                return response;
+            }});
+        cookieServer.play();
+        try {
+            feed = HttpFeed.builder()
+                    .entity(entity)
+                    .baseUrl(cookieServer.getUrl("/"))
+                    .poll(HttpPollConfig.forSensor(SENSOR_INT)
+                            .suburl("login")
+                            .period(100)
+                            .onSuccess(HttpValueFunctions.responseCode()))
+                    .poll(HttpPollConfig.forSensor(SENSOR_STRING)
+                            .suburl("other")
+                            .period(100)
+                            .onSuccess(HttpValueFunctions.stringContentsFunction()))
+                    .build();
+            
+            // both polls use the same shared client, but only the poll which received the cookie sends it back
+            Asserts.succeedsEventually(new Runnable() {
+                public void run() {
+                    assertEquals(countRequests(requests, "/login", "session=abc"), 2, "requests="+requests);
+                    assertEquals(countRequests(requests, "/other", null), 2, "requests="+requests);
+                }
+                private int countRequests(List<RecordedRequest> requests, String path, String cookie) {
+                    int result = 0;
+                    synchronized (requests) {
+                        for (RecordedRequest request : requests) {
+                            if (request.getPath().equals(path) && Objects.equal(request.getHeader("Cookie"), cookie)) result++;
+                        }
+                    }
+                    return Math.min(result, 2);
+                }});
+            for (RecordedRequest request : ImmutableList.copyOf(requests)) {
+                if (request.getPath().equals("/other")) assertEquals(request.getHeader("Cookie"), null);
+            }
+            assertEquals(((AbstractManagementContext)mgmt).getSharedHttpClients().getNumClients(), 1);
+        } finally {
+            feed.stop();
+            cookieServer.shutdown();
+        }
+    }
+    
     @Test
     public void testFeedDeDupe() throws Exception {
         testPollsAndParsesHttpGetResponse();
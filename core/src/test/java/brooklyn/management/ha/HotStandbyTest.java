@@ -36,10 +36,12 @@ import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import brooklyn.config.BrooklynProperties;
 import brooklyn.entity.Application;
 import brooklyn.entity.Entity;
 import brooklyn.entity.Feed;
 import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.proxying.EntitySpec;
 import brooklyn.entity.rebind.PersistenceExceptionHandlerImpl;
 import brooklyn.entity.rebind.RebindFeedTest.MyEntityWithFunctionFeedImpl;
@@ -56,6 +58,7 @@ import brooklyn.location.LocationSpec;
 import brooklyn.location.basic.LocalhostMachineProvisioningLocation.LocalhostMachine;
 import brooklyn.management.internal.AbstractManagementContext;
 import brooklyn.management.internal.ManagementContextInternal;
+import brooklyn.test.Asserts;
 import brooklyn.test.EntityTestUtils;
 import brooklyn.test.entity.LocalManagementContextForTests;
 import brooklyn.test.entity.TestApplication;
@@ -78,6 +81,8 @@ public class HotStandbyTest {
     Map<String,String> sharedBackingStore = MutableMap.of();
     Map<String,Date> sharedBackingStoreDates = MutableMap.of();
     private ClassLoader classLoader = getClass().getClassLoader();
+    /** size of the change journal for new nodes to write, if set */
+    private Integer changeJournalSize;
     
     public class HaMgmtNode {
         // TODO share with WarmStandbyTest and SplitBrainTest and a few others (minor differences but worth it ultimately)
@@ -135,6 +140,7 @@ public class HotStandbyTest {
     public void setUp() throws Exception {
         nodes.clear();
         sharedBackingStore.clear();
+        changeJournalSize = null;
     }
     
     public HaMgmtNode newNode(Duration persistOrRebindPeriod) throws Exception {
@@ -152,7 +158,11 @@ public class HotStandbyTest {
     }
 
     protected ManagementContextInternal newLocalManagementContext() {
-        return new LocalManagementContextForTests();
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        if (changeJournalSize != null) {
+            brooklynProperties.put(BrooklynMementoPersisterToObjectStore.PERSISTER_CHANGE_JOURNAL_SIZE, changeJournalSize);
+        }
+        return new LocalManagementContextForTests(brooklynProperties);
     }
 
     protected PersistenceObjectStore newPersistenceObjectStore() {
@@ -280,6 +290,84 @@ public class HotStandbyTest {
     public void testHotStandbyUnforcedSeesStructuralChangesIncludingRemoval() throws Exception {
         doTestHotStandbySeesStructuralChangesIncludingRemoval(false);
     }
+
+    @Test
+    public void testIncrementalHotStandbySkipsUnchangedStateButSeesChanges() throws Exception {
+        changeJournalSize = 100;
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        TestApplication app = createFirstAppAndPersist(n1);
+        final HaMgmtNode n2 = newNode(Duration.millis(10));
+        n2.rebinder().setReadOnlyIncremental(true);
+        n2.ha.start(HighAvailabilityMode.HOT_STANDBY);
+        assertEquals(n2.ha.getNodeState(), ManagementNodeState.HOT_STANDBY);
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue(n2.rebinder().getReadOnlyRebindSkippedCount() >= 5, "skipped="+n2.rebinder().getReadOnlyRebindSkippedCount());
+            }});
+        Application appRO = n2.mgmt.lookup(app.getId(), Application.class);
+        assertEquals(appRO.getAttribute(TestEntity.SEQUENCE), (Integer)3);
+
+        // additions and changes are picked up
+        TestEntity child = app.addChild(EntitySpec.create(TestEntity.class).configure(TestEntity.CONF_NAME, "first-child"));
+        Entities.manage(child);
+        app.setAttribute(TestEntity.SEQUENCE, 4);
+        forcePersistNow(n1);
+        
+        appRO = expectRebindSequenceNumber(n1, n2, app, 4, false);
+        EntityTestUtils.assertAttributeEqualsEventually(appRO, TestEntity.SEQUENCE, 4);
+        assertEquals(Iterables.getOnlyElement(appRO.getChildren()).getConfig(TestEntity.CONF_NAME), "first-child");
+        
+        // as are removals
+        Entities.unmanage(child);
+        app.setAttribute(TestEntity.SEQUENCE, 5);
+        forcePersistNow(n1);
+        
+        appRO = expectRebindSequenceNumber(n1, n2, app, 5, false);
+        assertEquals(appRO.getChildren().size(), 0);
+        assertEquals(n2.mgmt.getEntityManager().getEntities().size(), 1);
+    }
+    
+    @Test
+    public void testIncrementalHotStandbyAppliesAttributeChangesInPlace() throws Exception {
+        changeJournalSize = 100;
+        HaMgmtNode n1 = createMaster(Duration.PRACTICALLY_FOREVER);
+        TestApplication app = createFirstAppAndPersist(n1);
+        app.setAttribute(TestEntity.NAME, "first-name");
+        forcePersistNow(n1);
+        final HaMgmtNode n2 = newNode(Duration.millis(10));
+        n2.rebinder().setReadOnlyIncremental(true);
+        n2.ha.start(HighAvailabilityMode.HOT_STANDBY);
+        assertEquals(n2.ha.getNodeState(), ManagementNodeState.HOT_STANDBY);
+        
+        Application appRO = n2.mgmt.lookup(app.getId(), Application.class);
+        EntityTestUtils.assertAttributeEqualsEventually(appRO, TestEntity.NAME, "first-name");
+        Entity appROImpl = Entities.deproxy(appRO);
+        int rebindCount = n2.rebinder().getReadOnlyRebindCount();
+        
+        // changes to attributes only (including removal) are applied to the existing read-only entity
+        app.setAttribute(TestEntity.SEQUENCE, 4);
+        ((EntityInternal)app).removeAttribute(TestEntity.NAME);
+        forcePersistNow(n1);
+        
+        EntityTestUtils.assertAttributeEqualsEventually(appRO, TestEntity.SEQUENCE, 4);
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue(n2.rebinder().getReadOnlyRebindInPlaceCount() >= 1, "inPlace="+n2.rebinder().getReadOnlyRebindInPlaceCount());
+            }});
+        assertFalse(((EntityInternal)appRO).getAllAttributes().containsKey(TestEntity.NAME));
+        assertEquals(n2.rebinder().getReadOnlyRebindCount(), rebindCount);
+        Assert.assertSame(Entities.deproxy(appRO), appROImpl);
+        
+        // other changes still cause a full read-only rebind
+        app.setDisplayName("First App Renamed");
+        app.setAttribute(TestEntity.SEQUENCE, 5);
+        forcePersistNow(n1);
+        
+        appRO = expectRebindSequenceNumber(n1, n2, app, 5, false);
+        assertEquals(appRO.getDisplayName(), "First App Renamed");
+        assertTrue(n2.rebinder().getReadOnlyRebindCount() > rebindCount, "rebinds="+n2.rebinder().getReadOnlyRebindCount());
+    }
     
     public void doTestHotStandbySeesStructuralChangesIncludingRemoval(boolean immediate) throws Exception {
         HaMgmtNode n1 = createMaster(immediate ? Duration.PRACTICALLY_FOREVER : Duration.millis(200));
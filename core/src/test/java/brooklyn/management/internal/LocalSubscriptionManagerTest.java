@@ -19,6 +19,8 @@
 package brooklyn.management.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.List;
@@ -41,6 +43,15 @@ import brooklyn.management.SubscriptionHandle;
 import brooklyn.management.SubscriptionManager;
 import brooklyn.test.entity.TestEntity;
 
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+
 /**
  * testing the {@link SubscriptionManager} and associated classes.
  */
@@ -140,6 +151,109 @@ public class LocalSubscriptionManagerTest extends BrooklynAppUnitTestSupport {
         assertEquals(events.get(0).getSource().getId(), member.getId());
     }
     
+    @Test
+    public void testGetSubscriptionsForEntitySensorIncludesWildcards() throws Exception {
+        SubscriptionManager subscriptionManager = app.getManagementContext().getSubscriptionManager();
+        SensorEventListener<Object> noopListener = new SensorEventListener<Object>() {
+            @Override public void onEvent(SensorEvent<Object> event) {
+            }
+        };
+        SubscriptionHandle exact = app.subscribe(entity, TestEntity.SEQUENCE, noopListener);
+        SubscriptionHandle anyEntity = app.subscribe(null, TestEntity.SEQUENCE, noopListener);
+        SubscriptionHandle anySensor = app.subscribe(entity, null, noopListener);
+        SubscriptionHandle otherSensor = app.subscribe(entity, TestEntity.NAME, noopListener);
+        
+        assertEquals(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE), 
+                ImmutableSet.of(exact, anyEntity, anySensor));
+        
+        app.unsubscribe(entity, exact);
+        app.unsubscribe(null, anyEntity);
+        assertEquals(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE), 
+                ImmutableSet.of(anySensor));
+        assertEquals(subscriptionManager.getSubscriptionsForEntitySensor(entity, TestEntity.NAME), 
+                ImmutableSet.of(otherSensor, anySensor));
+    }
+    
+    @Test
+    public void testUnsubscribeStopsDelivery() throws Exception {
+        final List<SensorEvent<Integer>> events = new CopyOnWriteArrayList<SensorEvent<Integer>>();
+        SubscriptionHandle handle = app.subscribe(entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                events.add(event);
+            }});
+        assertTrue(app.unsubscribe(entity, handle));
+        assertFalse(app.unsubscribe(entity, handle));
+        
+        final CountDownLatch latch = new CountDownLatch(1);
+        app.subscribe(entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                latch.countDown();
+            }});
+        entity.setSequenceValue(1234);
+        if (!latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            fail("Timeout waiting for Event on TestEntity listener");
+        }
+        assertEquals(events.size(), 0);
+    }
+    
+    @Test
+    public void testBatchDeliveryPreservesOrder() throws Exception {
+        final List<Integer> values = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        SubscriptionManager subscriptionManager = app.getManagementContext().getSubscriptionManager();
+        subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", app, "batchDelivery", true), entity, TestEntity.SEQUENCE, 
+                new SensorEventListener<Integer>() {
+                    @Override public void onEvent(SensorEvent<Integer> event) {
+                        values.add(event.getValue());
+                        if (event.getValue() == 99) latch.countDown();
+                    }});
+        for (int i = 0; i < 100; i++) {
+            entity.setAttribute(TestEntity.SEQUENCE, i);
+        }
+        if (!latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            fail("Timeout waiting for Event on TestEntity listener");
+        }
+        assertEquals(values, ContiguousSet.create(Range.closedOpen(0, 100), DiscreteDomain.integers()).asList());
+    }
+    
+    @Test
+    public void testCoalesceAttributeUpdatesDeliversLatestValue() throws Exception {
+        final List<Object> values = new CopyOnWriteArrayList<Object>();
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        
+        // deliveries for the same subscriber are single-threaded, so block them while the events are published
+        app.subscribe(entity, TestEntity.MY_NOTIF, new SensorEventListener<Integer>() {
+            @Override public void onEvent(SensorEvent<Integer> event) {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                }
+            }});
+        SubscriptionManager subscriptionManager = app.getManagementContext().getSubscriptionManager();
+        subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", app, "coalesceAttributeUpdates", true), entity, null, 
+                new SensorEventListener<Object>() {
+                    @Override public void onEvent(SensorEvent<Object> event) {
+                        values.add(event.getValue());
+                        if ("done".equals(event.getValue())) latch.countDown();
+                    }});
+        
+        entity.emit(TestEntity.MY_NOTIF, -1);
+        for (int i = 0; i < 100; i++) {
+            entity.setAttribute(TestEntity.SEQUENCE, i);
+            if (i == 50) entity.emit(TestEntity.MY_NOTIF, 50);
+        }
+        entity.setAttribute(TestEntity.NAME, "done");
+        blocker.countDown();
+        
+        if (!latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            fail("Timeout waiting for Event on TestEntity listener");
+        }
+        assertEquals(values, ImmutableList.<Object>of(-1, 50, 99, "done"));
+        assertEquals(((LocalSubscriptionManager)subscriptionManager).getTotalEventsCoalesced(), 99);
+    }
+    
     // Regression test for ConcurrentModificationException in issue #327
     @Test(groups="Integration")
     public void testConcurrentSubscribingAndPublishing() throws Exception {
@@ -21,12 +21,17 @@ package brooklyn.qa.performance;
 import static org.testng.Assert.assertTrue;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.proxying.EntitySpec;
 import brooklyn.event.SensorEvent;
 import brooklyn.event.SensorEventListener;
@@ -76,6 +81,65 @@ public class EntityPerformanceTest extends AbstractPerformanceTest {
             }});
     }
 
+    @Test(groups={"Integration", "Acceptance"})
+    public void testMultiEntityConcurrentUpdateAttribute() throws Exception {
+        // each iteration, every entity updates an attribute on its own thread, while another polls their versions
+        // (as REST clients do for ETags); measures contention on what entities share when modified
+        int numIterations = numIterations();
+        double minRatePerSec = 100 * PERFORMANCE_EXPECTATION;
+        final int updatesPerEntity = 100;
+        final ExecutorService executor = Executors.newFixedThreadPool(entities.size());
+        final AtomicInteger i = new AtomicInteger();
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread poller = new Thread(new Runnable() {
+            public void run() {
+                while (!done.get()) {
+                    for (TestEntity e : entities) {
+                        ((EntityInternal)e).getModificationVersion();
+                    }
+                }
+            }});
+        poller.start();
+        
+        try {
+            measureAndAssert("updateAttributeMultiEntityConcurrent", numIterations, minRatePerSec, new Runnable() {
+                public void run() {
+                    List<Future<?>> futures = Lists.newArrayList();
+                    for (final TestEntity e : entities) {
+                        futures.add(executor.submit(new Runnable() {
+                            public void run() {
+                                for (int j = 0; j < updatesPerEntity; j++) {
+                                    ((EntityInternal)e).setAttributeWithoutPublishing(TestEntity.SEQUENCE, i.getAndIncrement());
+                                }
+                            }}));
+                    }
+                    try {
+                        for (Future<?> future : futures) {
+                            future.get();
+                        }
+                    } catch (Exception e) {
+                        throw Exceptions.propagate(e);
+                    }
+                }});
+        } finally {
+            done.set(true);
+            executor.shutdownNow();
+            poller.join(TIMEOUT_MS);
+        }
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testGetAttribute() {
+        int numIterations = numIterations()*10;
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+        entity.setAttribute(TestEntity.SEQUENCE, 123);
+        
+        measureAndAssert("getAttribute", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                entity.getAttribute(TestEntity.SEQUENCE);
+            }});
+    }
+
     @Test(groups={"Integration", "Acceptance"})
     public void testUpdateAttributeWithNoopListeners() {
         final int numIterations = numIterations();
@@ -37,6 +37,8 @@ import brooklyn.test.entity.TestEntity;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.exceptions.Exceptions;
 
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
@@ -165,4 +167,38 @@ public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
             throw exception.get();
         }
     }
+
+    /**
+     * Measures publish throughput as the number of subscribers grows, with each subscriber filtering out
+     * the events so that the cost measured is that of publishing rather than of delivery.
+     */
+    @Test(groups={"Integration", "Acceptance"})
+    public void testPublishThroughputAgainstSubscriberCount() throws Exception {
+        int numIterations = NUM_ITERATIONS;
+        final AtomicInteger iter = new AtomicInteger();
+        final AtomicReference<RuntimeException> exception = new AtomicReference<RuntimeException>();
+        Predicate<SensorEvent<Integer>> rejectAll = Predicates.alwaysFalse();
+        
+        int numSubscribers = 0;
+        for (int targetNumSubscribers : new int[] {1, 10, 100, 1000}) {
+            for (; numSubscribers < targetNumSubscribers; numSubscribers++) {
+                subscriptionManager.subscribe(MutableMap.<String, Object>of("subscriber", numSubscribers, "eventFilter", rejectAll), 
+                        entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+                            public void onEvent(SensorEvent<Integer> event) {
+                                exception.set(new RuntimeException("Filtered subscriber called with "+event));
+                                throw exception.get();
+                            }});
+            }
+            double minRatePerSec = (100000 / numSubscribers) * PERFORMANCE_EXPECTATION;
+            
+            measureAndAssert("publishWith"+numSubscribers+"Subscribers", numIterations, minRatePerSec, new Runnable() {
+                @Override public void run() {
+                    entity.setAttribute(TestEntity.SEQUENCE, (iter.incrementAndGet()));
+                }});
+        }
+        
+        if (exception.get() != null) {
+            throw exception.get();
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.qa.performance;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.Lifecycle;
+import brooklyn.util.flags.TypeCoercions;
+import brooklyn.util.time.Duration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.reflect.TypeToken;
+
+public class TypeCoercionsPerformanceTest extends AbstractPerformanceTest {
+
+    private static final int numIterations = 100000;
+
+    @SuppressWarnings("serial")
+    private static final TypeToken<List<Integer>> LIST_OF_INTEGER = new TypeToken<List<Integer>>() {};
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToDuration() {
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+        measureAndAssert("coerceStringToDuration", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce("5s", Duration.class);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceIntegerToLong() {
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+        measureAndAssert("coerceIntegerToLong", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce(Integer.valueOf(1), Long.class);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceStringToEnum() {
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+        measureAndAssert("coerceStringToEnum", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce("running", Lifecycle.class);
+            }});
+    }
+
+    @Test(groups={"Integration", "Acceptance"})
+    public void testCoerceCollectionToListOfInteger() {
+        double minRatePerSec = 10000 * PERFORMANCE_EXPECTATION;
+        final List<String> val = ImmutableList.of("1", "2", "3");
+        measureAndAssert("coerceCollectionToListOfInteger", numIterations, minRatePerSec, new Runnable() {
+            public void run() {
+                TypeCoercions.coerce(val, LIST_OF_INTEGER);
+            }});
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.http;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import java.net.URI;
+
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.HttpClient;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.util.http.SharedHttpClients.ClientKey;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Optional;
+
+public class SharedHttpClientsTest {
+
+    private SharedHttpClients clients;
+    
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        clients = new SharedHttpClients(BrooklynProperties.Factory.newEmpty());
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (clients != null) clients.shutdown();
+    }
+    
+    @Test
+    public void testReusesClientForSameKey() throws Exception {
+        ClientKey key1 = new ClientKey(Optional.<Credentials>absent(), true, true, null, Duration.ONE_SECOND);
+        ClientKey key2 = new ClientKey(Optional.<Credentials>absent(), true, true, null, Duration.ONE_SECOND);
+        ClientKey key3 = new ClientKey(Optional.<Credentials>absent(), true, true, null, Duration.FIVE_SECONDS);
+        
+        HttpClient client1 = clients.getClient(key1, URI.create("http://host1:8080/a"));
+        HttpClient client2 = clients.getClient(key2, URI.create("http://host2:8080/b"));
+        HttpClient client3 = clients.getClient(key3, URI.create("http://host1:8080/a"));
+        
+        assertSame(client1, client2);
+        assertNotSame(client1, client3);
+        assertEquals(clients.getNumClients(), 2);
+    }
+    
+    @Test
+    public void testCredentialsScopedToHostsRequested() throws Exception {
+        Credentials creds = new UsernamePasswordCredentials("myuser", "mypass");
+        ClientKey key = new ClientKey(Optional.of(creds), false, true, null, null);
+        
+        DefaultHttpClient client = (DefaultHttpClient) clients.getClient(key, URI.create("http://host1:8080/a"));
+        clients.getClient(key, URI.create("http://host2:8081/b"));
+        
+        assertEquals(client.getCredentialsProvider().getCredentials(new AuthScope("host1", 8080)), creds);
+        assertEquals(client.getCredentialsProvider().getCredentials(new AuthScope("host2", 8081)), creds);
+        assertEquals(client.getCredentialsProvider().getCredentials(new AuthScope("host3", 8080)), null);
+    }
+    
+    @Test
+    public void testFailsAfterShutdown() throws Exception {
+        clients.shutdown();
+        try {
+            clients.getClient(new ClientKey(Optional.<Credentials>absent(), true, true, null, null), null);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
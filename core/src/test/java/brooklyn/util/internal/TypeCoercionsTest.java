@@ -20,6 +20,8 @@ package brooklyn.util.internal;
 
 import static org.testng.Assert.assertEquals;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Collection;
@@ -34,14 +36,17 @@ import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import brooklyn.entity.basic.Lifecycle;
+import brooklyn.test.Asserts;
 import brooklyn.util.flags.ClassCoercionException;
 import brooklyn.util.flags.TypeCoercions;
 import brooklyn.util.text.StringPredicates;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
 import com.google.common.reflect.TypeToken;
 
 public class TypeCoercionsTest {
@@ -312,6 +317,96 @@ public class TypeCoercionsTest {
         TypeCoercions.coerce(new Object(), TypeToken.of(Integer.class));
     }
 
+    @Test
+    public void testRepeatedCoercionsUseSameStrategy() {
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(TypeCoercions.coerce(new WithAs(""+i), Integer.class), (Integer)i);
+            Assert.assertEquals(TypeCoercions.coerce(""+i, WithFrom.class).value, i);
+        }
+    }
+
+    @Test
+    public void testAdapterRegisteredAfterFailedCoercionIsUsed() {
+        try {
+            TypeCoercions.coerce(new WithAdapterLater(), WithFrom.class);
+            Assert.fail("should have failed before adapter registered");
+        } catch (ClassCoercionException e) {
+            // expected
+        }
+        
+        TypeCoercions.registerAdapter(WithAdapterLater.class, WithFrom.class, new Function<WithAdapterLater, WithFrom>() {
+            @Override public WithFrom apply(WithAdapterLater input) {
+                return WithFrom.fromString("4");
+            }});
+        Assert.assertEquals(TypeCoercions.coerce(new WithAdapterLater(), WithFrom.class).value, 4);
+    }
+
+    @Test
+    public void testCachedCoercionDoesNotPreventClassUnloading() throws Exception {
+        final WeakReference<ClassLoader> valueLoaderRef = coerceFromClassInNewLoader();
+        final WeakReference<ClassLoader> targetLoaderRef = coerceToClassInNewLoader();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                System.gc();
+                Assert.assertNull(valueLoaderRef.get());
+                Assert.assertNull(targetLoaderRef.get());
+            }});
+    }
+
+    private WeakReference<ClassLoader> coerceFromClassInNewLoader() throws Exception {
+        ClassLoader loader = new ReloadingClassLoader(WithAs.class);
+        Class<?> clazz = loader.loadClass(WithAs.class.getName());
+        Assert.assertNotSame(clazz, WithAs.class);
+        
+        Object value = clazz.getConstructor(Object.class).newInstance("5");
+        Assert.assertEquals(TypeCoercions.coerce(value, Integer.class), (Integer)5);
+        return new WeakReference<ClassLoader>(loader);
+    }
+
+    private WeakReference<ClassLoader> coerceToClassInNewLoader() throws Exception {
+        ClassLoader loader = new ReloadingClassLoader(WithFrom.class);
+        Class<?> clazz = loader.loadClass(WithFrom.class.getName());
+        Assert.assertNotSame(clazz, WithFrom.class);
+        
+        Object result = TypeCoercions.coerce("6", clazz);
+        Assert.assertTrue(clazz.isInstance(result), "result="+result);
+        return new WeakReference<ClassLoader>(loader);
+    }
+
+    /** 
+     * Loads the given class afresh, with any enclosing and nested classes (so that they agree on their 
+     * relationship, as is checked when getting the simple name), delegating for all others.
+     */
+    private static class ReloadingClassLoader extends ClassLoader {
+        private final String prefix;
+        
+        ReloadingClassLoader(Class<?> clazz) {
+            super(clazz.getClassLoader());
+            Class<?> outer = clazz;
+            while (outer.getEnclosingClass() != null) outer = outer.getEnclosingClass();
+            this.prefix = outer.getName();
+        }
+        
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(prefix) && !name.startsWith(prefix+"$")) return super.loadClass(name, resolve);
+            Class<?> result = findLoadedClass(name);
+            if (result == null) {
+                try {
+                    byte[] bytes = Resources.toByteArray(getParent().getResource(name.replace('.', '/')+".class"));
+                    result = defineClass(name, bytes, 0, bytes.length);
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+            return result;
+        }
+    }
+
+    public static class WithAdapterLater {
+    }
+
     public static class WithAs {
         String value;
         public WithAs(Object x) { value = ""+x; }
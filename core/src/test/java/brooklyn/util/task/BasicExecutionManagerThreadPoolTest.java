@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.util.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.management.Task;
+import brooklyn.test.Asserts;
+import brooklyn.util.task.BasicExecutionManager.ThreadPoolMode;
+import brooklyn.util.time.Duration;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Callables;
+
+public class BasicExecutionManagerThreadPoolTest {
+
+    private BasicExecutionManager em;
+    
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (em != null) em.shutdownNow();
+    }
+    
+    private BasicExecutionManager newExecutionManager(ThreadPoolMode mode, int size) {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.THREAD_POOL_MODE, mode);
+        props.put(BasicExecutionManager.THREAD_POOL_SIZE, size);
+        return new BasicExecutionManager("mycontext", props);
+    }
+    
+    @Test
+    public void testDefaultsToUnbounded() throws Exception {
+        em = new BasicExecutionManager("mycontext", BrooklynProperties.Factory.newEmpty());
+        assertEquals(em.getThreadPoolMode(), ThreadPoolMode.UNBOUNDED);
+        assertEquals(em.submit(Callables.returning("a")).get(), "a");
+    }
+    
+    @Test
+    public void testBoundedPoolQueuesWork() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.BOUNDED, 2);
+        assertEquals(em.getThreadPoolMode(), ThreadPoolMode.BOUNDED);
+        
+        final CountDownLatch latch = new CountDownLatch(1);
+        List<Task<?>> tasks = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            tasks.add(em.submit(new Runnable() {
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }}));
+        }
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                assertEquals(em.getNumPoolThreads(), 2);
+                assertEquals(em.getPoolQueueSize(), 3);
+            }});
+        
+        latch.countDown();
+        for (Task<?> task : tasks) {
+            task.get();
+        }
+        assertEquals(em.getPoolQueueSize(), 0);
+    }
+    
+    @Test
+    public void testBoundedPoolCompensatesForTasksBlockedOnChildren() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.BOUNDED, 1);
+        
+        Task<String> parent = em.submit(new Callable<String>() {
+            public String call() throws Exception {
+                Task<String> child = em.submit(Callables.returning("child-result"));
+                return child.get();
+            }});
+        assertEquals(parent.get(), "child-result");
+    }
+    
+    @Test
+    public void testBoundedPoolCompensatesForDynamicTasksWaitForLast() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.BOUNDED, 1);
+        
+        Task<String> parent = new BasicExecutionContext(em).submit(Tasks.<String>builder().dynamic(true).body(new Callable<String>() {
+            public String call() throws Exception {
+                DynamicTasks.queue(Tasks.<String>builder().body(Callables.returning("child-result")).build());
+                return (String) DynamicTasks.waitForLast().get();
+            }}).build());
+        assertEquals(parent.get(Duration.THIRTY_SECONDS), "child-result");
+    }
+    
+    @Test
+    public void testBoundedPoolDoesNotCompensateForOtherWaitsUnlessWrapped() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.BOUNDED, 1);
+        
+        // waiting on a latch released by another task in the pool is not compensated: the other task stays queued
+        final CountDownLatch latch = new CountDownLatch(1);
+        Task<Boolean> waiter = em.submit(new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                em.submit(new Runnable() { public void run() { latch.countDown(); } });
+                return latch.await(500, TimeUnit.MILLISECONDS);
+            }});
+        assertFalse(waiter.get());
+        latch.await();
+        
+        // the same wait succeeds if wrapped as a blocking call
+        final CountDownLatch latch2 = new CountDownLatch(1);
+        Task<Boolean> waiter2 = em.submit(new Callable<Boolean>() {
+            public Boolean call() throws Exception {
+                em.submit(new Runnable() { public void run() { latch2.countDown(); } });
+                return CompensatingThreadPoolExecutor.callBlocking(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        return latch2.await(30, TimeUnit.SECONDS);
+                    }});
+            }});
+        assertTrue(waiter2.get());
+    }
+    
+    @Test
+    public void testVirtualThreadsOrFallback() throws Exception {
+        em = newExecutionManager(ThreadPoolMode.VIRTUAL, 1);
+        assertTrue(em.getThreadPoolMode() == ThreadPoolMode.VIRTUAL || em.getThreadPoolMode() == ThreadPoolMode.UNBOUNDED);
+        
+        Task<String> parent = em.submit(new Callable<String>() {
+            public String call() throws Exception {
+                return em.submit(Callables.returning("child-result")).get();
+            }});
+        assertEquals(parent.get(), "child-result");
+        assertTrue(em.getMeanTaskWaitTime().toMilliseconds() >= 0);
+    }
+}
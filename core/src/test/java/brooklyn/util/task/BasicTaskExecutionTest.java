@@ -28,6 +28,7 @@ import static org.testng.Assert.fail;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
@@ -425,6 +426,54 @@ public class BasicTaskExecutionTest {
         log.debug("BasicTask {} was submitted by {}", tb, submitter);
     }
     
+    @Test
+    public void testGetTasksWithAllTagsIntersectsInSubmissionOrder() throws Exception {
+        Task<?> ab1 = em.submit(MutableMap.of("tags", ImmutableList.of("A", "B")), newNoop());
+        Task<?> a = em.submit(MutableMap.of("tag", "A"), newNoop());
+        Task<?> ab2 = em.submit(MutableMap.of("tags", ImmutableList.of("A", "B")), newNoop());
+        Task<?> b = em.submit(MutableMap.of("tag", "B"), newNoop());
+        
+        assertEquals(ImmutableList.copyOf(em.getTasksWithAllTags(ImmutableList.of("A", "B"))), ImmutableList.of(ab1, ab2));
+        assertEquals(ImmutableList.copyOf(em.getTasksWithTag("A")), ImmutableList.of(ab1, a, ab2));
+        assertEquals(ImmutableList.copyOf(em.getTasksWithAnyTag(ImmutableList.of("B", "A"))), ImmutableList.of(ab1, a, ab2, b));
+        assertEquals(em.getTasksWithAllTags(ImmutableList.of("A", "C")), ImmutableSet.of());
+        
+        em.deleteTask(ab1);
+        em.deleteTask(b);
+        assertEquals(ImmutableList.copyOf(em.getTasksWithAllTags(ImmutableList.of("A", "B"))), ImmutableList.of(ab2));
+        em.deleteTask(ab2);
+        assertFalse(em.getTaskTags().contains("B"));
+    }
+    
+    @Test
+    public void testConcurrentSubmitAndDeleteKeepsTagIndexConsistent() throws Exception {
+        final int NUM_THREADS = 4;
+        final int NUM_TASKS_PER_THREAD = 1000;
+        List<Thread> threads = Lists.newArrayList();
+        final List<Throwable> errors = Collections.synchronizedList(Lists.<Throwable>newArrayList());
+        for (int i = 0; i < NUM_THREADS; i++) {
+            final boolean keepTasks = (i == 0);
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int j = 0; j < NUM_TASKS_PER_THREAD; j++) {
+                            Task<?> t = em.submit(MutableMap.of("tag", "shared"), newNoop());
+                            t.get();
+                            if (!keepTasks) em.deleteTask(t);
+                            em.getTasksWithAllTags(ImmutableList.of("shared"));
+                        }
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }}));
+        }
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join(TIMEOUT_MS);
+        
+        assertEquals(errors, ImmutableList.of());
+        assertEquals(em.getTasksWithTag("shared").size(), NUM_TASKS_PER_THREAD);
+    }
+    
     private Callable<Object> newPutCallable(final Object key, final Object val) {
         return new Callable<Object>() {
             public Object call() {
@@ -20,6 +20,7 @@ package brooklyn.util.task;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.List;
@@ -42,6 +43,8 @@ import org.testng.annotations.Test;
 import brooklyn.test.Asserts;
 import brooklyn.util.collections.MutableMap;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Callables;
 
 public class SingleThreadedSchedulerTest {
@@ -181,6 +184,101 @@ public class SingleThreadedSchedulerTest {
         assertEquals(future.get(), (Integer)123);
     }
     
+    @Test
+    public void testDropOldestWhenQueueFull() throws Exception {
+        final SingleThreadedScheduler scheduler = new SingleThreadedScheduler();
+        scheduler.setMaxQueueSize(2);
+        scheduler.setOverflowPolicy(SingleThreadedScheduler.OverflowPolicy.DROP_OLDEST);
+        em.setTaskSchedulerForTag("category2", scheduler);
+        
+        final CountDownLatch latch = new CountDownLatch(1);
+        em.submit(MutableMap.of("tag", "category2"), newLatchAwaiter(latch));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(scheduler.getQueueSize(), 0);
+            }});
+        
+        final List<Integer> result = new CopyOnWriteArrayList<Integer>();
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            final int counter = i;
+            futures.add(em.submit(MutableMap.of("tag", "category2"), new Runnable() {
+                public void run() {
+                    result.add(counter);
+                }}));
+        }
+        assertEquals(scheduler.getQueueSize(), 2);
+        assertEquals(scheduler.getTotalDropped(), 2);
+        
+        latch.countDown();
+        futures.get(3).get();
+        assertEquals(result, ImmutableList.of(2, 3));
+        assertTrue(futures.get(0).isCancelled());
+        assertTrue(futures.get(1).isCancelled());
+    }
+    
+    @Test
+    public void testBlockWhenQueueFull() throws Exception {
+        final SingleThreadedScheduler scheduler = new SingleThreadedScheduler();
+        scheduler.setMaxQueueSize(1);
+        scheduler.setOverflowPolicy(SingleThreadedScheduler.OverflowPolicy.BLOCK);
+        em.setTaskSchedulerForTag("category2", scheduler);
+        
+        final CountDownLatch latch = new CountDownLatch(1);
+        em.submit(MutableMap.of("tag", "category2"), newLatchAwaiter(latch));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(scheduler.getQueueSize(), 0);
+            }});
+        em.submit(MutableMap.of("tag", "category2"), Callables.returning(1));
+        
+        final AtomicBoolean submitted = new AtomicBoolean();
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                em.submit(MutableMap.of("tag", "category2"), Callables.returning(2));
+                submitted.set(true);
+            }});
+        thread.start();
+        try {
+            Thread.sleep(100);
+            assertFalse(submitted.get());
+            
+            latch.countDown();
+            thread.join(10*1000);
+            assertTrue(submitted.get());
+            assertEquals(scheduler.getTotalDropped(), 0);
+        } finally {
+            thread.interrupt();
+        }
+    }
+    
+    @Test
+    public void testDrainsManyPerThreadHopAndRecordsMetrics() throws Exception {
+        final SingleThreadedScheduler scheduler = new SingleThreadedScheduler();
+        scheduler.setMaxItemsPerDrain(10);
+        em.setTaskSchedulerForTag("category2", scheduler);
+        
+        final CountDownLatch latch = new CountDownLatch(1);
+        em.submit(MutableMap.of("tag", "category2"), newLatchAwaiter(latch));
+        final AtomicInteger counter = new AtomicInteger(0);
+        for (int i = 0; i < 100; i++) {
+            em.submit(MutableMap.of("tag", "category2"), new Runnable() {
+                public void run() {
+                    counter.incrementAndGet();
+                }});
+        }
+        assertTrue(scheduler.getMaxQueueSizeObserved() >= 100, "max="+scheduler.getMaxQueueSizeObserved());
+        latch.countDown();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(counter.get(), 100);
+            }});
+        assertEquals(scheduler.getTotalSubmitted(), 101);
+        assertTrue(scheduler.getTotalDrains() >= 11 && scheduler.getTotalDrains() <= 12, "drains="+scheduler.getTotalDrains());
+        assertTrue(scheduler.getMaxQueueDelay().compareTo(scheduler.getMeanQueueDelay()) >= 0);
+    }
+    
     private Callable<Void> newLatchAwaiter(final CountDownLatch latch) {
         return new Callable<Void>() {
             public Void call() throws Exception {
@@ -18,7 +18,12 @@
  */
 package brooklyn.entity.rebind.persister.jclouds;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Date;
 
 import org.apache.commons.io.Charsets;
@@ -27,7 +32,10 @@ import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.util.Strings2;
 
 import brooklyn.entity.rebind.persister.PersistenceObjectStore;
+import brooklyn.entity.rebind.persister.PersistenceObjectStore.ContentsWriter;
 import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.os.Os;
+import brooklyn.util.stream.Streams;
 
 import com.google.common.base.Throwables;
 import com.google.common.io.ByteSource;
@@ -71,6 +79,30 @@ public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreO
         blobStore.putBlob(containerName, blob);
     }
 
+    /** streams the contents to a local temp file, so that only the upload (not the caller) needs the content length */
+    @Override
+    public void put(ContentsWriter contents) {
+        File tmpFile = Os.newTempFile(getClass(), "tmp");
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(tmpFile));
+            try {
+                contents.writeTo(out);
+            } finally {
+                Streams.closeQuietly(out);
+            }
+            
+            blobStore.createContainerInLocation(null, containerName);
+            Blob blob = blobStore.blobBuilder(blobName).payload(tmpFile)
+                    .contentLength(tmpFile.length())
+                    .build();
+            blobStore.putBlob(containerName, blob);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
     @Override
     public void append(String val) {
         String val0 = get();
@@ -96,6 +128,18 @@ public class JcloudsStoreObjectAccessor implements PersistenceObjectStore.StoreO
         }
     }
 
+    @Override
+    public InputStream getInputStream() {
+        try {
+            Blob blob = blobStore.getBlob(containerName, blobName);
+            if (blob==null) return null;
+            return blob.getPayload().openStream();
+        } catch (IOException e) {
+            Exceptions.propagateIfFatal(e);
+            throw new IllegalStateException("Error reading blobstore "+containerName+" "+blobName+": "+e, e);
+        }
+    }
+
     @Override
     public Date getLastModifiedDate() {
         Blob blob = blobStore.getBlob(containerName, blobName);
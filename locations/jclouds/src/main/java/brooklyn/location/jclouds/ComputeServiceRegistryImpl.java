@@ -40,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import brooklyn.entity.basic.Entities;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.config.ConfigBag;
+import brooklyn.util.time.Duration;
 
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableSet;
@@ -98,6 +99,13 @@ public class ComputeServiceRegistryImpl implements ComputeServiceRegistry, Jclou
             }
         }
 
+        // jclouds memoizes the image, hardware and location listings of each ComputeService for the session interval;
+        // as compute services are reused below, that catalogue is shared by all locations using the same cloud account
+        Duration catalogueCacheTtl = conf.get(CATALOGUE_CACHE_TTL);
+        if (catalogueCacheTtl != null) {
+            properties.setProperty(Constants.PROPERTY_SESSION_INTERVAL, Long.toString(Math.max(1, catalogueCacheTtl.toSeconds())));
+        }
+
         // FIXME Deprecated mechanism, should have a ConfigKey for overrides
         Map<String, Object> extra = Maps.filterKeys(conf.getAllConfig(), Predicates.containsPattern("^jclouds\\."));
         if (extra.size() > 0) {
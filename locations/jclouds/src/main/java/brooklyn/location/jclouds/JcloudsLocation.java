@@ -44,6 +44,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -68,6 +69,7 @@ import org.jclouds.compute.domain.OsFamily;
 import org.jclouds.compute.domain.Template;
 import org.jclouds.compute.domain.TemplateBuilder;
 import org.jclouds.compute.domain.TemplateBuilderSpec;
+import org.jclouds.compute.domain.internal.TemplateImpl;
 import org.jclouds.compute.functions.Sha512Crypt;
 import org.jclouds.compute.options.TemplateOptions;
 import org.jclouds.domain.Credentials;
@@ -149,6 +151,7 @@ import brooklyn.util.text.TemplateProcessor;
 import brooklyn.util.time.Duration;
 import brooklyn.util.time.Time;
 
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
@@ -161,6 +164,8 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -173,6 +178,7 @@ import com.google.common.collect.Sets.SetView;
 import com.google.common.io.Files;
 import com.google.common.net.HostAndPort;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * For provisioning and managing VMs in a particular provider/region, using jclouds.
@@ -208,6 +214,10 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
 
     @SetFromFlag // so it's persisted
     private final Map<JcloudsSshMachineLocation,String> vmInstanceIds = Maps.newLinkedHashMap();
+
+    private transient volatile WarmMachinePool warmMachinePool;
+
+    private transient volatile Cache<Map<String,Object>,Template> templateCache;
     
     static { Networking.init(); }
     
@@ -257,6 +267,14 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         }
     }
     
+    @Override
+    public void onManagementStopped() {
+        // release the ready machines while their management is still ours to stop
+        WarmMachinePool pool = warmMachinePool;
+        if (pool != null) pool.close();
+        super.onManagementStopped();
+    }
+    
     @Override
     public JcloudsLocation newSubLocation(Map<?,?> newFlags) {
         return newSubLocation(getClass(), newFlags);
@@ -320,6 +338,24 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
         return checkNotNull(getConfig(MACHINE_CREATION_SEMAPHORE), MACHINE_CREATION_SEMAPHORE.getName());
     }
 
+    /**
+     * The pool of ready machines used by {@link #obtain(Map)} when {@link #WARM_POOL_SIZE} is set,
+     * e.g. for inspecting its hit and miss counts; created on first use, and closed when this location is unmanaged.
+     */
+    @Beta
+    public WarmMachinePool getWarmMachinePool() {
+        WarmMachinePool result = warmMachinePool;
+        if (result == null) {
+            synchronized (this) {
+                result = warmMachinePool;
+                if (result == null) {
+                    result = warmMachinePool = new WarmMachinePool(this);
+                }
+            }
+        }
+        return result;
+    }
+
     protected CloudMachineNamer getCloudMachineNamer(ConfigBag config) {
         String namerClass = config.get(LocationConfigKeys.CLOUD_MACHINE_NAMER_CLASS);
         if (Strings.isNonBlank(namerClass)) {
@@ -525,6 +561,18 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
      * (for initial login, and a user potentially to create for subsequent ie normal access) */
     public JcloudsSshMachineLocation obtain(Map<?,?> flags) throws NoMachinesAvailableException {
         ConfigBag setup = ConfigBag.newInstanceExtending(getAllConfigBag(), flags);
+        Integer warmPoolSize = setup.get(WARM_POOL_SIZE);
+        if (warmPoolSize != null && warmPoolSize > 0) {
+            AccessController.Response access = getManagementContext().getAccessController().canProvisionLocation(this);
+            if (!access.isAllowed()) {
+                throw new IllegalStateException("Access controller forbids provisioning in "+this+": "+access.getMsg());
+            }
+            JcloudsSshMachineLocation pooled = getWarmMachinePool().claim(flags);
+            if (pooled != null) {
+                LOG.info("Obtained machine {} from warm pool in {}", pooled, this);
+                return pooled;
+            }
+        }
         Integer attempts = setup.get(MACHINE_CREATE_ATTEMPTS);
         List<Exception> exceptions = Lists.newArrayList();
         if (attempts == null || attempts < 1) attempts = 1;
@@ -1093,10 +1141,91 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
               })
             .build();
 
+    /** properties which identify the customizers applied to the TemplateBuilder */
+    @SuppressWarnings("deprecation")
+    private static final List<ConfigKey<?>> TEMPLATE_CUSTOMIZER_PROPERTIES = ImmutableList.<ConfigKey<?>>of(
+            JCLOUDS_LOCATION_CUSTOMIZER, JCLOUDS_LOCATION_CUSTOMIZERS, 
+            JCLOUDS_LOCATION_CUSTOMIZER_TYPE, JCLOUDS_LOCATION_CUSTOMIZERS_SUPPLIER_TYPE);
+
     private static boolean listedAvailableTemplatesOnNoSuchTemplate = false;
 
-    /** returns the jclouds Template which describes the image to be built, for the given config and compute service */
-    public Template buildTemplate(ComputeService computeService, ConfigBag config) {
+    /** returns the jclouds Template which describes the image to be built, for the given config and compute service;
+     * the image, hardware and location are reused from an earlier call with the same template properties
+     * if within {@link #TEMPLATE_CACHE_TTL} (when set on this location) */
+    public Template buildTemplate(final ComputeService computeService, final ConfigBag config) {
+        Template template;
+        Cache<Map<String,Object>,Template> cache = getTemplateCache();
+        Map<String,Object> cacheKey = (cache != null) ? getTemplateCacheKey(computeService, config) : null;
+        if (cacheKey != null) {
+            try {
+                Template resolved = cache.get(cacheKey, new Callable<Template>() {
+                    @Override public Template call() {
+                        return resolveTemplate(computeService, config);
+                    }});
+                // options are mutated per machine (e.g. user metadata), so each caller gets its own copy
+                template = new TemplateImpl(resolved.getImage(), resolved.getHardware(), resolved.getLocation(), resolved.getOptions().clone());
+            } catch (ExecutionException e) {
+                throw Exceptions.propagate(e.getCause());
+            } catch (UncheckedExecutionException e) {
+                throw Exceptions.propagate(e.getCause());
+            }
+        } else {
+            template = resolveTemplate(computeService, config);
+        }
+        
+        TemplateOptions options = template.getOptions();
+               
+        for (Map.Entry<ConfigKey<?>, CustomizeTemplateOptions> entry : SUPPORTED_TEMPLATE_OPTIONS_PROPERTIES.entrySet()) {
+            ConfigKey<?> key = entry.getKey();
+            CustomizeTemplateOptions code = entry.getValue();
+            if (config.containsKey(key))
+                code.apply(options, config, config.get(key));
+        }
+
+        return template;
+    }
+
+    /** returns the cache of resolved templates, or null if this location's {@link #TEMPLATE_CACHE_TTL} is not set
+     * (the TTL is only read from the location's own config, as the cache is shared by all calls to obtain) */
+    protected Cache<Map<String,Object>,Template> getTemplateCache() {
+        Cache<Map<String,Object>,Template> result = templateCache;
+        if (result == null) {
+            Duration ttl = getConfig(TEMPLATE_CACHE_TTL);
+            if (ttl == null || ttl.toMilliseconds() <= 0) return null;
+            synchronized (this) {
+                result = templateCache;
+                if (result == null) {
+                    result = templateCache = CacheBuilder.newBuilder()
+                            .expireAfterWrite(ttl.toMilliseconds(), TimeUnit.MILLISECONDS)
+                            .maximumSize(100)
+                            .build();
+                }
+            }
+        }
+        return result;
+    }
+
+    /** returns the key under which the template for this config is cached, or null if it should not be cached,
+     * i.e. when a custom {@link TemplateBuilder} is supplied or any customizers are configured 
+     * (as they may change the template builder in ways which are not captured by the key) */
+    protected Map<String,Object> getTemplateCacheKey(ComputeService computeService, ConfigBag config) {
+        if (config.get(TEMPLATE_BUILDER) != null) return null;
+        for (ConfigKey<?> key : TEMPLATE_CUSTOMIZER_PROPERTIES) {
+            if (groovyTruth(config.peek(key))) return null;
+        }
+        
+        Map<String,Object> result = Maps.newLinkedHashMap();
+        result.put("computeService", computeService);
+        result.put(CLOUD_REGION_ID.getName(), config.get(CLOUD_REGION_ID));
+        result.put(IMAGE_CHOOSER.getName(), config.get(IMAGE_CHOOSER));
+        for (ConfigKey<?> key : SUPPORTED_TEMPLATE_BUILDER_PROPERTIES.keySet()) {
+            if (config.containsKey(key)) result.put(key.getName(), config.peek(key));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /** resolves the image, hardware and location of the template, i.e. everything except the per-machine options */
+    protected Template resolveTemplate(ComputeService computeService, ConfigBag config) {
         TemplateBuilder templateBuilder = (TemplateBuilder) config.get(TEMPLATE_BUILDER);
         if (templateBuilder==null) {
             templateBuilder = new PortableTemplateBuilder<PortableTemplateBuilder<?>>();
@@ -1173,15 +1302,6 @@ public class JcloudsLocation extends AbstractCloudMachineProvisioningLocation im
             throw new IllegalStateException("Unable to match required VM template constraints "+templateBuilder+" when trying to provision VM in "+this+"; "
                 + "see list of images in log. Root cause: "+e, e);
         }
-        TemplateOptions options = template.getOptions();
-               
-        for (Map.Entry<ConfigKey<?>, CustomizeTemplateOptions> entry : SUPPORTED_TEMPLATE_OPTIONS_PROPERTIES.entrySet()) {
-            ConfigKey<?> key = entry.getKey();
-            CustomizeTemplateOptions code = entry.getValue();
-            if (config.containsKey(key))
-                code.apply(options, config, config.get(key));
-        }
-
         return template;
     }
     
@@ -38,6 +38,7 @@ import brooklyn.location.basic.LocationConfigKeys;
 import brooklyn.location.cloud.CloudLocationConfig;
 import brooklyn.location.jclouds.networking.JcloudsPortForwarderExtension;
 import brooklyn.util.internal.ssh.SshTool;
+import brooklyn.util.time.Duration;
 
 import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
@@ -233,6 +234,33 @@ public interface JcloudsLocationConfig extends CloudLocationConfig {
     public static final ConfigKey<Semaphore> MACHINE_CREATION_SEMAPHORE = ConfigKeys.newConfigKey(
             Semaphore.class, "machineCreationSemaphore", "Semaphore for controlling concurrent machine creation", null);
 
+    @Beta
+    public static final ConfigKey<Integer> WARM_POOL_SIZE = ConfigKeys.newIntegerConfigKey(
+            "warmPool.size", "Number of ready machines to keep for each distinct set of obtain flags, "
+                    + "so that obtain can return a machine immediately (0 to disable)", 0);
+
+    @Beta
+    public static final ConfigKey<Integer> WARM_POOL_MAX_CONCURRENT_REFILLS = ConfigKeys.newIntegerConfigKey(
+            "warmPool.maxConcurrentRefills", "Maximum number of machines to create concurrently when refilling the warm pool", 1);
+
+    @Beta
+    public static final ConfigKey<Duration> WARM_POOL_MIN_REFILL_PERIOD = ConfigKeys.newConfigKey(
+            Duration.class, "warmPool.minRefillPeriod", "Minimum time between starting successive machine creations when refilling the warm pool", 
+            Duration.ZERO);
+
+    @Beta
+    public static final ConfigKey<Duration> TEMPLATE_CACHE_TTL = ConfigKeys.newConfigKey(
+            Duration.class, "templateCacheTtl", "How long a resolved template (image, hardware and location) is reused "
+                    + "when obtaining further machines from this location with the same template properties; "
+                    + "by default the template is resolved for every machine, and it always is when customizers are configured");
+
+    @Beta
+    public static final ConfigKey<Duration> CATALOGUE_CACHE_TTL = ConfigKeys.newConfigKey(
+            Duration.class, "catalogueCacheTtl", "How long the images and hardware profiles listed by a compute service are cached; "
+                    + "the cache is shared by all locations with the same provider, credentials and endpoint "
+                    + "(if not set, uses the jclouds default session interval of 60 seconds)", 
+            null);
+
     @SuppressWarnings("serial")
     public static final ConfigKey<Function<Iterable<? extends Image>,Image>> IMAGE_CHOOSER = ConfigKeys.newConfigKey(
         new TypeToken<Function<Iterable<? extends Image>,Image>>() {},
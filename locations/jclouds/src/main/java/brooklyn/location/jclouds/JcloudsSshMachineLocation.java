@@ -119,6 +119,15 @@ public class JcloudsSshMachineLocation extends SshMachineLocation implements Has
         runScriptFactory = context.utils().injector().getInstance(RunScriptOnNode.Factory.class);
     }
     
+    @Override
+    public void onManagementStarted() {
+        super.onManagementStarted();
+        if (jcloudsParent != null && Boolean.TRUE.equals(getConfig(WarmMachinePool.POOLED))) {
+            // only marked as pooled when managed here after rebind; the pool itself is not persisted
+            jcloudsParent.getWarmMachinePool().releaseAfterRebind(this);
+        }
+    }
+    
     @Override
     public String toVerboseString() {
         return Objects.toStringHelper(this).omitNullValues()
@@ -0,0 +1,379 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.location.jclouds;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.Template;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.ConfigKey;
+import brooklyn.config.ConfigKey.HasConfigKey;
+import brooklyn.entity.basic.ConfigKeys;
+import brooklyn.location.NoMachinesAvailableException;
+import brooklyn.location.basic.LocationConfigKeys;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.config.ConfigBag;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.time.Duration;
+import brooklyn.util.time.Time;
+
+import com.google.common.annotations.Beta;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Keeps a number of ready machines for a {@link JcloudsLocation}, so that {@link JcloudsLocation#obtain(Map)}
+ * can hand one out immediately rather than waiting for the cloud to provision it.
+ * <p>
+ * Machines are pooled separately for each distinct template (i.e. the image, hardware and cloud location
+ * resolved from the obtain flags) and any other obtain flags, ignoring the caller context; flags which
+ * include a custom {@link JcloudsLocationConfig#TEMPLATE_BUILDER} are not pooled.
+ * The first request for a given template is a miss, and causes the pool for it to be
+ * filled in the background (see {@link #warmUp(Map)} to fill it in advance). Every claim, hit or miss,
+ * triggers a refill back up to {@link JcloudsLocationConfig#WARM_POOL_SIZE}, with at most
+ * {@link JcloudsLocationConfig#WARM_POOL_MAX_CONCURRENT_REFILLS} creations in flight and at least
+ * {@link JcloudsLocationConfig#WARM_POOL_MIN_REFILL_PERIOD} between the start of successive creations.
+ * <p>
+ * Pooled machines are children of the location like any other obtained machine, marked with {@link #POOLED}
+ * until claimed. The pool itself is held in memory only, so it is {@link #close() closed} when the location
+ * is unmanaged, and machines still marked as pooled when rebinding are released rather than handed out again.
+ */
+@Beta
+public class WarmMachinePool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WarmMachinePool.class);
+
+    /** Maximum number of distinct sets of obtain flags which will be kept warm. */
+    public static final int MAX_POOLED_TEMPLATES = 8;
+
+    /** Set on a machine while it is held ready in the pool, i.e. before it is claimed. */
+    public static final ConfigKey<Boolean> POOLED = ConfigKeys.newBooleanConfigKey(
+            "warmPool.pooled", "Whether the machine is being held ready in a warm pool (rather than in use)", false);
+
+    /** How long the pool key resolved from a given set of obtain flags is reused, before resolving the template again. */
+    private static final Duration POOL_KEY_TTL = Duration.FIVE_MINUTES;
+
+    private final JcloudsLocation location;
+    private final Map<Map<String,Object>, PoolEntry> pools = Maps.newLinkedHashMap();
+    private final Cache<Map<String,Object>, Map<String,Object>> poolKeys = CacheBuilder.newBuilder()
+            .expireAfterWrite(POOL_KEY_TTL.toMilliseconds(), TimeUnit.MILLISECONDS)
+            .maximumSize(100)
+            .build();
+    private final Semaphore refillPermits;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refillFailures = new AtomicLong();
+    private long nextRefillStartTime = 0;
+    private boolean closed = false;
+
+    private static class PoolEntry {
+        final Map<?,?> flags;
+        final Deque<JcloudsSshMachineLocation> ready = Lists.newLinkedList();
+        int inFlight = 0;
+        
+        PoolEntry(Map<?,?> flags) {
+            this.flags = flags;
+        }
+    }
+
+    public WarmMachinePool(JcloudsLocation location) {
+        this.location = checkNotNull(location, "location");
+        Integer maxConcurrent = location.getConfig(JcloudsLocationConfig.WARM_POOL_MAX_CONCURRENT_REFILLS);
+        this.refillPermits = new Semaphore((maxConcurrent == null || maxConcurrent < 1) ? 1 : maxConcurrent, true);
+    }
+
+    /**
+     * Returns a ready machine matching the given flags, or null if none is available (in which case the
+     * caller should provision one itself). In either case the pool for these flags is refilled in the background.
+     */
+    public JcloudsSshMachineLocation claim(Map<?,?> flags) {
+        Map<String,Object> key = toPoolKey(flags);
+        JcloudsSshMachineLocation result = null;
+        if (key != null) {
+            synchronized (this) {
+                PoolEntry entry = getOrCreateEntry(key, flags);
+                result = (entry != null) ? entry.ready.pollFirst() : null;
+            }
+        }
+        if (result != null) {
+            hits.incrementAndGet();
+            result.setConfig(POOLED, false);
+            Object callerContext = flags.get(LocationConfigKeys.CALLER_CONTEXT.getName());
+            if (callerContext == null) callerContext = flags.get(LocationConfigKeys.CALLER_CONTEXT);
+            if (callerContext != null) result.setConfig(LocationConfigKeys.CALLER_CONTEXT, callerContext);
+            LOG.debug("Warm pool hit in {}: claimed {}", location, result);
+        } else {
+            misses.incrementAndGet();
+            LOG.debug("Warm pool miss in {}", location);
+        }
+        if (key != null) refill(key);
+        return result;
+    }
+
+    /** Fills the pool for the given obtain flags in the background, without claiming a machine. */
+    public void warmUp(Map<?,?> flags) {
+        Map<String,Object> key = toPoolKey(flags);
+        if (key == null) return;
+        synchronized (this) {
+            getOrCreateEntry(key, flags);
+        }
+        refill(key);
+    }
+
+    /** Number of ready machines across all pooled flags. */
+    public synchronized int getReadyCount() {
+        int result = 0;
+        for (PoolEntry entry : pools.values()) {
+            result += entry.ready.size();
+        }
+        return result;
+    }
+
+    /** Number of ready machines for the given obtain flags. */
+    public int getReadyCount(Map<?,?> flags) {
+        Map<String,Object> key = toPoolKey(flags);
+        if (key == null) return 0;
+        synchronized (this) {
+            PoolEntry entry = pools.get(key);
+            return (entry != null) ? entry.ready.size() : 0;
+        }
+    }
+
+    /** Number of machines currently being created to refill the pool. */
+    public synchronized int getRefillsInProgress() {
+        int result = 0;
+        for (PoolEntry entry : pools.values()) {
+            result += entry.inFlight;
+        }
+        return result;
+    }
+
+    /** Number of obtain requests satisfied from the pool. */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** Number of obtain requests for which no ready machine was available. */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Number of background machine creations which failed. */
+    public long getRefillFailures() {
+        return refillFailures.get();
+    }
+
+    /**
+     * Stops refilling, and releases all ready machines back to the location.
+     * Machines still being created are released as soon as they are ready.
+     */
+    public void close() {
+        List<JcloudsSshMachineLocation> toRelease = Lists.newArrayList();
+        synchronized (this) {
+            closed = true;
+            for (PoolEntry entry : pools.values()) {
+                toRelease.addAll(entry.ready);
+                entry.ready.clear();
+            }
+        }
+        for (JcloudsSshMachineLocation machine : toRelease) {
+            location.releaseSafely(machine);
+        }
+    }
+
+    /**
+     * Releases a machine which was still pooled when its location was rebound (e.g. on restart or failover),
+     * as it would otherwise never be claimed or released.
+     */
+    void releaseAfterRebind(final JcloudsSshMachineLocation machine) {
+        LOG.info("Releasing machine {} in {}, which was in a warm pool before rebind", machine, location);
+        location.getManagementContext().getExecutionManager().submit(
+                MutableMap.of("displayName", "Releasing warm pool machine after rebind", "tag", this), 
+                new Runnable() {
+                    @Override public void run() {
+                        location.releaseSafely(machine);
+                    }
+                });
+    }
+
+    @Override
+    public String toString() {
+        return "WarmMachinePool["+location+"; ready="+getReadyCount()+"; hits="+getHits()+"; misses="+getMisses()+"]";
+    }
+
+    private PoolEntry getOrCreateEntry(Map<String,Object> key, Map<?,?> flags) {
+        PoolEntry entry = pools.get(key);
+        if (entry == null && !closed) {
+            if (pools.size() >= MAX_POOLED_TEMPLATES) {
+                LOG.debug("Not keeping warm machines for additional flags in {}: already pooling {} sets of flags", location, pools.size());
+            } else {
+                entry = new PoolEntry(flags);
+                pools.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    protected void refill(Map<String,Object> key) {
+        final PoolEntry entry;
+        int toCreate;
+        synchronized (this) {
+            entry = pools.get(key);
+            if (entry == null || closed) return;
+            Integer size = ConfigBag.newInstanceExtending(location.getAllConfigBag(), entry.flags).get(JcloudsLocationConfig.WARM_POOL_SIZE);
+            toCreate = ((size == null) ? 0 : size) - entry.ready.size() - entry.inFlight;
+            if (toCreate <= 0) return;
+            entry.inFlight += toCreate;
+        }
+        LOG.debug("Refilling warm pool in {}: creating {} machine(s)", location, toCreate);
+        for (int i = 0; i < toCreate; i++) {
+            location.getManagementContext().getExecutionManager().submit(
+                    MutableMap.of("displayName", "Refilling warm machine pool", "tag", this), 
+                    new Runnable() {
+                        @Override public void run() {
+                            createMachine(entry);
+                        }
+                    });
+        }
+    }
+
+    private void createMachine(PoolEntry entry) {
+        JcloudsSshMachineLocation machine = null;
+        boolean acquired = false;
+        try {
+            refillPermits.acquire();
+            acquired = true;
+            waitForRefillSlot();
+            if (isClosed()) return;
+            
+            ConfigBag setup = ConfigBag.newInstanceExtending(location.getAllConfigBag(), entry.flags);
+            machine = location.obtainOnce(setup);
+        } catch (NoMachinesAvailableException e) {
+            refillFailures.incrementAndGet();
+            LOG.warn("Failed to create machine for warm pool in "+location+" (continuing): "+e);
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        } catch (RuntimeException e) {
+            refillFailures.incrementAndGet();
+            LOG.warn("Failed to create machine for warm pool in "+location+" (continuing): "+e, e);
+        } finally {
+            if (acquired) refillPermits.release();
+            boolean release = false;
+            if (machine != null) machine.setConfig(POOLED, true);
+            synchronized (this) {
+                entry.inFlight--;
+                if (machine != null) {
+                    if (closed) {
+                        release = true;
+                    } else {
+                        entry.ready.addLast(machine);
+                    }
+                }
+            }
+            if (release) location.releaseSafely(machine);
+        }
+    }
+
+    private void waitForRefillSlot() throws InterruptedException {
+        Duration period = location.getConfig(JcloudsLocationConfig.WARM_POOL_MIN_REFILL_PERIOD);
+        if (period == null || period.toMilliseconds() <= 0) return;
+        long startTime;
+        synchronized (this) {
+            startTime = Math.max(System.currentTimeMillis(), nextRefillStartTime);
+            nextRefillStartTime = startTime + period.toMilliseconds();
+        }
+        long delay = startTime - System.currentTimeMillis();
+        if (delay > 0) Time.sleep(delay);
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the key of the pool for the given obtain flags: the ids of the resolved image, hardware and 
+     * cloud location, plus any other flags (as strings), ignoring the caller context which does not affect the machine.
+     * Returns null if the flags cannot be pooled, i.e. if they include a custom template builder or if the 
+     * template cannot be resolved (in which case the caller's own attempt to provision will report the problem).
+     */
+    protected Map<String,Object> toPoolKey(final Map<?,?> flags) {
+        final Map<String,Object> rawKey = toStringKeys(flags);
+        if (rawKey.get(JcloudsLocationConfig.TEMPLATE_BUILDER.getName()) != null) return null;
+        try {
+            return poolKeys.get(rawKey, new Callable<Map<String,Object>>() {
+                @Override public Map<String,Object> call() {
+                    return resolvePoolKey(flags, rawKey);
+                }});
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Not pooling machines in "+location+" for flags "+rawKey+"; cannot resolve template: "+e);
+            return null;
+        }
+    }
+
+    private Map<String,Object> resolvePoolKey(Map<?,?> flags, Map<String,Object> rawKey) {
+        ConfigBag setup = ConfigBag.newInstanceExtending(location.getAllConfigBag(), flags);
+        ComputeService computeService = location.getConfig(JcloudsLocationConfig.COMPUTE_SERVICE_REGISTRY).findComputeService(setup, true);
+        Template template = location.buildTemplate(computeService, setup);
+        
+        Map<String,Object> result = Maps.newLinkedHashMap();
+        result.put("imageId", template.getImage().getId());
+        result.put("hardwareId", template.getHardware().getId());
+        result.put("locationId", (template.getLocation() != null) ? template.getLocation().getId() : null);
+        // flags which only choose the template are captured by the resolved ids above
+        Map<String,Object> otherFlags = Maps.newLinkedHashMap(rawKey);
+        for (ConfigKey<?> key : JcloudsLocation.SUPPORTED_TEMPLATE_BUILDER_PROPERTIES.keySet()) {
+            otherFlags.remove(key.getName());
+        }
+        otherFlags.remove(JcloudsLocationConfig.CLOUD_REGION_ID.getName());
+        otherFlags.remove(JcloudsLocationConfig.IMAGE_CHOOSER.getName());
+        result.putAll(otherFlags);
+        return Collections.unmodifiableMap(result);
+    }
+
+    /** Normalises the obtain flags to string keys, ignoring the caller context which does not affect the machine. */
+    private static Map<String,Object> toStringKeys(Map<?,?> flags) {
+        Map<String,Object> result = Maps.newLinkedHashMap();
+        for (Map.Entry<?,?> e : flags.entrySet()) {
+            Object k = e.getKey();
+            String name;
+            if (k instanceof HasConfigKey) name = ((HasConfigKey<?>)k).getConfigKey().getName();
+            else if (k instanceof ConfigKey) name = ((ConfigKey<?>)k).getName();
+            else name = String.valueOf(k);
+            if (LocationConfigKeys.CALLER_CONTEXT.getName().equals(name)) continue;
+            result.put(name, e.getValue());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
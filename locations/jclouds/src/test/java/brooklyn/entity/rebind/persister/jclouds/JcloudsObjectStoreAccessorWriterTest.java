@@ -167,4 +167,22 @@ public class JcloudsObjectStoreAccessorWriterTest extends PersistenceStoreObject
     public void testLastModifiedTime() throws Exception {
         super.testLastModifiedTime();
     }
+
+    @Test(groups={"Live", "Live-sanity"})
+    @Override
+    public void testStreamingPutAndGet() throws Exception {
+        super.testStreamingPutAndGet();
+    }
+
+    @Test(groups={"Live", "Live-sanity"})
+    @Override
+    public void testFailedStreamingPutLeavesPreviousContents() throws Exception {
+        super.testFailedStreamingPutLeavesPreviousContents();
+    }
+
+    @Test(groups={"Live", "Live-sanity"})
+    @Override
+    public void testGetInputStreamWhenAbsent() throws Exception {
+        super.testGetInputStreamWhenAbsent();
+    }
 }
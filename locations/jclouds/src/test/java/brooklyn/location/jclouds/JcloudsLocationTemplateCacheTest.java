@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.Entities;
+import brooklyn.location.LocationSpec;
+import brooklyn.management.internal.LocalManagementContext;
+import brooklyn.test.entity.LocalManagementContextForTests;
+import brooklyn.util.config.ConfigBag;
+import brooklyn.util.time.Duration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests that resolved templates are reused, using the jclouds "stub" provider.
+ */
+public class JcloudsLocationTemplateCacheTest {
+
+    @SuppressWarnings("serial")
+    public static class CountingJcloudsLocation extends JcloudsLocation {
+        final AtomicInteger resolveCount = new AtomicInteger();
+        
+        @Override
+        protected Template resolveTemplate(ComputeService computeService, ConfigBag config) {
+            resolveCount.incrementAndGet();
+            return super.resolveTemplate(computeService, config);
+        }
+    }
+
+    private LocalManagementContext managementContext;
+    private CountingJcloudsLocation loc;
+    private ComputeService computeService;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        managementContext = LocalManagementContextForTests.newInstance();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (managementContext != null) Entities.destroyAll(managementContext);
+    }
+
+    protected void createLocation(Map<?,?> flags) {
+        loc = managementContext.getLocationManager().createLocation(LocationSpec.create(CountingJcloudsLocation.class)
+                .configure(JcloudsLocationConfig.CLOUD_PROVIDER, "stub")
+                .configure(JcloudsLocationConfig.ACCESS_IDENTITY, "bogus")
+                .configure(JcloudsLocationConfig.ACCESS_CREDENTIAL, "bogus")
+                .configure(flags));
+        computeService = loc.getConfig(JcloudsLocationConfig.COMPUTE_SERVICE_REGISTRY).findComputeService(loc.getAllConfigBag(), true);
+    }
+
+    protected Template buildTemplate(Map<?,?> flags) {
+        return loc.buildTemplate(computeService, ConfigBag.newInstanceExtending(loc.getAllConfigBag(), flags));
+    }
+
+    @Test
+    public void testTemplateResolvedOnceForSameProperties() throws Exception {
+        createLocation(ImmutableMap.of(JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+        
+        Template t1 = buildTemplate(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 1024));
+        Template t2 = buildTemplate(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 1024));
+        
+        assertEquals(loc.resolveCount.get(), 1);
+        assertEquals(t2.getImage(), t1.getImage());
+        assertEquals(t2.getHardware(), t1.getHardware());
+        // each caller gets its own options, as they are modified per machine
+        assertNotSame(t2, t1);
+        assertNotSame(t2.getOptions(), t1.getOptions());
+    }
+
+    @Test
+    public void testTemplateResolvedAgainForDifferentProperties() throws Exception {
+        createLocation(ImmutableMap.of(JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+        
+        buildTemplate(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 1024));
+        buildTemplate(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 2048));
+        
+        assertEquals(loc.resolveCount.get(), 2);
+    }
+
+    @Test
+    public void testTemplateOptionsAppliedToCachedTemplate() throws Exception {
+        createLocation(ImmutableMap.of(JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+        
+        buildTemplate(ImmutableMap.of());
+        Template t2 = buildTemplate(ImmutableMap.of(JcloudsLocationConfig.INBOUND_PORTS, ImmutableList.of(22, 8080)));
+        Template t3 = buildTemplate(ImmutableMap.of());
+        
+        assertEquals(loc.resolveCount.get(), 1);
+        assertEquals(t2.getOptions().getInboundPorts(), new int[] {22, 8080});
+        assertEquals(t3.getOptions().getInboundPorts(), new int[] {22});
+    }
+
+    @Test
+    public void testTemplateNotCachedWhenTtlIsZero() throws Exception {
+        createLocation(ImmutableMap.of(JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ZERO));
+        
+        buildTemplate(ImmutableMap.of());
+        buildTemplate(ImmutableMap.of());
+        
+        assertEquals(loc.resolveCount.get(), 2);
+    }
+
+    @Test
+    public void testTemplateNotCachedByDefault() throws Exception {
+        createLocation(ImmutableMap.of());
+        
+        buildTemplate(ImmutableMap.of());
+        buildTemplate(ImmutableMap.of());
+        
+        assertEquals(loc.resolveCount.get(), 2);
+    }
+
+    @Test
+    public void testTemplateNotCachedWithCustomizers() throws Exception {
+        createLocation(ImmutableMap.of(
+                JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE,
+                JcloudsLocationConfig.JCLOUDS_LOCATION_CUSTOMIZERS, ImmutableList.of(new BasicJcloudsLocationCustomizer())));
+        
+        buildTemplate(ImmutableMap.of());
+        buildTemplate(ImmutableMap.of());
+        
+        assertEquals(loc.resolveCount.get(), 2);
+    }
+
+    @Test
+    public void testTtlInObtainFlagsIgnored() throws Exception {
+        createLocation(ImmutableMap.of());
+        
+        buildTemplate(ImmutableMap.of(JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+        buildTemplate(ImmutableMap.of(JcloudsLocationConfig.TEMPLATE_CACHE_TTL, Duration.ONE_MINUTE));
+        
+        assertEquals(loc.resolveCount.get(), 2);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import org.testng.annotations.Test;
+
+import brooklyn.entity.rebind.RebindOptions;
+import brooklyn.entity.rebind.RebindTestFixtureWithApp;
+import brooklyn.location.Location;
+import brooklyn.test.Asserts;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests that machines held in a {@link WarmMachinePool} are not orphaned on rebind, using the jclouds "stub" provider.
+ */
+public class RebindWarmMachinePoolTest extends RebindTestFixtureWithApp {
+
+    @Test
+    public void testPooledMachinesReleasedOnRebind() throws Exception {
+        JcloudsLocation origLoc = (JcloudsLocation) origManagementContext.getLocationRegistry().resolve("jclouds:stub", ImmutableMap.builder()
+                .put(JcloudsLocationConfig.ACCESS_IDENTITY, "bogus")
+                .put(JcloudsLocationConfig.ACCESS_CREDENTIAL, "bogus")
+                .put(JcloudsLocationConfig.WAIT_FOR_SSHABLE, "false")
+                .put(JcloudsLocationConfig.WARM_POOL_SIZE, 2)
+                .build());
+        final WarmMachinePool origPool = origLoc.getWarmMachinePool();
+        
+        JcloudsSshMachineLocation inUse = origLoc.obtain();
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(origPool.getReadyCount(), 2, "pool="+origPool);
+                assertEquals(origPool.getRefillsInProgress(), 0, "pool="+origPool);
+            }});
+        assertEquals(origLoc.getChildren().size(), 3);
+
+        rebind(RebindOptions.create().terminateOrigManagementContext(true));
+        final JcloudsLocation newLoc = (JcloudsLocation) newManagementContext.getLocationManager().getLocation(origLoc.getId());
+        
+        // only the machine in use remains; the others were in the (unpersisted) pool, so are released rather than orphaned
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(ImmutableList.copyOf(newLoc.getChildren()).size(), 1, "children="+newLoc.getChildren());
+            }});
+        Location newInUse = newManagementContext.getLocationManager().getLocation(inUse.getId());
+        assertEquals(ImmutableList.copyOf(newLoc.getChildren()), ImmutableList.of(newInUse));
+        assertFalse(newInUse.getConfig(WarmMachinePool.POOLED));
+        assertEquals(newManagementContext.getLocationManager().getLocations().size(), 2, "locations="+newManagementContext.getLocationManager().getLocations());
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.location.jclouds;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.basic.Entities;
+import brooklyn.location.Location;
+import brooklyn.location.basic.Locations;
+import brooklyn.management.internal.LocalManagementContext;
+import brooklyn.test.Asserts;
+import brooklyn.test.entity.LocalManagementContextForTests;
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.MutableMap;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests the warm pool against the jclouds "stub" provider, which creates nodes in memory.
+ */
+public class WarmMachinePoolTest {
+
+    private LocalManagementContext managementContext;
+    private JcloudsLocation loc;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        managementContext = LocalManagementContextForTests.newInstance();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (managementContext != null) Entities.destroyAll(managementContext);
+    }
+
+    protected JcloudsLocation newStubLocation(Map<?,?> flags) {
+        return (JcloudsLocation) managementContext.getLocationRegistry().resolve("jclouds:stub", MutableMap.builder()
+                .put(JcloudsLocationConfig.ACCESS_IDENTITY, "bogus")
+                .put(JcloudsLocationConfig.ACCESS_CREDENTIAL, "bogus")
+                .put(JcloudsLocationConfig.WAIT_FOR_SSHABLE, "false")
+                .putAll(flags)
+                .build());
+    }
+
+    @Test
+    public void testFirstObtainIsMissThenPoolIsRefilled() throws Exception {
+        loc = newStubLocation(ImmutableMap.of(JcloudsLocationConfig.WARM_POOL_SIZE, 2));
+        final WarmMachinePool pool = loc.getWarmMachinePool();
+
+        JcloudsSshMachineLocation first = loc.obtain();
+        assertNotNull(first);
+        assertEquals(pool.getMisses(), 1);
+        assertEquals(pool.getHits(), 0);
+
+        assertReadyEventually(pool, 2);
+
+        JcloudsSshMachineLocation second = loc.obtain();
+        assertNotSame(second, first);
+        assertEquals(pool.getHits(), 1);
+        assertEquals(pool.getMisses(), 1);
+        assertTrue(loc.getChildren().contains(second), "children="+loc.getChildren());
+
+        // claim triggers a refill back up to the configured size
+        assertReadyEventually(pool, 2);
+        assertEquals(pool.getRefillFailures(), 0);
+    }
+
+    @Test
+    public void testWarmUpFillsPoolInAdvance() throws Exception {
+        loc = newStubLocation(ImmutableMap.of(JcloudsLocationConfig.WARM_POOL_SIZE, 1));
+        WarmMachinePool pool = loc.getWarmMachinePool();
+
+        pool.warmUp(ImmutableMap.of());
+        assertReadyEventually(pool, 1);
+
+        loc.obtain();
+        assertEquals(pool.getHits(), 1);
+        assertEquals(pool.getMisses(), 0);
+    }
+
+    @Test
+    public void testPoolsSeparatelyForDifferentFlags() throws Exception {
+        loc = newStubLocation(ImmutableMap.of(JcloudsLocationConfig.WARM_POOL_SIZE, 1));
+        WarmMachinePool pool = loc.getWarmMachinePool();
+
+        pool.warmUp(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 1024));
+        assertReadyEventually(pool, 1);
+
+        loc.obtain(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 2048));
+        assertEquals(pool.getHits(), 0);
+        assertEquals(pool.getMisses(), 1);
+
+        // caller context is ignored when matching flags
+        loc.obtain(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM.getName(), 1024, JcloudsLocationConfig.CALLER_CONTEXT, "mycaller"));
+        assertEquals(pool.getHits(), 1);
+    }
+
+    @Test
+    public void testSharesPoolForFlagsResolvingToSameTemplate() throws Exception {
+        loc = newStubLocation(ImmutableMap.of(JcloudsLocationConfig.WARM_POOL_SIZE, 1));
+        WarmMachinePool pool = loc.getWarmMachinePool();
+
+        // both resolve to the stub's "small" hardware (1740MB)
+        pool.warmUp(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 1024));
+        assertReadyEventually(pool, 1);
+
+        JcloudsSshMachineLocation machine = loc.obtain(ImmutableMap.of(JcloudsLocationConfig.MIN_RAM, 1500));
+        assertEquals(pool.getHits(), 1);
+        assertEquals(pool.getMisses(), 0);
+        assertFalse(machine.getConfig(WarmMachinePool.POOLED));
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        loc = newStubLocation(ImmutableMap.of());
+        loc.obtain();
+        loc.obtain();
+        assertEquals(loc.getWarmMachinePool().getReadyCount(), 0);
+        assertEquals(loc.getWarmMachinePool().getMisses(), 0);
+    }
+
+    @Test
+    public void testCloseReleasesReadyMachines() throws Exception {
+        loc = newStubLocation(ImmutableMap.of(JcloudsLocationConfig.WARM_POOL_SIZE, 2));
+        WarmMachinePool pool = loc.getWarmMachinePool();
+
+        pool.warmUp(ImmutableMap.of());
+        assertReadyEventually(pool, 2);
+        assertEquals(loc.getChildren().size(), 2);
+
+        pool.close();
+        assertEquals(pool.getReadyCount(), 0);
+        assertEquals(loc.getChildren().size(), 0);
+    }
+
+    @Test
+    public void testUnmanagingLocationReleasesReadyMachines() throws Exception {
+        loc = newStubLocation(ImmutableMap.of(JcloudsLocationConfig.WARM_POOL_SIZE, 2));
+        WarmMachinePool pool = loc.getWarmMachinePool();
+
+        JcloudsSshMachineLocation inUse = loc.obtain();
+        assertReadyEventually(pool, 2);
+        List<Location> pooled = MutableList.copyOf(loc.getChildren());
+        pooled.remove(inUse);
+        assertEquals(pooled.size(), 2, "children="+loc.getChildren());
+        for (Location machine : pooled) {
+            assertTrue(machine.getConfig(WarmMachinePool.POOLED), "machine="+machine);
+        }
+
+        Locations.unmanage(loc);
+        assertEquals(pool.getReadyCount(), 0);
+        for (Location machine : pooled) {
+            assertFalse(managementContext.getLocationManager().isManaged(machine), "machine="+machine);
+        }
+    }
+
+    private void assertReadyEventually(final WarmMachinePool pool, final int expected) {
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(pool.getReadyCount(), expected, "pool="+pool);
+                assertEquals(pool.getRefillsInProgress(), 0, "pool="+pool);
+            }});
+    }
+}
@@ -100,6 +100,9 @@ public class AutoScalerPolicy extends AbstractPolicy {
         private BasicNotificationSensor<?> poolOkSensor;
         private BasicNotificationSensor<? super MaxPoolSizeReachedEvent> maxSizeReachedSensor;
         private Duration maxReachedNotificationDelay;
+        private MetricForecaster.Mode metricForecastMode;
+        private Duration metricForecastHorizon;
+        private Duration metricForecastWindow;
         
         public Builder id(String val) {
             this.id = val; return this;
@@ -193,6 +196,15 @@ public class AutoScalerPolicy extends AbstractPolicy {
         public Builder maxReachedNotificationDelay(Duration val) {
             this.maxReachedNotificationDelay = val; return this;
         }
+        public Builder metricForecastMode(MetricForecaster.Mode val) {
+            this.metricForecastMode = val; return this;
+        }
+        public Builder metricForecastHorizon(Duration val) {
+            this.metricForecastHorizon = val; return this;
+        }
+        public Builder metricForecastWindow(Duration val) {
+            this.metricForecastWindow = val; return this;
+        }
         public AutoScalerPolicy build() {
             return new AutoScalerPolicy(toFlags());
         }
@@ -220,6 +232,9 @@ public class AutoScalerPolicy extends AbstractPolicy {
                     .putIfNotNull("poolOkSensor", poolOkSensor)
                     .putIfNotNull("maxSizeReachedSensor", maxSizeReachedSensor)
                     .putIfNotNull("maxReachedNotificationDelay", maxReachedNotificationDelay)
+                    .putIfNotNull("metricForecastMode", metricForecastMode)
+                    .putIfNotNull("metricForecastHorizon", metricForecastHorizon)
+                    .putIfNotNull("metricForecastWindow", metricForecastWindow)
                     .build();
         }
     }
@@ -368,6 +383,42 @@ public class AutoScalerPolicy extends AbstractPolicy {
             .defaultValue(Duration.ZERO)
             .build();
     
+    @SetFromFlag("metricForecastMode")
+    public static final ConfigKey<MetricForecaster.Mode> METRIC_FORECAST_MODE = BasicConfigKey.builder(MetricForecaster.Mode.class)
+            .name("autoscaler.metricForecast.mode")
+            .description("If set, the recent history of the metric (as total activity across the pool) is used to forecast "
+                    + "its value metricForecastHorizon ahead, and the pool is sized for the higher of the current and forecast "
+                    + "values; one of LINEAR or HOLT. If not set, the policy reacts only to the current value of the metric")
+            .build();
+
+    @SetFromFlag("metricForecastHorizon")
+    public static final ConfigKey<Duration> METRIC_FORECAST_HORIZON = BasicConfigKey.builder(Duration.class)
+            .name("autoscaler.metricForecast.horizon")
+            .description("How far ahead to forecast the metric; typically the time it takes for a new member to start")
+            .defaultValue(Duration.minutes(5))
+            .build();
+
+    @SetFromFlag("metricForecastWindow")
+    public static final ConfigKey<Duration> METRIC_FORECAST_WINDOW = BasicConfigKey.builder(Duration.class)
+            .name("autoscaler.metricForecast.window")
+            .description("How much of the metric's history to keep for forecasting")
+            .defaultValue(Duration.minutes(10))
+            .build();
+
+    @SetFromFlag("metricForecastLevelSmoothing")
+    public static final ConfigKey<Double> METRIC_FORECAST_LEVEL_SMOOTHING = BasicConfigKey.builder(Double.class)
+            .name("autoscaler.metricForecast.levelSmoothing")
+            .description("For HOLT forecasting, the weight (between 0 and 1) given to the newest value of the metric")
+            .defaultValue(0.5)
+            .build();
+
+    @SetFromFlag("metricForecastTrendSmoothing")
+    public static final ConfigKey<Double> METRIC_FORECAST_TREND_SMOOTHING = BasicConfigKey.builder(Double.class)
+            .name("autoscaler.metricForecast.trendSmoothing")
+            .description("For HOLT forecasting, the weight (between 0 and 1) given to the newest rate of change of the metric")
+            .defaultValue(0.3)
+            .build();
+
     private Entity poolEntity;
     
     private final AtomicBoolean executorQueued = new AtomicBoolean(false);
@@ -380,6 +431,8 @@ public class AutoScalerPolicy extends AbstractPolicy {
     
     private long maxReachedLastNotifiedTime;
     
+    private MetricForecaster metricForecaster;
+    
     private final SensorEventListener<Map> utilizationEventHandler = new SensorEventListener<Map>() {
         public void onEvent(SensorEvent<Map> event) {
             Map<String, ?> properties = (Map<String, ?>) event.getValue();
@@ -400,7 +453,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
     private final SensorEventListener<Number> metricEventHandler = new SensorEventListener<Number>() {
         public void onEvent(SensorEvent<Number> event) {
             assert event.getSensor().equals(getMetric());
-            onMetricChanged(event.getValue());
+            onMetricChanged(event.getValue(), event.getTimestamp());
         }
     };
 
@@ -429,6 +482,8 @@ public class AutoScalerPolicy extends AbstractPolicy {
         long maxResizeStabilizationDelay = Math.max(getResizeUpStabilizationDelay().toMilliseconds(), getResizeDownStabilizationDelay().toMilliseconds());
         recentDesiredResizes = new SizeHistory(maxResizeStabilizationDelay);
         
+        metricForecaster = newMetricForecaster();
+        
         // TODO Should re-use the execution manager's thread pool, somehow
         executor = Executors.newSingleThreadScheduledExecutor(newThreadFactory());
     }
@@ -553,6 +608,17 @@ public class AutoScalerPolicy extends AbstractPolicy {
         return getConfig(MAX_REACHED_NOTIFICATION_DELAY);
     }
 
+    private Duration getMetricForecastHorizon() {
+        return getConfig(METRIC_FORECAST_HORIZON);
+    }
+
+    private MetricForecaster newMetricForecaster() {
+        MetricForecaster.Mode mode = getConfig(METRIC_FORECAST_MODE);
+        if (mode == null) return null;
+        return new MetricForecaster(mode, getConfig(METRIC_FORECAST_WINDOW), getConfig(METRIC_FORECAST_LEVEL_SMOOTHING),
+                getConfig(METRIC_FORECAST_TREND_SMOOTHING), MetricForecaster.DEFAULT_MAX_SAMPLES);
+    }
+
     @Override
     protected <T> void doReconfigureConfig(ConfigKey<T> key, T val) {
         if (key.equals(RESIZE_UP_STABILIZATION_DELAY)) {
@@ -654,7 +720,7 @@ public class AutoScalerPolicy extends AbstractPolicy {
         }
     }
 
-    private void onMetricChanged(Number val) {
+    private void onMetricChanged(Number val, long timestamp) {
         if (LOG.isTraceEnabled()) LOG.trace("{} recording pool-metric for {}: {}", new Object[] {this, poolEntity, val});
 
         if (val==null) {
@@ -667,53 +733,36 @@ public class AutoScalerPolicy extends AbstractPolicy {
         double metricUpperBoundD = getMetricUpperBound().doubleValue();
         double metricLowerBoundD = getMetricLowerBound().doubleValue();
         int currentSize = getCurrentSizeOperator().apply(entity);
-        double currentTotalActivity = currentSize * currentMetricD;
-        int unboundedSize;
-        int desiredSize;
         
-        /* We always scale out (modulo stabilization delay) if:
-         *   currentTotalActivity > currentSize*metricUpperBound
-         * With newDesiredSize the smallest n such that   n*metricUpperBound >= currentTotalActivity
-         * ie  n >= currentTotalActiviy/metricUpperBound, thus n := Math.ceil(currentTotalActivity/metricUpperBound)
-         * 
-         * Else consider scale back if:
-         *   currentTotalActivity < currentSize*metricLowerBound
-         * With newDesiredSize normally the largest n such that:  
-         *   n*metricLowerBound <= currentTotalActivity
-         * BUT with an absolute requirement which trumps the above computation
-         * that the newDesiredSize doesn't cause immediate scale out:
-         *   n*metricUpperBound >= currentTotalActivity
-         * thus n := Math.max ( floor(currentTotalActiviy/metricLowerBound), ceil(currentTotal/metricUpperBound) )
-         */
+        if (metricForecaster != null) {
+            double forecastMetricD = forecastMetric(metricForecaster, getMetricForecastHorizon(), currentSize, currentMetricD, timestamp);
+            if (forecastMetricD > currentMetricD) {
+                if (LOG.isTraceEnabled()) LOG.trace("{} using forecast pool-metric for {}: {} (current {})", new Object[] {this, poolEntity, forecastMetricD, currentMetricD});
+                currentMetricD = forecastMetricD;
+            }
+        }
+        
+        MetricBasedSize sizes = calculateMetricBasedSize(currentSize, currentMetricD, metricLowerBoundD, metricUpperBoundD, getMinPoolSize(), getMaxPoolSize());
+        
         if (currentMetricD > metricUpperBoundD) {
             // scale out
-            unboundedSize = (int)Math.ceil(currentTotalActivity/metricUpperBoundD);
-            desiredSize = toBoundedDesiredPoolSize(unboundedSize);
-            if (desiredSize > currentSize) {
-                if (LOG.isDebugEnabled()) LOG.debug("{} provisionally resizing out pool {} from {} to {} ({} > {})", new Object[] {this, poolEntity, currentSize, desiredSize, currentMetricD, metricUpperBoundD});
-                scheduleResize(desiredSize);
+            if (sizes.desired > currentSize) {
+                if (LOG.isDebugEnabled()) LOG.debug("{} provisionally resizing out pool {} from {} to {} ({} > {})", new Object[] {this, poolEntity, currentSize, sizes.desired, currentMetricD, metricUpperBoundD});
+                scheduleResize(sizes.desired);
             } else {
                 if (LOG.isTraceEnabled()) LOG.trace("{} not resizing pool {} from {} ({} > {} > {}, but scale-out blocked eg by bounds/check)", new Object[] {this, poolEntity, currentSize, currentMetricD, metricUpperBoundD, metricLowerBoundD});
             }
-            onNewUnboundedPoolSize(unboundedSize);
+            onNewUnboundedPoolSize(sizes.unbounded);
             
         } else if (currentMetricD < metricLowerBoundD) {
             // scale back
-            unboundedSize = (int)Math.floor(currentTotalActivity/metricLowerBoundD);
-            desiredSize = toBoundedDesiredPoolSize(unboundedSize);
-            if (desiredSize < currentTotalActivity/metricUpperBoundD) {
-                // this desired size would cause scale-out on next run, ie thrashing, so tweak
-                if (LOG.isTraceEnabled()) LOG.trace("{} resizing back pool {} from {}, tweaking from {} to prevent thrashing", new Object[] {this, poolEntity, currentSize, desiredSize });
-                desiredSize = (int)Math.ceil(currentTotalActivity/metricUpperBoundD);
-                desiredSize = toBoundedDesiredPoolSize(desiredSize);
-            }
-            if (desiredSize < currentSize) {
-                if (LOG.isDebugEnabled()) LOG.debug("{} provisionally resizing back pool {} from {} to {} ({} < {})", new Object[] {this, poolEntity, currentSize, desiredSize, currentMetricD, metricLowerBoundD});
-                scheduleResize(desiredSize);
+            if (sizes.desired < currentSize) {
+                if (LOG.isDebugEnabled()) LOG.debug("{} provisionally resizing back pool {} from {} to {} ({} < {})", new Object[] {this, poolEntity, currentSize, sizes.desired, currentMetricD, metricLowerBoundD});
+                scheduleResize(sizes.desired);
             } else {
                 if (LOG.isTraceEnabled()) LOG.trace("{} not resizing pool {} from {} ({} < {} < {}, but scale-back blocked eg by bounds/check)", new Object[] {this, poolEntity, currentSize, currentMetricD, metricLowerBoundD, metricUpperBoundD});
             }
-            onNewUnboundedPoolSize(unboundedSize);
+            onNewUnboundedPoolSize(sizes.unbounded);
             
         } else {
             if (LOG.isTraceEnabled()) LOG.trace("{} not resizing pool {} from {} ({} within range {}..{})", new Object[] {this, poolEntity, currentSize, currentMetricD, metricLowerBoundD, metricUpperBoundD});
@@ -722,6 +771,75 @@ public class AutoScalerPolicy extends AbstractPolicy {
         }
     }
     
+    /**
+     * Records the metric's current total activity (across the pool) in the forecaster, and returns the
+     * per-member metric forecast for the given horizon, or the current metric if there is not yet enough history.
+     * Forecasting the total rather than the per-member value means that the pool's own resizing does not
+     * register as a trend in the metric.
+     */
+    static double forecastMetric(MetricForecaster forecaster, Duration horizon, int currentSize, double currentMetric, long timestamp) {
+        if (currentSize <= 0) return currentMetric;
+        forecaster.add(currentSize * currentMetric, timestamp);
+        Double forecastTotal = forecaster.forecast(horizon);
+        return (forecastTotal == null) ? currentMetric : forecastTotal / currentSize;
+    }
+    
+    /**
+     * Calculates the pool size to bring the given metric within range.
+     * 
+     * We always scale out (modulo stabilization delay) if:
+     *   currentTotalActivity > currentSize*metricUpperBound
+     * With newDesiredSize the smallest n such that   n*metricUpperBound >= currentTotalActivity
+     * ie  n >= currentTotalActiviy/metricUpperBound, thus n := Math.ceil(currentTotalActivity/metricUpperBound)
+     * 
+     * Else consider scale back if:
+     *   currentTotalActivity < currentSize*metricLowerBound
+     * With newDesiredSize normally the largest n such that:  
+     *   n*metricLowerBound <= currentTotalActivity
+     * BUT with an absolute requirement which trumps the above computation
+     * that the newDesiredSize doesn't cause immediate scale out:
+     *   n*metricUpperBound >= currentTotalActivity
+     * thus n := Math.max ( floor(currentTotalActiviy/metricLowerBound), ceil(currentTotal/metricUpperBound) )
+     * 
+     * If the metric is within range, both sizes are the current size.
+     */
+    static MetricBasedSize calculateMetricBasedSize(int currentSize, double currentMetric, double metricLowerBound, double metricUpperBound, int minPoolSize, int maxPoolSize) {
+        double currentTotalActivity = currentSize * currentMetric;
+        int unboundedSize;
+        int desiredSize;
+        
+        if (currentMetric > metricUpperBound) {
+            // scale out
+            unboundedSize = (int)Math.ceil(currentTotalActivity/metricUpperBound);
+            desiredSize = toBoundedDesiredPoolSize(unboundedSize, minPoolSize, maxPoolSize);
+            
+        } else if (currentMetric < metricLowerBound) {
+            // scale back
+            unboundedSize = (int)Math.floor(currentTotalActivity/metricLowerBound);
+            desiredSize = toBoundedDesiredPoolSize(unboundedSize, minPoolSize, maxPoolSize);
+            if (desiredSize < currentTotalActivity/metricUpperBound) {
+                // this desired size would cause scale-out on next run, ie thrashing, so tweak
+                desiredSize = (int)Math.ceil(currentTotalActivity/metricUpperBound);
+                desiredSize = toBoundedDesiredPoolSize(desiredSize, minPoolSize, maxPoolSize);
+            }
+            
+        } else {
+            unboundedSize = currentSize;
+            desiredSize = currentSize;
+        }
+        return new MetricBasedSize(unboundedSize, desiredSize);
+    }
+    
+    static class MetricBasedSize {
+        final int unbounded;
+        final int desired;
+        
+        MetricBasedSize(int unbounded, int desired) {
+            this.unbounded = unbounded;
+            this.desired = desired;
+        }
+    }
+    
     private void onPoolCold(Map<String, ?> properties) {
         if (LOG.isTraceEnabled()) LOG.trace("{} recording pool-cold for {}: {}", new Object[] {this, poolEntity, properties});
         
@@ -776,8 +894,12 @@ public class AutoScalerPolicy extends AbstractPolicy {
     }
     
     private int toBoundedDesiredPoolSize(int size) {
-        int result = Math.max(getMinPoolSize(), size);
-        result = Math.min(getMaxPoolSize(), result);
+        return toBoundedDesiredPoolSize(size, getMinPoolSize(), getMaxPoolSize());
+    }
+
+    private static int toBoundedDesiredPoolSize(int size, int minPoolSize, int maxPoolSize) {
+        int result = Math.max(minPoolSize, size);
+        result = Math.min(maxPoolSize, result);
         return result;
     }
 
@@ -942,9 +1064,15 @@ public class AutoScalerPolicy extends AbstractPolicy {
      *         will this continue to be the desired pool size)
      */
     private CalculatedDesiredPoolSize calculateDesiredPoolSize(long currentPoolSize) {
-        long now = System.currentTimeMillis();
-        WindowSummary downsizeSummary = recentDesiredResizes.summarizeWindow(getResizeDownStabilizationDelay());
-        WindowSummary upsizeSummary = recentDesiredResizes.summarizeWindow(getResizeUpStabilizationDelay());
+        return calculateDesiredPoolSize(this, currentPoolSize, recentDesiredResizes, getResizeUpStabilizationDelay(), 
+                getResizeDownStabilizationDelay(), System.currentTimeMillis());
+    }
+    
+    /** As {@link #calculateDesiredPoolSize(long)}, for the given history of desired sizes as at the given time. */
+    static CalculatedDesiredPoolSize calculateDesiredPoolSize(Object context, long currentPoolSize, SizeHistory recentDesiredResizes, 
+            Duration resizeUpStabilizationDelay, Duration resizeDownStabilizationDelay, long now) {
+        WindowSummary downsizeSummary = recentDesiredResizes.summarizeWindow(resizeDownStabilizationDelay, now);
+        WindowSummary upsizeSummary = recentDesiredResizes.summarizeWindow(resizeUpStabilizationDelay, now);
         
         // this is the _sustained_ growth value; the smallest size that has been requested in the "stable-for-growing" period
         long maxDesiredPoolSize = upsizeSummary.min;
@@ -978,12 +1106,12 @@ public class AutoScalerPolicy extends AbstractPolicy {
 
         if (LOG.isTraceEnabled()) LOG.trace("{} calculated desired pool size: from {} to {}; minDesired {}, maxDesired {}; " +
                 "stable {}; now {}; downsizeHistory {}; upsizeHistory {}", 
-                new Object[] {this, currentPoolSize, desiredPoolSize, minDesiredPoolSize, maxDesiredPoolSize, stable, now, downsizeSummary, upsizeSummary});
+                new Object[] {context, currentPoolSize, desiredPoolSize, minDesiredPoolSize, maxDesiredPoolSize, stable, now, downsizeSummary, upsizeSummary});
         
         return new CalculatedDesiredPoolSize(desiredPoolSize, stable);
     }
     
-    private static class CalculatedDesiredPoolSize {
+    static class CalculatedDesiredPoolSize {
         final long size;
         final boolean stable;
         
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.policy.autoscaling;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import brooklyn.policy.autoscaling.AutoScalerPolicy.CalculatedDesiredPoolSize;
+import brooklyn.policy.autoscaling.AutoScalerPolicy.MetricBasedSize;
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.TimestampedValue;
+import brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Replays a recorded trace of demand against the sizing logic of the {@link AutoScalerPolicy}, using a
+ * simulated pool in which new members only start serving after a provisioning delay. No entities are
+ * created and no time passes, so a day's trace replays in milliseconds; this makes it practical to compare
+ * the reactive and forecasting modes, and to tune bounds and delays, against real traffic.
+ * <p>
+ * The trace is of total demand across the pool (for example requests per second), with the metric seen
+ * by the policy being that demand divided by the number of members which are serving. A trace of the
+ * per-member metric can be converted by multiplying each value by the pool size at the time it was recorded.
+ * <p>
+ * Each trace value is treated as a metric change seen by the policy, and any resize is applied immediately
+ * (the policy's {@code minPeriodBetweenExecs} is not modelled).
+ */
+@Beta
+public class AutoScalerSimulation {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private double metricLowerBound;
+        private double metricUpperBound;
+        private int minPoolSize = 0;
+        private int maxPoolSize = Integer.MAX_VALUE;
+        private int initialSize = 1;
+        private Duration provisioningDelay = Duration.ZERO;
+        private Duration resizeUpStabilizationDelay = Duration.ZERO;
+        private Duration resizeDownStabilizationDelay = Duration.ZERO;
+        private MetricForecaster.Mode metricForecastMode;
+        private Duration metricForecastHorizon = AutoScalerPolicy.METRIC_FORECAST_HORIZON.getDefaultValue();
+        private Duration metricForecastWindow = AutoScalerPolicy.METRIC_FORECAST_WINDOW.getDefaultValue();
+        private double metricForecastLevelSmoothing = AutoScalerPolicy.METRIC_FORECAST_LEVEL_SMOOTHING.getDefaultValue();
+        private double metricForecastTrendSmoothing = AutoScalerPolicy.METRIC_FORECAST_TREND_SMOOTHING.getDefaultValue();
+
+        public Builder metricRange(double min, double max) {
+            metricLowerBound = min;
+            metricUpperBound = max;
+            return this;
+        }
+        public Builder sizeRange(int min, int max) {
+            minPoolSize = min;
+            maxPoolSize = max;
+            return this;
+        }
+        public Builder initialSize(int val) {
+            this.initialSize = val; return this;
+        }
+        public Builder provisioningDelay(Duration val) {
+            this.provisioningDelay = val; return this;
+        }
+        public Builder resizeUpStabilizationDelay(Duration val) {
+            this.resizeUpStabilizationDelay = val; return this;
+        }
+        public Builder resizeDownStabilizationDelay(Duration val) {
+            this.resizeDownStabilizationDelay = val; return this;
+        }
+        public Builder metricForecastMode(MetricForecaster.Mode val) {
+            this.metricForecastMode = val; return this;
+        }
+        public Builder metricForecastHorizon(Duration val) {
+            this.metricForecastHorizon = val; return this;
+        }
+        public Builder metricForecastWindow(Duration val) {
+            this.metricForecastWindow = val; return this;
+        }
+        public Builder metricForecastSmoothing(double level, double trend) {
+            metricForecastLevelSmoothing = level;
+            metricForecastTrendSmoothing = trend;
+            return this;
+        }
+        public AutoScalerSimulation build() {
+            return new AutoScalerSimulation(this);
+        }
+    }
+
+    /** The state of the simulated pool after the policy has handled one value from the trace. */
+    public static class Step {
+        public final long timestamp;
+        public final double demand;
+        /** The metric as the policy saw it: demand per serving member (or null if no member was serving) */
+        public final Double metric;
+        /** The metric the policy sized for; the higher of the metric and its forecast */
+        public final Double effectiveMetric;
+        /** The size of the pool, including members still provisioning */
+        public final int size;
+        /** The number of members serving demand */
+        public final int serving;
+
+        Step(long timestamp, double demand, Double metric, Double effectiveMetric, int size, int serving) {
+            this.timestamp = timestamp;
+            this.demand = demand;
+            this.metric = metric;
+            this.effectiveMetric = effectiveMetric;
+            this.size = size;
+            this.serving = serving;
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("timestamp", timestamp).add("demand", demand).add("metric", metric)
+                    .add("effectiveMetric", effectiveMetric).add("size", size).add("serving", serving).toString();
+        }
+    }
+
+    public static class Result {
+        private final List<Step> steps;
+        private final double metricUpperBound;
+
+        Result(List<Step> steps, double metricUpperBound) {
+            this.steps = Collections.unmodifiableList(steps);
+            this.metricUpperBound = metricUpperBound;
+        }
+
+        public List<Step> getSteps() {
+            return steps;
+        }
+
+        /** @return the number of steps at which the serving members were over the metric's upper bound */
+        public int getOverloadedSteps() {
+            int result = 0;
+            for (Step step : steps) {
+                if (step.metric == null ? step.demand > 0 : step.metric > metricUpperBound) result++;
+            }
+            return result;
+        }
+
+        /** @return the time during which the serving members were over the metric's upper bound */
+        public Duration getOverloadedTime() {
+            long result = 0;
+            for (int i = 0; i < steps.size()-1; i++) {
+                Step step = steps.get(i);
+                if (step.metric == null ? step.demand > 0 : step.metric > metricUpperBound) {
+                    result += steps.get(i+1).timestamp - step.timestamp;
+                }
+            }
+            return Duration.millis(result);
+        }
+
+        /** @return the total time for which members were provisioned (including while starting), i.e. the cost */
+        public Duration getMemberTime() {
+            long result = 0;
+            for (int i = 0; i < steps.size()-1; i++) {
+                result += steps.get(i).size * (steps.get(i+1).timestamp - steps.get(i).timestamp);
+            }
+            return Duration.millis(result);
+        }
+
+        public int getMaxSize() {
+            int result = 0;
+            for (Step step : steps) {
+                result = Math.max(result, step.size);
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).add("steps", steps.size()).add("overloadedSteps", getOverloadedSteps())
+                    .add("overloadedTime", getOverloadedTime()).add("memberTime", getMemberTime()).add("maxSize", getMaxSize()).toString();
+        }
+    }
+
+    private final Builder config;
+
+    protected AutoScalerSimulation(Builder builder) {
+        Preconditions.checkArgument(builder.metricLowerBound <= builder.metricUpperBound, "metric lower bound must not be above upper bound");
+        Preconditions.checkArgument(builder.minPoolSize <= builder.maxPoolSize, "min pool size must not be above max pool size");
+        this.config = builder;
+    }
+
+    /**
+     * Replays the given trace of demand, which must be in timestamp order.
+     */
+    public Result run(Iterable<? extends TimestampedValue<? extends Number>> trace) {
+        Duration maxStabilizationDelay = Duration.max(config.resizeUpStabilizationDelay, config.resizeDownStabilizationDelay);
+        SizeHistory recentDesiredResizes = new SizeHistory(maxStabilizationDelay.toMilliseconds());
+        MetricForecaster forecaster = (config.metricForecastMode == null) ? null : new MetricForecaster(config.metricForecastMode, 
+                config.metricForecastWindow, config.metricForecastLevelSmoothing, config.metricForecastTrendSmoothing, 
+                MetricForecaster.DEFAULT_MAX_SAMPLES);
+
+        int size = config.initialSize;
+        int serving = config.initialSize;
+        // times at which each member still provisioning will start serving, oldest first
+        List<Long> provisioning = MutableList.of();
+        List<Step> steps = MutableList.of();
+        long lastTimestamp = Long.MIN_VALUE;
+
+        for (TimestampedValue<? extends Number> val : trace) {
+            long now = val.getTimestamp();
+            Preconditions.checkArgument(now >= lastTimestamp, "trace not in timestamp order, at %s", val);
+            lastTimestamp = now;
+            double demand = val.getValue().doubleValue();
+
+            for (Iterator<Long> iter = provisioning.iterator(); iter.hasNext();) {
+                if (iter.next() <= now) {
+                    iter.remove();
+                    serving++;
+                }
+            }
+
+            Double metric = (serving > 0) ? demand / serving : null;
+            Double effectiveMetric = metric;
+            if (metric != null) {
+                if (forecaster != null) {
+                    effectiveMetric = Math.max(metric, AutoScalerPolicy.forecastMetric(forecaster, config.metricForecastHorizon, size, metric, now));
+                }
+                MetricBasedSize sizes = AutoScalerPolicy.calculateMetricBasedSize(size, effectiveMetric, 
+                        config.metricLowerBound, config.metricUpperBound, config.minPoolSize, config.maxPoolSize);
+                boolean wanted = (effectiveMetric > config.metricUpperBound && sizes.desired > size)
+                        || (effectiveMetric < config.metricLowerBound && sizes.desired < size);
+                recentDesiredResizes.add(wanted ? sizes.desired : size, now);
+
+                CalculatedDesiredPoolSize desired = AutoScalerPolicy.calculateDesiredPoolSize(this, size, recentDesiredResizes, 
+                        config.resizeUpStabilizationDelay, config.resizeDownStabilizationDelay, now);
+                int newSize = (int) desired.size;
+                if (newSize > size) {
+                    for (int i = size; i < newSize; i++) {
+                        provisioning.add(now + config.provisioningDelay.toMilliseconds());
+                    }
+                } else if (newSize < size) {
+                    // remove members still provisioning first, newest first, as the cluster would
+                    for (int i = newSize; i < size; i++) {
+                        if (!provisioning.isEmpty()) {
+                            provisioning.remove(provisioning.size()-1);
+                        } else {
+                            serving--;
+                        }
+                    }
+                }
+                size = newSize;
+            }
+            steps.add(new Step(now, demand, metric, effectiveMetric, size, serving));
+        }
+        return new Result(steps, config.metricUpperBound);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+}
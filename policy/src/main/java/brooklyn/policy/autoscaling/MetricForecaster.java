@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.policy.autoscaling;
+
+import brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Keeps a compact, time-bounded series of a metric's recent values and extrapolates it, so that
+ * the {@link AutoScalerPolicy} can size a pool for where the metric is heading rather than where it is.
+ * <p>
+ * Two models are supported:
+ * <ul>
+ *   <li>{@link Mode#LINEAR}: least-squares straight line through the samples in the window;
+ *   <li>{@link Mode#HOLT}: Holt's double exponential smoothing (level and trend, without the
+ *       seasonal component of Holt-Winters), which reacts faster to a change in slope.
+ * </ul>
+ * Samples are held in a fixed-size ring buffer, so memory use does not grow with the metric's publish rate.
+ */
+@Beta
+public class MetricForecaster {
+
+    public enum Mode {
+        LINEAR,
+        HOLT
+    }
+
+    public static final int DEFAULT_MAX_SAMPLES = 256;
+
+    private final Mode mode;
+    private final long windowMillis;
+    private final double levelSmoothing;
+    private final double trendSmoothing;
+
+    private final long[] times;
+    private final double[] values;
+    private int start;
+    private int count;
+
+    // holt state; trend is per millisecond
+    private double level;
+    private double trend;
+    private long lastTime;
+
+    public MetricForecaster(Mode mode, Duration window) {
+        this(mode, window, 0.5, 0.3, DEFAULT_MAX_SAMPLES);
+    }
+
+    /**
+     * @param levelSmoothing  weight given to the newest value when updating the level (holt's alpha), in (0,1]
+     * @param trendSmoothing  weight given to the newest slope when updating the trend (holt's beta), in (0,1]
+     */
+    public MetricForecaster(Mode mode, Duration window, double levelSmoothing, double trendSmoothing, int maxSamples) {
+        this.mode = Preconditions.checkNotNull(mode, "mode");
+        this.windowMillis = Preconditions.checkNotNull(window, "window").toMilliseconds();
+        Preconditions.checkArgument(levelSmoothing > 0 && levelSmoothing <= 1, "levelSmoothing must be in (0,1], but was %s", levelSmoothing);
+        Preconditions.checkArgument(trendSmoothing > 0 && trendSmoothing <= 1, "trendSmoothing must be in (0,1], but was %s", trendSmoothing);
+        Preconditions.checkArgument(maxSamples >= 2, "maxSamples must be at least 2, but was %s", maxSamples);
+        this.levelSmoothing = levelSmoothing;
+        this.trendSmoothing = trendSmoothing;
+        this.times = new long[maxSamples];
+        this.values = new double[maxSamples];
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Records a value. Values older than the most recent sample are ignored.
+     */
+    public synchronized void add(double value, long timestamp) {
+        if (count > 0) {
+            long latest = times[index(count-1)];
+            if (timestamp < latest) return;
+            updateHolt(value, timestamp);
+        } else {
+            level = value;
+            trend = 0;
+            lastTime = timestamp;
+        }
+
+        if (count == times.length) {
+            start = index(1);
+            count--;
+        }
+        times[index(count)] = timestamp;
+        values[index(count)] = value;
+        count++;
+        prune(timestamp);
+    }
+
+    private void updateHolt(double value, long timestamp) {
+        long dt = timestamp - lastTime;
+        if (dt <= 0) {
+            level = levelSmoothing*value + (1-levelSmoothing)*level;
+            return;
+        }
+        double previousLevel = level;
+        if (count == 1) {
+            // second sample: initialise the trend from the first two points
+            trend = (value - previousLevel) / dt;
+            level = value;
+        } else {
+            level = levelSmoothing*value + (1-levelSmoothing)*(previousLevel + trend*dt);
+            trend = trendSmoothing*((level - previousLevel) / dt) + (1-trendSmoothing)*trend;
+        }
+        lastTime = timestamp;
+    }
+
+    private void prune(long now) {
+        // always keep at least two samples, so that a slope can still be computed after a quiet period
+        while (count > 2 && times[start] < now - windowMillis) {
+            start = index(1);
+            count--;
+        }
+    }
+
+    private int index(int offset) {
+        return (start + offset) % times.length;
+    }
+
+    /** @return the number of samples currently held */
+    public synchronized int size() {
+        return count;
+    }
+
+    /** @return the most recently recorded value, or null if none */
+    public synchronized Double getLatest() {
+        return (count == 0) ? null : values[index(count-1)];
+    }
+
+    /**
+     * @return the rate of change of the metric per second, according to the model, or null if fewer than two samples
+     */
+    public synchronized Double getRatePerSecond() {
+        if (count < 2) return null;
+        return (mode == Mode.HOLT ? trend : linearFit()[1]) * 1000;
+    }
+
+    /**
+     * @return the value forecast for the given time after the most recent sample, or null if fewer than two samples
+     */
+    public synchronized Double forecast(Duration horizon) {
+        if (count < 2) return null;
+        long horizonMillis = horizon.toMilliseconds();
+        if (mode == Mode.HOLT) {
+            return level + trend*horizonMillis;
+        } else {
+            double[] fit = linearFit();
+            long latest = times[index(count-1)];
+            return fit[0] + fit[1]*(latest + horizonMillis - times[start]);
+        }
+    }
+
+    /** @return intercept (at the oldest sample's time) and slope (per millisecond) of the least-squares line */
+    private double[] linearFit() {
+        long t0 = times[start];
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int i = 0; i < count; i++) {
+            double x = times[index(i)] - t0;
+            double y = values[index(i)];
+            sumX += x;
+            sumY += y;
+            sumXX += x*x;
+            sumXY += x*y;
+        }
+        double denominator = count*sumXX - sumX*sumX;
+        if (denominator == 0) {
+            // all samples at the same instant; no slope can be inferred
+            return new double[] {sumY/count, 0};
+        }
+        double slope = (count*sumXY - sumX*sumY) / denominator;
+        double intercept = (sumY - slope*sumX) / count;
+        return new double[] {intercept, slope};
+    }
+
+    @Override
+    public synchronized String toString() {
+        return Objects.toStringHelper(this).add("mode", mode).add("samples", count)
+                .add("latest", getLatest()).add("ratePerSecond", getRatePerSecond()).toString();
+    }
+}
@@ -76,6 +76,11 @@ public class SizeHistory {
         recentDesiredResizes.add(val);
     }
 
+    /** Adds a value recorded at the given time (e.g. when replaying a recorded history). */
+    public void add(final int val, long timestamp) {
+        recentDesiredResizes.add(val, timestamp);
+    }
+
     public void setWindowSize(Duration newWindowSize) {
         recentDesiredResizes.setTimePeriod(newWindowSize);
     }
@@ -91,13 +96,17 @@ public class SizeHistory {
      * </ul>
      */
     public WindowSummary summarizeWindow(Duration windowSize) {
-        long now = System.currentTimeMillis();
+        return summarizeWindow(windowSize, System.currentTimeMillis());
+    }
+
+    /** As {@link #summarizeWindow(Duration)}, but for the window ending at the given time rather than now. */
+    public WindowSummary summarizeWindow(Duration windowSize, long now) {
         List<TimestampedValue<Number>> windowVals = recentDesiredResizes.getValuesInWindow(now, windowSize);
         
         Number latestObj = latestInWindow(windowVals);
         long latest = (latestObj == null) ? -1: latestObj.longValue();
-        long max = maxInWindow(windowVals, windowSize).longValue();
-        long min = minInWindow(windowVals, windowSize).longValue();
+        long max = maxInWindow(windowVals, windowSize, now).longValue();
+        long min = minInWindow(windowVals, windowSize, now).longValue();
         
         // TODO Could do more sophisticated "stable" check; this is the easiest code - correct but not most efficient
         // in terms of the caller having to schedule additional stability checks.
@@ -109,9 +118,8 @@ public class SizeHistory {
     /**
      * If the entire time-window is not covered by the given values, then returns Integer.MAX_VALUE.
      */
-    private <T extends Number> T maxInWindow(List<TimestampedValue<T>> vals, Duration timeWindow) {
+    private <T extends Number> T maxInWindow(List<TimestampedValue<T>> vals, Duration timeWindow, long now) {
         // TODO bad casting from Integer default result to T
-        long now = System.currentTimeMillis();
         long epoch = now - timeWindow.toMilliseconds();
         T result = null;
         double resultAsDouble = Integer.MAX_VALUE;
@@ -133,8 +141,7 @@ public class SizeHistory {
     /**
      * If the entire time-window is not covered by the given values, then returns Integer.MIN_VALUE
      */
-    private <T extends Number> T minInWindow(List<TimestampedValue<T>> vals, Duration timeWindow) {
-        long now = System.currentTimeMillis();
+    private <T extends Number> T minInWindow(List<TimestampedValue<T>> vals, Duration timeWindow, long now) {
         long epoch = now - timeWindow.toMilliseconds();
         T result = null;
         double resultAsDouble = Integer.MIN_VALUE;
@@ -40,6 +40,8 @@ import brooklyn.test.Asserts;
 import brooklyn.test.entity.TestApplication;
 import brooklyn.test.entity.TestCluster;
 import brooklyn.test.entity.TestEntity;
+import brooklyn.util.time.Duration;
+import brooklyn.util.time.Time;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -271,4 +273,23 @@ public class AutoScalerPolicyMetricTest {
         entityWithMetric.setAttribute(TestEntity.SEQUENCE, 101);
         Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), currentSizeAsserter(tc, 2));
     }
+    
+    @Test
+    public void testForecastingScalesOutAheadOfRisingMetric() throws Exception {
+        tc.resize(1);
+        
+        AutoScalerPolicy policy = new AutoScalerPolicy.Builder().metric(MY_ATTRIBUTE).metricLowerBound(50).metricUpperBound(100)
+                .maxPoolSize(2)
+                .metricForecastMode(MetricForecaster.Mode.LINEAR)
+                .metricForecastHorizon(Duration.millis(500))
+                .build();
+        tc.addPolicy(policy);
+
+        // every value is within range, but the trend will take it over the upper bound within the horizon
+        for (int val = 60; val <= 90; val += 10) {
+            tc.setAttribute(MY_ATTRIBUTE, val);
+            Time.sleep(Duration.millis(100));
+        }
+        Asserts.succeedsEventually(ImmutableMap.of("timeout", TIMEOUT_MS), currentSizeAsserter(tc, 2));
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.policy.autoscaling;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import brooklyn.policy.autoscaling.AutoScalerSimulation.Result;
+import brooklyn.policy.autoscaling.AutoScalerSimulation.Step;
+import brooklyn.util.collections.MutableList;
+import brooklyn.util.collections.TimestampedValue;
+import brooklyn.util.time.Duration;
+
+import com.google.common.collect.Iterables;
+
+public class AutoScalerSimulationTest {
+
+    private static final long SAMPLE_PERIOD = Duration.seconds(30).toMilliseconds();
+
+    /** flat at the start value, then a linear ramp to the end value, then flat again */
+    private static List<TimestampedValue<Double>> rampTrace(double startVal, double endVal, Duration flat, Duration ramp) {
+        List<TimestampedValue<Double>> result = MutableList.of();
+        long t = 0;
+        for (; t < flat.toMilliseconds(); t += SAMPLE_PERIOD) {
+            result.add(new TimestampedValue<Double>(startVal, t));
+        }
+        long rampStart = t;
+        for (; t < rampStart + ramp.toMilliseconds(); t += SAMPLE_PERIOD) {
+            double fraction = (double)(t - rampStart) / ramp.toMilliseconds();
+            result.add(new TimestampedValue<Double>(startVal + fraction*(endVal - startVal), t));
+        }
+        long rampEnd = t;
+        for (; t < rampEnd + flat.toMilliseconds(); t += SAMPLE_PERIOD) {
+            result.add(new TimestampedValue<Double>(endVal, t));
+        }
+        return result;
+    }
+
+    private static AutoScalerSimulation.Builder simulation() {
+        return AutoScalerSimulation.builder()
+                .metricRange(50, 100)
+                .initialSize(2)
+                .provisioningDelay(Duration.minutes(3));
+    }
+
+    @Test
+    public void testSteadyDemandDoesNotResize() {
+        Result result = simulation().build().run(rampTrace(150, 150, Duration.minutes(10), Duration.ZERO));
+        
+        for (Step step : result.getSteps()) {
+            assertEquals(step.size, 2, "step="+step);
+            assertEquals(step.serving, 2, "step="+step);
+        }
+        assertEquals(result.getOverloadedSteps(), 0);
+        assertEquals(result.getMemberTime(), Duration.millis(2 * (Iterables.getLast(result.getSteps()).timestamp)));
+    }
+
+    @Test
+    public void testReactiveScalingReachesSizeForDemand() {
+        Result result = simulation().build().run(rampTrace(150, 950, Duration.minutes(30), Duration.minutes(30)));
+        
+        // (the policy can overshoot the minimum of 10, because members still provisioning count towards the size
+        // but not towards serving the demand)
+        Step last = Iterables.getLast(result.getSteps());
+        assertMetricInRange(last);
+        assertEquals(last.serving, last.size, "last="+last);
+        assertTrue(result.getOverloadedSteps() > 0, "result="+result);
+    }
+
+    @Test
+    public void testMaxPoolSizeIsObeyed() {
+        Result result = simulation().sizeRange(1, 4).build().run(rampTrace(150, 950, Duration.minutes(30), Duration.minutes(30)));
+        
+        assertEquals(result.getMaxSize(), 4);
+    }
+
+    @Test
+    public void testForecastingReducesOverloadDuringRamp() {
+        List<TimestampedValue<Double>> trace = rampTrace(150, 950, Duration.minutes(30), Duration.minutes(30));
+        Result reactive = simulation().build().run(trace);
+        Result linear = simulation()
+                .metricForecastMode(MetricForecaster.Mode.LINEAR)
+                .metricForecastHorizon(Duration.minutes(3))
+                .metricForecastWindow(Duration.minutes(5))
+                .build()
+                .run(trace);
+        Result holt = simulation()
+                .metricForecastMode(MetricForecaster.Mode.HOLT)
+                .metricForecastHorizon(Duration.minutes(3))
+                .build()
+                .run(trace);
+        
+        assertTrue(linear.getOverloadedTime().compareTo(reactive.getOverloadedTime()) < 0, "linear="+linear+"; reactive="+reactive);
+        assertTrue(holt.getOverloadedTime().compareTo(reactive.getOverloadedTime()) < 0, "holt="+holt+"; reactive="+reactive);
+        
+        // once demand is flat, forecasting settles within range just as reacting does
+        assertMetricInRange(Iterables.getLast(linear.getSteps()));
+        assertMetricInRange(Iterables.getLast(holt.getSteps()));
+    }
+
+    @Test
+    public void testStabilizationDelayDefersScaleOut() {
+        List<TimestampedValue<Double>> trace = rampTrace(150, 950, Duration.minutes(30), Duration.minutes(30));
+        Result immediate = simulation().build().run(trace);
+        Result stabilized = simulation().resizeUpStabilizationDelay(Duration.minutes(2)).build().run(trace);
+        
+        assertTrue(firstResizeTime(stabilized) > firstResizeTime(immediate), "immediate="+immediate+"; stabilized="+stabilized);
+    }
+
+    private static void assertMetricInRange(Step step) {
+        assertTrue(step.metric >= 50 && step.metric <= 100, "step="+step);
+    }
+
+    private static long firstResizeTime(Result result) {
+        for (Step step : result.getSteps()) {
+            if (step.size != 2) return step.timestamp;
+        }
+        return Long.MAX_VALUE;
+    }
+}
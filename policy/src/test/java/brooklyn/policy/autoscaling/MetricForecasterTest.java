@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.policy.autoscaling;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import brooklyn.policy.autoscaling.MetricForecaster.Mode;
+import brooklyn.util.time.Duration;
+
+public class MetricForecasterTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testNoForecastWithoutTwoSamples() {
+        MetricForecaster forecaster = new MetricForecaster(Mode.LINEAR, Duration.ONE_MINUTE);
+        assertNull(forecaster.forecast(Duration.ONE_SECOND));
+        assertNull(forecaster.getRatePerSecond());
+        
+        forecaster.add(10, 1000);
+        assertNull(forecaster.forecast(Duration.ONE_SECOND));
+        assertEquals(forecaster.getLatest(), 10d, DELTA);
+    }
+
+    @Test
+    public void testLinearForecastOfStraightLine() {
+        MetricForecaster forecaster = new MetricForecaster(Mode.LINEAR, Duration.ONE_MINUTE);
+        for (int i = 0; i < 10; i++) {
+            forecaster.add(100 + 5*i, 1000*i);
+        }
+        assertEquals(forecaster.getRatePerSecond(), 5d, DELTA);
+        assertEquals(forecaster.forecast(Duration.seconds(10)), 145d + 50, DELTA);
+    }
+
+    @Test
+    public void testLinearForecastOfFlatLineIsFlat() {
+        MetricForecaster forecaster = new MetricForecaster(Mode.LINEAR, Duration.ONE_MINUTE);
+        for (int i = 0; i < 10; i++) {
+            forecaster.add(42, 1000*i);
+        }
+        assertEquals(forecaster.getRatePerSecond(), 0d, DELTA);
+        assertEquals(forecaster.forecast(Duration.ONE_HOUR), 42d, DELTA);
+    }
+
+    @Test
+    public void testHoltForecastFollowsChangeInTrend() {
+        MetricForecaster forecaster = new MetricForecaster(Mode.HOLT, Duration.ONE_MINUTE);
+        for (int i = 0; i < 30; i++) {
+            forecaster.add(100, 1000*i);
+        }
+        // metric starts rising at 10 per second
+        for (int i = 30; i < 60; i++) {
+            forecaster.add(100 + 10*(i-29), 1000*i);
+        }
+        assertEquals(forecaster.getRatePerSecond(), 10d, 0.5);
+        double latest = forecaster.getLatest();
+        assertEquals(forecaster.forecast(Duration.seconds(10)), latest + 100, 5);
+    }
+
+    @Test
+    public void testOldSamplesArePrunedFromWindow() {
+        MetricForecaster forecaster = new MetricForecaster(Mode.LINEAR, Duration.seconds(10));
+        // falling steeply long ago, then flat
+        for (int i = 0; i < 10; i++) {
+            forecaster.add(1000 - 100*i, 1000*i);
+        }
+        for (int i = 10; i < 40; i++) {
+            forecaster.add(50, 1000*i);
+        }
+        assertEquals(forecaster.size(), 11);
+        assertEquals(forecaster.forecast(Duration.ONE_MINUTE), 50d, DELTA);
+    }
+
+    @Test
+    public void testSampleCountIsBounded() {
+        MetricForecaster forecaster = new MetricForecaster(Mode.LINEAR, Duration.ONE_HOUR, 0.5, 0.3, 4);
+        for (int i = 0; i < 100; i++) {
+            forecaster.add(i, i);
+        }
+        assertEquals(forecaster.size(), 4);
+        assertEquals(forecaster.forecast(Duration.millis(1)), 100d, DELTA);
+    }
+
+    @Test
+    public void testOutOfOrderSampleIgnored() {
+        MetricForecaster forecaster = new MetricForecaster(Mode.LINEAR, Duration.ONE_MINUTE);
+        forecaster.add(10, 1000);
+        forecaster.add(20, 2000);
+        forecaster.add(1000, 1500);
+        assertEquals(forecaster.size(), 2);
+        assertTrue(forecaster.forecast(Duration.ONE_SECOND) < 31);
+    }
+}
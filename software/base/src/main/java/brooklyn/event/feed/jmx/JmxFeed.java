@@ -46,8 +46,11 @@ import brooklyn.event.feed.Poller;
 import brooklyn.util.time.Duration;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
@@ -297,9 +300,25 @@ public class JmxFeed extends AbstractFeed {
             });
         }
         
-        // Setup polling of sensors
-        for (final String jmxAttributeName : attributePolls.keys()) {
-            registerAttributePoller(attributePolls.get(jmxAttributeName));
+        // Setup polling of sensors; attributes of the same ObjectName polled at the same rate are fetched in one call
+        Map<List<?>, SetMultimap<String, JmxAttributePollConfig<?>>> attributePollsByObjectNameAndPeriod = Maps.newLinkedHashMap();
+        for (String jmxAttributeKey : attributePolls.keySet()) {
+            Set<JmxAttributePollConfig<?>> configs = attributePolls.get(jmxAttributeKey);
+            JmxAttributePollConfig<?> first = Iterables.get(configs, 0);
+            List<?> groupKey = ImmutableList.<Object>of(first.getObjectName(), minPeriod(configs));
+            SetMultimap<String, JmxAttributePollConfig<?>> group = attributePollsByObjectNameAndPeriod.get(groupKey);
+            if (group == null) {
+                group = LinkedHashMultimap.create();
+                attributePollsByObjectNameAndPeriod.put(groupKey, group);
+            }
+            group.putAll(first.getAttributeName(), configs);
+        }
+        for (SetMultimap<String, JmxAttributePollConfig<?>> group : attributePollsByObjectNameAndPeriod.values()) {
+            if (group.keySet().size() == 1) {
+                registerAttributePoller(group.get(Iterables.getOnlyElement(group.keySet())));
+            } else {
+                registerAttributesPoller(group);
+            }
         }
         
         // Setup polling of operations
@@ -362,14 +381,12 @@ public class JmxFeed extends AbstractFeed {
      */
     private void registerAttributePoller(Set<JmxAttributePollConfig<?>> configs) {
         Set<AttributePollHandler<? super Object>> handlers = Sets.newLinkedHashSet();
-        long minPeriod = Integer.MAX_VALUE;
         
         final ObjectName objectName = Iterables.get(configs, 0).getObjectName();
         final String jmxAttributeName = Iterables.get(configs, 0).getAttributeName();
         
         for (JmxAttributePollConfig<?> config : configs) {
             handlers.add(new AttributePollHandler<Object>(config, getEntity(), this));
-            if (config.getPeriod() > 0) minPeriod = Math.min(minPeriod, config.getPeriod());
         }
         
         // TODO Not good calling this holding the synchronization lock
@@ -380,7 +397,132 @@ public class JmxFeed extends AbstractFeed {
                         return getHelper().getAttribute(objectName, jmxAttributeName);
                     }
                 }, 
-                new DelegatingPollHandler<Object>(handlers), minPeriod);
+                new DelegatingPollHandler<Object>(handlers), minPeriod(configs));
+    }
+
+    /**
+     * Registers to poll several jmx-attributes of an ObjectName with a single call, where the configs are keyed by 
+     * attribute name and are all for the same ObjectName and period.
+     * <p>
+     * Any attributes which could not be fetched that way are then fetched individually,
+     * so that each sensor's handler sees the same value or exception as it would if polled on its own.
+     */
+    private void registerAttributesPoller(SetMultimap<String, JmxAttributePollConfig<?>> configsByAttribute) {
+        final Map<String, PollHandler<Object>> handlers = Maps.newLinkedHashMap();
+        for (String jmxAttributeName : configsByAttribute.keySet()) {
+            Set<AttributePollHandler<? super Object>> attributeHandlers = Sets.newLinkedHashSet();
+            for (JmxAttributePollConfig<?> config : configsByAttribute.get(jmxAttributeName)) {
+                attributeHandlers.add(new AttributePollHandler<Object>(config, getEntity(), this));
+            }
+            handlers.put(jmxAttributeName, new DelegatingPollHandler<Object>(attributeHandlers));
+        }
+        
+        JmxAttributePollConfig<?> first = Iterables.get(configsByAttribute.values(), 0);
+        final ObjectName objectName = first.getObjectName();
+        final List<String> jmxAttributeNames = ImmutableList.copyOf(handlers.keySet());
+        
+        getPoller().scheduleAtFixedRate(
+                new Callable<Object>() {
+                    public Object call() throws Exception {
+                        if (log.isTraceEnabled()) log.trace("jmx attributes polling for {} sensors at {} -> {}", new Object[] {getEntity(), getJmxUri(), jmxAttributeNames});
+                        Map<String, Object> values = getHelper().getAttributes(objectName, jmxAttributeNames);
+                        if (values == null) {
+                            // mbean not found; as for a single attribute, handlers are given null
+                            return new AttributeValues(jmxAttributeNames);
+                        }
+                        AttributeValues result = new AttributeValues(values);
+                        for (String jmxAttributeName : jmxAttributeNames) {
+                            if (!values.containsKey(jmxAttributeName)) {
+                                try {
+                                    result.values.put(jmxAttributeName, getHelper().getAttribute(objectName, jmxAttributeName));
+                                } catch (Exception e) {
+                                    result.exceptions.put(jmxAttributeName, e);
+                                }
+                            }
+                        }
+                        return result;
+                    }
+                },
+                new AttributeValuesPollHandler(handlers), minPeriod(configsByAttribute.values()));
+    }
+
+    private static long minPeriod(Iterable<? extends JmxAttributePollConfig<?>> configs) {
+        long result = Integer.MAX_VALUE;
+        for (JmxAttributePollConfig<?> config : configs) {
+            if (config.getPeriod() > 0) result = Math.min(result, config.getPeriod());
+        }
+        return result;
+    }
+
+    /** The values (or exceptions) for each attribute fetched by a single poll of several attributes. */
+    private static class AttributeValues {
+        final Map<String, Object> values = Maps.newLinkedHashMap();
+        final Map<String, Exception> exceptions = Maps.newLinkedHashMap();
+        
+        AttributeValues(Map<String, Object> values) {
+            this.values.putAll(values);
+        }
+        AttributeValues(Iterable<String> jmxAttributeNames) {
+            for (String jmxAttributeName : jmxAttributeNames) {
+                values.put(jmxAttributeName, null);
+            }
+        }
+    }
+
+    /** Passes each attribute's value (or exception) from an {@link AttributeValues} to that attribute's handler. */
+    private static class AttributeValuesPollHandler implements PollHandler<Object> {
+        private final Map<String, PollHandler<Object>> handlers;
+        
+        AttributeValuesPollHandler(Map<String, PollHandler<Object>> handlers) {
+            this.handlers = handlers;
+        }
+        
+        @Override
+        public boolean checkSuccess(Object val) {
+            // success is checked for each attribute, in onSuccess
+            return true;
+        }
+        
+        @Override
+        public void onSuccess(Object val) {
+            AttributeValues attributeValues = (AttributeValues) val;
+            for (Map.Entry<String, PollHandler<Object>> entry : handlers.entrySet()) {
+                PollHandler<Object> handler = entry.getValue();
+                Exception exception = attributeValues.exceptions.get(entry.getKey());
+                if (exception != null) {
+                    handler.onException(exception);
+                } else {
+                    Object value = attributeValues.values.get(entry.getKey());
+                    if (handler.checkSuccess(value)) {
+                        handler.onSuccess(value);
+                    } else {
+                        handler.onFailure(value);
+                    }
+                }
+            }
+        }
+        
+        @Override
+        public void onFailure(Object val) {
+            onSuccess(val);
+        }
+        
+        @Override
+        public void onException(Exception exception) {
+            for (PollHandler<Object> handler : handlers.values()) {
+                handler.onException(exception);
+            }
+        }
+        
+        @Override
+        public String getDescription() {
+            return "jmx attributes "+handlers.keySet();
+        }
+        
+        @Override
+        public String toString() {
+            return super.toString()+"["+getDescription()+"]";
+        }
     }
 
     /**
@@ -27,16 +27,18 @@ import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.cert.Certificate;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.InstanceNotFoundException;
@@ -77,6 +79,9 @@ import brooklyn.util.time.Time;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
@@ -91,8 +96,15 @@ public class JmxHelper {
     // jmxmp
     public static final String JMXMP_URL_FORMAT = "service:jmx:jmxmp://%s:%d";
     
-    // Tracks the MBeans we have failed to find, with a set keyed off the url
-    private static final Map<String, Set<ObjectName>> notFoundMBeansByUrl = Collections.synchronizedMap(new WeakHashMap<String, Set<ObjectName>>());
+    /** How long the object name found for an object name pattern is reused, before querying for it again */
+    public static final Duration MBEAN_LOOKUP_CACHE_EXPIRY = Duration.ONE_MINUTE;
+
+    // Tracks the MBeans we have failed to find, keyed off the url and object name (so can log at warn just once for each, 
+    // until the entry expires)
+    private static final Cache<List<Object>, Boolean> notFoundMBeansByUrl = CacheBuilder.newBuilder()
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .maximumSize(10000)
+            .build();
 
     public static final Map<String, String> CLASSES = ImmutableMap.<String,String>builder()
             .put("Integer", Integer.TYPE.getName())
@@ -161,8 +173,14 @@ public class JmxHelper {
     private int minTimeBetweenReconnectAttempts = 1000;
     private final AtomicBoolean terminated = new AtomicBoolean();
     
-    // Tracks the MBeans we have failed to find for this JmsHelper's connection URL (so can log just once for each)
-    private final Set<ObjectName> notFoundMBeans;
+    // The object names found for object name patterns, so we don't query for them on every call
+    private final Cache<ObjectName, ObjectName> literalObjectNames = CacheBuilder.newBuilder()
+            .expireAfterWrite(MBEAN_LOOKUP_CACHE_EXPIRY.toMilliseconds(), TimeUnit.MILLISECONDS)
+            .build();
+
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong totalCallNanos = new AtomicLong();
+    private final AtomicLong maxCallNanos = new AtomicLong();
 
     public JmxHelper(EntityLocal entity) {
         this(toJmxUrl(entity), entity, entity.getAttribute(UsesJmx.JMX_USER), entity.getAttribute(UsesJmx.JMX_PASSWORD));
@@ -188,15 +206,6 @@ public class JmxHelper {
         this.entity = entity;
         this.user = user;
         this.password = password;
-
-        synchronized (notFoundMBeansByUrl) {
-            Set<ObjectName> set = notFoundMBeansByUrl.get(url);
-            if (set == null) {
-                set = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<ObjectName, Boolean>()));
-                notFoundMBeansByUrl.put(url, set);
-            }
-            notFoundMBeans = set;
-        }
     }
 
     public void setMinTimeBetweenReconnectAttempts(int val) {
@@ -207,6 +216,21 @@ public class JmxHelper {
         return url;
     }
 
+    /** number of calls made over this helper's connection(s), including those which failed */
+    public long getCallCount() {
+        return callCount.get();
+    }
+
+    /** mean time taken by calls over this helper's connection(s), including any reconnect */
+    public Duration getMeanCallLatency() {
+        long count = callCount.get();
+        return (count == 0) ? Duration.ZERO : Duration.nanos(totalCallNanos.get() / count);
+    }
+
+    public Duration getMaxCallLatency() {
+        return Duration.nanos(maxCallNanos.get());
+    }
+
     // ============== connection related calls =======================
 
     //for tesing purposes
@@ -430,8 +454,11 @@ public class JmxHelper {
     
     protected void disconnectNow() {
         triedConnecting = false;
+        // mbeans may well be registered under different names when we next connect
+        literalObjectNames.invalidateAll();
         if (connector != null) {
-            if (LOG.isDebugEnabled()) LOG.debug("Disconnecting from JMX URL {}", url);
+            if (LOG.isDebugEnabled()) LOG.debug("Disconnecting from JMX URL {} ({} calls, mean latency {}, max {})", 
+                    new Object[] {url, getCallCount(), getMeanCallLatency(), getMaxCallLatency()});
             try {
                 connector.close();
             } catch (Exception e) {
@@ -469,6 +496,19 @@ public class JmxHelper {
     }
 
     private <T> T invokeWithReconnect(Callable<T> task) {
+        long startNanos = System.nanoTime();
+        try {
+            return invokeWithReconnectUntimed(task);
+        } finally {
+            long durationNanos = System.nanoTime() - startNanos;
+            callCount.incrementAndGet();
+            totalCallNanos.addAndGet(durationNanos);
+            long max;
+            while ((max = maxCallNanos.get()) < durationNanos && !maxCallNanos.compareAndSet(max, durationNanos)) {}
+        }
+    }
+
+    private <T> T invokeWithReconnectUntimed(Callable<T> task) {
         try {
             return task.call();
         } catch (Exception e) {
@@ -490,12 +530,19 @@ public class JmxHelper {
     /**
      * Converts from an object name pattern to a real object name, by querying with findMBean; 
      * if no matching MBean can be found (or if more than one match found) then returns null.
-     * If the supplied object name is not a pattern then just returns that. If the 
+     * If the supplied object name is not a pattern then just returns that.
+     * <p>
+     * Matches found are reused for {@link #MBEAN_LOOKUP_CACHE_EXPIRY}, or until we reconnect
+     * or a call finds the MBean is no longer there.
      */
     public ObjectName toLiteralObjectName(ObjectName objectName) {
         if (checkNotNull(objectName, "objectName").isPattern()) {
-            ObjectInstance bean = findMBean(objectName);    
-            return (bean != null) ? bean.getObjectName() : null;
+            ObjectName result = literalObjectNames.getIfPresent(objectName);
+            if (result != null) return result;
+            ObjectInstance bean = findMBean(objectName);
+            if (bean == null) return null;
+            literalObjectNames.put(objectName, bean.getObjectName());
+            return bean.getObjectName();
         } else {
             return objectName;
         }
@@ -510,11 +557,12 @@ public class JmxHelper {
 
     public ObjectInstance findMBean(ObjectName objectName) {
         Set<ObjectInstance> beans = findMBeans(objectName);
+        List<Object> notFoundKey = ImmutableList.<Object>of(url, objectName);
         if (beans.size() == 1) {
-            notFoundMBeans.remove(objectName);
+            notFoundMBeansByUrl.invalidate(notFoundKey);
             return Iterables.getOnlyElement(beans);
         } else {
-            boolean changed = notFoundMBeans.add(objectName);
+            boolean changed = notFoundMBeansByUrl.asMap().putIfAbsent(notFoundKey, true) == null;
 
             if (beans.size() > 1) {
                 if (changed) {
@@ -601,13 +649,18 @@ public class JmxHelper {
     /**
      * Returns a specific attribute for a JMX {@link ObjectName}.
      */
-    public Object getAttribute(ObjectName objectName, final String attribute) {
+    public Object getAttribute(final ObjectName objectName, final String attribute) {
         final ObjectName realObjectName = toLiteralObjectName(objectName);
         
         if (realObjectName != null) {
             Object result = invokeWithReconnect(new Callable<Object>() {
                     public Object call() throws Exception {
-                        return getConnectionOrFail().getAttribute(realObjectName, attribute);
+                        try {
+                            return getConnectionOrFail().getAttribute(realObjectName, attribute);
+                        } catch (InstanceNotFoundException e) {
+                            literalObjectNames.invalidate(objectName);
+                            throw e;
+                        }
                     }});
 
             if (LOG.isTraceEnabled()) LOG.trace("From {}, for jmx attribute {}.{}, got value {}", new Object[] {url, objectName.getCanonicalName(), attribute, result});
@@ -617,6 +670,40 @@ public class JmxHelper {
         }
     }
 
+    /**
+     * Returns the given attributes of a JMX {@link ObjectName}, fetched in a single call.
+     * <p>
+     * Attributes which could not be read (e.g. because they do not exist, or their getter failed) are omitted
+     * from the result; use {@link #getAttribute(ObjectName, String)} to find out why.
+     * 
+     * @return the values keyed by attribute name, or null if the object name is a pattern which did not match a single MBean
+     */
+    public Map<String, Object> getAttributes(final ObjectName objectName, Collection<String> attributes) {
+        final ObjectName realObjectName = toLiteralObjectName(objectName);
+        
+        if (realObjectName != null) {
+            final String[] attributeNames = attributes.toArray(new String[attributes.size()]);
+            AttributeList list = invokeWithReconnect(new Callable<AttributeList>() {
+                    public AttributeList call() throws Exception {
+                        try {
+                            return getConnectionOrFail().getAttributes(realObjectName, attributeNames);
+                        } catch (InstanceNotFoundException e) {
+                            literalObjectNames.invalidate(objectName);
+                            throw e;
+                        }
+                    }});
+
+            Map<String, Object> result = new LinkedHashMap<String, Object>();
+            for (javax.management.Attribute attribute : list.asList()) {
+                result.put(attribute.getName(), attribute.getValue());
+            }
+            if (LOG.isTraceEnabled()) LOG.trace("From {}, for jmx attributes {}.{}, got values {}", new Object[] {url, objectName.getCanonicalName(), attributes, result});
+            return result;
+        } else {
+            return null;
+        }
+    }
+
     public void setAttribute(String objectName, String attribute, Object val) {
         setAttribute(createObjectName(objectName), attribute, val);
     }
@@ -77,6 +77,7 @@ import brooklyn.test.entity.TestEntity;
 import brooklyn.test.entity.TestEntityImpl;
 
 import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
@@ -169,6 +170,37 @@ public class JmxFeedTest {
         assertSensorEventually(intAttribute, 64, TIMEOUT_MS);
     }
 
+    @Test
+    public void testJmxAttributePollerPollsSeveralAttributesOfSameMBeanTogether() throws Exception {
+        GeneralisedDynamicMBean mbean = jmxService.registerMBean(ImmutableMap.of(attributeName, 42, "mystring", "abc"), objectName);
+        AttributeSensor<String> missingAttribute = Sensors.newStringSensor("brooklyn.test.missingAttribute");
+
+        feed = JmxFeed.builder()
+                .entity(entity)
+                .period(50)
+                .pollAttribute(new JmxAttributePollConfig<Integer>(intAttribute)
+                        .objectName(objectName)
+                        .attributeName(attributeName))
+                .pollAttribute(new JmxAttributePollConfig<String>(stringAttribute)
+                        .objectName(objectName)
+                        .attributeName("mystring"))
+                .pollAttribute(new JmxAttributePollConfig<String>(missingAttribute)
+                        .objectName(objectName)
+                        .attributeName("doesNotExist")
+                        // not returned by the bulk call, so fetched individually (which gives null for this mbean)
+                        .onSuccess(Functions.constant("missing")))
+                .build();
+        
+        assertSensorEventually(intAttribute, 42, TIMEOUT_MS);
+        assertSensorEventually(stringAttribute, "abc", TIMEOUT_MS);
+        assertSensorEventually(missingAttribute, "missing", TIMEOUT_MS);
+
+        mbean.updateAttributeValue(attributeName, 64);
+        mbean.updateAttributeValue("mystring", "def");
+        assertSensorEventually(intAttribute, 64, TIMEOUT_MS);
+        assertSensorEventually(stringAttribute, "def", TIMEOUT_MS);
+    }
+
     @Test
     public void testJmxAttributeOfTypeTabularDataProviderConvertedToMap() throws Exception {
         // Create the CompositeType and TabularData
@@ -20,6 +20,8 @@ package brooklyn.event.feed.jmx;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.io.IOException;
@@ -46,6 +48,7 @@ import brooklyn.test.JmxService;
 import brooklyn.test.TestUtils;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.time.Duration;
 
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
@@ -100,6 +103,27 @@ public class JmxHelperTest {
         assertEquals(jmxHelper.getAttribute(jmxObjectNameWithWildcard, "myattr"), "myval");
     }
 
+    @Test
+    public void testGetAttributes() throws Exception {
+        jmxService.registerMBean(MutableMap.of("myattr", "myval", "myattr2", "myval2"), objectName);
+        assertEquals(jmxHelper.getAttributes(jmxObjectName, ImmutableList.of("myattr", "myattr2", "doesNotExist")), 
+                ImmutableMap.of("myattr", "myval", "myattr2", "myval2"));
+        assertNull(jmxHelper.getAttributes(new ObjectName("DoesNotExist:type=DoesNotExist*"), ImmutableList.of("myattr")));
+    }
+
+    @Test
+    public void testGetAttributesUsingObjectNameWildcardReusesLookup() throws Exception {
+        jmxService.registerMBean(MutableMap.of("myattr", "myval", "myattr2", "myval2"), objectName);
+        assertEquals(jmxHelper.getAttributes(jmxObjectNameWithWildcard, ImmutableList.of("myattr", "myattr2")), 
+                ImmutableMap.of("myattr", "myval", "myattr2", "myval2"));
+        
+        // the wildcard was resolved by the first call, so subsequent calls are just the one round trip
+        long callCount = jmxHelper.getCallCount();
+        jmxHelper.getAttributes(jmxObjectNameWithWildcard, ImmutableList.of("myattr", "myattr2"));
+        assertEquals(jmxHelper.getCallCount(), callCount + 1);
+        assertTrue(jmxHelper.getMaxCallLatency().compareTo(Duration.ZERO) > 0);
+    }
+
     @Test
     public void testSetAttribute() throws Exception {
         DynamicMBean mbean = jmxService.registerMBean(MutableMap.of("myattr", "myval"), objectName);
@@ -113,9 +113,10 @@ public class GeneralisedDynamicMBean implements DynamicMBean {
     @Override
     public AttributeList getAttributes(String[] strings) {
         AttributeList result = new AttributeList();
-        for (Object obj : mBeanInfo.getAttributes()) {
-            Attribute attrib = (Attribute) obj;
-            result.add(new Attribute(attrib.getName(), attributes.get(attrib.getName())));
+        for (String name : strings) {
+            if (attributes.containsKey(name)) {
+                result.add(new Attribute(name, attributes.get(name)));
+            }
         }
         return result;
     }
@@ -40,6 +40,7 @@ require.config({
         "brooklyn":"util/brooklyn",
         "brooklyn-view":"util/brooklyn-view",
         "brooklyn-utils":"util/brooklyn-utils",
+        "brooklyn-stream":"util/brooklyn-stream",
         "datatables-extensions":"libs/dataTables.extensions",
         "googlemaps":"view/googlemaps",
         "async":"libs/async",  //not explicitly referenced, but needed for google
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*/
+/**
+ * Shares one connection to the server's event stream (/v1/events) between views,
+ * so that they can show sensor, task and lifecycle changes as they happen rather than polling.
+ *
+ * The stream is filtered on the entities which views have subscribed to (or not filtered at all,
+ * if any view wants changes for every entity), and is re-opened when that set changes.
+ * Views should keep polling while isConnected() is false, as older browsers lack EventSource
+ * and the server limits how many clients can stream at once.
+ */
+define([
+    "underscore"
+], function (_) {
+
+    var module = {};
+
+    module.url = "/v1/events";
+
+    /** millis to wait before retrying if the server refuses the stream (the browser only retries dropped streams) */
+    module.retryDelay = 30*1000;
+
+    var subscriptions = {},
+        source = null,
+        sourceQuery = null,
+        connected = false,
+        retryTimer = null;
+
+    module.isSupported = function () {
+        return typeof window.EventSource !== "undefined";
+    };
+
+    /** whether changes are currently being received, so views need not poll */
+    module.isConnected = function () {
+        return connected;
+    };
+
+    /**
+     * Subscribes to changes. Options are:
+     * <ul>
+     *   <li>entityId: only changes to this entity are passed on; if omitted, changes to all entities are
+     *   <li>types: array of "sensor", "task" and/or "lifecycle"; defaults to all
+     *   <li>onChange: function(type, data) invoked for each change
+     *   <li>onResync: function() invoked when the stream (re)connects or the server discarded changes,
+     *       meaning the view should re-read anything it is showing
+     * </ul>
+     * Returns a handle to pass to unsubscribe, e.g. from the view's beforeClose.
+     */
+    module.subscribe = function (options) {
+        var id = _.uniqueId("stream");
+        subscriptions[id] = _.extend({ types: ["sensor", "task", "lifecycle"] }, options);
+        reconnect();
+        return id;
+    };
+
+    module.unsubscribe = function (id) {
+        if (id && subscriptions[id]) {
+            delete subscriptions[id];
+            reconnect();
+        }
+    };
+
+    /** returns the query string for a stream serving the given subscriptions, or null if none are given */
+    module.queryFor = function (subs) {
+        if (_.isEmpty(subs)) return null;
+        var types = _.uniq(_.flatten(_.pluck(_.values(subs), "types"))).sort(),
+            entityIds = _.pluck(_.values(subs), "entityId"),
+            query = "types=" + encodeURIComponent(types.join(","));
+        if (!_.some(entityIds, function (id) { return !id; })) {
+            query += "&entity=" + encodeURIComponent(_.uniq(entityIds).sort().join(","));
+        }
+        return query;
+    };
+
+    /** passes a change received from the stream to the interested subscriptions */
+    module.dispatch = function (type, data) {
+        // iterate over a copy, as callbacks may unsubscribe
+        _.each(_.values(subscriptions), function (s) {
+            if (type == "resync") {
+                if (s.onResync) s.onResync();
+            } else if (_.contains(s.types, type) && (!s.entityId || s.entityId == data.entityId)) {
+                if (s.onChange) s.onChange(type, data);
+            }
+        });
+    };
+
+    var close = function () {
+        if (source) source.close();
+        source = null;
+        sourceQuery = null;
+        connected = false;
+    };
+
+    var connect = function () {
+        if (retryTimer) {
+            clearTimeout(retryTimer);
+            retryTimer = null;
+        }
+        var query = module.queryFor(subscriptions);
+        if (source && query == sourceQuery) return;
+        close();
+        if (!query || !module.isSupported()) return;
+
+        var thisSource = new EventSource(module.url + "?" + query);
+        source = thisSource;
+        sourceQuery = query;
+        thisSource.onopen = function () {
+            if (thisSource === source) connected = true;
+        };
+        thisSource.onerror = function () {
+            if (thisSource !== source) return;
+            connected = false;
+            if (thisSource.readyState == 2 /* CLOSED */) {
+                // refused, e.g. too many clients; the browser will not retry, so poll for now and try later
+                close();
+                retryTimer = setTimeout(connect, module.retryDelay);
+            }
+        };
+        _.each(["sensor", "task", "lifecycle", "resync"], function (type) {
+            thisSource.addEventListener(type, function (event) {
+                if (thisSource === source) module.dispatch(type, JSON.parse(event.data));
+            });
+        });
+    };
+
+    // debounced so that views opening and closing together cause a single reconnection
+    var reconnect = _.debounce(connect, 100);
+
+    return module;
+});
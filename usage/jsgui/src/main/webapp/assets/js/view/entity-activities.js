@@ -20,13 +20,13 @@
  * Displays the list of activities/tasks the entity performed.
  */
 define([
-    "underscore", "jquery", "backbone", "brooklyn-utils", "view/viewutils",
+    "underscore", "jquery", "backbone", "brooklyn-utils", "brooklyn-stream", "view/viewutils",
     "view/activity-details",
     "text!tpl/apps/activities.html", "text!tpl/apps/activity-table.html", 
     "text!tpl/apps/activity-row-details.html", "text!tpl/apps/activity-row-details-main.html",
     "text!tpl/apps/activity-full-details.html", 
     "bootstrap", "jquery-datatables", "datatables-extensions", "moment"
-], function (_, $, Backbone, Util, ViewUtils, ActivityDetailsView, 
+], function (_, $, Backbone, Util, BrooklynStream, ViewUtils, ActivityDetailsView, 
     ActivitiesHtml, ActivityTableHtml, ActivityRowDetailsHtml, ActivityRowDetailsMainHtml, ActivityFullDetailsHtml) {
 
     var ActivitiesView = Backbone.View.extend({
@@ -83,7 +83,23 @@ define([
             that.collection.on("reset", that.renderOnLoad, that);
             ViewUtils.fetchRepeatedlyWithDelay(this, this.collection, 
                     { fetchOptions: { reset: true }, doitnow: true, 
-                    enablement: function() { return that.refreshActive }  });
+                    enablement: function() { return that.refreshActive && !BrooklynStream.isConnected() }  });
+
+            // apply task changes as they arrive; polling only continues while the stream is down
+            that.renderFromStream = _.throttle(function() {
+                if (!that.viewIsClosed) that.render();
+            }, 500);
+            that.streamSubscription = BrooklynStream.subscribe({
+                entityId: that.model.get("id"),
+                types: ["task"],
+                onChange: that.updateTaskFromStream,
+                onResync: function() { that.collection.fetch({reset: true}) }
+            });
+        },
+        updateTaskFromStream: function(type, change) {
+            if (!this.refreshActive) return;
+            this.collection.add(change.task, {merge: true});
+            this.renderFromStream();
         },
         refreshNow: function() {
             this.collection.fetch({reset: true});
@@ -119,6 +135,7 @@ define([
             }
         },
         beforeClose:function () {
+            BrooklynStream.unsubscribe(this.streamSubscription);
             this.collection.off("reset", this.renderOnLoad);
         },
         renderOnLoad: function() {
@@ -22,10 +22,10 @@
  * @type {*}
  */
 define([
-    "underscore", "jquery", "backbone", "brooklyn-utils", "zeroclipboard", "view/viewutils", 
+    "underscore", "jquery", "backbone", "brooklyn-utils", "brooklyn-stream", "zeroclipboard", "view/viewutils", 
     "model/sensor-summary", "text!tpl/apps/sensors.html", "text!tpl/apps/sensor-name.html",
     "jquery-datatables", "datatables-extensions", "underscore", "jquery", "backbone", "uri",
-], function (_, $, Backbone, Util, ZeroClipboard, ViewUtils, SensorSummary, SensorsHtml, SensorNameHtml) {
+], function (_, $, Backbone, Util, BrooklynStream, ZeroClipboard, ViewUtils, SensorSummary, SensorsHtml, SensorNameHtml) {
 
     // TODO consider extracting all such usages to a shared ZeroClipboard wrapper?
     ZeroClipboard.config({ moviePath: '//cdnjs.cloudflare.com/ajax/libs/zeroclipboard/1.3.1/ZeroClipboard.swf' });
@@ -225,10 +225,22 @@ define([
             this.loadSensorMetadata();
             this.updateSensorsPeriodically();
             this.toggleFilterEmpty();
+
+            // apply changes as they arrive; polling only continues while the stream is down
+            this.redrawFromStream = _.throttle(function () {
+                if (!that.viewIsClosed) that.updateWithData(that.lastSensorData);
+            }, 500);
+            this.streamSubscription = BrooklynStream.subscribe({
+                entityId: this.model.get("id"),
+                types: ["sensor"],
+                onChange: this.updateSensorFromStream,
+                onResync: this.updateSensorsNow
+            });
             return this;
         },
 
         beforeClose: function () {
+            BrooklynStream.unsubscribe(this.streamSubscription);
             if (this.zeroClipboard) {
                 this.zeroClipboard.destroy();
             }
@@ -474,10 +486,17 @@ define([
         updateSensorsPeriodically:function () {
             var that = this;
             ViewUtils.getRepeatedlyWithDelay(that, that.model.getSensorUpdateUrl(), function(data) { that.updateWithData(data); },
-                    { enablement: that.isRefreshActive });
+                    { enablement: function() { return that.isRefreshActive() && !BrooklynStream.isConnected(); } });
+        },
+        /** merges a single sensor change into the last data loaded, redrawing shortly */
+        updateSensorFromStream: function (type, change) {
+            if (!this.isRefreshActive() || !this.lastSensorData) return;
+            this.lastSensorData[change.sensor] = change.value;
+            this.redrawFromStream();
         },
         updateWithData: function (data) {
             var that = this;
+            that.lastSensorData = data;
             $table = that.$('#sensors-table');
             var options = {};
             if (that.fullRedraw) {
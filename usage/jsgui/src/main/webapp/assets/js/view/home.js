@@ -29,10 +29,11 @@ define([
     "text!tpl/home/applications.html",
     "text!tpl/home/summaries.html",
     "text!tpl/home/app-entry.html",
+    "brooklyn-stream",
     "bootstrap", "brooklyn-utils"
 ], function ($, _, Backbone, ViewUtils,
         AppAddWizard, HASummary, Location,
-        ApplicationsHtml, HomeSummariesHtml, AppEntryHtml) {
+        ApplicationsHtml, HomeSummariesHtml, AppEntryHtml, BrooklynStream) {
 
     var HomeView = Backbone.View.extend({
         tagName:"div",
@@ -58,8 +59,20 @@ define([
 
             ViewUtils.fetchRepeatedlyWithDelay(this, this.collection, 
                     { fetchOptions: { reset: true }, doitnow: true, 
+                    enablement: function() { return !BrooklynStream.isConnected() },
                     /* max is short here so the console becomes usable quickly */
                     backoffMaxPeriod: 10*1000 });
+            // while the stream is up, reload the applications only when one changes state
+            var fetchApplications = _.throttle(function() {
+                if (!that.viewIsClosed) that.collection.fetch({ reset: true })
+            }, 1000)
+            this.streamSubscription = BrooklynStream.subscribe({
+                types: ["lifecycle"],
+                onChange: function(type, change) {
+                    if (change.entityId == change.applicationId) fetchApplications()
+                },
+                onResync: fetchApplications
+            })
             ViewUtils.fetchRepeatedlyWithDelay(this, this.options.locations, { fetchOptions: { reset: true }, doitnow: true });
 
             var id = $(this.$el).find("#circles-map");
@@ -93,6 +106,7 @@ define([
         
         // cleaning code goes here
         beforeClose:function () {
+            BrooklynStream.unsubscribe(this.streamSubscription)
             this.haSummaryView.close();
             this.collection.off("reset", this.render)
             this.options.locations.off("reset", this.renderSummaries)
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+define([
+    "brooklyn-stream"
+], function (BrooklynStream) {
+
+    describe("brooklyn-stream", function () {
+
+        describe("queryFor", function () {
+            it("should return null when there are no subscriptions", function () {
+                expect(BrooklynStream.queryFor({})).toBeNull();
+            });
+
+            it("should filter on the union of entities and types", function () {
+                var query = BrooklynStream.queryFor({
+                    a: { entityId: "e2", types: ["sensor"] },
+                    b: { entityId: "e1", types: ["task", "sensor"] }
+                });
+                expect(query).toEqual("types=" + encodeURIComponent("sensor,task") + "&entity=" + encodeURIComponent("e1,e2"));
+            });
+
+            it("should not filter on entities if any subscription wants all entities", function () {
+                var query = BrooklynStream.queryFor({
+                    a: { entityId: "e1", types: ["sensor"] },
+                    b: { types: ["lifecycle"] }
+                });
+                expect(query).toEqual("types=" + encodeURIComponent("lifecycle,sensor"));
+            });
+        });
+
+        describe("dispatch", function () {
+            var changes, resyncs, subscriptions;
+
+            beforeEach(function () {
+                changes = [];
+                resyncs = 0;
+                subscriptions = [
+                    BrooklynStream.subscribe({ entityId: "e1", types: ["sensor"],
+                        onChange: function (type, data) { changes.push("e1:" + type + ":" + data.sensor); },
+                        onResync: function () { resyncs++; } }),
+                    BrooklynStream.subscribe({ types: ["task"],
+                        onChange: function (type, data) { changes.push("all:" + type + ":" + data.entityId); } })
+                ];
+            });
+
+            afterEach(function () {
+                _.each(subscriptions, BrooklynStream.unsubscribe);
+            });
+
+            it("should pass changes only to subscriptions for that type and entity", function () {
+                BrooklynStream.dispatch("sensor", { entityId: "e1", sensor: "s1" });
+                BrooklynStream.dispatch("sensor", { entityId: "e2", sensor: "s2" });
+                BrooklynStream.dispatch("task", { entityId: "e2", task: {} });
+                BrooklynStream.dispatch("lifecycle", { entityId: "e1", sensor: "service.isUp" });
+                expect(changes).toEqual(["e1:sensor:s1", "all:task:e2"]);
+            });
+
+            it("should tell subscriptions to resync", function () {
+                BrooklynStream.dispatch("resync", { discarded: 3 });
+                expect(resyncs).toBe(1);
+                expect(changes).toEqual([]);
+            });
+
+            it("should not pass changes after unsubscribing", function () {
+                BrooklynStream.unsubscribe(subscriptions[0]);
+                BrooklynStream.dispatch("sensor", { entityId: "e1", sensor: "s1" });
+                expect(changes).toEqual([]);
+            });
+        });
+    });
+});
@@ -19,7 +19,6 @@
 package brooklyn.rest.api;
 
 import java.util.List;
-import java.util.Map;
 
 import javax.validation.Valid;
 import javax.ws.rs.Consumes;
@@ -197,17 +196,22 @@ public interface ApplicationApi {
 
     @GET
     @Path("/{application}/descendants/sensor/{sensor}")
-            @ApiOperation(value = "Fetch values of a given sensor for all (or filtered) descendants")
+    @ApiOperation(value = "Fetch values of a given sensor for all (or filtered) descendants", responseClass = "Map",
+            notes="Returns a map of entity ID to value, with an ETag which can be used in If-None-Match "
+                + "(to get a 304 if nothing in the tree has changed) or as the 'since' parameter")
     @ApiErrors(value = {
             @ApiError(code = 404, reason = "Application or entity missing")
     })
-    public Map<String,Object> getDescendantsSensor(
+    public Response getDescendantsSensor(
             @ApiParam(value = "Application ID or name", required = true)
             @PathParam("application") String application,
             @ApiParam(value = "Sensor name", required = true)
             @PathParam("sensor") String sensor,
             @ApiParam(value="Regular expression for an entity type which must be matched", required=false)
             @DefaultValue(".*")
-            @QueryParam("typeRegex") String typeRegex);
+            @QueryParam("typeRegex") String typeRegex,
+            @ApiParam(value = "ETag from a previous response; if supplied, only values changed since then are returned "
+                + "(with null for those removed)", required = false)
+            @QueryParam("since") String since);
 
 }
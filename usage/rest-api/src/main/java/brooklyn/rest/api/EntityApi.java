@@ -33,7 +33,6 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import java.util.List;
-import java.util.Map;
 
 @Path("/v1/applications/{application}/entities")
 @Apidoc("Entities")
@@ -194,11 +193,13 @@ public interface EntityApi {
 
     @GET
     @Path("/{entity}/descendants/sensor/{sensor}")
-    @ApiOperation(value = "Fetch values of a given sensor for all (or filtered) descendants")
+    @ApiOperation(value = "Fetch values of a given sensor for all (or filtered) descendants", responseClass = "Map",
+            notes="Returns a map of entity ID to value, with an ETag which can be used in If-None-Match "
+                + "(to get a 304 if nothing in the tree has changed) or as the 'since' parameter")
     @ApiErrors(value = {
             @ApiError(code = 404, reason = "Application or entity missing")
     })
-    public Map<String,Object> getDescendantsSensor(
+    public Response getDescendantsSensor(
             @ApiParam(value = "Application ID or name", required = true)
             @PathParam("application") String application,
             @ApiParam(value = "Entity ID or name", required = true)
@@ -207,7 +208,10 @@ public interface EntityApi {
             @PathParam("sensor") String sensor,
             @ApiParam(value="Regular expression applied to filter descendant entities based on their type", required=false)
             @DefaultValue(".*")
-            @QueryParam("typeRegex") String typeRegex);
+            @QueryParam("typeRegex") String typeRegex,
+            @ApiParam(value = "ETag from a previous response; if supplied, only values changed since then are returned "
+                + "(with null for those removed)", required = false)
+            @QueryParam("since") String since);
 
     @GET
     @Path("/{entity}/locations")
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.rest.api;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import brooklyn.rest.apidoc.Apidoc;
+
+import com.google.common.annotations.Beta;
+import com.wordnik.swagger.core.ApiError;
+import com.wordnik.swagger.core.ApiErrors;
+import com.wordnik.swagger.core.ApiOperation;
+import com.wordnik.swagger.core.ApiParam;
+
+/**
+ * Pushes changes to clients as <a href="http://www.w3.org/TR/eventsource/">server-sent events</a>,
+ * so that they need not poll the sensor and activity endpoints.
+ * <p>
+ * Each event has a type of <code>sensor</code>, <code>task</code> or <code>lifecycle</code> 
+ * and json data describing the change. A <code>resync</code> event is sent when a connection 
+ * is opened, and whenever the client has fallen so far behind that changes were discarded;
+ * clients should re-read any state they are showing when they receive it.
+ */
+@Beta
+@Path("/v1/events")
+@Apidoc("Events")
+@Produces(MediaType.APPLICATION_JSON)
+public interface EventStreamApi {
+
+    public static final String EVENT_STREAM = "text/event-stream";
+    
+    @GET
+    @Produces(EVENT_STREAM)
+    @ApiOperation(value = "Stream sensor, task and lifecycle changes as server-sent events")
+    @ApiErrors(value = {
+            @ApiError(code = 404, reason = "Application or entity missing"),
+            @ApiError(code = 503, reason = "Too many clients are streaming events")
+    })
+    public Response stream(
+            @ApiParam(value = "Application ID or name; if supplied, only changes in this application are sent", required = false)
+            @QueryParam("application") String application,
+            @ApiParam(value = "Comma-separated entity IDs; if supplied, only changes to these entities and their descendants are sent", required = false)
+            @QueryParam("entity") String entities,
+            @ApiParam(value = "Regular expression for the names of sensors to send", required = false)
+            @QueryParam("sensor") @DefaultValue(".*") String sensorRegex,
+            @ApiParam(value = "Comma-separated types of change to send: sensor, task and/or lifecycle", required = false)
+            @QueryParam("types") @DefaultValue("sensor,task,lifecycle") String types,
+            @ApiParam(value = "Return raw sensor data instead of display values", required = false)
+            @QueryParam("raw") @DefaultValue("false") Boolean raw,
+            @ApiParam(value = "Maximum number of pending changes to hold for this client before discarding them and sending resync; "
+                    + "changes to the same sensor or task are merged, so only the latest value is held", required = false)
+            @QueryParam("maxQueueSize") @DefaultValue("1000") Integer maxQueueSize,
+            @ApiParam(value = "How long to stream before closing the connection (clients reconnect automatically), e.g. 5m", required = false)
+            @QueryParam("timeout") @DefaultValue("5m") String timeout);
+
+}
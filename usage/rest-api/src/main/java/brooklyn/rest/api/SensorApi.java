@@ -31,6 +31,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 import brooklyn.rest.apidoc.Apidoc;
 import brooklyn.rest.domain.SensorSummary;
@@ -46,6 +47,9 @@ import com.wordnik.swagger.core.ApiParam;
 @Consumes(MediaType.APPLICATION_JSON)
 public interface SensorApi {
 
+    /** response header listing (comma-separated) the sensors removed since the version given as {@code since} */
+    public static final String REMOVED_SENSORS_HEADER = "X-Brooklyn-Removed-Sensors";
+
     @GET
     @ApiOperation(value = "Fetch the sensor list for a specific application entity",
             responseClass = "brooklyn.rest.domain.SensorSummary",
@@ -61,14 +65,19 @@ public interface SensorApi {
 
     @GET
     @Path("/current-state")
-    @ApiOperation(value = "Fetch sensor values in batch", notes="Returns a map of sensor name to value")
-    public Map<String, Object> batchSensorRead(
+    @ApiOperation(value = "Fetch sensor values in batch", responseClass = "Map",
+            notes="Returns a map of sensor name to value, with an ETag which can be used in If-None-Match "
+                + "(to get a 304 if nothing has changed) or as the 'since' parameter")
+    public Response batchSensorRead(
             @ApiParam(value = "Application ID or name", required = true)
             @PathParam("application") final String application,
             @ApiParam(value = "Entity ID or name", required = true)
             @PathParam("entity") final String entityToken,
             @ApiParam(value = "Return raw sensor data instead of display values", required = false)
-            @QueryParam("raw") @DefaultValue("false") final Boolean raw);
+            @QueryParam("raw") @DefaultValue("false") final Boolean raw,
+            @ApiParam(value = "ETag from a previous response; if supplied, only sensors changed since then are returned, "
+                + "with those removed listed in the "+REMOVED_SENSORS_HEADER+" header", required = false)
+            @QueryParam("since") final String since);
 
     @GET
     @Path("/{sensor}")
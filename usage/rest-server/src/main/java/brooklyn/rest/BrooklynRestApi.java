@@ -31,6 +31,7 @@ import brooklyn.rest.resources.CatalogResource;
 import brooklyn.rest.resources.EffectorResource;
 import brooklyn.rest.resources.EntityConfigResource;
 import brooklyn.rest.resources.EntityResource;
+import brooklyn.rest.resources.EventStreamResource;
 import brooklyn.rest.resources.LocationResource;
 import brooklyn.rest.resources.PolicyConfigResource;
 import brooklyn.rest.resources.PolicyResource;
@@ -65,6 +66,7 @@ public class BrooklynRestApi {
         resources.add(new ServerResource());
         resources.add(new UsageResource());
         resources.add(new VersionResource());
+        resources.add(new EventStreamResource());
         return resources;
     }
 
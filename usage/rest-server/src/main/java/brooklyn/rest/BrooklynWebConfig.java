@@ -87,6 +87,11 @@ public class BrooklynWebConfig {
             BASE_NAME+".security.keystore.certificate.alias",
             "Alias in "+KEYSTORE_URL+" for the certificate to use; defaults to the first if not supplied");
 
+    public final static ConfigKey<Integer> EVENT_STREAM_MAX_CLIENTS = ConfigKeys.newIntegerConfigKey(
+            BASE_NAME+".eventStream.maxClients",
+            "Maximum number of clients which can stream events concurrently (each holds a web server thread); "
+            + "further clients are refused, and the web console falls back to polling", 32);
+
     public final static boolean hasNoSecurityOptions(ConfigMap config) {
         return config.submap(ConfigPredicates.startingWith(BASE_NAME_SECURITY)).isEmpty();
     }
@@ -31,7 +31,12 @@ public class NoCacheFilter implements ContainerResponseFilter {
     public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
         //https://developer.mozilla.org/en-US/docs/Web/HTTP/Caching_FAQ
         MultivaluedMap<String, Object> headers = response.getHttpHeaders();
-        headers.putSingle(HttpHeaders.CACHE_CONTROL, "no-cache, no-store");
+        if (headers.containsKey(HttpHeaders.ETAG)) {
+            // versioned responses may be kept, but must be revalidated (with If-None-Match) every time
+            headers.putSingle(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        } else {
+            headers.putSingle(HttpHeaders.CACHE_CONTROL, "no-cache, no-store");
+        }
         headers.putSingle("Pragma", "no-cache");
         headers.putSingle(HttpHeaders.EXPIRES, "0");
         return response;
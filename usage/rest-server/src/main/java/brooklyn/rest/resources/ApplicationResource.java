@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Map;
 
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.UriInfo;
@@ -50,6 +51,7 @@ import brooklyn.entity.Entity;
 import brooklyn.entity.Group;
 import brooklyn.entity.basic.AbstractGroup;
 import brooklyn.entity.basic.Attributes;
+import brooklyn.entity.basic.EntityInternal;
 import brooklyn.entity.basic.Lifecycle;
 import brooklyn.entity.trait.Startable;
 import brooklyn.event.AttributeSensor;
@@ -73,6 +75,7 @@ import brooklyn.rest.transform.ApplicationTransformer;
 import brooklyn.rest.transform.EntityTransformer;
 import brooklyn.rest.transform.TaskTransformer;
 import brooklyn.rest.util.BrooklynRestResourceUtils;
+import brooklyn.rest.util.EntityVersions;
 import brooklyn.rest.util.WebResourceUtils;
 import brooklyn.util.ResourceUtils;
 import brooklyn.util.collections.MutableMap;
@@ -89,6 +92,9 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
     @Context
     private UriInfo uriInfo;
 
+    @Context
+    private Request request;
+
     /** @deprecated since 0.6.0 use {@link #fetch(String)} (with slightly different, but better semantics) */
     @Deprecated
     @Override
@@ -415,12 +421,24 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
     }
 
     @Override
-    public Map<String, Object> getDescendantsSensor(String application, String sensor, String typeRegex) {
+    public Response getDescendantsSensor(String application, String sensor, String typeRegex, String since) {
+        long version = EntityVersions.versionOfTree(brooklyn().getApplication(application));
+        Response notModified = EntityVersions.notModified(request, version);
+        if (notModified != null) return notModified;
+
         Iterable<Entity> descs = brooklyn().descendantsOfType(application, application, typeRegex);
-        return getSensorMap(sensor, descs);
+        return EntityVersions.ok(getSensorMap(sensor, descs, EntityVersions.parseSince(since)), version);
     }
 
     public static Map<String, Object> getSensorMap(String sensor, Iterable<Entity> descs) {
+        return getSensorMap(sensor, descs, null);
+    }
+
+    /**
+     * Returns the values of the given sensor on the given entities, omitting nulls;
+     * or if {@code sinceVersion} is supplied, only those changed after that version, including nulls.
+     */
+    public static Map<String, Object> getSensorMap(String sensor, Iterable<Entity> descs, Long sinceVersion) {
         if (Iterables.isEmpty(descs))
             return Collections.emptyMap();
         Map<String, Object> result = MutableMap.of();
@@ -438,6 +456,8 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
             return result;
         }
         for (Entity e: descs) {
+            if (sinceVersion!=null && ((EntityInternal)e).getAttributeModificationVersion((AttributeSensor<?>)s) <= sinceVersion)
+                continue;
             Object v = null;
             try {
                 v = e.getAttribute((AttributeSensor<?>)s);
@@ -445,7 +465,7 @@ public class ApplicationResource extends AbstractBrooklynRestResource implements
                 Exceptions.propagateIfFatal(exc);
                 log.warn("Error retrieving sensor "+s+" for "+e+" (ignoring): "+exc);
             }
-            if (v!=null)
+            if (v!=null || sinceVersion!=null)
                 result.put(e.getId(), v);
         }
         return result;
@@ -25,11 +25,11 @@ import static javax.ws.rs.core.Response.Status.ACCEPTED;
 import java.net.URI;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
@@ -57,6 +57,7 @@ import brooklyn.rest.transform.EntityTransformer;
 import brooklyn.rest.transform.LocationTransformer;
 import brooklyn.rest.transform.LocationTransformer.LocationDetailLevel;
 import brooklyn.rest.transform.TaskTransformer;
+import brooklyn.rest.util.EntityVersions;
 import brooklyn.rest.util.WebResourceUtils;
 import brooklyn.util.ResourceUtils;
 import brooklyn.util.collections.MutableList;
@@ -74,6 +75,9 @@ public class EntityResource extends AbstractBrooklynRestResource implements Enti
 
     @Context
     private UriInfo uriInfo;
+
+    @Context
+    private Request request;
     
     @Override
     public List<EntitySummary> list(final String application) {
@@ -197,9 +201,13 @@ public class EntityResource extends AbstractBrooklynRestResource implements Enti
     }
 
     @Override
-    public Map<String, Object> getDescendantsSensor(String application, String entity, String sensor, String typeRegex) {
+    public Response getDescendantsSensor(String application, String entity, String sensor, String typeRegex, String since) {
+        long version = EntityVersions.versionOfTree(brooklyn().getEntity(application, entity));
+        Response notModified = EntityVersions.notModified(request, version);
+        if (notModified != null) return notModified;
+
         Iterable<Entity> descs = brooklyn().descendantsOfType(application, entity, typeRegex);
-        return ApplicationResource.getSensorMap(sensor, descs);
+        return EntityVersions.ok(ApplicationResource.getSensorMap(sensor, descs, EntityVersions.parseSince(since)), version);
     }
 
     @Override
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.rest.resources;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.PatternSyntaxException;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.config.render.RendererHints;
+import brooklyn.entity.Application;
+import brooklyn.entity.Entity;
+import brooklyn.event.AttributeSensor;
+import brooklyn.management.entitlement.Entitlements;
+import brooklyn.management.entitlement.Entitlements.EntityAndItem;
+import brooklyn.rest.BrooklynWebConfig;
+import brooklyn.rest.api.EventStreamApi;
+import brooklyn.rest.transform.TaskTransformer;
+import brooklyn.rest.util.EventStreamSubscription;
+import brooklyn.rest.util.EventStreamSubscription.Change;
+import brooklyn.rest.util.EventStreamSubscription.Type;
+import brooklyn.rest.util.WebResourceUtils;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.collections.MutableSet;
+import brooklyn.util.exceptions.Exceptions;
+import brooklyn.util.text.Strings;
+import brooklyn.util.time.CountdownTimer;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+
+public class EventStreamResource extends AbstractBrooklynRestResource implements EventStreamApi {
+
+    private static final Logger log = LoggerFactory.getLogger(EventStreamResource.class);
+
+    /** how often to write a comment when there are no changes, so that proxies keep the connection open
+     * and so that we notice clients which have gone away */
+    private static final Duration HEARTBEAT_PERIOD = Duration.seconds(15);
+    
+    /** how long clients should wait before reconnecting after the stream is closed */
+    private static final Duration RECONNECT_DELAY = Duration.seconds(1);
+    
+    private final AtomicInteger clientCount = new AtomicInteger();
+    
+    @Override
+    public Response stream(String application, String entities, String sensorRegex, String types, final Boolean raw, 
+            Integer maxQueueSize, String timeout) {
+        // validate everything before the response is committed, so that errors are reported normally
+        final Predicate<Entity> entityFilter = entityFilter(application, entities);
+        final Predicate<? super String> sensorNameFilter = sensorNameFilter(sensorRegex);
+        final Set<Type> typesWanted = types(types);
+        final int queueSize = (maxQueueSize!=null) ? maxQueueSize : 1000;
+        if (queueSize <= 0) throw WebResourceUtils.badRequest("maxQueueSize must be positive");
+        final Duration duration;
+        try {
+            duration = Duration.parse(timeout);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            throw WebResourceUtils.badRequest("Invalid timeout '%s'", timeout);
+        }
+        
+        // reserve the client's slot now, so concurrent requests cannot all pass the check; released when the stream ends
+        int maxClients = mgmt().getConfig().getConfig(BrooklynWebConfig.EVENT_STREAM_MAX_CLIENTS);
+        while (true) {
+            int count = clientCount.get();
+            if (count >= maxClients) {
+                throw WebResourceUtils.throwWebApplicationException(Response.Status.SERVICE_UNAVAILABLE, 
+                        "Too many clients streaming events (maximum %s)", maxClients);
+            }
+            if (clientCount.compareAndSet(count, count+1)) break;
+        }
+        
+        StreamingOutput output = new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                EventStreamSubscription subscription = null;
+                try {
+                    subscription = new EventStreamSubscription(mgmt(), entityFilter, sensorNameFilter, typesWanted, queueSize);
+                    subscription.start();
+                    writeChanges(subscription, out, Boolean.TRUE.equals(raw), duration);
+                } catch (IOException e) {
+                    // normal when a client goes away
+                    if (log.isDebugEnabled()) log.debug("Event stream "+subscription+" closed: "+e);
+                } catch (InterruptedException e) {
+                    throw Exceptions.propagate(e);
+                } finally {
+                    if (subscription!=null) subscription.close();
+                    clientCount.decrementAndGet();
+                }
+            }
+        };
+        try {
+            // identity encoding stops the gzip filter buffering the events
+            return Response.ok(output, EVENT_STREAM).header("Cache-Control", "no-cache").header("Content-Encoding", "identity").build();
+        } catch (RuntimeException e) {
+            clientCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    protected void writeChanges(EventStreamSubscription subscription, OutputStream out, boolean raw, Duration duration) throws IOException, InterruptedException {
+        Writer writer = new OutputStreamWriter(out, Charsets.UTF_8);
+        writer.write("retry: "+RECONNECT_DELAY.toMilliseconds()+"\n\n");
+        writer.flush();
+        
+        CountdownTimer timer = duration.countdownTimer();
+        long eventId = 0;
+        long lastWriteTime = System.currentTimeMillis();
+        while (!timer.isExpired() && !subscription.isClosed()) {
+            List<Change> changes = subscription.take(Duration.min(HEARTBEAT_PERIOD, timer.getDurationRemaining()));
+            boolean written = false;
+            for (Change change: changes) {
+                Map<String,Object> data = toData(change, raw);
+                if (data==null) continue;
+                writer.write("id: "+(eventId++)+"\n");
+                writer.write("event: "+change.getType().getEventName()+"\n");
+                // json written by our mapper contains no newlines, so it is a single data line
+                writer.write("data: "+mapper().writeValueAsString(data)+"\n\n");
+                written = true;
+            }
+            if (!written && System.currentTimeMillis() - lastWriteTime >= HEARTBEAT_PERIOD.toMilliseconds()) {
+                writer.write(": keep-alive\n\n");
+                written = true;
+            }
+            if (written) {
+                writer.flush();
+                lastWriteTime = System.currentTimeMillis();
+            }
+        }
+    }
+    
+    /** converts the change to the json data sent to the client, or returns null if the current user should not see it */
+    protected Map<String,Object> toData(Change change, boolean raw) {
+        if (change.getType()==Type.RESYNC) {
+            return MutableMap.<String,Object>of("discarded", change.getValue(), "timestamp", change.getTimestamp());
+        }
+        Entity entity = change.getEntity();
+        if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) return null;
+        
+        if (change.getType()==Type.TASK) {
+            return MutableMap.<String,Object>of(
+                    "applicationId", entity.getApplicationId(),
+                    "entityId", entity.getId(),
+                    "task", TaskTransformer.taskSummary(change.getTask()),
+                    "timestamp", change.getTimestamp());
+        }
+        
+        String sensorName = change.getSensor().getName();
+        if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_SENSOR, EntityAndItem.of(entity, sensorName))) return null;
+        Object value = change.getValue();
+        if (!raw && change.getSensor() instanceof AttributeSensor) {
+            value = RendererHints.applyDisplayValueHint((AttributeSensor<?>)change.getSensor(), value);
+        }
+        return MutableMap.<String,Object>of(
+                "applicationId", entity.getApplicationId(),
+                "entityId", entity.getId(),
+                "sensor", sensorName,
+                "value", getValueForDisplay(value, true, false),
+                "timestamp", change.getTimestamp());
+    }
+    
+    protected Predicate<Entity> entityFilter(String application, String entities) {
+        Predicate<Entity> result = Predicates.alwaysTrue();
+        if (Strings.isNonBlank(application)) {
+            final Application app = brooklyn().getApplication(application);
+            result = new Predicate<Entity>() {
+                @Override
+                public boolean apply(Entity input) {
+                    return app.getId().equals(input.getApplicationId());
+                }
+            };
+        }
+        if (Strings.isNonBlank(entities)) {
+            final Set<String> ids = MutableSet.of();
+            for (String id: entities.split(",")) {
+                if (Strings.isBlank(id)) continue;
+                if (mgmt().getEntityManager().getEntity(id.trim())==null) throw WebResourceUtils.notFound("Cannot find entity '%s'", id.trim());
+                ids.add(id.trim());
+            }
+            result = Predicates.and(result, new Predicate<Entity>() {
+                @Override
+                public boolean apply(Entity input) {
+                    for (Entity e = input; e != null; e = e.getParent()) {
+                        if (ids.contains(e.getId())) return true;
+                    }
+                    return false;
+                }
+            });
+        }
+        return result;
+    }
+    
+    protected Predicate<? super String> sensorNameFilter(String sensorRegex) {
+        if (Strings.isBlank(sensorRegex) || ".*".equals(sensorRegex)) return Predicates.alwaysTrue();
+        try {
+            return Predicates.containsPattern("^(" + sensorRegex + ")$");
+        } catch (PatternSyntaxException e) {
+            throw WebResourceUtils.badRequest("Invalid sensor pattern '%s': %s", sensorRegex, e.getMessage());
+        }
+    }
+    
+    protected Set<Type> types(String types) {
+        Set<Type> result = MutableSet.of();
+        if (Strings.isBlank(types)) types = "sensor,task,lifecycle";
+        for (String type: types.split(",")) {
+            if (Strings.isBlank(type)) continue;
+            try {
+                Type t = Type.fromEventName(type);
+                if (t==Type.RESYNC) throw new IllegalArgumentException();
+                result.add(t);
+            } catch (IllegalArgumentException e) {
+                throw WebResourceUtils.badRequest("Invalid type '%s'; must be sensor, task or lifecycle", type.trim());
+            }
+        }
+        return result;
+    }
+}
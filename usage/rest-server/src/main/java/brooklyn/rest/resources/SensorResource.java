@@ -23,6 +23,12 @@ import static com.google.common.collect.Iterables.transform;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,7 +43,9 @@ import brooklyn.management.entitlement.Entitlements;
 import brooklyn.rest.api.SensorApi;
 import brooklyn.rest.domain.SensorSummary;
 import brooklyn.rest.transform.SensorTransformer;
+import brooklyn.rest.util.EntityVersions;
 import brooklyn.rest.util.WebResourceUtils;
+import brooklyn.util.collections.MutableSet;
 import brooklyn.util.text.Strings;
 
 import com.google.common.base.Function;
@@ -48,6 +56,9 @@ public class SensorResource extends AbstractBrooklynRestResource implements Sens
 
     private static final Logger log = LoggerFactory.getLogger(SensorResource.class);
 
+    @Context
+    private Request request;
+
     @SuppressWarnings("rawtypes")
     @Override
     public List<SensorSummary> list(final String application, final String entityToken) {
@@ -63,11 +74,38 @@ public class SensorResource extends AbstractBrooklynRestResource implements Sens
     }
 
     @Override
-    public Map<String, Object> batchSensorRead(final String application, final String entityToken, final Boolean raw) {
+    public Response batchSensorRead(final String application, final String entityToken, final Boolean raw, final String since) {
         final EntityLocal entity = brooklyn().getEntity(application, entityToken);
+        // read the version before the values, so any change made while reading is reported next time
+        long version = ((EntityInternal)entity).getModificationVersion();
+        Response notModified = EntityVersions.notModified(request, version);
+        if (notModified != null) return notModified;
+
         Map<String, Object> sensorMap = Maps.newHashMap();
+        Set<String> removedNames = MutableSet.of();
         @SuppressWarnings("rawtypes")
-        Iterable<AttributeSensor> sensors = filter(entity.getEntityType().getSensors(), AttributeSensor.class);
+        Iterable<? extends AttributeSensor> sensors;
+        Long sinceVersion = EntityVersions.parseSince(since);
+        // null if no since, or if too old for the entity to still know what was removed since
+        Set<String> changedNames = (sinceVersion == null) ? null : ((EntityInternal)entity).getAttributeNamesModifiedSince(sinceVersion);
+        if (changedNames == null) {
+            sensors = filter(entity.getEntityType().getSensors(), AttributeSensor.class);
+        } else {
+            Set<String> currentNames = MutableSet.of();
+            for (AttributeSensor<?> sensor : ((EntityInternal)entity).getAllAttributes().keySet()) {
+                currentNames.add(sensor.getName());
+            }
+            List<AttributeSensor<?>> changed = Lists.newArrayList();
+            for (String name : changedNames) {
+                // removed sensors are reported separately, as a null value would be indistinguishable from one set to null
+                if (currentNames.contains(name)) {
+                    changed.add(findSensor(entity, name));
+                } else {
+                    removedNames.add(name);
+                }
+            }
+            sensors = changed;
+        }
 
         for (AttributeSensor<?> sensor : sensors) {
             Object value = entity.getAttribute(findSensor(entity, sensor.getName()));
@@ -76,7 +114,9 @@ public class SensorResource extends AbstractBrooklynRestResource implements Sens
             }
             sensorMap.put(sensor.getName(), getValueForDisplay(value, true, false));
         }
-        return sensorMap;
+        ResponseBuilder result = Response.ok(sensorMap).tag(EntityVersions.tag(version));
+        if (!removedNames.isEmpty()) result.header(REMOVED_SENSORS_HEADER, Strings.join(removedNames, ","));
+        return result.build();
     }
 
     protected Object get(boolean preferJson, String application, String entityToken, String sensorName, Boolean raw) {
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.rest.util;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import brooklyn.entity.Entity;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.basic.EntityInternal;
+import brooklyn.util.text.Identifiers;
+import brooklyn.util.text.Strings;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Supports conditional and delta reads of entity state, based on {@link EntityInternal#getModificationVersion()}.
+ * <p>
+ * Responses carry an {@code ETag} of the form {@code "<epoch>-<version>"}, where the epoch identifies this server's
+ * series of versions (they restart when brooklyn does). Clients can send it back as {@code If-None-Match} to get
+ * a {@code 304 Not Modified}, or (unquoted) as a {@code since} parameter to get only what has changed.
+ */
+@Beta
+public class EntityVersions {
+
+    private static final String EPOCH = Identifiers.makeRandomId(8);
+
+    /** Returns the latest version of the given entity and all its descendants. */
+    public static long versionOfTree(Entity root) {
+        long result = 0;
+        for (Entity entity : Entities.descendants(root)) {
+            result = Math.max(result, ((EntityInternal)entity).getModificationVersion());
+        }
+        return result;
+    }
+
+    public static EntityTag tag(long version) {
+        return new EntityTag(EPOCH+"-"+version);
+    }
+
+    /**
+     * Parses the value of a {@code since} parameter, as previously returned in an {@code ETag}.
+     * 
+     * @return the version, or null if none was given or it came from a different epoch
+     *         (so the caller should return everything)
+     * @throws javax.ws.rs.WebApplicationException with code 400 if the value is malformed
+     */
+    public static Long parseSince(String since) {
+        if (Strings.isBlank(since)) return null;
+        String value = Strings.removeAllFromStart(since.trim(), "W/");
+        if (value.length()>1 && value.startsWith("\"") && value.endsWith("\"")) value = value.substring(1, value.length()-1);
+        int split = value.lastIndexOf('-');
+        try {
+            if (split < 0) throw new NumberFormatException();
+            long version = Long.parseLong(value.substring(split+1));
+            return EPOCH.equals(value.substring(0, split)) ? version : null;
+        } catch (NumberFormatException e) {
+            throw WebResourceUtils.badRequest("Invalid 'since' value '%s'; expected an ETag from a previous response", since);
+        }
+    }
+
+    /**
+     * Returns a 304 response if the request's {@code If-None-Match} matches the given version, otherwise null.
+     * <p>
+     * The version should be read <em>before</em> the response is computed,
+     * so that changes made while computing it are not missed next time.
+     */
+    public static Response notModified(Request request, long version) {
+        ResponseBuilder result = request.evaluatePreconditions(tag(version));
+        return (result == null) ? null : result.build();
+    }
+
+    /** Returns the given entity, tagged with the given version. */
+    public static Response ok(Object entity, long version) {
+        return Response.ok(entity).tag(tag(version)).build();
+    }
+}
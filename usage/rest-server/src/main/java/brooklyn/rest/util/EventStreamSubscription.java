@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.rest.util;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import brooklyn.entity.Entity;
+import brooklyn.entity.basic.AbstractEntity;
+import brooklyn.entity.basic.Attributes;
+import brooklyn.entity.basic.BrooklynTaskTags;
+import brooklyn.event.AttributeSensor;
+import brooklyn.event.Sensor;
+import brooklyn.event.SensorEvent;
+import brooklyn.event.SensorEventListener;
+import brooklyn.management.ExecutionManager;
+import brooklyn.management.ManagementContext;
+import brooklyn.management.SubscriptionHandle;
+import brooklyn.management.Task;
+import brooklyn.util.collections.MutableMap;
+import brooklyn.util.task.BasicExecutionManager;
+import brooklyn.util.task.ExecutionStartListener;
+import brooklyn.util.text.Identifiers;
+import brooklyn.util.time.CountdownTimer;
+import brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Collects the changes one client of the event stream is interested in, from the {@link brooklyn.management.SubscriptionManager}
+ * and the {@link ExecutionManager}, and holds them until the client {@link #take(Duration) takes} them.
+ * <p>
+ * A change to an attribute sensor or to a task replaces any pending change to the same sensor or task,
+ * so a slow client is sent the latest values rather than every intermediate one.
+ * If the queue still grows beyond its maximum size, the pending changes are discarded
+ * and the client is sent a {@link Type#RESYNC} instead.
+ */
+@Beta
+public class EventStreamSubscription implements ExecutionStartListener {
+
+    private static final Logger log = LoggerFactory.getLogger(EventStreamSubscription.class);
+    
+    public enum Type {
+        SENSOR, TASK, LIFECYCLE, RESYNC;
+        
+        /** the name used for the event in the stream */
+        public String getEventName() {
+            return name().toLowerCase();
+        }
+        
+        public static Type fromEventName(String name) {
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+    
+    /** sensors whose changes are also reported as {@link Type#LIFECYCLE} changes */
+    public static final Set<String> LIFECYCLE_SENSOR_NAMES = ImmutableSet.of(
+            Attributes.SERVICE_STATE_ACTUAL.getName(), Attributes.SERVICE_UP.getName(),
+            AbstractEntity.CHILD_ADDED.getName(), AbstractEntity.CHILD_REMOVED.getName());
+    
+    public static class Change {
+        private final Type type;
+        private final Entity entity;
+        private final Sensor<?> sensor;
+        private final Object value;
+        private final Task<?> task;
+        private final long timestamp;
+        
+        protected Change(Type type, @Nullable Entity entity, @Nullable Sensor<?> sensor, @Nullable Object value, @Nullable Task<?> task, long timestamp) {
+            this.type = type;
+            this.entity = entity;
+            this.sensor = sensor;
+            this.value = value;
+            this.task = task;
+            this.timestamp = timestamp;
+        }
+        
+        public Type getType() { return type; }
+        /** the entity whose sensor changed, or with which the task is associated; null for a resync */
+        public Entity getEntity() { return entity; }
+        /** the sensor which changed, for sensor and lifecycle changes */
+        public Sensor<?> getSensor() { return sensor; }
+        /** the new value of the sensor; for a resync, the number of changes discarded */
+        public Object getValue() { return value; }
+        public Task<?> getTask() { return task; }
+        public long getTimestamp() { return timestamp; }
+        
+        @Override
+        public String toString() {
+            return "Change["+type+"; "+(entity!=null ? entity.getId() : "")+(sensor!=null ? "; "+sensor.getName() : "")+(task!=null ? "; "+task.getId() : "")+"]";
+        }
+    }
+    
+    private final ManagementContext mgmt;
+    private final String subscriberId;
+    private final Predicate<? super Entity> entityFilter;
+    private final Predicate<? super String> sensorNameFilter;
+    private final Set<Type> types;
+    private final int maxQueueSize;
+    
+    /** pending changes, keyed so that a later change to the same sensor or task replaces the earlier one */
+    private final LinkedHashMap<String,Change> pending = new LinkedHashMap<String,Change>();
+    private long nextUniqueKey = 0;
+    private int discardedCount = 0;
+    /** true initially, so that the client knows to read the current state once its stream is established */
+    private boolean resyncNeeded = true;
+    private boolean closed = false;
+    private SubscriptionHandle subscription;
+
+    public EventStreamSubscription(ManagementContext mgmt, Predicate<? super Entity> entityFilter, Predicate<? super String> sensorNameFilter, 
+            Set<Type> types, int maxQueueSize) {
+        Preconditions.checkArgument(maxQueueSize > 0, "maxQueueSize must be positive");
+        this.mgmt = Preconditions.checkNotNull(mgmt, "mgmt");
+        this.entityFilter = Preconditions.checkNotNull(entityFilter, "entityFilter");
+        this.sensorNameFilter = Preconditions.checkNotNull(sensorNameFilter, "sensorNameFilter");
+        this.types = ImmutableSet.copyOf(types);
+        this.maxQueueSize = maxQueueSize;
+        this.subscriberId = "event-stream-"+Identifiers.makeRandomId(8);
+    }
+    
+    public synchronized EventStreamSubscription start() {
+        Preconditions.checkState(subscription==null && !closed, "%s already started", this);
+        if (types.contains(Type.SENSOR) || types.contains(Type.LIFECYCLE)) {
+            subscription = mgmt.getSubscriptionManager().subscribe(MutableMap.<String,Object>of("subscriber", subscriberId), 
+                    null, null, new SensorEventListener<Object>() {
+                        @Override
+                        public void onEvent(SensorEvent<Object> event) {
+                            onSensorEvent(event);
+                        }
+                    });
+        }
+        if (types.contains(Type.TASK)) {
+            ExecutionManager em = mgmt.getExecutionManager();
+            if (em instanceof BasicExecutionManager) {
+                ((BasicExecutionManager)em).addListener(this);
+            } else {
+                log.warn("Cannot stream task changes for "+this+": unsupported execution manager "+em);
+            }
+        }
+        return this;
+    }
+    
+    public void close() {
+        SubscriptionHandle s;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            s = subscription;
+            subscription = null;
+            pending.clear();
+            notifyAll();
+        }
+        if (s!=null) mgmt.getSubscriptionManager().unsubscribe(s);
+        ExecutionManager em = mgmt.getExecutionManager();
+        if (em instanceof BasicExecutionManager) {
+            ((BasicExecutionManager)em).removeListener(this);
+        }
+    }
+    
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+    
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+    
+    /** number of changes discarded because the client was not keeping up */
+    public synchronized int getDiscardedCount() {
+        return discardedCount;
+    }
+    
+    /**
+     * Waits up to the given time for changes, returning all those pending (in the order they occurred),
+     * or an empty list if there were none in that time or if this has been closed.
+     */
+    public List<Change> take(Duration timeout) throws InterruptedException {
+        CountdownTimer timer = timeout.countdownTimer();
+        synchronized (this) {
+            while (!closed && !resyncNeeded && pending.isEmpty()) {
+                long remaining = timer.getDurationRemaining().toMilliseconds();
+                if (remaining <= 0) break;
+                wait(remaining);
+            }
+            List<Change> result = Lists.newArrayList();
+            if (closed) return result;
+            if (resyncNeeded) {
+                result.add(new Change(Type.RESYNC, null, null, discardedCount, null, System.currentTimeMillis()));
+                resyncNeeded = false;
+            }
+            result.addAll(pending.values());
+            pending.clear();
+            return result;
+        }
+    }
+    
+    protected void onSensorEvent(SensorEvent<?> event) {
+        Entity entity = event.getSource();
+        Sensor<?> sensor = event.getSensor();
+        if (entity==null || sensor==null || !entityFilter.apply(entity)) return;
+        
+        String name = sensor.getName();
+        // notifications are all delivered, but for attributes only the latest value matters
+        boolean isAttribute = sensor instanceof AttributeSensor;
+        if (types.contains(Type.SENSOR) && sensorNameFilter.apply(name)) {
+            offer(isAttribute ? "sensor:"+entity.getId()+":"+name : null, 
+                    new Change(Type.SENSOR, entity, sensor, event.getValue(), null, event.getTimestamp()));
+        }
+        if (types.contains(Type.LIFECYCLE) && LIFECYCLE_SENSOR_NAMES.contains(name)) {
+            offer(isAttribute ? "lifecycle:"+entity.getId()+":"+name : null, 
+                    new Change(Type.LIFECYCLE, entity, sensor, event.getValue(), null, event.getTimestamp()));
+        }
+    }
+    
+    @Override
+    public void onTaskStarted(Task<?> task) {
+        onTaskChanged(task);
+    }
+    
+    @Override
+    public void onTaskDone(Task<?> task) {
+        onTaskChanged(task);
+    }
+    
+    protected void onTaskChanged(Task<?> task) {
+        // as for the entity activities list, only tasks in the context of an entity are of interest,
+        // and transient tasks are internal (and soon forgotten), so not worth sending
+        if (BrooklynTaskTags.isTransient(task)) return;
+        Entity entity = BrooklynTaskTags.getContextEntity(task);
+        if (entity==null || !entityFilter.apply(entity)) return;
+        offer("task:"+task.getId(), new Change(Type.TASK, entity, null, null, task, System.currentTimeMillis()));
+    }
+    
+    protected synchronized void offer(@Nullable String key, Change change) {
+        if (closed) return;
+        if (key==null) {
+            key = "#"+(nextUniqueKey++);
+        } else if (pending.remove(key)!=null) {
+            // replaced, and re-added below so that it is ordered after any changes since the one it replaces
+            pending.put(key, change);
+            return;
+        }
+        if (pending.size() >= maxQueueSize) {
+            if (log.isDebugEnabled()) log.debug("Discarding "+(pending.size()+1)+" changes for "+this+"; client is not keeping up");
+            discardedCount += pending.size()+1;
+            pending.clear();
+            resyncNeeded = true;
+        } else {
+            pending.put(key, change);
+        }
+        notifyAll();
+    }
+    
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()+"["+subscriberId+"]";
+    }
+}
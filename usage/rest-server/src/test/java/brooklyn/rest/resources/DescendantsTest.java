@@ -27,6 +27,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeoutException;
 
+import javax.ws.rs.core.HttpHeaders;
+
 import org.codehaus.jackson.JsonGenerationException;
 import org.codehaus.jackson.map.JsonMappingException;
 import org.slf4j.Logger;
@@ -129,6 +131,16 @@ public class DescendantsTest extends BrooklynRestResourceTest {
             + "?typeRegex="+StringEscapes.escapeUrlParam(".*\\.FestPockSimpleEntity"))
             .get(new GenericType<Map<String,Object>>() {});
         assertEquals(sensors.size(), 0);
+
+        // only values changed since the given version are returned
+        String etag = client().resource("/v1/applications/"+application.getApplicationId()+"/descendants/sensor/foo")
+            .get(ClientResponse.class).getHeaders().getFirst(HttpHeaders.ETAG);
+        ((EntityLocal)entities.get(0)).setAttribute(Sensors.newLongSensor("foo"), 999L);
+        sensors = client().resource("/v1/applications/"+application.getApplicationId()+"/descendants/sensor/foo"
+            + "?since="+StringEscapes.escapeUrlParam(etag.replace("\"", "")))
+            .get(new GenericType<Map<String,Object>>() {});
+        assertEquals(sensors.size(), 1, "sensors="+sensors);
+        assertEquals(sensors.get(entities.get(0).getId()), 999);
     }
     
 }
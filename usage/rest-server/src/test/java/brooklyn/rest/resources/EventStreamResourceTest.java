@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.rest.resources;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import brooklyn.config.BrooklynProperties;
+import brooklyn.entity.basic.ApplicationBuilder;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.rest.BrooklynWebConfig;
+import brooklyn.rest.api.EventStreamApi;
+import brooklyn.rest.testing.BrooklynRestResourceTest;
+import brooklyn.test.Asserts;
+import brooklyn.test.entity.TestApplication;
+import brooklyn.test.entity.TestEntity;
+import brooklyn.util.time.Duration;
+import brooklyn.util.time.Time;
+
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Test the {@link EventStreamApi} implementation.
+ * <p>
+ * The test client reads the whole response, so these use a short timeout 
+ * and make changes in the background while the stream is open.
+ */
+@Test(singleThreaded = true)
+public class EventStreamResourceTest extends BrooklynRestResourceTest {
+
+    private TestApplication app;
+    private TestEntity entity;
+    private TestEntity otherEntity;
+
+    @BeforeClass(alwaysRun = true)
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        app = ApplicationBuilder.newManagedApp(TestApplication.class, getManagementContext());
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        otherEntity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+    }
+
+    @AfterClass(alwaysRun = true)
+    @Override
+    public void tearDown() throws Exception {
+        if (app != null) Entities.destroy(app);
+        super.tearDown();
+    }
+
+    @Test
+    public void testStreamsSensorChangesForRequestedEntity() throws Exception {
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread changer = new Thread() {
+            public void run() {
+                for (int i = 0; !done.get(); i++) {
+                    entity.setAttribute(TestEntity.SEQUENCE, i);
+                    otherEntity.setAttribute(TestEntity.SEQUENCE, -1);
+                    Time.sleep(Duration.millis(50));
+                }
+            }
+        };
+        changer.start();
+        String body;
+        try {
+            ClientResponse response = client().resource("/v1/events")
+                    .queryParam("entity", entity.getId())
+                    .queryParam("types", "sensor")
+                    .queryParam("sensor", "test\\.seq.*")
+                    .queryParam("timeout", "2s")
+                    .accept(EventStreamApi.EVENT_STREAM)
+                    .get(ClientResponse.class);
+            assertEquals(response.getStatus(), 200);
+            assertTrue(response.getType().toString().startsWith(EventStreamApi.EVENT_STREAM), "type="+response.getType());
+            body = response.getEntity(String.class);
+        } finally {
+            done.set(true);
+            changer.join();
+        }
+
+        assertTrue(body.startsWith("retry: "), "body="+body);
+        assertTrue(body.contains("event: resync\n"), "body="+body);
+        assertTrue(body.contains("event: sensor\n"), "body="+body);
+        assertTrue(body.contains("\"entityId\":\""+entity.getId()+"\""), "body="+body);
+        assertTrue(body.contains("\"sensor\":\"test.sequence\""), "body="+body);
+        assertFalse(body.contains(otherEntity.getId()), "body="+body);
+        assertFalse(body.contains("\"value\":-1"), "body="+body);
+        assertFalse(body.contains("event: task\n"), "body="+body);
+    }
+
+    @Test
+    public void testStreamsTaskChanges() throws Exception {
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread invoker = new Thread() {
+            public void run() {
+                while (!done.get()) {
+                    entity.myEffector();
+                    Time.sleep(Duration.millis(50));
+                }
+            }
+        };
+        invoker.start();
+        String body;
+        try {
+            body = client().resource("/v1/events")
+                    .queryParam("application", app.getId())
+                    .queryParam("types", "task")
+                    .queryParam("timeout", "2s")
+                    .accept(EventStreamApi.EVENT_STREAM)
+                    .get(String.class);
+        } finally {
+            done.set(true);
+            invoker.join();
+        }
+        
+        assertTrue(body.contains("event: task\n"), "body="+body);
+        assertTrue(body.contains("\"displayName\":\"myEffector\""), "body="+body);
+        assertFalse(body.contains("event: sensor\n"), "body="+body);
+    }
+    
+    @Test
+    public void testRefusesClientsBeyondMaximum() throws Exception {
+        BrooklynProperties config = (BrooklynProperties) getManagementContext().getConfig();
+        config.put(BrooklynWebConfig.EVENT_STREAM_MAX_CLIENTS, 1);
+        try {
+            Thread streamer = new Thread() {
+                public void run() {
+                    client().resource("/v1/events").queryParam("timeout", "2s")
+                            .accept(EventStreamApi.EVENT_STREAM).get(String.class);
+                }
+            };
+            streamer.start();
+            try {
+                Asserts.succeedsEventually(new Runnable() {
+                    public void run() {
+                        assertEquals(client().resource("/v1/events").queryParam("timeout", "1ms")
+                                .accept(EventStreamApi.EVENT_STREAM).get(ClientResponse.class).getStatus(), 503);
+                    }
+                });
+            } finally {
+                streamer.join();
+            }
+            
+            // the slot is released when the stream ends
+            assertEquals(client().resource("/v1/events").queryParam("timeout", "1ms")
+                    .accept(EventStreamApi.EVENT_STREAM).get(ClientResponse.class).getStatus(), 200);
+        } finally {
+            config.remove(BrooklynWebConfig.EVENT_STREAM_MAX_CLIENTS.getName());
+        }
+    }
+
+    @Test
+    public void testRejectsInvalidRequests() throws Exception {
+        assertEquals(client().resource("/v1/events").queryParam("types", "bogus")
+                .accept(EventStreamApi.EVENT_STREAM).get(ClientResponse.class).getStatus(), 400);
+        assertEquals(client().resource("/v1/events").queryParam("sensor", "(unclosed")
+                .accept(EventStreamApi.EVENT_STREAM).get(ClientResponse.class).getStatus(), 400);
+        assertEquals(client().resource("/v1/events").queryParam("entity", "doesNotExist")
+                .accept(EventStreamApi.EVENT_STREAM).get(ClientResponse.class).getStatus(), 404);
+    }
+}
@@ -19,9 +19,15 @@
 package brooklyn.rest.resources;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 import java.util.Map;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -40,6 +46,7 @@ import brooklyn.rest.domain.ApplicationSpec;
 import brooklyn.rest.domain.EntitySpec;
 import brooklyn.rest.testing.BrooklynRestResourceTest;
 import brooklyn.rest.testing.mocks.RestMockSimpleEntity;
+import brooklyn.test.Asserts;
 import brooklyn.test.HttpTestUtils;
 import brooklyn.util.collections.MutableMap;
 import brooklyn.util.stream.Streams;
@@ -140,6 +147,59 @@ public class SensorResourceTest extends BrooklynRestResourceTest {
         }
     }
 
+    /** Check an unchanged entity gives a 304, and {@code since} returns only changed sensors. */
+    @Test
+    public void testBatchSensorReadConditionalAndSince() throws Exception {
+        final String endpoint = SENSORS_ENDPOINT + "/current-state";
+        final AttributeSensor<String> sensor = Sensors.newStringSensor("amphibian.versioned");
+
+        // other sensors may still be changing as the entity settles, so retry until nothing changes in between
+        Asserts.succeedsEventually(new Runnable() {
+            public void run() {
+                String etag = client().resource(endpoint).get(ClientResponse.class).getHeaders().getFirst(HttpHeaders.ETAG);
+                assertNotNull(etag);
+                ClientResponse response = client().resource(endpoint).header(HttpHeaders.IF_NONE_MATCH, etag).get(ClientResponse.class);
+                assertEquals(response.getStatus(), Response.Status.NOT_MODIFIED.getStatusCode());
+            }
+        });
+
+        String etag = client().resource(endpoint).get(ClientResponse.class).getHeaders().getFirst(HttpHeaders.ETAG);
+        entity.setAttribute(sensor, "changed");
+
+        ClientResponse response = client().resource(endpoint).header(HttpHeaders.IF_NONE_MATCH, etag).get(ClientResponse.class);
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        assertNotEquals(response.getHeaders().getFirst(HttpHeaders.ETAG), etag);
+
+        Map<String, ?> changes = client().resource(endpoint)
+                .queryParam("since", etag.replace("\"", ""))
+                .get(new GenericType<Map<String,?>>(Map.class) {});
+        assertEquals(changes.get("amphibian.versioned"), "changed");
+        assertFalse(changes.containsKey(SENSOR_NAME), "changes="+changes);
+
+        // a sensor set to null is returned as null; one removed is listed in a header instead
+        entity.setAttribute(sensor, null);
+        response = client().resource(endpoint).queryParam("since", etag.replace("\"", "")).get(ClientResponse.class);
+        changes = response.getEntity(new GenericType<Map<String,?>>(Map.class) {});
+        assertTrue(changes.containsKey("amphibian.versioned"), "changes="+changes);
+        assertNull(changes.get("amphibian.versioned"));
+        assertNull(response.getHeaders().getFirst(SensorApi.REMOVED_SENSORS_HEADER));
+
+        entity.removeAttribute(sensor);
+        response = client().resource(endpoint).queryParam("since", etag.replace("\"", "")).get(ClientResponse.class);
+        changes = response.getEntity(new GenericType<Map<String,?>>(Map.class) {});
+        assertFalse(changes.containsKey("amphibian.versioned"), "changes="+changes);
+        assertEquals(response.getHeaders().getFirst(SensorApi.REMOVED_SENSORS_HEADER), "amphibian.versioned");
+
+        // a since from a different server (or before a restart) gets everything
+        changes = client().resource(endpoint)
+                .queryParam("since", "someotherserver-1")
+                .get(new GenericType<Map<String,?>>(Map.class) {});
+        assertTrue(changes.containsKey(SENSOR_NAME), "changes="+changes);
+
+        response = client().resource(endpoint).queryParam("since", "notatag").get(ClientResponse.class);
+        assertEquals(response.getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
     protected ClientResponse doSensorTest(Boolean raw, MediaType acceptsType, Object expectedValue) {
         return doSensorTestUntyped(
             raw==null ? null : (""+raw).toLowerCase(), 
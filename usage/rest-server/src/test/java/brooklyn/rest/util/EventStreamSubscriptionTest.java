@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package brooklyn.rest.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import brooklyn.entity.Entity;
+import brooklyn.entity.basic.ApplicationBuilder;
+import brooklyn.entity.basic.Entities;
+import brooklyn.entity.proxying.EntitySpec;
+import brooklyn.rest.util.EventStreamSubscription.Change;
+import brooklyn.rest.util.EventStreamSubscription.Type;
+import brooklyn.test.entity.LocalManagementContextForTests;
+import brooklyn.test.entity.TestApplication;
+import brooklyn.test.entity.TestEntity;
+import brooklyn.util.time.Duration;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableSet;
+
+public class EventStreamSubscriptionTest {
+
+    private LocalManagementContextForTests mgmt;
+    private TestApplication app;
+    private TestEntity entity;
+    private TestEntity otherEntity;
+    private EventStreamSubscription subscription;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        mgmt = new LocalManagementContextForTests();
+        app = ApplicationBuilder.newManagedApp(TestApplication.class, mgmt);
+        entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        otherEntity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (subscription != null) subscription.close();
+        if (mgmt != null) Entities.destroyAll(mgmt);
+    }
+
+    @Test
+    public void testFirstTakeIsResync() throws Exception {
+        subscription = newSubscription(Predicates.alwaysTrue(), 10);
+        List<Change> changes = subscription.take(Duration.ZERO);
+        assertEquals(changes.size(), 1, "changes="+changes);
+        assertEquals(changes.get(0).getType(), Type.RESYNC);
+        assertEquals(changes.get(0).getValue(), 0);
+        assertEquals(subscription.take(Duration.millis(10)).size(), 0);
+    }
+    
+    @Test
+    public void testMergesChangesToSameKeyKeepingLatestInOrder() throws Exception {
+        subscription = newSubscription(Predicates.alwaysTrue(), 10);
+        subscription.take(Duration.ZERO);
+        Change a1 = newChange(), b = newChange(), a2 = newChange(), c = newChange();
+        subscription.offer("a", a1);
+        subscription.offer("b", b);
+        subscription.offer("a", a2);
+        subscription.offer(null, c);
+        assertEquals(subscription.getPendingCount(), 3);
+        
+        List<Change> changes = subscription.take(Duration.ZERO);
+        assertEquals(changes.size(), 3, "changes="+changes);
+        assertTrue(changes.get(0) == b);
+        assertTrue(changes.get(1) == a2);
+        assertTrue(changes.get(2) == c);
+    }
+    
+    @Test
+    public void testDiscardsAndResyncsWhenClientFallsBehind() throws Exception {
+        subscription = newSubscription(Predicates.alwaysTrue(), 2);
+        subscription.take(Duration.ZERO);
+        subscription.offer(null, newChange());
+        subscription.offer(null, newChange());
+        subscription.offer(null, newChange());
+        assertEquals(subscription.getPendingCount(), 0);
+        assertEquals(subscription.getDiscardedCount(), 3);
+        
+        Change lastChange = newChange();
+        subscription.offer(null, lastChange);
+        List<Change> changes = subscription.take(Duration.ZERO);
+        assertEquals(changes.size(), 2, "changes="+changes);
+        assertEquals(changes.get(0).getType(), Type.RESYNC);
+        assertEquals(changes.get(0).getValue(), 3);
+        assertTrue(changes.get(1) == lastChange);
+    }
+    
+    @Test
+    public void testReceivesFilteredSensorAndLifecycleChanges() throws Exception {
+        final String entityId = entity.getId();
+        subscription = newSubscription(new Predicate<Entity>() {
+            @Override public boolean apply(Entity input) {
+                return entityId.equals(input.getId());
+            }
+        }, 100).start();
+        subscription.take(Duration.ZERO);
+        
+        otherEntity.setAttribute(TestEntity.SEQUENCE, 2);
+        entity.setAttribute(TestEntity.SEQUENCE, 1);
+        entity.setAttribute(TestEntity.SERVICE_UP, true);
+        
+        // enrichers may also publish changes on the entity, so look for the ones we expect
+        List<Change> changes = takeAtLeast(3);
+        int sequenceIndex = -1, serviceUpSensorIndex = -1, serviceUpLifecycleIndex = -1;
+        for (int i=0; i<changes.size(); i++) {
+            Change change = changes.get(i);
+            assertEquals(change.getEntity(), entity, "changes="+changes);
+            if (change.getSensor().equals(TestEntity.SEQUENCE)) {
+                assertEquals(change.getType(), Type.SENSOR);
+                assertEquals(change.getValue(), 1);
+                sequenceIndex = i;
+            } else if (change.getSensor().equals(TestEntity.SERVICE_UP) && Boolean.TRUE.equals(change.getValue())) {
+                if (change.getType()==Type.SENSOR) serviceUpSensorIndex = i;
+                else if (change.getType()==Type.LIFECYCLE) serviceUpLifecycleIndex = i;
+            }
+        }
+        assertTrue(sequenceIndex >= 0, "changes="+changes);
+        assertTrue(serviceUpSensorIndex > sequenceIndex, "changes="+changes);
+        assertTrue(serviceUpLifecycleIndex > sequenceIndex, "changes="+changes);
+    }
+    
+    @Test
+    public void testReceivesTaskChanges() throws Exception {
+        subscription = newSubscription(Predicates.alwaysTrue(), 100).start();
+        subscription.take(Duration.ZERO);
+        
+        entity.myEffector();
+        
+        List<Change> changes = takeAtLeast(1);
+        boolean found = false;
+        for (Change change: changes) {
+            assertEquals(change.getType(), Type.TASK);
+            if (change.getTask().getDisplayName().equals("myEffector")) {
+                assertEquals(change.getEntity(), entity);
+                found = true;
+            }
+        }
+        assertTrue(found, "changes="+changes);
+    }
+    
+    @Test
+    public void testNothingReceivedAfterClose() throws Exception {
+        subscription = newSubscription(Predicates.alwaysTrue(), 100).start();
+        subscription.close();
+        entity.setAttribute(TestEntity.SEQUENCE, 1);
+        assertEquals(subscription.take(Duration.millis(50)).size(), 0);
+    }
+    
+    private EventStreamSubscription newSubscription(Predicate<? super Entity> entityFilter, int maxQueueSize) {
+        return new EventStreamSubscription(mgmt, entityFilter, Predicates.alwaysTrue(), 
+                ImmutableSet.of(Type.SENSOR, Type.TASK, Type.LIFECYCLE), maxQueueSize);
+    }
+    
+    private Change newChange() {
+        return new Change(Type.SENSOR, entity, TestEntity.SEQUENCE, 0, null, System.currentTimeMillis());
+    }
+    
+    private List<Change> takeAtLeast(int count) throws InterruptedException {
+        List<Change> result = subscription.take(Duration.TEN_SECONDS);
+        long end = System.currentTimeMillis() + 10*1000;
+        while (result.size() < count && System.currentTimeMillis() < end) {
+            result.addAll(subscription.take(Duration.millis(100)));
+        }
+        // give any unexpected changes a chance to arrive
+        result.addAll(subscription.take(Duration.millis(100)));
+        return result;
+    }
+}